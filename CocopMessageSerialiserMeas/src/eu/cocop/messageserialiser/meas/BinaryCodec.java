@@ -0,0 +1,1159 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.joda.time.Period;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+import eu.cocop.messageserialiser.meas.TemporalFilter.OperatorType;
+import eu.cocop.messageserialiser.meas.TemporalFilter.ValueReferenceType;
+
+/**
+ * A compact binary encoding for observations, items and "get observation"
+ * requests and responses. Use this between services that both use this
+ * library; XML remains the format at the system boundary. A decoded object
+ * serialises to the same XML as the original object.
+ *
+ * The format is as follows. All integers are unsigned LEB128 varints; signed
+ * values are zigzag-encoded first.
+ * <ul>
+ * <li>Header: the bytes 'C', 'B', the format version and the message kind.</li>
+ * <li>String table: the count of strings followed by each string as its
+ * UTF-8 length and bytes. The body refers to a string by its index plus one;
+ * zero means null. Each distinct string is stored once.</li>
+ * <li>Body: the message. Doubles are raw IEEE 754 in little-endian order, and
+ * timestamps are epoch milliseconds. Time series are columns: values,
+ * timestamps as deltas and data qualities as runs. Array columns have a
+ * null bitmap followed by the non-null values.</li>
+ * </ul>
+ *
+ * Only the built-in item types are supported. The types registered in
+ * {@link ResultTypeRegistry} have no binary encoding, so the objects that
+ * contain them must be serialised as XML.
+ * @author Petri Kannisto
+ */
+public final class BinaryCodec
+{
+	/**
+	 * The version of the format.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	
+	private static final byte MAGIC_1 = 'C';
+	private static final byte MAGIC_2 = 'B';
+	
+	private static final int KIND_OBSERVATION = 1;
+	private static final int KIND_ITEM = 2;
+	private static final int KIND_REQUEST = 3;
+	private static final int KIND_RESPONSE = 4;
+	
+	private static final int ITEM_NULL = 0;
+	private static final int ITEM_BOOLEAN = 1;
+	private static final int ITEM_CATEGORY = 2;
+	private static final int ITEM_COUNT = 3;
+	private static final int ITEM_MEASUREMENT = 4;
+	private static final int ITEM_TEXT = 5;
+	private static final int ITEM_TIMEINSTANT = 6;
+	private static final int ITEM_TIMERANGE = 7;
+	private static final int ITEM_ARRAY = 8;
+	private static final int ITEM_DATARECORD = 9;
+	private static final int ITEM_TIMESERIESCONSTANT = 10;
+	private static final int ITEM_TIMESERIESFLEXIBLE = 11;
+	
+	private static final int INSTANT_NULL = 0;
+	private static final int INSTANT_EXPLICIT_ZONE = 1;
+	private static final int INSTANT_IMPLICIT_ZONE = 2;
+	
+	private static final int COLUMN_BOOLEAN = 1;
+	private static final int COLUMN_LONG = 2;
+	private static final int COLUMN_DOUBLE = 3;
+	private static final int COLUMN_STRING = 4;
+	private static final int COLUMN_TIMEINSTANT = 5;
+	
+	
+	private BinaryCodec()
+	{
+		// Static members only
+	}
+	
+	/**
+	 * Checks whether the data looks like a binary message of this codec rather than XML.
+	 * @param bytes Data.
+	 * @return True if binary, otherwise false.
+	 */
+	public static boolean isBinary(byte[] bytes)
+	{
+		return bytes.length >= 4 && bytes[0] == MAGIC_1 && bytes[1] == MAGIC_2;
+	}
+	
+	/**
+	 * Encodes an observation.
+	 * @param obs Observation.
+	 * @return Encoded data.
+	 * @throws IllegalArgumentException Thrown if an item type has no binary encoding.
+	 */
+	public static byte[] encode(Observation obs) throws IllegalArgumentException
+	{
+		Writer writer = new Writer();
+		writeObservation(writer, obs);
+		return writer.toBytes(KIND_OBSERVATION);
+	}
+	
+	/**
+	 * Encodes an item.
+	 * @param item Item.
+	 * @return Encoded data.
+	 * @throws IllegalArgumentException Thrown if an item type has no binary encoding.
+	 */
+	public static byte[] encode(Item item) throws IllegalArgumentException
+	{
+		Writer writer = new Writer();
+		writeItem(writer, item);
+		return writer.toBytes(KIND_ITEM);
+	}
+	
+	/**
+	 * Encodes a "get observation" request.
+	 * @param request Request.
+	 * @return Encoded data.
+	 * @throws IllegalArgumentException Thrown if an item type has no binary encoding.
+	 */
+	public static byte[] encode(GetObservationRequest request) throws IllegalArgumentException
+	{
+		Writer writer = new Writer();
+		
+		writer.writeVarint(request.getFeaturesOfInterest().size());
+		
+		for (String s : request.getFeaturesOfInterest())
+		{
+			writer.writeString(s);
+		}
+		
+		writer.writeVarint(request.getObservedProperties().size());
+		
+		for (String s : request.getObservedProperties())
+		{
+			writer.writeString(s);
+		}
+		
+		writer.writeVarint(request.getTemporalFilters().size());
+		
+		for (TemporalFilter filter : request.getTemporalFilters())
+		{
+			writer.writeVarint(filter.getValueReference().ordinal());
+			writer.writeVarint(filter.getOperator().ordinal());
+			writeItem(writer, filter.getTime());
+		}
+		
+		writer.writeVarint(request.getItems().size());
+		
+		for (Item_DataRecord record : request.getItems())
+		{
+			writeItem(writer, record);
+		}
+		
+		return writer.toBytes(KIND_REQUEST);
+	}
+	
+	/**
+	 * Encodes a "get observation" response.
+	 * @param response Response.
+	 * @return Encoded data.
+	 * @throws IllegalArgumentException Thrown if an item type has no binary encoding.
+	 */
+	public static byte[] encode(GetObservationResponse response) throws IllegalArgumentException
+	{
+		Writer writer = new Writer();
+		writer.writeVarint(response.getObservations().size());
+		
+		for (Observation obs : response.getObservations())
+		{
+			writeObservation(writer, obs);
+		}
+		
+		return writer.toBytes(KIND_RESPONSE);
+	}
+	
+	/**
+	 * Decodes an observation.
+	 * @param bytes Encoded data.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if the data is invalid.
+	 */
+	public static Observation decodeObservation(byte[] bytes) throws InvalidMessageException
+	{
+		Reader reader = new Reader(bytes, KIND_OBSERVATION);
+		
+		try
+		{
+			Observation retval = readObservation(reader);
+			reader.expectEnd();
+			return retval;
+		}
+		catch (RuntimeException e)
+		{
+			throw new InvalidMessageException("Failed to decode binary observation", e);
+		}
+	}
+	
+	/**
+	 * Decodes an item.
+	 * @param bytes Encoded data.
+	 * @return Item.
+	 * @throws InvalidMessageException Thrown if the data is invalid.
+	 */
+	public static Item decodeItem(byte[] bytes) throws InvalidMessageException
+	{
+		Reader reader = new Reader(bytes, KIND_ITEM);
+		
+		try
+		{
+			Item retval = readItem(reader);
+			reader.expectEnd();
+			return retval;
+		}
+		catch (RuntimeException e)
+		{
+			throw new InvalidMessageException("Failed to decode binary item", e);
+		}
+	}
+	
+	/**
+	 * Decodes a "get observation" request.
+	 * @param bytes Encoded data.
+	 * @return Request.
+	 * @throws InvalidMessageException Thrown if the data is invalid.
+	 */
+	public static GetObservationRequest decodeGetObservationRequest(byte[] bytes) throws InvalidMessageException
+	{
+		Reader reader = new Reader(bytes, KIND_REQUEST);
+		
+		try
+		{
+			GetObservationRequest retval = new GetObservationRequest();
+			int featureCount = reader.readCount();
+			
+			for (int a = 0; a < featureCount; ++a)
+			{
+				retval.getFeaturesOfInterest().add(reader.readString());
+			}
+			
+			int propertyCount = reader.readCount();
+			
+			for (int a = 0; a < propertyCount; ++a)
+			{
+				retval.getObservedProperties().add(reader.readString());
+			}
+			
+			ValueReferenceType[] valueRefs = ValueReferenceType.values();
+			OperatorType[] operators = OperatorType.values();
+			int filterCount = reader.readCount();
+			
+			for (int a = 0; a < filterCount; ++a)
+			{
+				ValueReferenceType valueRef = valueRefs[reader.readVarintInt()];
+				OperatorType operator = operators[reader.readVarintInt()];
+				retval.getTemporalFilters().add(new TemporalFilter(valueRef, operator, readItem(reader)));
+			}
+			
+			int itemCount = reader.readCount();
+			
+			for (int a = 0; a < itemCount; ++a)
+			{
+				retval.getItems().add((Item_DataRecord)readItem(reader));
+			}
+			
+			reader.expectEnd();
+			return retval;
+		}
+		catch (RuntimeException e)
+		{
+			throw new InvalidMessageException("Failed to decode binary request", e);
+		}
+	}
+	
+	/**
+	 * Decodes a "get observation" response.
+	 * @param bytes Encoded data.
+	 * @return Response.
+	 * @throws InvalidMessageException Thrown if the data is invalid.
+	 */
+	public static GetObservationResponse decodeGetObservationResponse(byte[] bytes) throws InvalidMessageException
+	{
+		Reader reader = new Reader(bytes, KIND_RESPONSE);
+		
+		try
+		{
+			GetObservationResponse retval = new GetObservationResponse();
+			int count = reader.readCount();
+			
+			for (int a = 0; a < count; ++a)
+			{
+				retval.getObservations().add(readObservation(reader));
+			}
+			
+			reader.expectEnd();
+			return retval;
+		}
+		catch (RuntimeException e)
+		{
+			throw new InvalidMessageException("Failed to decode binary response", e);
+		}
+	}
+	
+	
+	
+	// ### Observations ###
+	
+	private static void writeObservation(Writer writer, Observation obs)
+	{
+		writer.writeString(obs.getName());
+		writer.writeString(obs.getDescription());
+		writer.writeInstant(obs.getPhenomenonTime());
+		writer.writeInstant(obs.getResultTime());
+		writer.writeString(obs.getProcedure());
+		writer.writeString(obs.getObservedProperty());
+		writer.writeString(obs.getFeatureOfInterest());
+		writer.writeQuality(obs.getResultQuality());
+		writeItem(writer, obs.getResult());
+	}
+	
+	private static Observation readObservation(Reader reader) throws InvalidMessageException
+	{
+		String name = reader.readString();
+		String description = reader.readString();
+		Item_TimeInstant phenoTime = reader.readInstant();
+		Item_TimeInstant resultTime = reader.readInstant();
+		String procedure = reader.readString();
+		String property = reader.readString();
+		String feature = reader.readString();
+		DataQuality quality = reader.readQuality();
+		
+		Observation retval = new Observation(readItem(reader));
+		retval.setName(name);
+		retval.setDescription(description);
+		retval.setPhenomenonTime(phenoTime);
+		retval.setResultTime(resultTime);
+		retval.setProcedure(procedure);
+		retval.setObservedProperty(property);
+		retval.setFeatureOfInterest(feature);
+		retval.setResultQuality(quality);
+		return retval;
+	}
+	
+	
+	
+	// ### Items ###
+	
+	private static void writeItem(Writer writer, Item item)
+	{
+		if (item == null)
+		{
+			writer.writeVarint(ITEM_NULL);
+		}
+		else if (item instanceof Item_Measurement)
+		{
+			Item_Measurement measurement = (Item_Measurement)item;
+			writer.writeVarint(ITEM_MEASUREMENT);
+			writer.writeString(measurement.getUnitOfMeasure());
+			writer.writeDouble(measurement.getValue());
+		}
+		else if (item instanceof Item_Boolean)
+		{
+			writer.writeVarint(ITEM_BOOLEAN);
+			writer.writeVarint(((Item_Boolean)item).getValue() ? 1 : 0);
+		}
+		else if (item instanceof Item_Category)
+		{
+			writer.writeVarint(ITEM_CATEGORY);
+			writer.writeString(((Item_Category)item).getValue());
+		}
+		else if (item instanceof Item_Count)
+		{
+			writer.writeVarint(ITEM_COUNT);
+			writer.writeZigzag(((Item_Count)item).getValue());
+		}
+		else if (item instanceof Item_Text)
+		{
+			writer.writeVarint(ITEM_TEXT);
+			writer.writeString(((Item_Text)item).getValue());
+		}
+		else if (item instanceof Item_TimeInstant)
+		{
+			writer.writeVarint(ITEM_TIMEINSTANT);
+			writer.writeInstant((Item_TimeInstant)item);
+		}
+		else if (item instanceof Item_TimeRange)
+		{
+			Item_TimeRange range = (Item_TimeRange)item;
+			writer.writeVarint(ITEM_TIMERANGE);
+			writer.writeInstant(range.getStart());
+			writer.writeInstant(range.getEnd());
+		}
+		else if (item instanceof Item_Array)
+		{
+			writer.writeVarint(ITEM_ARRAY);
+			writeArray(writer, (Item_Array)item);
+		}
+		else if (item instanceof Item_DataRecord)
+		{
+			writer.writeVarint(ITEM_DATARECORD);
+			writeDataRecord(writer, (Item_DataRecord)item);
+		}
+		else if (item instanceof Item_TimeSeriesConstant)
+		{
+			Item_TimeSeriesConstant series = (Item_TimeSeriesConstant)item;
+			writer.writeVarint(ITEM_TIMESERIESCONSTANT);
+			writer.writeString(series.getUnitOfMeasure());
+			writer.writeString(series.getDescription());
+			writer.writeInstant(series.getBaseTime());
+			writer.writeString(series.getSpacing() == null ? null : series.getSpacing().toString());
+			writeSeriesColumns(writer, series, false);
+		}
+		else if (item instanceof Item_TimeSeriesFlexible)
+		{
+			Item_TimeSeriesFlexible series = (Item_TimeSeriesFlexible)item;
+			writer.writeVarint(ITEM_TIMESERIESFLEXIBLE);
+			writer.writeString(series.getUnitOfMeasure());
+			writer.writeString(series.getDescription());
+			writeSeriesColumns(writer, series, true);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported item type " + item.getClass().getSimpleName() + "; registered types have no binary encoding");
+		}
+	}
+	
+	private static Item readItem(Reader reader) throws InvalidMessageException
+	{
+		int tag = reader.readVarintInt();
+		
+		switch (tag)
+		{
+		case ITEM_NULL:
+			return null;
+		
+		case ITEM_MEASUREMENT:
+			String uom = reader.readString();
+			return new Item_Measurement(uom, reader.readDouble());
+		
+		case ITEM_BOOLEAN:
+			return new Item_Boolean(reader.readVarintInt() != 0);
+		
+		case ITEM_CATEGORY:
+			return new Item_Category(reader.readString());
+		
+		case ITEM_COUNT:
+			return new Item_Count(reader.readZigzag());
+		
+		case ITEM_TEXT:
+			return new Item_Text(reader.readString());
+		
+		case ITEM_TIMEINSTANT:
+			return reader.readInstant();
+		
+		case ITEM_TIMERANGE:
+			Item_TimeInstant start = reader.readInstant();
+			return new Item_TimeRange(start, reader.readInstant());
+		
+		case ITEM_ARRAY:
+			return readArray(reader);
+		
+		case ITEM_DATARECORD:
+			return readDataRecord(reader);
+		
+		case ITEM_TIMESERIESCONSTANT:
+		{
+			String seriesUom = reader.readString();
+			String description = reader.readString();
+			Item_TimeInstant baseTime = reader.readInstant();
+			String spacing = reader.readString();
+			
+			Item_TimeSeriesConstant series = new Item_TimeSeriesConstant(seriesUom, baseTime, spacing == null ? null : Period.parse(spacing));
+			series.setDescription(description);
+			readSeriesColumns(reader, series, null);
+			return series;
+		}
+		
+		case ITEM_TIMESERIESFLEXIBLE:
+		{
+			String seriesUom = reader.readString();
+			String description = reader.readString();
+			
+			Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible(seriesUom);
+			series.setDescription(description);
+			readSeriesColumns(reader, series, series);
+			return series;
+		}
+		
+		default:
+			throw new InvalidMessageException("Unknown item type " + tag + " in binary message");
+		}
+	}
+	
+	private static void writeDataRecord(Writer writer, Item_DataRecord record)
+	{
+		writer.writeVarint(record.getItemNames().size());
+		
+		for (String name : record.getItemNames())
+		{
+			writer.writeString(name);
+			writer.writeQuality(record.getExplicitQualityOfItem(name));
+			writeItem(writer, record.getItem(name));
+		}
+	}
+	
+	private static Item_DataRecord readDataRecord(Reader reader) throws InvalidMessageException
+	{
+		Item_DataRecord retval = new Item_DataRecord();
+		int count = reader.readCount();
+		
+		for (int a = 0; a < count; ++a)
+		{
+			String name = reader.readString();
+			DataQuality quality = reader.readQuality();
+			Item item = readItem(reader);
+			
+			if (quality == null)
+			{
+				retval.addItem(name, item);
+			}
+			else
+			{
+				retval.addItem(name, item, quality);
+			}
+		}
+		
+		return retval;
+	}
+	
+	private static void writeSeriesColumns(Writer writer, Item_TimeSeries series, boolean timestamps)
+	{
+		int count = series.getValueCount();
+		writer.writeVarint(count);
+		
+		if (count == 0)
+		{
+			return;
+		}
+		
+		long[] times = null;
+		double[] values;
+		DataQuality[] qualities;
+		int offset;
+		
+		if (series.isCompressed())
+		{
+			// Decoding once with a cursor
+			times = timestamps ? new long[count] : null;
+			values = new double[count];
+			qualities = new DataQuality[count];
+			offset = 0;
+			TimeSeriesCursor cursor = series.createCursor();
+			
+			while (cursor.next())
+			{
+				int index = cursor.getIndex();
+				
+				if (timestamps)
+				{
+					times[index] = cursor.getTimestampMillis();
+				}
+				
+				values[index] = cursor.getValue();
+				qualities[index] = cursor.getDataQuality();
+			}
+		}
+		else
+		{
+			values = series.getValueArray();
+			qualities = series.getDataQualityArray();
+			offset = series.getArrayOffset();
+			
+			if (timestamps)
+			{
+				times = ((Item_TimeSeriesFlexible)series).getTimestampMillisArray();
+			}
+		}
+		
+		if (timestamps)
+		{
+			// The first timestamp as such, then deltas
+			long previous = 0;
+			
+			for (int a = offset; a < offset + count; ++a)
+			{
+				writer.writeZigzag(times[a] - previous);
+				previous = times[a];
+			}
+		}
+		
+		writer.writeDoubles(values, offset, count);
+		
+		// Qualities as runs of equal values
+		int runStart = offset;
+		
+		for (int a = offset + 1; a <= offset + count; ++a)
+		{
+			if (a == offset + count || !qualities[a].getValue().equals(qualities[runStart].getValue()))
+			{
+				writer.writeVarint(a - runStart);
+				writer.writeQuality(qualities[runStart]);
+				runStart = a;
+			}
+		}
+	}
+	
+	private static void readSeriesColumns(Reader reader, Item_TimeSeries series, Item_TimeSeriesFlexible flexible) throws InvalidMessageException
+	{
+		int count = reader.readCount();
+		
+		if (count == 0)
+		{
+			return;
+		}
+		
+		long[] times = null;
+		
+		if (flexible != null)
+		{
+			times = new long[count];
+			long previous = 0;
+			
+			for (int a = 0; a < count; ++a)
+			{
+				previous += reader.readZigzag();
+				times[a] = previous;
+			}
+		}
+		
+		double[] values = reader.readDoubles(count);
+		DataQuality[] qualities = new DataQuality[count];
+		int position = 0;
+		
+		while (position < count)
+		{
+			int runLength = reader.readVarintInt();
+			DataQuality quality = reader.readQuality();
+			
+			if (runLength <= 0 || runLength > count - position || quality == null)
+			{
+				throw new InvalidMessageException("Invalid data quality run in binary message");
+			}
+			
+			Arrays.fill(qualities, position, position + runLength, quality);
+			position += runLength;
+		}
+		
+		if (flexible != null)
+		{
+			flexible.addValues(times, values, qualities, 0, count);
+		}
+		else
+		{
+			((Item_TimeSeriesConstant)series).addValues(values, qualities, 0, count);
+		}
+	}
+	
+	private static void writeArray(Writer writer, Item_Array array)
+	{
+		ArrayList<ArrayColumn> columns = array.getColumns();
+		int rowCount = array.getRowCount();
+		int[] columnTypes = new int[columns.size()];
+		writer.writeVarint(columns.size());
+		
+		for (int c = 0; c < columns.size(); ++c)
+		{
+			ArrayColumn column = columns.get(c);
+			columnTypes[c] = getColumnType(column.getDataType());
+			writer.writeString(column.getName());
+			writer.writeVarint(columnTypes[c]);
+			writer.writeString(column.getUnitOfMeasure());
+			writer.writeString(column.getLabel());
+			writer.writeString(column.getDescription());
+		}
+		
+		writer.writeVarint(rowCount);
+		
+		// Column by column: a null bitmap and then the non-null values
+		byte[] bitmap = new byte[(rowCount + 7) / 8];
+		
+		for (int c = 0; c < columns.size(); ++c)
+		{
+			Arrays.fill(bitmap, (byte)0);
+			
+			for (int r = 0; r < rowCount; ++r)
+			{
+				if (array.get(r)[c] != null)
+				{
+					bitmap[r >>> 3] |= 1 << (r & 7);
+				}
+			}
+			
+			writer.writeBytes(bitmap);
+			
+			for (int r = 0; r < rowCount; ++r)
+			{
+				Object cell = array.get(r)[c];
+				
+				if (cell == null)
+				{
+					continue;
+				}
+				
+				switch (columnTypes[c])
+				{
+				case COLUMN_BOOLEAN:
+					writer.writeVarint((Boolean)cell ? 1 : 0);
+					break;
+				case COLUMN_LONG:
+					writer.writeZigzag((Long)cell);
+					break;
+				case COLUMN_DOUBLE:
+					writer.writeDouble((Double)cell);
+					break;
+				case COLUMN_TIMEINSTANT:
+					writer.writeInstant((Item_TimeInstant)cell);
+					break;
+				default:
+					writer.writeString((String)cell);
+					break;
+				}
+			}
+		}
+	}
+	
+	private static Item_Array readArray(Reader reader) throws InvalidMessageException
+	{
+		int columnCount = reader.readCount();
+		ArrayList<ArrayColumn> columns = new ArrayList<>(columnCount);
+		int[] columnTypes = new int[columnCount];
+		
+		for (int c = 0; c < columnCount; ++c)
+		{
+			String name = reader.readString();
+			columnTypes[c] = reader.readVarintInt();
+			String uom = reader.readString();
+			ArrayColumn column = new ArrayColumn(name, getColumnClass(columnTypes[c]), uom);
+			column.setLabel(reader.readString());
+			column.setDescription(reader.readString());
+			columns.add(column);
+		}
+		
+		int rowCount = reader.readCount();
+		
+		// Each column has a bitmap of the rows; this prevents huge allocations
+		reader.checkAvailable((long)columnCount * ((rowCount + 7) / 8));
+		Object[][] rows = new Object[rowCount][columnCount];
+		
+		for (int c = 0; c < columnCount; ++c)
+		{
+			byte[] bitmap = reader.readBytes((rowCount + 7) / 8);
+			
+			for (int r = 0; r < rowCount; ++r)
+			{
+				if ((bitmap[r >>> 3] & (1 << (r & 7))) == 0)
+				{
+					continue;
+				}
+				
+				switch (columnTypes[c])
+				{
+				case COLUMN_BOOLEAN:
+					rows[r][c] = reader.readVarintInt() != 0;
+					break;
+				case COLUMN_LONG:
+					rows[r][c] = reader.readZigzag();
+					break;
+				case COLUMN_DOUBLE:
+					rows[r][c] = reader.readDouble();
+					break;
+				case COLUMN_TIMEINSTANT:
+					rows[r][c] = reader.readInstant();
+					break;
+				default:
+					rows[r][c] = reader.readString();
+					break;
+				}
+			}
+		}
+		
+		Item_Array retval = new Item_Array(columns);
+		
+		for (Object[] row : rows)
+		{
+			retval.add(row);
+		}
+		
+		return retval;
+	}
+	
+	private static int getColumnType(Class<?> type)
+	{
+		if (type == Boolean.class)
+		{
+			return COLUMN_BOOLEAN;
+		}
+		else if (type == Long.class)
+		{
+			return COLUMN_LONG;
+		}
+		else if (type == Double.class)
+		{
+			return COLUMN_DOUBLE;
+		}
+		else if (type == Item_TimeInstant.class)
+		{
+			return COLUMN_TIMEINSTANT;
+		}
+		else
+		{
+			return COLUMN_STRING;
+		}
+	}
+	
+	private static Class<?> getColumnClass(int columnType) throws InvalidMessageException
+	{
+		switch (columnType)
+		{
+		case COLUMN_BOOLEAN:
+			return Boolean.class;
+		case COLUMN_LONG:
+			return Long.class;
+		case COLUMN_DOUBLE:
+			return Double.class;
+		case COLUMN_STRING:
+			return String.class;
+		case COLUMN_TIMEINSTANT:
+			return Item_TimeInstant.class;
+		default:
+			throw new InvalidMessageException("Unknown array column type " + columnType + " in binary message");
+		}
+	}
+	
+	
+	
+	// ### Primitive encoding ###
+	
+	/**
+	 * Writes the body and the string table of a message.
+	 */
+	private static final class Writer
+	{
+		private byte[] m_buffer = new byte[256];
+		private int m_length = 0;
+		
+		private final HashMap<String, Integer> m_stringIndices = new HashMap<>();
+		private final ArrayList<String> m_strings = new ArrayList<>();
+		
+		void writeVarint(long value)
+		{
+			ensureCapacity(10);
+			
+			while ((value & ~0x7FL) != 0)
+			{
+				m_buffer[m_length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			
+			m_buffer[m_length++] = (byte)value;
+		}
+		
+		void writeZigzag(long value)
+		{
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+		
+		void writeDouble(double value)
+		{
+			ensureCapacity(8);
+			putLong(Double.doubleToRawLongBits(value));
+		}
+		
+		void writeDoubles(double[] values, int offset, int count)
+		{
+			ensureCapacity(8 * count);
+			
+			for (int a = offset; a < offset + count; ++a)
+			{
+				putLong(Double.doubleToRawLongBits(values[a]));
+			}
+		}
+		
+		void writeBytes(byte[] bytes)
+		{
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, m_buffer, m_length, bytes.length);
+			m_length += bytes.length;
+		}
+		
+		void writeString(String s)
+		{
+			if (s == null)
+			{
+				writeVarint(0);
+				return;
+			}
+			
+			Integer index = m_stringIndices.get(s);
+			
+			if (index == null)
+			{
+				index = m_strings.size();
+				m_strings.add(s);
+				m_stringIndices.put(s, index);
+			}
+			
+			writeVarint(index + 1);
+		}
+		
+		void writeQuality(DataQuality quality)
+		{
+			writeString(quality == null ? null : quality.getValue());
+		}
+		
+		void writeInstant(Item_TimeInstant instant)
+		{
+			if (instant == null)
+			{
+				writeVarint(INSTANT_NULL);
+			}
+			else
+			{
+				writeVarint(instant.getHasExplicitUtcOffset() ? INSTANT_EXPLICIT_ZONE : INSTANT_IMPLICIT_ZONE);
+				writeZigzag(instant.getValue().getMillis());
+			}
+		}
+		
+		byte[] toBytes(int kind)
+		{
+			// The header and the string table precede the body
+			Writer head = new Writer();
+			head.m_buffer[0] = MAGIC_1;
+			head.m_buffer[1] = MAGIC_2;
+			head.m_buffer[2] = (byte)FORMAT_VERSION;
+			head.m_buffer[3] = (byte)kind;
+			head.m_length = 4;
+			head.writeVarint(m_strings.size());
+			
+			for (String s : m_strings)
+			{
+				byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+				head.writeVarint(utf8.length);
+				head.writeBytes(utf8);
+			}
+			
+			byte[] retval = Arrays.copyOf(head.m_buffer, head.m_length + m_length);
+			System.arraycopy(m_buffer, 0, retval, head.m_length, m_length);
+			return retval;
+		}
+		
+		private void putLong(long bits)
+		{
+			for (int a = 0; a < 8; ++a)
+			{
+				m_buffer[m_length++] = (byte)bits;
+				bits >>>= 8;
+			}
+		}
+		
+		private void ensureCapacity(int extra)
+		{
+			if (m_length + extra > m_buffer.length)
+			{
+				m_buffer = Arrays.copyOf(m_buffer, Math.max(m_buffer.length * 2, m_length + extra));
+			}
+		}
+	}
+	
+	/**
+	 * Reads a message. The methods throw runtime exceptions on malformed data,
+	 * and the public decode methods convert these to InvalidMessageException.
+	 */
+	private static final class Reader
+	{
+		private final byte[] m_bytes;
+		private int m_position;
+		private final String[] m_strings;
+		
+		Reader(byte[] bytes, int expectedKind) throws InvalidMessageException
+		{
+			m_bytes = bytes;
+			
+			if (!isBinary(bytes))
+			{
+				throw new InvalidMessageException("Not a binary message");
+			}
+			if (bytes[2] != FORMAT_VERSION)
+			{
+				throw new InvalidMessageException("Unsupported binary format version " + bytes[2]);
+			}
+			if (bytes[3] != expectedKind)
+			{
+				throw new InvalidMessageException("Unexpected message type in binary message");
+			}
+			
+			m_position = 4;
+			
+			try
+			{
+				m_strings = new String[readCount()];
+				
+				for (int a = 0; a < m_strings.length; ++a)
+				{
+					int length = readCount();
+					checkAvailable(length);
+					m_strings[a] = new String(m_bytes, m_position, length, StandardCharsets.UTF_8);
+					m_position += length;
+				}
+			}
+			catch (RuntimeException e)
+			{
+				throw new InvalidMessageException("Failed to read the string table of a binary message", e);
+			}
+		}
+		
+		long readVarint()
+		{
+			long retval = 0;
+			
+			for (int shift = 0; shift < 64; shift += 7)
+			{
+				checkAvailable(1);
+				byte b = m_bytes[m_position++];
+				retval |= (long)(b & 0x7F) << shift;
+				
+				if ((b & 0x80) == 0)
+				{
+					return retval;
+				}
+			}
+			
+			throw new IllegalArgumentException("Malformed varint");
+		}
+		
+		int readVarintInt()
+		{
+			long value = readVarint();
+			
+			if (value > Integer.MAX_VALUE)
+			{
+				throw new IllegalArgumentException("Value out of range");
+			}
+			
+			return (int)value;
+		}
+		
+		int readCount()
+		{
+			// Each counted element takes at least one byte; this prevents huge allocations
+			int retval = readVarintInt();
+			checkAvailable(retval);
+			return retval;
+		}
+		
+		long readZigzag()
+		{
+			long value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+		
+		double readDouble()
+		{
+			checkAvailable(8);
+			return Double.longBitsToDouble(getLong());
+		}
+		
+		double[] readDoubles(int count)
+		{
+			checkAvailable(8L * count);
+			double[] retval = new double[count];
+			
+			for (int a = 0; a < count; ++a)
+			{
+				retval[a] = Double.longBitsToDouble(getLong());
+			}
+			
+			return retval;
+		}
+		
+		byte[] readBytes(int count)
+		{
+			checkAvailable(count);
+			byte[] retval = Arrays.copyOfRange(m_bytes, m_position, m_position + count);
+			m_position += count;
+			return retval;
+		}
+		
+		String readString()
+		{
+			int index = readVarintInt();
+			return index == 0 ? null : m_strings[index - 1];
+		}
+		
+		DataQuality readQuality()
+		{
+			String value = readString();
+			return value == null ? null : DataQuality.fromXml(value);
+		}
+		
+		Item_TimeInstant readInstant()
+		{
+			int tag = readVarintInt();
+			
+			switch (tag)
+			{
+			case INSTANT_NULL:
+				return null;
+			case INSTANT_EXPLICIT_ZONE:
+				return new Item_TimeInstant(readZigzag(), true);
+			case INSTANT_IMPLICIT_ZONE:
+				return new Item_TimeInstant(readZigzag(), false);
+			default:
+				throw new IllegalArgumentException("Unknown timestamp type " + tag);
+			}
+		}
+		
+		void expectEnd()
+		{
+			if (m_position != m_bytes.length)
+			{
+				throw new IllegalArgumentException("Unexpected data after the end of the message");
+			}
+		}
+		
+		private long getLong()
+		{
+			long retval = 0;
+			
+			for (int a = 0; a < 8; ++a)
+			{
+				retval |= (m_bytes[m_position++] & 0xFFL) << (8 * a);
+			}
+			
+			return retval;
+		}
+		
+		private void checkAvailable(long count)
+		{
+			if (count < 0 || count > m_bytes.length - m_position)
+			{
+				throw new IllegalArgumentException("Unexpected end of binary message");
+			}
+		}
+	}
+}
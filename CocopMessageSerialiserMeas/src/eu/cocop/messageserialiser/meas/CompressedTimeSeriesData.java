@@ -0,0 +1,533 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.Arrays;
+
+/**
+ * Compressed storage of time series data as in the Gorilla paper (Pelkonen
+ * et al. 2015, "Gorilla: A Fast, Scalable, In-Memory Time Series Database").
+ * Timestamps are encoded as deltas of deltas and values as the XOR of
+ * consecutive values, both with variable-length bit fields. Data qualities
+ * are stored as runs, because the quality seldom changes.
+ *
+ * The samples are in blocks of a fixed size, so that random access only
+ * needs to decode the preceding samples in the same block. Appending
+ * continues the bit stream of the last block without decoding anything.
+ * @author Petri Kannisto
+ */
+final class CompressedTimeSeriesData
+{
+	/**
+	 * The count of samples per block. Random access decodes at most this many samples.
+	 */
+	static final int BLOCK_SIZE = 128;
+	
+	private final boolean m_hasTimestamps;
+	
+	private Block[] m_blocks = new Block[4];
+	private int m_blockCount = 0;
+	private int m_count = 0;
+	
+	// Quality runs: the start index and the quality of each run
+	private int[] m_qualityRunStarts = new int[4];
+	private DataQuality[] m_qualityRunValues = new DataQuality[4];
+	private int m_qualityRunCount = 0;
+	
+	
+	/**
+	 * Constructor.
+	 * @param hasTimestamps Whether timestamps are stored. If false, the
+	 * timestamps given to {@link #append(long, double, DataQuality)} are ignored.
+	 */
+	CompressedTimeSeriesData(boolean hasTimestamps)
+	{
+		m_hasTimestamps = hasTimestamps;
+	}
+	
+	/**
+	 * Whether timestamps are stored.
+	 * @return True if stored, otherwise false.
+	 */
+	boolean getHasTimestamps()
+	{
+		return m_hasTimestamps;
+	}
+	
+	/**
+	 * Gets the count of samples.
+	 * @return Count.
+	 */
+	int getCount()
+	{
+		return m_count;
+	}
+	
+	/**
+	 * Appends a sample.
+	 * @param millis Timestamp in epoch milliseconds.
+	 * @param value Value.
+	 * @param dq Data quality.
+	 */
+	void append(long millis, double value, DataQuality dq)
+	{
+		if (m_count % BLOCK_SIZE == 0)
+		{
+			// Trimming the full block to save memory
+			if (m_blockCount > 0)
+			{
+				m_blocks[m_blockCount - 1].trim();
+			}
+			
+			if (m_blockCount == m_blocks.length)
+			{
+				m_blocks = Arrays.copyOf(m_blocks, m_blocks.length * 2);
+			}
+			
+			m_blocks[m_blockCount++] = new Block(millis, value);
+		}
+		else
+		{
+			m_blocks[m_blockCount - 1].append(m_hasTimestamps, millis, value);
+		}
+		
+		// Starting a new quality run if the quality changes
+		DataQuality previous = m_qualityRunCount == 0 ? null : m_qualityRunValues[m_qualityRunCount - 1];
+		
+		if (previous == null || (previous != dq && !previous.getValue().equals(dq.getValue())))
+		{
+			if (m_qualityRunCount == m_qualityRunStarts.length)
+			{
+				m_qualityRunStarts = Arrays.copyOf(m_qualityRunStarts, m_qualityRunCount * 2);
+				m_qualityRunValues = Arrays.copyOf(m_qualityRunValues, m_qualityRunCount * 2);
+			}
+			
+			m_qualityRunStarts[m_qualityRunCount] = m_count;
+			m_qualityRunValues[m_qualityRunCount] = dq;
+			++m_qualityRunCount;
+		}
+		
+		++m_count;
+	}
+	
+	/**
+	 * Gets the timestamp of the last sample.
+	 * @return Timestamp in epoch milliseconds.
+	 */
+	long getLastTimestamp()
+	{
+		return m_blocks[m_blockCount - 1].m_lastTimestamp;
+	}
+	
+	/**
+	 * Gets the timestamp of a sample. This decodes up to {@link #BLOCK_SIZE} samples.
+	 * @param index Index.
+	 * @return Timestamp in epoch milliseconds.
+	 */
+	long getTimestamp(int index)
+	{
+		return seek(index).getTimestamp();
+	}
+	
+	/**
+	 * Gets the value of a sample. This decodes up to {@link #BLOCK_SIZE} samples.
+	 * @param index Index.
+	 * @return Value.
+	 */
+	double getValue(int index)
+	{
+		return seek(index).getValue();
+	}
+	
+	/**
+	 * Gets the data quality of a sample with a binary search over the quality runs.
+	 * @param index Index.
+	 * @return Data quality.
+	 */
+	DataQuality getDataQuality(int index)
+	{
+		int position = Arrays.binarySearch(m_qualityRunStarts, 0, m_qualityRunCount, index);
+		
+		// If not found, the insertion point follows the run that contains the index
+		return m_qualityRunValues[position >= 0 ? position : -position - 2];
+	}
+	
+	/**
+	 * Estimates the memory used by the compressed data.
+	 * @return Size in bytes.
+	 */
+	long getSizeInBytes()
+	{
+		// Object headers and fields are estimated roughly
+		long retval = 16 + 4 * m_blocks.length + 8 * m_qualityRunStarts.length;
+		
+		for (int a = 0; a < m_blockCount; ++a)
+		{
+			retval += 64 + 8 * m_blocks[a].m_words.length;
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Creates a reader that decodes the samples sequentially from the start.
+	 * @return Reader.
+	 */
+	Reader createReader()
+	{
+		return new Reader();
+	}
+	
+	private Reader seek(int index)
+	{
+		if (index < 0 || index >= m_count)
+		{
+			throw new IndexOutOfBoundsException("Index " + index + ", count " + m_count);
+		}
+		
+		Reader reader = new Reader();
+		reader.startBlock(index / BLOCK_SIZE);
+		
+		for (int a = index % BLOCK_SIZE; a > 0; --a)
+		{
+			reader.next();
+		}
+		
+		return reader;
+	}
+	
+	
+	/**
+	 * Decodes samples sequentially.
+	 */
+	final class Reader
+	{
+		private int m_index = -1;
+		private int m_qualityRun = 0;
+		
+		private Block m_block = null;
+		private int m_bitPosition = 0;
+		private long m_timestamp = 0;
+		private long m_delta = 0;
+		private long m_valueBits = 0;
+		private int m_leading = 0;
+		private int m_trailing = 0;
+		
+		
+		/**
+		 * Moves to the next sample.
+		 * @return True if a sample was available, otherwise false.
+		 */
+		boolean next()
+		{
+			if (m_index + 1 >= m_count)
+			{
+				return false;
+			}
+			
+			if ((m_index + 1) % BLOCK_SIZE == 0)
+			{
+				startBlock((m_index + 1) / BLOCK_SIZE);
+			}
+			else
+			{
+				++m_index;
+				
+				if (m_hasTimestamps)
+				{
+					readTimestamp();
+				}
+				
+				readValue();
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Gets the index of the current sample.
+		 * @return Index.
+		 */
+		int getIndex()
+		{
+			return m_index;
+		}
+		
+		/**
+		 * Gets the timestamp of the current sample.
+		 * @return Timestamp in epoch milliseconds.
+		 */
+		long getTimestamp()
+		{
+			return m_timestamp;
+		}
+		
+		/**
+		 * Gets the value of the current sample.
+		 * @return Value.
+		 */
+		double getValue()
+		{
+			return Double.longBitsToDouble(m_valueBits);
+		}
+		
+		/**
+		 * Gets the data quality of the current sample.
+		 * @return Data quality.
+		 */
+		DataQuality getDataQuality()
+		{
+			// Sequential access moves forward only
+			while (m_qualityRun + 1 < m_qualityRunCount && m_qualityRunStarts[m_qualityRun + 1] <= m_index)
+			{
+				++m_qualityRun;
+			}
+			
+			return m_qualityRunValues[m_qualityRun];
+		}
+		
+		private void startBlock(int blockIndex)
+		{
+			m_block = m_blocks[blockIndex];
+			m_index = blockIndex * BLOCK_SIZE;
+			m_bitPosition = 0;
+			m_timestamp = m_block.m_firstTimestamp;
+			m_delta = 0;
+			m_valueBits = m_block.m_firstValueBits;
+			m_leading = 0;
+			m_trailing = 0;
+			
+			if (m_qualityRunStarts[m_qualityRun] > m_index)
+			{
+				// Moving backwards in random access
+				m_qualityRun = 0;
+			}
+		}
+		
+		private void readTimestamp()
+		{
+			long deltaOfDelta;
+			
+			if (readBits(1) == 0)
+			{
+				deltaOfDelta = 0;
+			}
+			else if (readBits(1) == 0)
+			{
+				deltaOfDelta = readSigned(7);
+			}
+			else if (readBits(1) == 0)
+			{
+				deltaOfDelta = readSigned(9);
+			}
+			else if (readBits(1) == 0)
+			{
+				deltaOfDelta = readSigned(12);
+			}
+			else
+			{
+				deltaOfDelta = readBits(64);
+			}
+			
+			m_delta += deltaOfDelta;
+			m_timestamp += m_delta;
+		}
+		
+		private void readValue()
+		{
+			if (readBits(1) == 0)
+			{
+				// Same value as before
+				return;
+			}
+			
+			if (readBits(1) == 1)
+			{
+				// New window of meaningful bits
+				m_leading = (int)readBits(5);
+				int length = (int)readBits(6);
+				
+				if (length == 0)
+				{
+					length = 64;
+				}
+				
+				m_trailing = 64 - m_leading - length;
+			}
+			
+			long meaningful = readBits(64 - m_leading - m_trailing);
+			m_valueBits ^= meaningful << m_trailing;
+		}
+		
+		private long readSigned(int bitCount)
+		{
+			// Sign extension
+			long raw = readBits(bitCount);
+			return (raw << (64 - bitCount)) >> (64 - bitCount);
+		}
+		
+		private long readBits(int bitCount)
+		{
+			long retval = m_block.readBits(m_bitPosition, bitCount);
+			m_bitPosition += bitCount;
+			return retval;
+		}
+	}
+	
+	
+	/**
+	 * A block of samples. The first sample is stored as such and the others
+	 * in a bit stream.
+	 */
+	private static final class Block
+	{
+		private final long m_firstTimestamp;
+		private final long m_firstValueBits;
+		
+		private long[] m_words = new long[2];
+		private int m_bitCount = 0;
+		
+		// The state of the encoder
+		private long m_lastTimestamp;
+		private long m_lastDelta = 0;
+		private long m_lastValueBits;
+		private int m_lastLeading = Integer.MAX_VALUE;
+		private int m_lastTrailing = 0;
+		
+		
+		Block(long firstTimestamp, double firstValue)
+		{
+			m_firstTimestamp = firstTimestamp;
+			m_firstValueBits = Double.doubleToRawLongBits(firstValue);
+			m_lastTimestamp = firstTimestamp;
+			m_lastValueBits = m_firstValueBits;
+		}
+		
+		void append(boolean hasTimestamp, long timestamp, double value)
+		{
+			if (hasTimestamp)
+			{
+				appendTimestamp(timestamp);
+			}
+			
+			appendValue(Double.doubleToRawLongBits(value));
+		}
+		
+		void trim()
+		{
+			m_words = Arrays.copyOf(m_words, (m_bitCount + 63) / 64);
+		}
+		
+		long readBits(int position, int bitCount)
+		{
+			int wordIndex = position >>> 6;
+			int bitOffset = position & 63;
+			long retval = m_words[wordIndex] << bitOffset;
+			
+			if (bitOffset + bitCount > 64)
+			{
+				// Continues in the next word
+				retval |= m_words[wordIndex + 1] >>> (64 - bitOffset);
+			}
+			
+			return retval >>> (64 - bitCount);
+		}
+		
+		private void appendTimestamp(long timestamp)
+		{
+			long delta = timestamp - m_lastTimestamp;
+			long deltaOfDelta = delta - m_lastDelta;
+			
+			if (deltaOfDelta == 0)
+			{
+				writeBits(0, 1);
+			}
+			else if (deltaOfDelta >= -64 && deltaOfDelta <= 63)
+			{
+				writeBits(0b10, 2);
+				writeBits(deltaOfDelta, 7);
+			}
+			else if (deltaOfDelta >= -256 && deltaOfDelta <= 255)
+			{
+				writeBits(0b110, 3);
+				writeBits(deltaOfDelta, 9);
+			}
+			else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047)
+			{
+				writeBits(0b1110, 4);
+				writeBits(deltaOfDelta, 12);
+			}
+			else
+			{
+				writeBits(0b1111, 4);
+				writeBits(deltaOfDelta, 64);
+			}
+			
+			m_lastDelta = delta;
+			m_lastTimestamp = timestamp;
+		}
+		
+		private void appendValue(long valueBits)
+		{
+			long xor = valueBits ^ m_lastValueBits;
+			m_lastValueBits = valueBits;
+			
+			if (xor == 0)
+			{
+				writeBits(0, 1);
+				return;
+			}
+			
+			// The leading count must fit in 5 bits
+			int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailing = Long.numberOfTrailingZeros(xor);
+			
+			if (m_lastLeading != Integer.MAX_VALUE && leading >= m_lastLeading && trailing >= m_lastTrailing)
+			{
+				// The meaningful bits fit in the previous window
+				writeBits(0b10, 2);
+				writeBits(xor >>> m_lastTrailing, 64 - m_lastLeading - m_lastTrailing);
+			}
+			else
+			{
+				int length = 64 - leading - trailing;
+				writeBits(0b11, 2);
+				writeBits(leading, 5);
+				writeBits(length, 6); // 64 wraps to 0
+				writeBits(xor >>> trailing, length);
+				m_lastLeading = leading;
+				m_lastTrailing = trailing;
+			}
+		}
+		
+		private void writeBits(long bits, int bitCount)
+		{
+			if (m_bitCount + bitCount > m_words.length * 64)
+			{
+				m_words = Arrays.copyOf(m_words, m_words.length * 2);
+			}
+			
+			// Left-aligning the bits to write
+			long aligned = bits << (64 - bitCount);
+			int wordIndex = m_bitCount >>> 6;
+			int bitOffset = m_bitCount & 63;
+			m_words[wordIndex] |= aligned >>> bitOffset;
+			
+			if (bitOffset + bitCount > 64)
+			{
+				m_words[wordIndex + 1] |= aligned << (64 - bitOffset);
+			}
+			
+			m_bitCount += bitCount;
+		}
+	}
+}
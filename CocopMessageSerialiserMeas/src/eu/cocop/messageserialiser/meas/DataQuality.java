@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 3/2018
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package eu.cocop.messageserialiser.meas;
 
@@ -27,6 +27,10 @@ public final class DataQuality
 	 */
 	public static final String BAD = "bad";
 	
+	// Data quality objects are immutable, so the plain values can be shared
+	private static final DataQuality GOOD_INSTANCE = new DataQuality(GOOD);
+	private static final DataQuality BAD_INSTANCE = new DataQuality(BAD);
+	
 	
 	private final String m_value;
 	
@@ -46,21 +50,46 @@ public final class DataQuality
 	}
 	
 	/**
-	 * Creates a data quality object with the value "good".
-	 * @return New instance.
+	 * Parses a data quality value read from XML. For the plain values "good"
+	 * and "bad", a shared instance is returned.
+	 * @param input String that refers to data quality.
+	 * @return Data quality.
+	 * @throws IllegalArgumentException Thrown if the value cannot be interpreted.
+	 */
+	static DataQuality fromXml(String input) throws IllegalArgumentException
+	{
+		if (GOOD.equals(input))
+		{
+			return GOOD_INSTANCE;
+		}
+		else if (BAD.equals(input))
+		{
+			return BAD_INSTANCE;
+		}
+		else
+		{
+			return new DataQuality(input);
+		}
+	}
+	
+	/**
+	 * Gets a data quality object with the value "good". Because data quality
+	 * objects are immutable, the same instance is returned on each call.
+	 * @return Instance.
 	 */
 	public static DataQuality createGood()
 	{
-		return new DataQuality(GOOD);
+		return GOOD_INSTANCE;
 	}
 	
 	/**
-	 * Creates a data quality object with the value "bad".
-	 * @return New instance.
+	 * Gets a data quality object with the value "bad". Because data quality
+	 * objects are immutable, the same instance is returned on each call.
+	 * @return Instance.
 	 */
 	public static DataQuality createBad()
 	{
-		return new DataQuality(BAD);
+		return BAD_INSTANCE;
 	}
 	
 	/**
@@ -0,0 +1,247 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+/**
+ * A compiled path to a field in nested data records, such as
+ * "furnace/zone3/temperature". The path is parsed once. On each level, the
+ * slot of the field is cached against the shapes of the latest records, so
+ * records with the same structure are resolved without name lookups, even if
+ * a few structures alternate. The path can be shared between threads.
+ *
+ * Field names that contain '/' cannot be referred to with a path.
+ * @author Petri Kannisto
+ */
+public final class DataRecordPath
+{
+	/**
+	 * The count of shapes cached on each level.
+	 */
+	static final int CACHE_SIZE = 4;
+	
+	/**
+	 * An immutable cache entry, so that it can be replaced without
+	 * synchronisation.
+	 */
+	private static final class Resolution
+	{
+		final DataRecordShape shape;
+		final int slot;
+		
+		Resolution(DataRecordShape sh, int sl)
+		{
+			shape = sh;
+			slot = sl;
+		}
+	}
+	
+	private final String m_path;
+	private final String[] m_segments;
+	
+	// The latest resolutions on each level
+	private final Resolution[][] m_resolutions;
+	
+	// The cache entry to replace next on each level
+	private final int[] m_nextEntries;
+	
+	
+	/**
+	 * Constructor.
+	 * @param path Field names separated with '/'.
+	 * @throws IllegalArgumentException Thrown if the path is empty or has an empty field name.
+	 */
+	public DataRecordPath(String path) throws IllegalArgumentException
+	{
+		m_path = path;
+		m_segments = path.split("/", -1);
+		
+		for (String segment : m_segments)
+		{
+			if (segment.isEmpty())
+			{
+				throw new IllegalArgumentException("Empty field name in path \"" + path + "\"");
+			}
+		}
+		
+		m_resolutions = new Resolution[m_segments.length][CACHE_SIZE];
+		m_nextEntries = new int[m_segments.length];
+	}
+	
+	/**
+	 * The path as text.
+	 * @return Path.
+	 */
+	public String getPath()
+	{
+		return m_path;
+	}
+	
+	/**
+	 * The field names on the path. Do not modify the array.
+	 * @return Field names.
+	 */
+	String[] getSegments()
+	{
+		return m_segments;
+	}
+	
+	/**
+	 * Finds the item at the path.
+	 * @param record Data record.
+	 * @return Item or null if not found.
+	 */
+	public Item resolve(Item_DataRecord record)
+	{
+		Item current = record;
+		
+		for (int level = 0; level < m_segments.length; ++level)
+		{
+			if (!(current instanceof Item_DataRecord))
+			{
+				return null;
+			}
+			
+			Item_DataRecord currentRecord = (Item_DataRecord)current;
+			DataRecordShape shape = currentRecord.getShape();
+			Resolution resolution = findResolution(level, shape);
+			
+			if (resolution == null)
+			{
+				resolution = new Resolution(shape, shape.indexOf(m_segments[level]));
+				
+				// An unshared shape belongs to a single record, so caching
+				// it would only evict the shapes of other records
+				if (shape.isShared())
+				{
+					addResolution(level, resolution);
+				}
+			}
+			
+			if (resolution.slot < 0)
+			{
+				return null;
+			}
+			
+			current = currentRecord.getItemAt(resolution.slot);
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * Finds the item at the path and returns it as a number. Measurements and
+	 * counts give their value, booleans 1 or 0 and time instants milliseconds
+	 * since the epoch.
+	 * @param record Data record.
+	 * @return Value or NaN if not found or the item is of another type.
+	 */
+	public double resolveDouble(Item_DataRecord record)
+	{
+		return toDouble(resolve(record));
+	}
+	
+	/**
+	 * Extracts the values of many paths from a record as in
+	 * {@link #resolveDouble(Item_DataRecord)}.
+	 * @param record Data record.
+	 * @param paths Paths.
+	 * @param target Array to write the values to.
+	 * @param offset The position of the value of the first path in the target.
+	 * @return The count of values found, i.e., other than NaN.
+	 * @throws IndexOutOfBoundsException Thrown if the target is too small.
+	 */
+	public static int extract(Item_DataRecord record, DataRecordPath[] paths, double[] target, int offset) throws IndexOutOfBoundsException
+	{
+		if (offset < 0 || offset + paths.length > target.length)
+		{
+			throw new IndexOutOfBoundsException("Target too small for " + paths.length + " values at " + offset);
+		}
+		
+		int retval = 0;
+		
+		for (int a = 0; a < paths.length; ++a)
+		{
+			double value = paths[a].resolveDouble(record);
+			target[offset + a] = value;
+			
+			if (!Double.isNaN(value))
+			{
+				++retval;
+			}
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Whether the slot of a shape is cached on a level.
+	 * @param level Level.
+	 * @param shape Shape.
+	 * @return True if cached.
+	 */
+	boolean isCached(int level, DataRecordShape shape)
+	{
+		return findResolution(level, shape) != null;
+	}
+	
+	private Resolution findResolution(int level, DataRecordShape shape)
+	{
+		for (Resolution resolution : m_resolutions[level])
+		{
+			if (resolution != null && resolution.shape == shape)
+			{
+				return resolution;
+			}
+		}
+		
+		return null;
+	}
+	
+	private void addResolution(int level, Resolution resolution)
+	{
+		// A race may overwrite an entry of another thread, which only costs
+		// a lookup later
+		int entry = m_nextEntries[level];
+		m_resolutions[level][entry] = resolution;
+		m_nextEntries[level] = (entry + 1) % CACHE_SIZE;
+	}
+	
+	private static double toDouble(Item item)
+	{
+		if (item instanceof Item_Measurement)
+		{
+			return ((Item_Measurement)item).getValue();
+		}
+		else if (item instanceof Item_Count)
+		{
+			return ((Item_Count)item).getValue();
+		}
+		else if (item instanceof Item_Boolean)
+		{
+			return ((Item_Boolean)item).getValue() ? 1 : 0;
+		}
+		else if (item instanceof Item_TimeInstant)
+		{
+			return ((Item_TimeInstant)item).getValue().getMillis();
+		}
+		else
+		{
+			return Double.NaN;
+		}
+	}
+	
+	@Override
+	public String toString()
+	{
+		return m_path;
+	}
+}
@@ -0,0 +1,243 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.xml.stream.StreamFilter;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Decodes observations so that only the selected fields of data record
+ * results are read. The other fields, including nested records and arrays,
+ * are dropped while the XML is scanned, so no objects are created for them.
+ * The whole document is still parsed, so it must be well-formed. A selected
+ * path includes everything under it. The parents of a selected field are
+ * decoded as records that only contain the fields on the selected paths.
+ * Results other than data records are decoded as usual.
+ *
+ * The projection can be shared between threads.
+ * @author Petri Kannisto
+ */
+public final class DataRecordProjection
+{
+	private static final String NAMESPACE_OM = "http://www.opengis.net/om/2.0";
+	private static final String NAMESPACE_SWE = "http://www.opengis.net/swe/2.0";
+	
+	
+	/**
+	 * A node in the tree of selected field names.
+	 */
+	private static final class Node
+	{
+		final HashMap<String, Node> children = new HashMap<>();
+		boolean selected = false;
+	}
+	
+	private final Node m_root = new Node();
+	
+	
+	/**
+	 * Constructor.
+	 * @param paths Paths to the fields to be decoded.
+	 */
+	public DataRecordProjection(DataRecordPath... paths)
+	{
+		for (DataRecordPath path : paths)
+		{
+			Node node = m_root;
+			
+			for (String segment : path.getSegments())
+			{
+				Node child = node.children.get(segment);
+				
+				if (child == null)
+				{
+					child = new Node();
+					node.children.put(segment, child);
+				}
+				
+				node = child;
+			}
+			
+			node.selected = true;
+		}
+	}
+	
+	/**
+	 * Decodes an observation.
+	 * @param xmlBytes Serialised XML document.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	public Observation decodeObservation(byte[] xmlBytes) throws InvalidMessageException
+	{
+		return new Observation(xmlBytes, createFilter());
+	}
+	
+	/**
+	 * Populates an existing observation as in {@link Observation#decodeInto(Observation, byte[])}.
+	 * @param target Observation to be populated.
+	 * @param xmlBytes Serialised XML document.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	public void decodeInto(Observation target, byte[] xmlBytes) throws InvalidMessageException
+	{
+		Observation.decodeInto(target, xmlBytes, createFilter());
+	}
+	
+	/**
+	 * Decodes a GetObservation response. The projection applies to each
+	 * observation in the response.
+	 * @param xmlBytes Serialised XML document.
+	 * @return Response.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	public GetObservationResponse decodeGetObservationResponse(byte[] xmlBytes) throws InvalidMessageException
+	{
+		return new GetObservationResponse(xmlBytes, createFilter());
+	}
+	
+	/**
+	 * Creates a filter for one document. The filter has state, so it cannot
+	 * be reused.
+	 * @return Filter.
+	 */
+	StreamFilter createFilter()
+	{
+		return new ProjectionFilter(m_root);
+	}
+	
+	
+	/**
+	 * Drops the events of the fields that are not selected.
+	 */
+	private static final class ProjectionFilter implements StreamFilter
+	{
+		// Element kinds
+		private static final int OTHER = 0; // Outside of results
+		private static final int RESULT = 1; // om:result
+		private static final int RECORD = 2; // swe:DataRecord to be filtered
+		private static final int FIELD = 3; // swe:field on a path to a selected field
+		private static final int SELECTED = 4; // Kept as a whole
+		
+		private int[] m_kinds = new int[32];
+		private Node[] m_nodes = new Node[32];
+		private int m_depth = 0;
+		
+		// Above zero while the content of a field is skipped
+		private int m_skipDepth = 0;
+		
+		
+		ProjectionFilter(Node root)
+		{
+			m_kinds[0] = OTHER;
+			m_nodes[0] = root;
+		}
+		
+		@Override
+		public boolean accept(XMLStreamReader reader)
+		{
+			int event = reader.getEventType();
+			
+			if (m_skipDepth > 0)
+			{
+				if (event == XMLStreamConstants.START_ELEMENT)
+				{
+					++m_skipDepth;
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT)
+				{
+					--m_skipDepth;
+				}
+				
+				return false;
+			}
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				return startElement(reader);
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				--m_depth;
+			}
+			
+			return true;
+		}
+		
+		private boolean startElement(XMLStreamReader reader)
+		{
+			int parentKind = m_kinds[m_depth];
+			Node node = m_nodes[m_depth];
+			int kind;
+			
+			switch (parentKind)
+			{
+			case RESULT:
+			case FIELD:
+				kind = isSwe(reader, "DataRecord") ? RECORD : SELECTED;
+				break;
+			
+			case RECORD:
+				if (!isSwe(reader, "field"))
+				{
+					kind = SELECTED;
+					break;
+				}
+				
+				node = node.children.get(reader.getAttributeValue(null, "name"));
+				
+				if (node == null)
+				{
+					m_skipDepth = 1;
+					return false;
+				}
+				
+				kind = node.selected ? SELECTED : FIELD;
+				break;
+			
+			case SELECTED:
+				kind = SELECTED;
+				break;
+			
+			default:
+				kind = NAMESPACE_OM.equals(reader.getNamespaceURI()) && "result".equals(reader.getLocalName()) ? RESULT : OTHER;
+				break;
+			}
+			
+			push(kind, node);
+			return true;
+		}
+		
+		private boolean isSwe(XMLStreamReader reader, String localName)
+		{
+			return NAMESPACE_SWE.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+		}
+		
+		private void push(int kind, Node node)
+		{
+			++m_depth;
+			
+			if (m_depth == m_kinds.length)
+			{
+				m_kinds = Arrays.copyOf(m_kinds, m_depth * 2);
+				m_nodes = Arrays.copyOf(m_nodes, m_depth * 2);
+			}
+			
+			m_kinds[m_depth] = kind;
+			m_nodes[m_depth] = node;
+		}
+	}
+}
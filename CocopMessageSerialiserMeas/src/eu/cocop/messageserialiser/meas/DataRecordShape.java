@@ -0,0 +1,328 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The structure of a data record: the field names in the order of insertion,
+ * each mapped to a slot index. Shapes are immutable and shared. Adding a field
+ * to a record moves the record to the next shape, and the records that get
+ * the same fields in the same order end up with the same shape object. Thus,
+ * anything resolved against a shape can be reused for other records of the
+ * same shape by comparing the references. A shape never contains the same
+ * name twice.
+ *
+ * The field names might come from arbitrary messages, so the sharing is
+ * limited. A shape has at most {@link #MAX_TRANSITIONS} shared next shapes,
+ * and there are at most {@link #MAX_SHARED_SHAPES} shared shapes in total.
+ * Beyond the limits, the shapes still work but belong to a single record, and
+ * so do the shapes that follow them.
+ *
+ * The field slots are looked up in a map that the shapes of a chain share:
+ * the first next shape extends the map of its parent, and the other next
+ * shapes copy it. A shape ignores the slots beyond its own fields. Thus,
+ * adding a field takes constant time regardless of the count of fields.
+ * @author Petri Kannisto
+ */
+final class DataRecordShape
+{
+	/**
+	 * The maximum count of shared shapes after a shape.
+	 */
+	static final int MAX_TRANSITIONS = 256;
+	
+	/**
+	 * The maximum count of shared shapes after the empty shape.
+	 */
+	static final int MAX_SHARED_SHAPES = 65536;
+	
+	/**
+	 * The shape of an empty record.
+	 */
+	static final DataRecordShape EMPTY = createRoot(MAX_SHARED_SHAPES);
+	
+	private final DataRecordShape m_parent;
+	private final String m_lastName;
+	private final int m_fieldCount;
+	private final boolean m_shared;
+	
+	// Shared shapes are never removed, so this only grows up to the limit.
+	// All shapes after the same root share this.
+	private final SharingLimit m_sharingLimit;
+	
+	// Field name -> next shape; null if not shared
+	private final ConcurrentHashMap<String, DataRecordShape> m_transitions;
+	
+	// Field name -> slot. This may contain the fields of the next shapes too.
+	private final ConcurrentHashMap<String, Integer> m_slots;
+	
+	// Whether a next shape has extended the slot map
+	private final AtomicBoolean m_slotsExtended = new AtomicBoolean(false);
+	
+	// Created when first needed, because most shapes are only passed through
+	// while a record is populated
+	private volatile Index m_index = null;
+	
+	
+	/**
+	 * The limit of shared shapes after a root shape.
+	 */
+	private static final class SharingLimit
+	{
+		final int max;
+		final AtomicInteger count = new AtomicInteger(0);
+		
+		SharingLimit(int m)
+		{
+			max = m;
+		}
+	}
+	
+	/**
+	 * The field names of a shape by slot and in sorted order. This is
+	 * immutable, so it can be published without synchronisation.
+	 */
+	private static final class Index
+	{
+		// Slot -> field name
+		final String[] names;
+		
+		// The slots in the order of the field names
+		final int[] sortedSlots;
+		
+		final Set<String> sortedNames;
+		
+		Index(DataRecordShape shape)
+		{
+			int count = shape.m_fieldCount;
+			names = new String[count];
+			
+			for (DataRecordShape current = shape; current.m_parent != null; current = current.m_parent)
+			{
+				names[current.m_fieldCount - 1] = current.m_lastName;
+			}
+			
+			Integer[] sorted = new Integer[count];
+			
+			for (int a = 0; a < count; ++a)
+			{
+				sorted[a] = a;
+			}
+			
+			Arrays.sort(sorted, Comparator.comparing(slot -> names[slot]));
+			sortedSlots = new int[count];
+			
+			for (int a = 0; a < count; ++a)
+			{
+				sortedSlots[a] = sorted[a];
+			}
+			
+			sortedNames = Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(names)));
+		}
+	}
+	
+	
+	private DataRecordShape(SharingLimit sharingLimit)
+	{
+		m_parent = null;
+		m_lastName = null;
+		m_fieldCount = 0;
+		m_shared = true;
+		m_sharingLimit = sharingLimit;
+		m_transitions = new ConcurrentHashMap<>();
+		m_slots = new ConcurrentHashMap<>();
+	}
+	
+	private DataRecordShape(DataRecordShape parent, String lastName, boolean shared)
+	{
+		m_parent = parent;
+		m_lastName = lastName;
+		m_fieldCount = parent.m_fieldCount + 1;
+		m_shared = shared;
+		m_sharingLimit = parent.m_sharingLimit;
+		m_transitions = shared ? new ConcurrentHashMap<>() : null;
+		
+		// An unshared shape never extends the map of a shared one, as that
+		// would retain the fields of a single record in a shared map
+		if (parent.m_shared == shared && parent.m_slotsExtended.compareAndSet(false, true))
+		{
+			m_slots = parent.m_slots;
+		}
+		else
+		{
+			m_slots = parent.copySlots();
+		}
+		
+		m_slots.put(lastName, m_fieldCount - 1);
+	}
+	
+	/**
+	 * Creates an empty shape that does not share anything with the other
+	 * empty shapes. Records always start from {@link #EMPTY}.
+	 * @param maxSharedCount The maximum count of shared shapes after this.
+	 * @return Shape.
+	 */
+	static DataRecordShape createRoot(int maxSharedCount)
+	{
+		return new DataRecordShape(new SharingLimit(maxSharedCount));
+	}
+	
+	/**
+	 * Gets the count of shared shapes after the root of this shape, excluding
+	 * the root.
+	 * @return Count.
+	 */
+	int getSharedCount()
+	{
+		return m_sharingLimit.count.get();
+	}
+	
+	/**
+	 * The count of fields.
+	 * @return Count of fields.
+	 */
+	int getFieldCount()
+	{
+		return m_fieldCount;
+	}
+	
+	/**
+	 * Whether the shape can be shared by many records.
+	 * @return True if shared.
+	 */
+	boolean isShared()
+	{
+		return m_shared;
+	}
+	
+	/**
+	 * Returns the shape with one more field.
+	 * @param name Field name.
+	 * @return Shape or null if the name already exists. The slot of the new
+	 * field equals the field count of this shape.
+	 */
+	DataRecordShape withField(String name)
+	{
+		DataRecordShape retval = m_shared ? m_transitions.get(name) : null;
+		
+		if (retval != null)
+		{
+			// The name was checked when the transition was created
+			return retval;
+		}
+		
+		if (indexOf(name) >= 0)
+		{
+			return null;
+		}
+		
+		if (!m_shared || m_transitions.size() >= MAX_TRANSITIONS)
+		{
+			return new DataRecordShape(this, name, false);
+		}
+		
+		AtomicInteger sharedCount = m_sharingLimit.count;
+		
+		if (sharedCount.incrementAndGet() > m_sharingLimit.max)
+		{
+			sharedCount.decrementAndGet();
+			return new DataRecordShape(this, name, false);
+		}
+		
+		retval = new DataRecordShape(this, name, true);
+		DataRecordShape existing = m_transitions.putIfAbsent(name, retval);
+		
+		if (existing != null)
+		{
+			// Another thread added the same shape
+			sharedCount.decrementAndGet();
+			return existing;
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Returns the slot of a field.
+	 * @param name Field name.
+	 * @return Slot or -1 if not found.
+	 */
+	int indexOf(String name)
+	{
+		Integer retval = m_slots.get(name);
+		
+		// The slots of the next shapes are not fields of this shape
+		return retval == null || retval >= m_fieldCount ? -1 : retval;
+	}
+	
+	/**
+	 * Returns the name of a field.
+	 * @param slot Slot.
+	 * @return Name.
+	 */
+	String getName(int slot)
+	{
+		return getIndex().names[slot];
+	}
+	
+	/**
+	 * The slots in the order of the field names. Do not modify the array.
+	 * @return Slots.
+	 */
+	int[] getSortedSlots()
+	{
+		return getIndex().sortedSlots;
+	}
+	
+	/**
+	 * The field names in sorted order.
+	 * @return Unmodifiable set.
+	 */
+	Set<String> getSortedNames()
+	{
+		return getIndex().sortedNames;
+	}
+	
+	private ConcurrentHashMap<String, Integer> copySlots()
+	{
+		ConcurrentHashMap<String, Integer> retval = new ConcurrentHashMap<>(m_fieldCount * 2 + 2);
+		
+		for (DataRecordShape shape = this; shape.m_parent != null; shape = shape.m_parent)
+		{
+			retval.put(shape.m_lastName, shape.m_fieldCount - 1);
+		}
+		
+		return retval;
+	}
+	
+	private Index getIndex()
+	{
+		Index retval = m_index;
+		
+		if (retval == null)
+		{
+			// A race may only build the index twice
+			retval = new Index(this);
+			m_index = retval;
+		}
+		
+		return retval;
+	}
+}
@@ -0,0 +1,269 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.joda.time.Period;
+
+/**
+ * A report-by-exception filter for observations. The filter remembers the
+ * last passed observation of each tag, which is identified by procedure,
+ * observed property and feature of interest. An observation is passed if:
+ * <ul>
+ * <li>it is the first one of its tag,</li>
+ * <li>its result quality differs from that of the last passed observation,</li>
+ * <li>its value differs from the last passed value by more than the deadband,</li>
+ * <li>the time since the last passed observation exceeds the maximum silence
+ * (heartbeat), or</li>
+ * <li>its result is not an Item_Measurement.</li>
+ * </ul>
+ *
+ * The time of an observation is its phenomenon time or, if missing, its result
+ * time. A percentage deadband is relative to the absolute value of the last
+ * passed value. A change to or from NaN always passes.
+ *
+ * The filter is thread-safe. The states are in a concurrent hash map, and the
+ * update of a state only locks that state, so the filter scales to a large
+ * number of tags. Observations of the same tag should be evaluated in time order.
+ * @author Petri Kannisto
+ */
+public final class DeadbandFilter implements Predicate<Observation>
+{
+	/**
+	 * Specifies how the deadband is interpreted.
+	 * @author Petri Kannisto
+	 */
+	public enum DeadbandType
+	{
+		/**
+		 * The deadband is in the unit of measure of the value.
+		 */
+		Absolute,
+		/**
+		 * The deadband is a percentage of the last passed value.
+		 */
+		Percentage
+	}
+	
+	private final DeadbandType m_deadbandType;
+	private final double m_deadband;
+	private final long m_maxSilenceMillis;
+	
+	private final ConcurrentHashMap<TagKey, TagState> m_states = new ConcurrentHashMap<>();
+	
+	private final LongAdder m_passedCount = new LongAdder();
+	private final LongAdder m_suppressedCount = new LongAdder();
+	
+	
+	/**
+	 * Constructor.
+	 * @param type Deadband type.
+	 * @param deadband Deadband. This must be non-negative.
+	 * @param maxSilence The maximum time between passed observations of a tag. This must
+	 * have a fixed length, i.e., no months or years. If null, there is no heartbeat.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public DeadbandFilter(DeadbandType type, double deadband, Period maxSilence) throws IllegalArgumentException
+	{
+		if (!(deadband >= 0))
+		{
+			throw new IllegalArgumentException("The deadband must be non-negative");
+		}
+		
+		m_deadbandType = type;
+		m_deadband = type == DeadbandType.Percentage ? deadband / 100 : deadband;
+		
+		if (maxSilence == null)
+		{
+			m_maxSilenceMillis = Long.MAX_VALUE;
+		}
+		else
+		{
+			m_maxSilenceMillis = TimeHelper.getFixedLengthMillis(maxSilence);
+			
+			if (m_maxSilenceMillis < 0)
+			{
+				throw new IllegalArgumentException("The maximum silence must have a fixed length (no months or years)");
+			}
+			
+			if (m_maxSilenceMillis == 0)
+			{
+				throw new IllegalArgumentException("The maximum silence must be positive");
+			}
+		}
+	}
+	
+	/**
+	 * Evaluates an observation and, if it passes, stores it as the last passed
+	 * observation of its tag.
+	 * @param obs Observation.
+	 * @return True if the observation should be published, otherwise false.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 */
+	@Override
+	public boolean test(Observation obs) throws IllegalArgumentException
+	{
+		Item result = obs.getResult();
+		double value;
+		
+		if (result instanceof Item_Measurement)
+		{
+			value = ((Item_Measurement)result).getValue();
+		}
+		else
+		{
+			// No deadband for other result types
+			m_passedCount.increment();
+			return true;
+		}
+		
+		long millis = TimeHelper.getTimeMillis(obs);
+		DataQuality quality = obs.getResultQuality();
+		String qualityValue = quality == null ? DataQuality.createGood().getValue() : quality.getValue();
+		
+		TagKey key = new TagKey(obs);
+		TagState state = m_states.get(key);
+		boolean passed;
+		
+		if (state == null)
+		{
+			TagState newState = new TagState(millis, value, qualityValue);
+			state = m_states.putIfAbsent(key, newState);
+			
+			// If another thread added the state first, this observation is evaluated against it
+			passed = state == null || state.update(this, millis, value, qualityValue);
+		}
+		else
+		{
+			passed = state.update(this, millis, value, qualityValue);
+		}
+		
+		if (passed)
+		{
+			m_passedCount.increment();
+		}
+		else
+		{
+			m_suppressedCount.increment();
+		}
+		
+		return passed;
+	}
+	
+	/**
+	 * Forgets the state of a tag, so that its next observation is passed.
+	 * @param procedure Procedure.
+	 * @param observedProperty Observed property.
+	 * @param featureOfInterest Feature of interest.
+	 * @return True if the tag was known, otherwise false.
+	 */
+	public boolean remove(String procedure, String observedProperty, String featureOfInterest)
+	{
+		return m_states.remove(new TagKey(procedure, observedProperty, featureOfInterest)) != null;
+	}
+	
+	/**
+	 * Forgets the states of all tags.
+	 */
+	public void clear()
+	{
+		m_states.clear();
+	}
+	
+	/**
+	 * Gets the number of tags in the state table.
+	 * @return Tag count.
+	 */
+	public int getTagCount()
+	{
+		return m_states.size();
+	}
+	
+	/**
+	 * Gets the number of passed observations.
+	 * @return Count.
+	 */
+	public long getPassedCount()
+	{
+		return m_passedCount.sum();
+	}
+	
+	/**
+	 * Gets the number of suppressed observations.
+	 * @return Count.
+	 */
+	public long getSuppressedCount()
+	{
+		return m_suppressedCount.sum();
+	}
+	
+	/**
+	 * Gets the deadband type.
+	 * @return Deadband type.
+	 */
+	public DeadbandType getDeadbandType()
+	{
+		return m_deadbandType;
+	}
+	
+	private boolean isOutsideDeadband(double lastValue, double value)
+	{
+		boolean lastNaN = Double.isNaN(lastValue);
+		
+		if (lastNaN || Double.isNaN(value))
+		{
+			// NaN to NaN is no change
+			return lastNaN != Double.isNaN(value);
+		}
+		
+		double band = m_deadbandType == DeadbandType.Percentage ? m_deadband * Math.abs(lastValue) : m_deadband;
+		return Math.abs(value - lastValue) > band;
+	}
+	
+	
+	/**
+	 * The last passed observation of a tag.
+	 */
+	private static final class TagState
+	{
+		private long m_lastMillis;
+		private double m_lastValue;
+		private String m_lastQuality;
+		
+		TagState(long millis, double value, String quality)
+		{
+			m_lastMillis = millis;
+			m_lastValue = value;
+			m_lastQuality = quality;
+		}
+		
+		synchronized boolean update(DeadbandFilter filter, long millis, double value, String quality)
+		{
+			boolean pass = !quality.equals(m_lastQuality) ||
+					millis - m_lastMillis > filter.m_maxSilenceMillis ||
+					filter.isOutsideDeadband(m_lastValue, value);
+			
+			if (pass)
+			{
+				m_lastMillis = millis;
+				m_lastValue = value;
+				m_lastQuality = quality;
+			}
+			
+			return pass;
+		}
+	}
+}
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -118,6 +118,17 @@ public final class GetObservationRequest
 	 * @return XML data.
 	 */
 	public byte[] toXmlBytes()
+	{
+		return toXmlBytes(false);
+	}
+	
+	/**
+	 * Serialises the object to XML.
+	 * @param minimalNamespaces If true, only the namespaces actually used are declared,
+	 * and they have short prefixes.
+	 * @return XML data.
+	 */
+	public byte[] toXmlBytes(boolean minimalNamespaces)
 	{
 		// Using this to enable unique IDs within the XML document
         String idPrefix = "GetObsReq_i";
@@ -149,7 +160,7 @@ public final class GetObservationRequest
         	
         	// Using the "getObjectForXml_Result" function to get a "property type" element that
         	// wraps the actual payload element
-        	toSerialise.getExtension().add(i.getObjectForXml_Result(idWithCounter));
+        	toSerialise.getExtension().add(ResultTypeManager.getObjectForXml_Result(i, idWithCounter));
         	++prefixCounter;
         }
         
@@ -168,7 +179,7 @@ public final class GetObservationRequest
         // Serialising to XML
         ObjectFactory objectFactorySos = new ObjectFactory();
         Object actualProxy = objectFactorySos.createGetObservation(toSerialise);
-        return XmlHelper.toXmlBytes(actualProxy);
+        return XmlHelper.toXmlBytes(actualProxy, minimalNamespaces);
 	}
 	
 	private void populateFromProxy(GetObservationType proxy) throws InvalidMessageException
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.bind.JAXBElement;
+import javax.xml.stream.StreamFilter;
 
 import eu.cocop.messageserialiser.meas.InvalidMessageException;
 import eu.cocop.messageserialiser.meas.XmlHelper;
@@ -63,11 +64,22 @@ public final class GetObservationResponse
 	 * @throws InvalidMessageException Thrown if an error is encountered.
 	 */
 	public GetObservationResponse(byte[] xmlBytes) throws InvalidMessageException
+	{
+		this(xmlBytes, null);
+	}
+	
+	/**
+	 * Constructor. Use this to process an incoming response object.
+	 * @param xmlBytes XML data.
+	 * @param filter Filter for parsing events or null.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	GetObservationResponse(byte[] xmlBytes, StreamFilter filter) throws InvalidMessageException
 	{
 		try
 		{
 			@SuppressWarnings("unchecked")
-			JAXBElement<GetObservationResponseType> proxy = (JAXBElement<GetObservationResponseType>)XmlHelper.deserialiseFromXml(xmlBytes);
+			JAXBElement<GetObservationResponseType> proxy = (JAXBElement<GetObservationResponseType>)XmlHelper.deserialiseFromXml(xmlBytes, filter);
 			populateFromProxy(proxy.getValue());
 		}
 		catch (ClassCastException e)
@@ -90,6 +102,17 @@ public final class GetObservationResponse
 	 * @return XML data.
 	 */
 	public byte[] toXmlBytes()
+	{
+		return toXmlBytes(false);
+	}
+	
+	/**
+	 * Serialises the object to XML.
+	 * @param minimalNamespaces If true, only the namespaces actually used are declared,
+	 * and they have short prefixes.
+	 * @return XML data.
+	 */
+	public byte[] toXmlBytes(boolean minimalNamespaces)
 	{
 		GetObservationResponseType proxy = new GetObservationResponseType();
         
@@ -118,7 +141,7 @@ public final class GetObservationResponse
         // Serialising
         ObjectFactory objectFactorySos = new ObjectFactory();
         Object finalProxy = objectFactorySos.createGetObservationResponse(proxy);
-        return XmlHelper.toXmlBytes(finalProxy);
+        return XmlHelper.toXmlBytes(finalProxy, minimalNamespaces);
 	}
 	
 	private String buildIdPrefix(String idPrefix, int idCounter)
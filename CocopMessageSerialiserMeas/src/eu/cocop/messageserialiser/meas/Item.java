@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 2/2018
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package eu.cocop.messageserialiser.meas;
 
@@ -42,6 +42,28 @@ public abstract class Item
 		return m_observationTypeUri;
 	}
 	
+	/**
+	 * Walks the item and the items nested in it depth first.
+	 * @param visitor Visitor.
+	 */
+	public void walk(ItemVisitor visitor)
+	{
+		accept(null, DataQuality.createGood(), visitor);
+	}
+	
+	/**
+	 * Passes the item to the matching method of a visitor. The base class
+	 * treats the item as an application-specific type, but sub-classes shall
+	 * override this method as needed.
+	 * @param name Field name or null.
+	 * @param quality Data quality.
+	 * @param visitor Visitor.
+	 */
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		visitor.visitOther(name, this, quality);
+	}
+	
 	/**
 	 * Whether the item type supports data quality in a data record.
 	 * The default is true; override this function if the type does not support data quality in a data record.
@@ -65,9 +87,26 @@ public abstract class Item
 		throw new RuntimeException("The type does not support serialisation as an observation result");
 	}
 	
+	/**
+	 * Repopulates the item from a raw observation result to enable the reuse of
+	 * objects in decoding. The base class does not support this, but mutable
+	 * sub-classes shall override this method as needed.
+	 * @param result Raw result object from XML.
+	 * @return True if the item was repopulated, otherwise false.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	boolean reloadFromXml_Result(Object result) throws InvalidMessageException
+	{
+		return false;
+	}
+	
 	/**
 	 * Returns the object for data record marshalling. The base class has no proper implementation,
 	 * but this method shall be overridden in sub-classes as needed.
+	 * 
+	 * Each call must return a new object, because the caller may modify it (e.g.,
+	 * to add data quality). Immutable items may cache the values they put in the
+	 * object instead.
 	 * @return Object.
 	 */
 	JAXBElement<? extends AbstractDataComponentType> getObjectForXml_DataRecordField(net.opengis.swe._2.ObjectFactory fact)
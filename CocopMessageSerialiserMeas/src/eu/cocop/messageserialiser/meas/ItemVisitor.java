@@ -0,0 +1,185 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+/**
+ * A visitor for a depth-first walk over an item and the items nested in it.
+ * Start the walk with {@link Item#walk(ItemVisitor)} or
+ * {@link Observation#walk(ItemVisitor)}. The values are passed as primitives
+ * where possible, so the walk itself allocates nothing except a cursor for
+ * each compressed time series.
+ *
+ * The name is the field name in the enclosing data record or null for the
+ * item where the walk started. Each method does nothing by default; override
+ * the ones needed.
+ * @author Petri Kannisto
+ */
+public interface ItemVisitor
+{
+	/**
+	 * Visits a boolean value.
+	 * @param name Field name or null.
+	 * @param value Value.
+	 * @param quality Data quality.
+	 */
+	default void visitBoolean(String name, boolean value, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a category.
+	 * @param name Field name or null.
+	 * @param value Value.
+	 * @param quality Data quality.
+	 */
+	default void visitCategory(String name, String value, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a count.
+	 * @param name Field name or null.
+	 * @param value Value.
+	 * @param quality Data quality.
+	 */
+	default void visitCount(String name, long value, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a measurement.
+	 * @param name Field name or null.
+	 * @param value Value.
+	 * @param uom Unit of measure.
+	 * @param quality Data quality.
+	 */
+	default void visitMeasurement(String name, double value, String uom, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a text value.
+	 * @param name Field name or null.
+	 * @param value Value.
+	 * @param quality Data quality.
+	 */
+	default void visitText(String name, String value, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a time instant.
+	 * @param name Field name or null.
+	 * @param millis Milliseconds since the epoch.
+	 * @param quality Data quality.
+	 */
+	default void visitTimeInstant(String name, long millis, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits a time range.
+	 * @param name Field name or null.
+	 * @param startMillis Start in milliseconds since the epoch.
+	 * @param endMillis End in milliseconds since the epoch.
+	 * @param quality Data quality.
+	 */
+	default void visitTimeRange(String name, long startMillis, long endMillis, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits an array. The rows are not walked, as their cells are objects
+	 * anyway.
+	 * @param name Field name or null.
+	 * @param array The array.
+	 */
+	default void visitArray(String name, Item_Array array)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Visits an item of a type registered by an application in
+	 * ResultTypeRegistry.
+	 * @param name Field name or null.
+	 * @param item Item.
+	 * @param quality Data quality.
+	 */
+	default void visitOther(String name, Item item, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Called before the fields of a data record are walked in the order of
+	 * their names.
+	 * @param name Field name or null.
+	 * @param fieldCount The count of fields.
+	 * @return True to walk the fields, false to skip them. The end method is
+	 * called in either case.
+	 */
+	default boolean startDataRecord(String name, int fieldCount)
+	{
+		return true;
+	}
+	
+	/**
+	 * Called after the fields of a data record.
+	 * @param name Field name or null.
+	 */
+	default void endDataRecord(String name)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Called before the values of a time series are walked.
+	 * @param name Field name or null.
+	 * @param uom Unit of measure.
+	 * @param valueCount The count of values.
+	 * @return True to walk the values, false to skip them. The end method is
+	 * called in either case.
+	 */
+	default boolean startTimeSeries(String name, String uom, int valueCount)
+	{
+		return true;
+	}
+	
+	/**
+	 * Visits a value of a time series.
+	 * @param index Position in the series.
+	 * @param timestampMillis Timestamp in milliseconds since the epoch.
+	 * @param value Value.
+	 * @param quality Data quality.
+	 */
+	default void visitTimeSeriesValue(int index, long timestampMillis, double value, DataQuality quality)
+	{
+		// Nothing by default
+	}
+	
+	/**
+	 * Called after the values of a time series.
+	 * @param name Field name or null.
+	 */
+	default void endTimeSeries(String name)
+	{
+		// Nothing by default
+	}
+}
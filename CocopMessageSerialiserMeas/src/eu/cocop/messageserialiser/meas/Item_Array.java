@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -176,6 +176,12 @@ public final class Item_Array extends Item
 		return fact.createDataArray(proxy);
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		visitor.visitArray(name, this);
+	}
+	
 	private DataArrayType createProxy()
 	{
 		DataArrayType proxy = new DataArrayType();
@@ -391,11 +397,8 @@ public final class Item_Array extends Item
 	{
 		try
 		{
-			// Get JAXB context
-			JAXBContext jaxbContext = XmlHelper.getJaxbContext();
-			
 			// Do JAXB unmarshalling
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller(); // throws JAXBException
+			Unmarshaller unmarshaller = XmlHelper.getUnmarshaller(); // throws JAXBException
 			return (ArrayType)unmarshaller.unmarshal(arrayRootNode); // throws JAXBException
 		}
 		catch (Exception e) // Catching all exceptions just in case
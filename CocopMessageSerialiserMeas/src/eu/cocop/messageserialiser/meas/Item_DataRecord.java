@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -23,8 +23,8 @@ package eu.cocop.messageserialiser.meas;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.TreeMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -35,22 +35,13 @@ import org.w3c.dom.Node;
 
 import eu.cocop.messageserialiser.meas.InvalidMessageException;
 import eu.cocop.messageserialiser.meas.XmlHelper;
-import eu.cocop_spire.om_custom._1_1.AbstractGmlAsSweDataComponentType;
 import net.opengis.swe._2.AbstractDataComponentType;
 import net.opengis.swe._2.AbstractSimpleComponentType;
-import net.opengis.swe._2.BooleanType;
-import net.opengis.swe._2.CategoryType;
-import net.opengis.swe._2.CountType;
-import net.opengis.swe._2.DataArrayType;
 import net.opengis.swe._2.DataRecordPropertyType;
 import net.opengis.swe._2.DataRecordType;
 import net.opengis.swe._2.DataRecordType.Field;
 import net.opengis.swe._2.ObjectFactory;
 import net.opengis.swe._2.QualityPropertyType;
-import net.opengis.swe._2.QuantityType;
-import net.opengis.swe._2.TextType;
-import net.opengis.swe._2.TimeRangeType;
-import net.opengis.swe._2.TimeType;
 
 /**
  * Represents a record that consists of multiple measurements.
@@ -63,10 +54,20 @@ import net.opengis.swe._2.TimeType;
  */
 public final class Item_DataRecord extends Item
 {
+	private static final Item[] EMPTY_SLOTS = new Item[0];
+	
 	private final String emptyRecordItem = "__cocop-empty-value";
 	
-	private final TreeMap<String, Item> m_items = new TreeMap<String, Item>();
-	private final TreeMap<String, DataQuality> m_itemQualities = new TreeMap<>();
+	// The field names and their slots come from the shape, which is shared by
+	// the records with the same fields. The items are stored by slot. This
+	// also enables DataRecordPath to reuse a resolution for each record of the
+	// same shape.
+	private DataRecordShape m_shape = DataRecordShape.EMPTY;
+	private Item[] m_slotItems = EMPTY_SLOTS;
+	
+	// Data quality by slot. Created only when an explicit quality is set, and
+	// a null element means the quality is not set.
+	private DataQuality[] m_slotQualities = null;
 	
 	
 	/**
@@ -153,6 +154,38 @@ public final class Item_DataRecord extends Item
 		readDataRecord(el);
 	}
 	
+	@Override
+	boolean reloadFromXml_Result(Object result) throws InvalidMessageException
+	{
+		if (!(result instanceof DataRecordPropertyType))
+		{
+			// E.g., a data array
+			return false;
+		}
+		
+		reloadFromXml((DataRecordPropertyType)result);
+		return true;
+	}
+	
+	/**
+	 * Clears the record and populates it again from XML. This enables the reuse
+	 * of the object when decoding.
+	 * @param el XML data.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	void reloadFromXml(DataRecordPropertyType el) throws InvalidMessageException
+	{
+		m_shape = DataRecordShape.EMPTY;
+		Arrays.fill(m_slotItems, null);
+		
+		if (m_slotQualities != null)
+		{
+			Arrays.fill(m_slotQualities, null);
+		}
+		
+		readDataRecord(el.getDataRecord());
+	}
+	
 	private void readDataRecord(DataRecordType el) throws InvalidMessageException
 	{
 		String fieldForMsg = "(unknown)";
@@ -175,16 +208,10 @@ public final class Item_DataRecord extends Item
 				fieldForMsg = fieldName;
 				AbstractDataComponentType fieldObj = field.getAbstractDataComponent().getValue();
 				
-				Item itemRead = null;
 				DataQuality dataQuality = null;
 				
-				// Data record?
-				if (fieldObj instanceof DataRecordType)
-				{
-					itemRead = new Item_DataRecord((DataRecordType)fieldObj);
-				}
-				// Simple content?
-				else if (fieldObj instanceof AbstractSimpleComponentType)
+				// Only simple content can have data quality
+				if (fieldObj instanceof AbstractSimpleComponentType)
 				{
 					AbstractSimpleComponentType simpleComp = (AbstractSimpleComponentType)fieldObj;
 					
@@ -192,30 +219,12 @@ public final class Item_DataRecord extends Item
 					if (simpleComp.getQuality() != null && simpleComp.getQuality().size() > 0)
 					{
 						QualityPropertyType qualityProp = simpleComp.getQuality().get(0);
-						dataQuality = new DataQuality(qualityProp.getTitleAttr());
+						dataQuality = DataQuality.fromXml(qualityProp.getTitleAttr());
 					}
-					
-					itemRead = readSimpleComponent(simpleComp);
-				}
-				// Array?
-				else if (fieldObj instanceof DataArrayType)
-				{
-					itemRead = new Item_Array((DataArrayType)fieldObj);
-				}
-				// Time series?
-				else if (fieldObj instanceof AbstractGmlAsSweDataComponentType)
-				{
-					// To have time series working here, the proxy class
-					// "eu.cocop_spire.om_custom._1_1.SweDataComponentAsFeatureType" was
-					// generated with XJC. The proxies referring to the object have
-					// been modified manually, as the default namespace conflicted
-					// with the namespace of COCOP custom 1.2.
-					
-					// For robustness, just skipping unsupported field type.
-					// TODO: Implement support for time series in a data record
-					continue;
 				}
 				
+				Item itemRead = ResultTypeRegistry.decodeField(fieldObj);
+				
 				if (itemRead == null)
 				{
 					// For robustness, just skipping an unknown field type
@@ -239,44 +248,6 @@ public final class Item_DataRecord extends Item
 		}
 	}
 	
-	private Item readSimpleComponent(AbstractSimpleComponentType fieldObj) throws InvalidMessageException
-	{
-		if (fieldObj instanceof BooleanType)
-		{
-			return new Item_Boolean((BooleanType)fieldObj);
-		}
-		else if (fieldObj instanceof CategoryType)
-		{
-			return new Item_Category((CategoryType)fieldObj);
-		}
-		else if (fieldObj instanceof CountType)
-		{
-			return new Item_Count((CountType)fieldObj);
-		}
-		else if (fieldObj instanceof QuantityType)
-		{
-			return new Item_Measurement((QuantityType)fieldObj);
-		}
-		else if (fieldObj instanceof TextType)
-		{
-			return new Item_Text((TextType)fieldObj);
-		}
-		else if (fieldObj instanceof TimeType)
-		{
-			return new Item_TimeInstant((TimeType)fieldObj);
-		}
-		else if (fieldObj instanceof TimeRangeType)
-		{
-			return new Item_TimeRange((TimeRangeType)fieldObj);
-		}
-		else
-		{
-			// Unknown type. For robustness, just skip the field.
-			return null;
-		}
-	}
-	
-	
 	@Override
 	protected boolean supportsDataQualityInDataRecord()
 	{
@@ -295,27 +266,43 @@ public final class Item_DataRecord extends Item
 		return fact.createDataRecord(buildDataRecordForMarshal(fact));
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		if (visitor.startDataRecord(name, m_shape.getFieldCount()))
+		{
+			for (int slot : m_shape.getSortedSlots())
+			{
+				// Missing quality information is considered good quality
+				DataQuality fieldQuality = getQualityAt(slot);
+				m_slotItems[slot].accept(m_shape.getName(slot), fieldQuality == null ? DataQuality.createGood() : fieldQuality, visitor);
+			}
+		}
+		
+		visitor.endDataRecord(name);
+	}
+	
 	private DataRecordType buildDataRecordForMarshal(net.opengis.swe._2.ObjectFactory fact)
 	{
 		DataRecordType retval = new DataRecordType();
 		
-		if (m_items.size() < 1)
+		if (m_shape.getFieldCount() < 1)
 		{
 			// If the record is empty, adding an empty value.
 			// The XML schema does not allow empty data record, but
 			// there are uses cases for these.
-			Field emptyField = createFieldElementForProxy(emptyRecordItem, new Item_Text(""), fact, true);
+			Field emptyField = createFieldElementForProxy(emptyRecordItem, new Item_Text(""), fact, null);
 			retval.getField().add(emptyField);
 		}
 		else
 		{
-			for (String fieldName : m_items.keySet())
+			for (int slot : m_shape.getSortedSlots())
 			{
 				// Missing quality information is considered good quality
-				boolean goodQuality = !m_itemQualities.containsKey(fieldName) || m_itemQualities.get(fieldName).isGood();
+				DataQuality quality = getQualityAt(slot);
 				
 				// Create field element for the data record
-				Field currentField = createFieldElementForProxy(fieldName, m_items.get(fieldName), fact, goodQuality);
+				Field currentField = createFieldElementForProxy(m_shape.getName(slot), m_slotItems[slot], fact, quality);
 				
 				// Add the field element to the return value
 				retval.getField().add(currentField);
@@ -325,20 +312,20 @@ public final class Item_DataRecord extends Item
 		return retval;
 	}
 	
-	private Field createFieldElementForProxy(String fieldName, Item item, net.opengis.swe._2.ObjectFactory fact, boolean goodQuality)
+	private Field createFieldElementForProxy(String fieldName, Item item, net.opengis.swe._2.ObjectFactory fact, DataQuality quality)
 	{
 		// Create field element for the data record
 		Field currentField = new Field();
 		currentField.setName(fieldName);
 		
 		// Set the item enclosed by the field
-		JAXBElement<? extends AbstractDataComponentType> objectForMarshal = item.getObjectForXml_DataRecordField(fact);
+		JAXBElement<? extends AbstractDataComponentType> objectForMarshal = ResultTypeRegistry.encodeField(item, fact);
 		currentField.setAbstractDataComponent(objectForMarshal);
 		
 		// Adding data quality information if not good
-		if (!goodQuality)
+		if (quality != null && !quality.isGood())
 		{
-			String qualityValue = m_itemQualities.get(fieldName).getValue();
+			String qualityValue = quality.getValue();
 			
 			// Only simple components can have quality information
 			AbstractSimpleComponentType simpleItem = (AbstractSimpleComponentType)objectForMarshal.getValue();
@@ -352,12 +339,12 @@ public final class Item_DataRecord extends Item
 	
 	
 	/**
-	 * Gets the name of each item in the record.
-	 * @return Names.
+	 * Gets the name of each item in the record in sorted order.
+	 * @return Names. The set cannot be modified.
 	 */
 	public Set<String> getItemNames()
 	{
-		return m_items.keySet();
+		return m_shape.getSortedNames();
 	}
 	
 	/**
@@ -367,7 +354,8 @@ public final class Item_DataRecord extends Item
 	 */
 	public Item getItem(String n)
 	{
-		return m_items.get(n);
+		int slot = m_shape.indexOf(n);
+		return slot < 0 ? null : m_slotItems[slot];
 	}
 	
 	/**
@@ -377,12 +365,28 @@ public final class Item_DataRecord extends Item
 	 */
 	public void addItem(String n, Item i)
 	{
-		if (m_items.containsKey(n))
+		addItemAndGetSlot(n, i);
+	}
+	
+	private int addItemAndGetSlot(String n, Item i)
+	{
+		DataRecordShape newShape = m_shape.withField(n);
+		
+		if (newShape == null)
 		{
 			throw new IllegalArgumentException("Duplicate item name \"" + n + "\"");
 		}
 		
-		m_items.put(n, i);
+		int slot = m_shape.getFieldCount();
+		m_shape = newShape;
+		
+		if (slot == m_slotItems.length)
+		{
+			m_slotItems = Arrays.copyOf(m_slotItems, Math.max(4, slot * 2));
+		}
+		
+		m_slotItems[slot] = i;
+		return slot;
 	}
 	
 	/**
@@ -400,8 +404,14 @@ public final class Item_DataRecord extends Item
 		}
 		
 		// Add item and set its quality
-		addItem(n, i);
-		m_itemQualities.put(n, qual);
+		int slot = addItemAndGetSlot(n, i);
+		
+		if (m_slotQualities == null || m_slotQualities.length < m_slotItems.length)
+		{
+			m_slotQualities = m_slotQualities == null ? new DataQuality[m_slotItems.length] : Arrays.copyOf(m_slotQualities, m_slotItems.length);
+		}
+		
+		m_slotQualities[slot] = qual;
 	}
 	
 	/**
@@ -420,9 +430,11 @@ public final class Item_DataRecord extends Item
 		}
 		
 		// Does quality information exist?
-		if (m_itemQualities.containsKey(n))
+		DataQuality quality = getExplicitQualityOfItem(n);
+		
+		if (quality != null)
 		{
-			return m_itemQualities.get(n);
+			return quality;
 		}
 		else
 		{
@@ -431,6 +443,42 @@ public final class Item_DataRecord extends Item
 		}
 	}
 	
+	/**
+	 * The shape of the record.
+	 * @return Shape.
+	 */
+	DataRecordShape getShape()
+	{
+		return m_shape;
+	}
+	
+	/**
+	 * Gets an item by its slot in the shape.
+	 * @param slot Slot.
+	 * @return Item.
+	 */
+	Item getItemAt(int slot)
+	{
+		return m_slotItems[slot];
+	}
+	
+	/**
+	 * Gets the data quality of an item if set explicitly.
+	 * @param n Item name.
+	 * @return Quality or null if not set.
+	 */
+	DataQuality getExplicitQualityOfItem(String n)
+	{
+		int slot = m_shape.indexOf(n);
+		return slot < 0 ? null : getQualityAt(slot);
+	}
+	
+	private DataQuality getQualityAt(int slot)
+	{
+		// The quality array may be shorter than the item array
+		return m_slotQualities == null || slot >= m_slotQualities.length ? null : m_slotQualities[slot];
+	}
+	
 	/**
 	 * Generates an XML proxy from the object. Use this if you want to include the
 	 * object to another XML document.
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -128,6 +128,12 @@ public final class Item_Measurement extends Item
 		return fact.createQuantity(quantity);
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		visitor.visitMeasurement(name, m_value, m_unitOfMeasure, quality);
+	}
+	
 	
 	/**
 	 * Unit of measure.
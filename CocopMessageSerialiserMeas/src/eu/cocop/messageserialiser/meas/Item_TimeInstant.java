@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -61,6 +61,12 @@ public final class Item_TimeInstant extends Item
 	private final DateTime m_dateTime;
 	private final boolean m_hasExplicitZone;
 	
+	// The serialised value is cached, because the same instances are often
+	// encoded repeatedly (e.g., in data records). A race may only compute the
+	// value twice; String is immutable, so publishing it without
+	// synchronisation is safe.
+	private String m_xsdDateTime = null;
+	
 	
 	
 	// ### Constructors and related ###
@@ -83,6 +89,20 @@ public final class Item_TimeInstant extends Item
 		m_dateTime = dt;
 	}
 	
+	/**
+	 * Constructor. Use this to instantiate an item from a binary message.
+	 * @param millis Timestamp in epoch milliseconds.
+	 * @param explicitZone Whether the UTC offset was explicit. If not, the
+	 * default time zone is assumed as when parsing XML.
+	 */
+	Item_TimeInstant(long millis, boolean explicitZone)
+	{
+		super(XmlHelper.TYPEURI_TEMPORAL);
+		
+		m_hasExplicitZone = explicitZone;
+		m_dateTime = explicitZone ? new DateTime(millis, DateTimeZone.UTC) : new DateTime(millis);
+	}
+	
 	/**
 	 * Constructor. Use this to instantiate an item from XML (observation result).
 	 * @param el XML contents.
@@ -291,6 +311,12 @@ public final class Item_TimeInstant extends Item
 		return fact.createTime(retval);
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		visitor.visitTimeInstant(name, m_dateTime.getMillis(), quality);
+	}
+	
 	
 	/**
 	 * The value of the timestamp.
@@ -319,6 +345,14 @@ public final class Item_TimeInstant extends Item
 	 */
 	String toXsdDateTime()
 	{
-		return m_dateTime.toString();
+		String retval = m_xsdDateTime;
+		
+		if (retval == null)
+		{
+			retval = m_dateTime.toString();
+			m_xsdDateTime = retval;
+		}
+		
+		return retval;
 	}
 }
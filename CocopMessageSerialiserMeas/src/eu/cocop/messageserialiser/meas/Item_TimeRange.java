@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -184,6 +184,12 @@ public final class Item_TimeRange extends Item
 		return fact.createTimeRange(retval);
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		visitor.visitTimeRange(name, m_start.getValue().getMillis(), m_end.getValue().getMillis(), quality);
+	}
+	
 	
 	/**
 	 * The start time of the period.
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -21,7 +21,7 @@
 
 package eu.cocop.messageserialiser.meas;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.xml.bind.JAXBElement;
@@ -52,9 +52,23 @@ import net.opengis.tsml._1.TimeseriesMetadataExtensionType;
  */
 public abstract class Item_TimeSeries extends Item
 {
-	private final String m_unitOfMeasure;
-	private final ArrayList<Double> m_values = new ArrayList<Double>();
-    private final ArrayList<DataQuality> m_dataQualities = new ArrayList<DataQuality>();
+	private static final double[] EMPTY_VALUES = new double[0];
+	private static final DataQuality[] EMPTY_QUALITIES = new DataQuality[0];
+	
+	private String m_unitOfMeasure;
+	
+	// Primitive arrays avoid boxing; the arrays can be larger than the count
+	private double[] m_values = EMPTY_VALUES;
+	private DataQuality[] m_dataQualities = EMPTY_QUALITIES;
+	private int m_offset = 0;
+	private int m_count = 0;
+	
+	// Whether the arrays are shared with a view (or a view with its source).
+	// Shared arrays are copied before any modification.
+	private boolean m_arraysShared = false;
+	
+	// Non-null if the series is compressed; then, the arrays are empty
+	private CompressedTimeSeriesData m_compressed = null;
     
     private String m_description;
 	
@@ -102,17 +116,25 @@ public abstract class Item_TimeSeries extends Item
 	 */
 	public int getValueCount()
 	{
-		return m_values.size();
+		return m_count;
 	}
 	
 	/**
-	 * Get the value in the given position.
+	 * Get the value in the given position. If the series is compressed, this
+	 * decodes up to 128 values; use {@link #createCursor()} to iterate instead.
 	 * @param index Position.
 	 * @return Value.
 	 */
 	public double getValue(int index)
 	{
-		return m_values.get(index);
+		checkIndex(index);
+		
+		if (m_compressed != null)
+		{
+			return m_compressed.getValue(index);
+		}
+		
+		return m_values[m_offset + index];
 	}
 	
 	/**
@@ -134,13 +156,21 @@ public abstract class Item_TimeSeries extends Item
 	}
 	
 	/**
-	 * Gets the data quality of the value in the given position.
+	 * Gets the data quality of the value in the given position. If the series
+	 * is compressed, this is a binary search over the changes of data quality.
 	 * @param index Position.
 	 * @return Data quality.
 	 */
 	public DataQuality getDataQuality(int index)
     {
-        return m_dataQualities.get(index);
+		checkIndex(index);
+		
+		if (m_compressed != null)
+		{
+			return m_compressed.getDataQuality(index);
+		}
+		
+		return m_dataQualities[m_offset + index];
     }
 	
 	/**
@@ -150,9 +180,174 @@ public abstract class Item_TimeSeries extends Item
 	 */
 	protected void addValueBase(double value, DataQuality dq)
     {
-        m_values.add(value);
-        m_dataQualities.add(dq);
-    }
+		if (m_compressed != null)
+		{
+			// Any timestamps are handled by the subclass
+			appendCompressed(0, value, dq);
+			return;
+		}
+		
+		ensureCapacity(m_count + 1);
+		m_values[m_count] = value;
+		m_dataQualities[m_count] = dq;
+		++m_count;
+	}
+	
+	/**
+	 * Adds values in bulk. The capacity grows at most once, and nothing is
+	 * allocated per value.
+	 * @param values Values.
+	 * @param qualities Data qualities or null if all are "good".
+	 * @param off The position of the first value in the arrays.
+	 * @param len The count of values to add.
+	 * @throws IndexOutOfBoundsException Thrown if the range exceeds an array.
+	 */
+	protected void addValuesBase(double[] values, DataQuality[] qualities, int off, int len) throws IndexOutOfBoundsException
+	{
+		checkRange(values.length, off, len);
+		
+		if (qualities != null)
+		{
+			checkRange(qualities.length, off, len);
+		}
+		
+		if (m_compressed != null)
+		{
+			for (int a = off; a < off + len; ++a)
+			{
+				appendCompressed(0, values[a], qualities == null ? DataQuality.createGood() : qualities[a]);
+			}
+			
+			return;
+		}
+		
+		ensureCapacity(m_count + len);
+		System.arraycopy(values, off, m_values, m_count, len);
+		
+		if (qualities != null)
+		{
+			System.arraycopy(qualities, off, m_dataQualities, m_count, len);
+		}
+		else
+		{
+			Arrays.fill(m_dataQualities, m_count, m_count + len, DataQuality.createGood());
+		}
+		
+		m_count += len;
+	}
+	
+	/**
+	 * Compresses the data in memory. Timestamps are encoded as deltas of deltas
+	 * and values as the XOR of consecutive values as in the Gorilla time series
+	 * database, which typically reduces the memory use of slowly changing process
+	 * values by an order of magnitude. In a compressed series:
+	 * <ul>
+	 * <li>appending values does not decompress anything,</li>
+	 * <li>{@link #createCursor()} decodes each value once,</li>
+	 * <li>random access decodes up to 128 values per call,</li>
+	 * <li>the time zones of timestamps are not retained (they become UTC), and</li>
+	 * <li>{@link #subSeries(Item_TimeInstant, Item_TimeInstant)} returns a decompressed copy.</li>
+	 * </ul>
+	 * If the series is already compressed, nothing happens.
+	 */
+	public void compress()
+	{
+		if (m_compressed != null)
+		{
+			return;
+		}
+		
+		boolean hasTimestamps = storesTimestamps();
+		CompressedTimeSeriesData compressed = new CompressedTimeSeriesData(hasTimestamps);
+		
+		for (int a = 0; a < m_count; ++a)
+		{
+			long millis = hasTimestamps ? getTimestampMillis(a) : 0;
+			compressed.append(millis, m_values[m_offset + a], m_dataQualities[m_offset + a]);
+		}
+		
+		m_compressed = compressed;
+		m_values = EMPTY_VALUES;
+		m_dataQualities = EMPTY_QUALITIES;
+		m_offset = 0;
+		m_arraysShared = false;
+		setTimestampArrays(null);
+	}
+	
+	/**
+	 * Decompresses the data. If the series is not compressed, nothing happens.
+	 * @see #compress()
+	 */
+	public void decompress()
+	{
+		if (m_compressed == null)
+		{
+			return;
+		}
+		
+		double[] values = new double[m_count];
+		DataQuality[] qualities = new DataQuality[m_count];
+		long[] timestamps = storesTimestamps() ? new long[m_count] : null;
+		CompressedTimeSeriesData.Reader reader = m_compressed.createReader();
+		
+		while (reader.next())
+		{
+			int index = reader.getIndex();
+			values[index] = reader.getValue();
+			qualities[index] = reader.getDataQuality();
+			
+			if (timestamps != null)
+			{
+				timestamps[index] = reader.getTimestamp();
+			}
+		}
+		
+		m_compressed = null;
+		m_values = values;
+		m_dataQualities = qualities;
+		setTimestampArrays(timestamps);
+	}
+	
+	/**
+	 * Whether the data is compressed.
+	 * @return True if compressed, otherwise false.
+	 * @see #compress()
+	 */
+	public boolean isCompressed()
+	{
+		return m_compressed != null;
+	}
+	
+	/**
+	 * Creates a cursor to iterate the values sequentially. This is the most
+	 * efficient way to read a compressed series.
+	 * @return Cursor.
+	 */
+	public TimeSeriesCursor createCursor()
+	{
+		return new TimeSeriesCursor(this, m_compressed);
+	}
+	
+	/**
+	 * Whether the values are in ascending order of time.
+	 * @return True if sorted, otherwise false.
+	 */
+	public boolean isSortedByTime()
+	{
+		return true;
+	}
+	
+	/**
+	 * Creates a view that contains the values within a time range. The view shares
+	 * the data of this series, and no data is copied. If either the view or this
+	 * series is modified later, the data is copied at that point, so that the
+	 * modification does not affect the other.
+	 * @param from The start of the range (inclusive) or null if unbounded.
+	 * @param to The end of the range (exclusive) or null if unbounded.
+	 * @return View.
+	 * @throws IllegalStateException Thrown if the series is not sorted by time.
+	 */
+	public abstract Item_TimeSeries subSeries(Item_TimeInstant from, Item_TimeInstant to) throws IllegalStateException;
 	
 	/**
 	 * Adds subclass data to a proxy object. In the implementation, the subclass *must not*
@@ -169,6 +364,295 @@ public abstract class Item_TimeSeries extends Item
 		return toXmlProxy(idPrefix);
 	}
 	
+	@Override
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		if (visitor.startTimeSeries(name, m_unitOfMeasure, m_count))
+		{
+			if (m_compressed != null)
+			{
+				// Decoding sequentially
+				TimeSeriesCursor cursor = createCursor();
+				
+				while (cursor.next())
+				{
+					visitor.visitTimeSeriesValue(cursor.getIndex(), cursor.getTimestampMillis(), cursor.getValue(), cursor.getDataQuality());
+				}
+			}
+			else
+			{
+				for (int a = 0; a < m_count; ++a)
+				{
+					visitor.visitTimeSeriesValue(a, getTimestampMillis(a), m_values[m_offset + a], m_dataQualities[m_offset + a]);
+				}
+			}
+		}
+		
+		visitor.endTimeSeries(name);
+	}
+	
+	@Override
+	boolean reloadFromXml_Result(Object result) throws InvalidMessageException
+	{
+		if (!(result instanceof TimeseriesDomainRangeType))
+		{
+			return false;
+		}
+		
+		boolean wasCompressed = isCompressed();
+		reloadFromXml((TimeseriesDomainRangeType)result);
+		
+		if (wasCompressed)
+		{
+			compress();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Clears the object and populates it again from XML. This enables the reuse
+	 * of the object when decoding. Subclasses override this to read their own data.
+	 * @param proxy Proxy object.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	void reloadFromXml(TimeseriesDomainRangeType proxy) throws InvalidMessageException
+	{
+		if (m_arraysShared || m_compressed != null)
+		{
+			// Cannot overwrite shared data. If compressed, the arrays are
+			// already empty but the count is not.
+			m_compressed = null;
+			m_values = EMPTY_VALUES;
+			m_dataQualities = EMPTY_QUALITIES;
+			m_offset = 0;
+			m_arraysShared = false;
+		}
+		else
+		{
+			// The arrays retain their capacity
+			Arrays.fill(m_dataQualities, 0, m_count, null);
+		}
+		
+		m_count = 0;
+		m_description = null;
+		
+		m_unitOfMeasure = readFieldValuesFromXmlDoc(proxy);
+	}
+	
+	/**
+	 * Gets the timestamp of the value in the given position as epoch milliseconds.
+	 * @param index Position.
+	 * @return Timestamp.
+	 */
+	abstract long getTimestampMillis(int index);
+	
+	/**
+	 * Whether the subclass stores a timestamp for each value.
+	 * @return True if the timestamps are stored, otherwise false.
+	 */
+	boolean storesTimestamps()
+	{
+		return false;
+	}
+	
+	/**
+	 * Sets the timestamp arrays of the subclass after compression or decompression.
+	 * Subclasses that store timestamps override this.
+	 * @param millis Timestamps in epoch milliseconds or null if the data has been compressed.
+	 */
+	void setTimestampArrays(long[] millis)
+	{
+		// Nothing to do in the base class
+	}
+	
+	/**
+	 * Gets the compressed data.
+	 * @return Data or null if not compressed.
+	 */
+	CompressedTimeSeriesData getCompressedData()
+	{
+		return m_compressed;
+	}
+	
+	/**
+	 * Appends a value to the compressed data.
+	 * @param millis Timestamp in epoch milliseconds (ignored if the subclass does not store timestamps).
+	 * @param value Value.
+	 * @param dq Data quality.
+	 */
+	void appendCompressed(long millis, double value, DataQuality dq)
+	{
+		m_compressed.append(millis, value, dq);
+		++m_count;
+	}
+	
+	/**
+	 * Returns this object if it is not compressed and otherwise a decompressed
+	 * copy. The array-based methods of this class require an uncompressed series.
+	 * @return Uncompressed series.
+	 */
+	Item_TimeSeries getUncompressed()
+	{
+		if (m_compressed == null)
+		{
+			return this;
+		}
+		
+		Item_TimeSeries retval = createEmptyCopy();
+		retval.m_description = m_description;
+		retval.m_compressed = m_compressed;
+		retval.m_count = m_count;
+		retval.decompress();
+		return retval;
+	}
+	
+	/**
+	 * Creates an empty series with the same metadata.
+	 * @return Empty series.
+	 */
+	abstract Item_TimeSeries createEmptyCopy();
+	
+	/**
+	 * Gets the value array for bulk processing. The array can be longer than
+	 * the value count, and the caller must not modify it. The values start
+	 * at the position returned by {@link #getArrayOffset()}.
+	 * @return Value array.
+	 */
+	double[] getValueArray()
+	{
+		return m_values;
+	}
+	
+	/**
+	 * Gets the data quality array for bulk processing. The array can be longer
+	 * than the value count, and the caller must not modify it.
+	 * @return Data quality array.
+	 */
+	DataQuality[] getDataQualityArray()
+	{
+		return m_dataQualities;
+	}
+	
+	/**
+	 * Gets the position of the first value in the arrays. This is non-zero
+	 * only in views.
+	 * @return Offset.
+	 */
+	int getArrayOffset()
+	{
+		return m_offset;
+	}
+	
+	/**
+	 * Whether the arrays are shared with another series.
+	 * @return True if shared, otherwise false.
+	 */
+	boolean getArraysShared()
+	{
+		return m_arraysShared;
+	}
+	
+	/**
+	 * Ensures that the value arrays have at least the given capacity and
+	 * that they can be modified.
+	 * @param capacity Capacity.
+	 */
+	void ensureCapacity(int capacity)
+	{
+		if (m_arraysShared)
+		{
+			copySharedArrays(Math.max(capacity, Math.max(8, m_count + (m_count >> 1))));
+		}
+		else if (capacity > m_values.length)
+		{
+			int newCapacity = Math.max(capacity, Math.max(8, m_values.length + (m_values.length >> 1)));
+			m_values = Arrays.copyOf(m_values, newCapacity);
+			m_dataQualities = Arrays.copyOf(m_dataQualities, newCapacity);
+		}
+	}
+	
+	/**
+	 * Copies the values from shared arrays to arrays of this object only.
+	 * Subclasses override this to copy their own arrays; the offset is
+	 * reset to zero after the base class has been called.
+	 * @param capacity The capacity of the new arrays.
+	 */
+	void copySharedArrays(int capacity)
+	{
+		m_values = Arrays.copyOfRange(m_values, m_offset, m_offset + capacity);
+		m_dataQualities = Arrays.copyOfRange(m_dataQualities, m_offset, m_offset + capacity);
+		m_offset = 0;
+		m_arraysShared = false;
+	}
+	
+	/**
+	 * Makes this object a view to the given range of another series.
+	 * @param source Source series.
+	 * @param start The first index (inclusive).
+	 * @param end The last index (exclusive).
+	 */
+	void initView(Item_TimeSeries source, int start, int end)
+	{
+		m_values = source.m_values;
+		m_dataQualities = source.m_dataQualities;
+		m_offset = source.m_offset + start;
+		m_count = end - start;
+		m_description = source.m_description;
+		
+		// From now on, both must copy before modification
+		m_arraysShared = true;
+		source.m_arraysShared = true;
+	}
+	
+	/**
+	 * Reorders the values.
+	 * @param order The source index of each new position.
+	 */
+	void reorder(int[] order)
+	{
+		double[] values = new double[m_count];
+		DataQuality[] qualities = new DataQuality[m_count];
+		
+		for (int a = 0; a < m_count; ++a)
+		{
+			values[a] = m_values[m_offset + order[a]];
+			qualities[a] = m_dataQualities[m_offset + order[a]];
+		}
+		
+		// New arrays, so no longer shared
+		m_values = values;
+		m_dataQualities = qualities;
+		m_offset = 0;
+		m_arraysShared = false;
+	}
+	
+	/**
+	 * Throws an exception if a range does not fit in an array.
+	 * @param arrayLength Array length.
+	 * @param off The start of the range.
+	 * @param len The length of the range.
+	 */
+	static void checkRange(int arrayLength, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > arrayLength - len)
+		{
+			throw new IndexOutOfBoundsException("Range [" + off + ", " + off + "+" + len + ") out of bounds for length " + arrayLength);
+		}
+	}
+	
+	/**
+	 * Throws an exception if the index is not within the value count.
+	 * @param index Index.
+	 */
+	void checkIndex(int index)
+	{
+		if (index < 0 || index >= m_count)
+		{
+			throw new IndexOutOfBoundsException("Index " + index + ", count " + m_count);
+		}
+	}
+	
 	// TODO: Support for time series as a field of data record
 	
 	
@@ -196,10 +680,11 @@ public abstract class Item_TimeSeries extends Item
             // Getting measurement values
             List<String> valuesRaw = measValues.getValue();
 			
+			ensureCapacity(valuesRaw.size());
+			
 			for (String s : valuesRaw)
 			{
-				double d = XmlHelper.parseXmlDouble(s);
-				m_values.add(d);
+				m_values[m_count++] = XmlHelper.parseXmlDouble(s);
 			}
             
 			// Reading data qualities
@@ -219,10 +704,16 @@ public abstract class Item_TimeSeries extends Item
 			CodeOrNilReasonListType qualityList = (CodeOrNilReasonListType)qualityListAlmost.getValue();
 
             List<String> qualitiesRaw = qualityList.getValue();
+            
+            // Checking that the size of each collection matches
+            if (qualitiesRaw.size() != m_count)
+            {
+                throw new InvalidMessageException("The sizes of collections do not match in the XML document (something missing or too many)");
+            }
 			
-			for (String s : qualitiesRaw)
+			for (int a = 0; a < m_count; ++a)
 			{
-				m_dataQualities.add(new DataQuality(s));
+				m_dataQualities[a] = DataQuality.fromXml(qualitiesRaw.get(a));
 			}
         }
         // Missing fields
@@ -236,12 +727,6 @@ public abstract class Item_TimeSeries extends Item
             throw new InvalidMessageException("Failed to read " + partName + " from time series XML (required item missing?)", e);
         }
 
-        // Checking that the size of each collection matches
-        if (m_dataQualities.size() != m_values.size())
-        {
-            throw new InvalidMessageException("The sizes of collections do not match in the XML document (something missing or too many)");
-        }
-
         return unitOfMeasure;
     }
 
@@ -277,10 +762,22 @@ public abstract class Item_TimeSeries extends Item
 		MeasureOrNilReasonListType measValues = new MeasureOrNilReasonListType();
 		measValues.setUom(m_unitOfMeasure);
 		
-		for (double d : m_values)
+		if (m_compressed != null)
+		{
+			TimeSeriesCursor cursor = createCursor();
+			
+			while (cursor.next())
+			{
+				measValues.getValue().add(XmlHelper.serialiseXmlDouble(cursor.getValue()));
+			}
+		}
+		else
 		{
-			String valueString = XmlHelper.serialiseXmlDouble(d);
-			measValues.getValue().add(valueString);
+			for (int a = 0; a < m_count; ++a)
+			{
+				String valueString = XmlHelper.serialiseXmlDouble(m_values[m_offset + a]);
+				measValues.getValue().add(valueString);
+			}
 		}
 		
 		// rangeSet
@@ -294,9 +791,21 @@ public abstract class Item_TimeSeries extends Item
 		CodeOrNilReasonListType qualityList = new CodeOrNilReasonListType();
 		qualityList.setCodeSpace("http://cocop");
 		
-		for (DataQuality dq : m_dataQualities)
+		if (m_compressed != null)
 		{
-			qualityList.getValue().add(dq.getValue());
+			TimeSeriesCursor cursor = createCursor();
+			
+			while (cursor.next())
+			{
+				qualityList.getValue().add(cursor.getDataQuality().getValue());
+			}
+		}
+		else
+		{
+			for (int a = 0; a < m_count; ++a)
+			{
+				qualityList.getValue().add(m_dataQualities[m_offset + a].getValue());
+			}
 		}
 		
 		// tsml:metadata/tsml:TimeseriesMetadataExtension/tsml:annotation/tsml:AnnotationCoverage/gml:rangeSet (/gml:CategoryList)
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -26,6 +26,8 @@ import javax.xml.datatype.Duration;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Period;
 
 import eu.cocop.messageserialiser.meas.InvalidMessageException;
@@ -54,6 +56,9 @@ public final class Item_TimeSeriesConstant extends Item_TimeSeries
 	private Item_TimeInstant m_baseTime = null;
 	private Period m_spacing = null;
 	
+	// The spacing in milliseconds or -1 if the spacing has no fixed length (months or years)
+	private long m_spacingMillis = -1;
+	
 	
 	/**
 	 * Constructor.
@@ -67,6 +72,7 @@ public final class Item_TimeSeriesConstant extends Item_TimeSeries
 		
 		m_baseTime = baseTime;
 		m_spacing = spacing;
+		m_spacingMillis = TimeHelper.getFixedLengthMillis(spacing);
 	}
 	
 	/**
@@ -112,6 +118,14 @@ public final class Item_TimeSeriesConstant extends Item_TimeSeries
 		}
 	}
 	
+	@Override
+	void reloadFromXml(TimeseriesDomainRangeType proxy) throws InvalidMessageException
+	{
+		super.reloadFromXml(proxy);
+		
+		readDataFromProxy(proxy);
+	}
+	
 	/**
 	 * The base time of the time series (i.e., the time of the first sample).
 	 * @return The base time of the time series (i.e., the time of the first sample).
@@ -149,6 +163,145 @@ public final class Item_TimeSeriesConstant extends Item_TimeSeries
 		addValue(v, DataQuality.createGood());
 	}
 	
+	/**
+	 * Adds values in bulk. The capacity grows at most once, and nothing is
+	 * allocated per value.
+	 * @param values Values.
+	 * @param qualities Data qualities or null if all are "good".
+	 * @param off The position of the first value in the arrays.
+	 * @param len The count of values to add.
+	 * @throws IndexOutOfBoundsException Thrown if the range exceeds an array.
+	 */
+	public void addValues(double[] values, DataQuality[] qualities, int off, int len) throws IndexOutOfBoundsException
+	{
+		addValuesBase(values, qualities, off, len);
+	}
+	
+	/**
+	 * Adds values in bulk. A "good" data quality is expected.
+	 * @param values Values.
+	 * @param off The position of the first value in the array.
+	 * @param len The count of values to add.
+	 * @throws IndexOutOfBoundsException Thrown if the range exceeds the array.
+	 */
+	public void addValues(double[] values, int off, int len) throws IndexOutOfBoundsException
+	{
+		addValuesBase(values, null, off, len);
+	}
+	
+	/**
+	 * Creates a view that contains the values within a time range. The bounds
+	 * are calculated from the base time and spacing. The view shares the data
+	 * of this series, and no data is copied. If either the view or this series
+	 * is modified later, the data is copied at that point, so that the
+	 * modification does not affect the other. If the spacing contains months
+	 * or years, the timestamps of the view are calculated from its own base
+	 * time, which can differ from the original at month ends.
+	 * @param from The start of the range (inclusive) or null if unbounded.
+	 * @param to The end of the range (exclusive) or null if unbounded.
+	 * @return View.
+	 */
+	@Override
+	public Item_TimeSeriesConstant subSeries(Item_TimeInstant from, Item_TimeInstant to)
+	{
+		if (isCompressed())
+		{
+			return ((Item_TimeSeriesConstant)getUncompressed()).subSeries(from, to);
+		}
+		
+		int start = from == null ? 0 : findFirstAtOrAfter(from.getValue().getMillis());
+		int end = to == null ? getValueCount() : findFirstAtOrAfter(to.getValue().getMillis());
+		end = Math.max(start, end);
+		
+		Item_TimeInstant baseTime = m_baseTime;
+		
+		if (start > 0)
+		{
+			baseTime = new Item_TimeInstant(new DateTime(calculateTimestampMillis(start), DateTimeZone.UTC));
+		}
+		
+		Item_TimeSeriesConstant retval = new Item_TimeSeriesConstant(getUnitOfMeasure(), baseTime, m_spacing);
+		retval.initView(this, start, end);
+		return retval;
+	}
+	
+	@Override
+	long getTimestampMillis(int index)
+	{
+		checkIndex(index);
+		return calculateTimestampMillis(index);
+	}
+	
+	@Override
+	Item_TimeSeries createEmptyCopy()
+	{
+		return new Item_TimeSeriesConstant(getUnitOfMeasure(), m_baseTime, m_spacing);
+	}
+	
+	private long calculateTimestampMillis(int index)
+	{
+		if (m_spacingMillis >= 0)
+		{
+			return m_baseTime.getValue().getMillis() + index * m_spacingMillis;
+		}
+		else
+		{
+			// Months and years have no fixed length
+			return m_baseTime.getValue().plus(m_spacing.multipliedBy(index)).getMillis();
+		}
+	}
+	
+	/**
+	 * Gets the spacing in milliseconds.
+	 * @return Spacing or -1 if the spacing has no fixed length (i.e., it has months or years).
+	 */
+	long getSpacingMillis()
+	{
+		return m_spacingMillis;
+	}
+	
+	private int findFirstAtOrAfter(long millis)
+	{
+		int count = getValueCount();
+		long baseMillis = m_baseTime.getValue().getMillis();
+		
+		if (millis <= baseMillis)
+		{
+			return 0;
+		}
+		else if (m_spacingMillis == 0)
+		{
+			// Every timestamp equals the base time
+			return count;
+		}
+		else if (m_spacingMillis > 0)
+		{
+			// Rounding up
+			long index = (millis - baseMillis + m_spacingMillis - 1) / m_spacingMillis;
+			return (int)Math.min(index, count);
+		}
+		
+		// No fixed length -> binary search
+		int low = 0;
+		int high = count;
+		
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			
+			if (calculateTimestampMillis(middle) < millis)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		
+		return low;
+	}
+	
 	private void readDataFromProxy(TimeseriesDomainRangeType proxy) throws InvalidMessageException
 	{
 		String errorMsg = "Failed to read the data of constant-interval time series";
@@ -164,6 +317,7 @@ public final class Item_TimeSeriesConstant extends Item_TimeSeries
     		
     		m_baseTime = new Item_TimeInstant(actualMetadata.getBaseTime());
     		m_spacing = XmlHelper.parseXmlPeriod(actualMetadata.getSpacing().toString());
+    		m_spacingMillis = TimeHelper.getFixedLengthMillis(m_spacing);
         }
         // Missing fields
         catch (IndexOutOfBoundsException e)
@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -21,10 +21,13 @@
 
 package eu.cocop.messageserialiser.meas;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.xml.bind.JAXBElement;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
 import eu.cocop.messageserialiser.meas.InvalidMessageException;
 import eu.cocop.messageserialiser.meas.XmlHelper;
 import net.opengis.gml._3.DomainSetType;
@@ -47,7 +50,17 @@ import net.opengis.tsml._1.TimeseriesDomainRangeType;
  */
 public final class Item_TimeSeriesFlexible extends Item_TimeSeries
 {
-	private ArrayList<Item_TimeInstant> m_timestamps = new ArrayList<>();
+	private static final long[] EMPTY_MILLIS = new long[0];
+	private static final Item_TimeInstant[] EMPTY_TIMESTAMPS = new Item_TimeInstant[0];
+	
+	// Epoch milliseconds for fast processing. The timestamp objects are
+	// retained if given (to preserve the time zone) and otherwise created on demand.
+	// In views, these arrays are shared similarly to the arrays of the base class.
+	private long[] m_timestampMillis = EMPTY_MILLIS;
+	private Item_TimeInstant[] m_timestamps = EMPTY_TIMESTAMPS;
+	
+	// Maintained on each addition to avoid checking on demand
+	private boolean m_sortedByTime = true;
 	
 	
 	/**
@@ -94,15 +107,48 @@ public final class Item_TimeSeriesFlexible extends Item_TimeSeries
 		TimePositionListType timePositionList = new TimePositionListType();
 		timePositionList.setId("timestamps"); // Required by the schema
 		
-		for (Item_TimeInstant dt : m_timestamps)
+		if (isCompressed())
+		{
+			TimeSeriesCursor cursor = createCursor();
+			
+			while (cursor.next())
+			{
+				timePositionList.getTimePositionList().add(createTimestamp(cursor.getTimestampMillis()).toXsdDateTime());
+			}
+		}
+		else
 		{
-			timePositionList.getTimePositionList().add(dt.toXsdDateTime());
+			for (int a = 0; a < getValueCount(); ++a)
+			{
+				timePositionList.getTimePositionList().add(getTimestamp(a).toXsdDateTime());
+			}
 		}
 		
 		JAXBElement<TimePositionListType> timePositionListEl = objectFactoryTs.createTimePositionList(timePositionList);
 		proxy.getDomainSet().getValue().setAbstractTimeObject(timePositionListEl);
 	}
 	
+	@Override
+	void reloadFromXml(TimeseriesDomainRangeType proxy) throws InvalidMessageException
+	{
+		if (getArraysShared())
+		{
+			// Cannot overwrite shared data
+			m_timestampMillis = EMPTY_MILLIS;
+			m_timestamps = EMPTY_TIMESTAMPS;
+		}
+		else
+		{
+			// Clearing the objects so that they can be collected
+			Arrays.fill(m_timestamps, null);
+		}
+		
+		super.reloadFromXml(proxy);
+		
+		m_sortedByTime = true;
+		readFieldValuesFromXmlDoc(proxy);
+	}
+	
 	/**
 	 * Adds a value to the time series.
 	 * @param dt Timestamp.
@@ -111,8 +157,12 @@ public final class Item_TimeSeriesFlexible extends Item_TimeSeries
 	 */
 	public void addValue(Item_TimeInstant dt, double value, DataQuality dq)
 	{
-		super.addValueBase(value, dq);
-		m_timestamps.add(dt);
+		addValue(dt.getValue().getMillis(), value, dq);
+		
+		if (!isCompressed())
+		{
+			m_timestamps[getValueCount() - 1] = dt;
+		}
 	}
 	
 	/**
@@ -127,13 +177,349 @@ public final class Item_TimeSeriesFlexible extends Item_TimeSeries
 	}
 	
 	/**
-	 * Gets a timestamp.
+	 * Adds values in bulk. The capacity grows at most once, and nothing is
+	 * allocated per value; the timestamp objects are created only if requested.
+	 * @param timestamps Timestamps in epoch milliseconds.
+	 * @param values Values.
+	 * @param qualities Data qualities or null if all are "good".
+	 * @param off The position of the first value in the arrays.
+	 * @param len The count of values to add.
+	 * @throws IndexOutOfBoundsException Thrown if the range exceeds an array.
+	 */
+	public void addValues(long[] timestamps, double[] values, DataQuality[] qualities, int off, int len) throws IndexOutOfBoundsException
+	{
+		checkRange(timestamps.length, off, len);
+		
+		if (isCompressed())
+		{
+			checkRange(values.length, off, len);
+			
+			if (qualities != null)
+			{
+				checkRange(qualities.length, off, len);
+			}
+			
+			for (int a = off; a < off + len; ++a)
+			{
+				addValue(timestamps[a], values[a], qualities == null ? DataQuality.createGood() : qualities[a]);
+			}
+			
+			return;
+		}
+		
+		int index = getValueCount();
+		
+		// After this, the arrays are not shared and the offset is zero
+		addValuesBase(values, qualities, off, len);
+		ensureTimestampCapacity();
+		System.arraycopy(timestamps, off, m_timestampMillis, index, len);
+		Arrays.fill(m_timestamps, index, index + len, null);
+		
+		for (int a = Math.max(index, 1); a < index + len && m_sortedByTime; ++a)
+		{
+			m_sortedByTime = m_timestampMillis[a] >= m_timestampMillis[a - 1];
+		}
+	}
+	
+	/**
+	 * Adds values in bulk. A "good" data quality is expected.
+	 * @param timestamps Timestamps in epoch milliseconds.
+	 * @param values Values.
+	 * @param off The position of the first value in the arrays.
+	 * @param len The count of values to add.
+	 * @throws IndexOutOfBoundsException Thrown if the range exceeds an array.
+	 */
+	public void addValues(long[] timestamps, double[] values, int off, int len) throws IndexOutOfBoundsException
+	{
+		addValues(timestamps, values, null, off, len);
+	}
+	
+	/**
+	 * Gets a timestamp. If the series is compressed, this decodes up to 128
+	 * timestamps and creates a new object; use {@link #createCursor()} to
+	 * iterate instead.
 	 * @param index Timestamp index.
 	 * @return Timestamp.
 	 */
 	public Item_TimeInstant getTimestamp(int index)
 	{
-		return m_timestamps.get(index);
+		checkIndex(index);
+		
+		if (isCompressed())
+		{
+			return createTimestamp(getCompressedData().getTimestamp(index));
+		}
+		
+		int position = getArrayOffset() + index;
+		
+		if (m_timestamps[position] == null)
+		{
+			// If the array is shared, another series could create the same object
+			// simultaneously. This is harmless, because the objects are immutable.
+			m_timestamps[position] = createTimestamp(m_timestampMillis[position]);
+		}
+		
+		return m_timestamps[position];
+	}
+	
+	@Override
+	public boolean isSortedByTime()
+	{
+		return m_sortedByTime;
+	}
+	
+	/**
+	 * Sorts the values in ascending order of time. The sort is stable, i.e.,
+	 * values with equal timestamps retain their order. Use this if values
+	 * have been added out of order and {@link #subSeries(Item_TimeInstant, Item_TimeInstant)}
+	 * is needed.
+	 */
+	public void sortByTime()
+	{
+		if (m_sortedByTime)
+		{
+			return;
+		}
+		
+		if (isCompressed())
+		{
+			// Sorting is not possible without decompression
+			decompress();
+			sortByTime();
+			compress();
+			return;
+		}
+		
+		int count = getValueCount();
+		int offset = getArrayOffset();
+		int[] order = new int[count];
+		
+		for (int a = 0; a < count; ++a)
+		{
+			order[a] = a;
+		}
+		
+		mergeSort(order, new int[count], 0, count, offset);
+		
+		// Reordering into new arrays so that possible views remain intact
+		long[] millis = new long[count];
+		Item_TimeInstant[] timestamps = new Item_TimeInstant[count];
+		
+		for (int a = 0; a < count; ++a)
+		{
+			millis[a] = m_timestampMillis[offset + order[a]];
+			timestamps[a] = m_timestamps[offset + order[a]];
+		}
+		
+		reorder(order);
+		m_timestampMillis = millis;
+		m_timestamps = timestamps;
+		m_sortedByTime = true;
+	}
+	
+	/**
+	 * Creates a view that contains the values within a time range. The bounds
+	 * are found with a binary search. The view shares the data of this series,
+	 * and no data is copied. If either the view or this series is modified later,
+	 * the data is copied at that point, so that the modification does not affect
+	 * the other.
+	 * @param from The start of the range (inclusive) or null if unbounded.
+	 * @param to The end of the range (exclusive) or null if unbounded.
+	 * @return View.
+	 * @throws IllegalStateException Thrown if the series is not sorted by time. In this
+	 * case, call {@link #sortByTime()} first.
+	 */
+	@Override
+	public Item_TimeSeriesFlexible subSeries(Item_TimeInstant from, Item_TimeInstant to) throws IllegalStateException
+	{
+		if (!m_sortedByTime)
+		{
+			throw new IllegalStateException("The series is not sorted by time; call sortByTime() first");
+		}
+		
+		if (isCompressed())
+		{
+			return ((Item_TimeSeriesFlexible)getUncompressed()).subSeries(from, to);
+		}
+		
+		int start = from == null ? 0 : findFirstAtOrAfter(from.getValue().getMillis());
+		int end = to == null ? getValueCount() : findFirstAtOrAfter(to.getValue().getMillis());
+		end = Math.max(start, end);
+		
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible(getUnitOfMeasure());
+		retval.initView(this, start, end);
+		retval.m_timestampMillis = m_timestampMillis;
+		retval.m_timestamps = m_timestamps;
+		return retval;
+	}
+	
+	/**
+	 * Adds a value with a timestamp in epoch milliseconds. The timestamp
+	 * object is created only if requested.
+	 * @param millis Timestamp.
+	 * @param value Value.
+	 * @param dq Data quality of the value.
+	 */
+	void addValue(long millis, double value, DataQuality dq)
+	{
+		int index = getValueCount();
+		
+		if (isCompressed())
+		{
+			if (index > 0 && millis < getCompressedData().getLastTimestamp())
+			{
+				m_sortedByTime = false;
+			}
+			
+			appendCompressed(millis, value, dq);
+			return;
+		}
+		
+		if (index > 0 && millis < m_timestampMillis[getArrayOffset() + index - 1])
+		{
+			m_sortedByTime = false;
+		}
+		
+		// After this, the arrays are not shared and the offset is zero
+		super.addValueBase(value, dq);
+		ensureTimestampCapacity();
+		m_timestampMillis[index] = millis;
+		m_timestamps[index] = null;
+	}
+	
+	@Override
+	long getTimestampMillis(int index)
+	{
+		checkIndex(index);
+		
+		if (isCompressed())
+		{
+			return getCompressedData().getTimestamp(index);
+		}
+		
+		return m_timestampMillis[getArrayOffset() + index];
+	}
+	
+	@Override
+	boolean storesTimestamps()
+	{
+		return true;
+	}
+	
+	@Override
+	void setTimestampArrays(long[] millis)
+	{
+		if (millis == null)
+		{
+			// Compressed
+			m_timestampMillis = EMPTY_MILLIS;
+			m_timestamps = EMPTY_TIMESTAMPS;
+		}
+		else
+		{
+			m_timestampMillis = millis;
+			m_timestamps = new Item_TimeInstant[millis.length];
+		}
+	}
+	
+	@Override
+	Item_TimeSeries createEmptyCopy()
+	{
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible(getUnitOfMeasure());
+		retval.m_sortedByTime = m_sortedByTime;
+		return retval;
+	}
+	
+	/**
+	 * Gets the timestamp array for bulk processing. The array can be longer than
+	 * the value count, and the caller must not modify it. The timestamps start
+	 * at the position returned by {@link #getArrayOffset()}.
+	 * @return Timestamps in epoch milliseconds.
+	 */
+	long[] getTimestampMillisArray()
+	{
+		return m_timestampMillis;
+	}
+	
+	@Override
+	void copySharedArrays(int capacity)
+	{
+		int offset = getArrayOffset();
+		super.copySharedArrays(capacity);
+		
+		m_timestampMillis = Arrays.copyOfRange(m_timestampMillis, offset, offset + capacity);
+		m_timestamps = Arrays.copyOfRange(m_timestamps, offset, offset + capacity);
+	}
+	
+	private static Item_TimeInstant createTimestamp(long millis)
+	{
+		return new Item_TimeInstant(new DateTime(millis, DateTimeZone.UTC));
+	}
+	
+	private void ensureTimestampCapacity()
+	{
+		// Keeping the timestamp arrays as long as the value arrays. Not overriding
+		// ensureCapacity, because the base class calls it before this object is initialised.
+		int newCapacity = getValueArray().length;
+		
+		if (newCapacity > m_timestampMillis.length)
+		{
+			m_timestampMillis = Arrays.copyOf(m_timestampMillis, newCapacity);
+			m_timestamps = Arrays.copyOf(m_timestamps, newCapacity);
+		}
+	}
+	
+	private int findFirstAtOrAfter(long millis)
+	{
+		int offset = getArrayOffset();
+		int low = 0;
+		int high = getValueCount();
+		
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			
+			if (m_timestampMillis[offset + middle] < millis)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		
+		return low;
+	}
+	
+	private void mergeSort(int[] order, int[] temp, int start, int end, int offset)
+	{
+		if (end - start < 2)
+		{
+			return;
+		}
+		
+		int middle = (start + end) >>> 1;
+		mergeSort(order, temp, start, middle, offset);
+		mergeSort(order, temp, middle, end, offset);
+		
+		// Merging; taking from the left on ties keeps the sort stable
+		int left = start;
+		int right = middle;
+		
+		for (int a = start; a < end; ++a)
+		{
+			if (right >= end || (left < middle && m_timestampMillis[offset + order[left]] <= m_timestampMillis[offset + order[right]]))
+			{
+				temp[a] = order[left++];
+			}
+			else
+			{
+				temp[a] = order[right++];
+			}
+		}
+		
+		System.arraycopy(temp, start, order, start, end - start);
 	}
 	
 	private void readFieldValuesFromXmlDoc(TimeseriesDomainRangeType proxy) throws InvalidMessageException
@@ -147,21 +533,32 @@ public final class Item_TimeSeriesFlexible extends Item_TimeSeries
 			DomainSetType domainSet = proxy.getDomainSet().getValue();
 			TimePositionListType timePositionList = (TimePositionListType)domainSet.getAbstractTimeObject().getValue();
 			
+			// Checking that the size of each collection matches
+			if (timePositionList.getTimePositionList().size() != getValueCount())
+			{
+				throw new InvalidMessageException("The sizes of series do not match");
+			}
+			
+			ensureTimestampCapacity();
+			int index = 0;
+			
 			for (String xmlDateTime : timePositionList.getTimePositionList())
 			{
 				Item_TimeInstant instant = new Item_TimeInstant(xmlDateTime);
-				m_timestamps.add(instant);
+				m_timestampMillis[index] = instant.getValue().getMillis();
+				m_timestamps[index] = instant;
+				
+				if (index > 0 && m_timestampMillis[index] < m_timestampMillis[index - 1])
+				{
+					m_sortedByTime = false;
+				}
+				
+				++index;
 			}
 		}
 		catch (NullPointerException e)
 		{
 			throw new InvalidMessageException("Failed to read " + phase +  " from time series", e);
 		}
-		
-		// Checking that the size of each collection matches
-		if (m_timestamps.size() != getValueCount())
-		{
-			throw new InvalidMessageException("The sizes of series do not match");
-		}
 	}
 }
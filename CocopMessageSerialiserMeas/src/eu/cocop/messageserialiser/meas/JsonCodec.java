@@ -0,0 +1,1973 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+//
+// This API has been derived from standards and XML schemata provided by the
+// Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
+// the following legal conditions:
+// (1) Copyright Notice and Disclaimers at https://www.ogc.org/ogc/legal
+// (2) OGC(r) Document Notice; the most recent version is at
+//     https://www.ogc.org/ogc/document and another enclosed in file
+//     "ogc_document_notice.txt"
+// (3) OGC(r) Software Notice; the most recent version is at
+//     https://www.ogc.org/ogc/software and another enclosed in file
+//     "ogc_software_notice.txt"
+// (4) The license of each related standard referred to in this file.
+
+package eu.cocop.messageserialiser.meas;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.joda.time.Period;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+
+/**
+ * Encodes observations to JSON and decodes them. The encoder writes directly
+ * to a stream, and the decoder reads directly from a stream into items; no
+ * intermediate document tree is built. A decoded observation serialises to
+ * the same XML as the original observation.
+ *
+ * The encoding follows the JSON encoding of Observations and Measurements
+ * where it defines one. For instance, a measurement result is
+ * <code>{"value": 22.4, "uom": "Cel"}</code>, a time instant is
+ * <code>{"instant": "..."}</code> and a time range
+ * <code>{"begin": "...", "end": "..."}</code>. The fields of a data record and
+ * the columns of an array are SWE Common components such as
+ * <code>{"name": "temp", "type": "Quantity", "uom": "Cel", "value": 22.4}</code>.
+ * Time series have no standard JSON encoding; their values are in arrays.
+ * Doubles that JSON cannot express are the strings "NaN", "INF" and "-INF" as
+ * in XML.
+ *
+ * Member order does not matter except that the member "type" must precede the
+ * members that depend on it, and the fields of an array must precede its
+ * values. The encoder always writes them in this order.
+ *
+ * In this module, the code has been derived from OGC(r) Observations and
+ * Measurements - JSON Implementation (OGC 15-100r1) and OGC(r) SWE Common
+ * Data Model Encoding Standard (OGC 08-094r1; please see the file
+ * "ref_and_license_ogc_swecommon.txt").
+ * @author Petri Kannisto
+ */
+public final class JsonCodec
+{
+	private static final String COMPONENT_BOOLEAN = "Boolean";
+	private static final String COMPONENT_CATEGORY = "Category";
+	private static final String COMPONENT_COUNT = "Count";
+	private static final String COMPONENT_QUANTITY = "Quantity";
+	private static final String COMPONENT_TEXT = "Text";
+	private static final String COMPONENT_TIME = "Time";
+	private static final String COMPONENT_TIMERANGE = "TimeRange";
+	private static final String COMPONENT_DATARECORD = "DataRecord";
+	private static final String COMPONENT_DATAARRAY = "DataArray";
+	
+	private static final int MAX_DEPTH = 128;
+	
+	
+	private JsonCodec()
+	{
+		// Static members only
+	}
+	
+	/**
+	 * Encodes an observation to a stream. The stream is neither flushed nor closed.
+	 * @param obs Observation.
+	 * @param out Output stream.
+	 * @throws IOException Thrown if writing fails.
+	 * @throws IllegalArgumentException Thrown if an item type has no JSON encoding,
+	 * e.g., a type registered in ResultTypeRegistry. Part of the JSON may have
+	 * been written already.
+	 */
+	public static void encode(Observation obs, OutputStream out) throws IOException, IllegalArgumentException
+	{
+		Writer writer = new Writer(out);
+		writeObservation(writer, obs);
+		writer.flush();
+	}
+	
+	/**
+	 * Encodes an observation.
+	 * @param obs Observation.
+	 * @return JSON as UTF-8.
+	 * @throws IllegalArgumentException Thrown if an item type has no JSON encoding.
+	 */
+	public static byte[] encode(Observation obs) throws IllegalArgumentException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		
+		try
+		{
+			encode(obs, out);
+		}
+		catch (IOException e)
+		{
+			// Not expected with a memory stream
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Decodes an observation from a stream. The stream must contain exactly
+	 * one JSON object, and it is not closed.
+	 * @param in Input stream.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if the JSON is invalid.
+	 * @throws IOException Thrown if reading fails.
+	 */
+	public static Observation decodeObservation(InputStream in) throws InvalidMessageException, IOException
+	{
+		Parser parser = new Parser(in);
+		
+		try
+		{
+			Observation retval = readObservation(parser);
+			parser.expectEnd();
+			return retval;
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException | ClassCastException | NullPointerException e)
+		{
+			throw new InvalidMessageException("Failed to decode JSON: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Decodes an observation.
+	 * @param bytes JSON as UTF-8.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if the JSON is invalid.
+	 */
+	public static Observation decodeObservation(byte[] bytes) throws InvalidMessageException
+	{
+		try
+		{
+			return decodeObservation(new ByteArrayInputStream(bytes));
+		}
+		catch (IOException e)
+		{
+			// Not expected with a memory stream
+			throw new InvalidMessageException(e.getMessage(), e);
+		}
+	}
+	
+	
+	
+	// ### Encoding ###
+	
+	private static void writeObservation(Writer writer, Observation obs) throws IOException
+	{
+		writer.beginObject();
+		
+		if (obs.getResult() != null)
+		{
+			writer.name("type").value(obs.getResult().getObservationTypeUri());
+		}
+		
+		writeStringMember(writer, "name", obs.getName());
+		writeStringMember(writer, "description", obs.getDescription());
+		
+		if (obs.getPhenomenonTime() != null)
+		{
+			writer.name("phenomenonTime").beginObject();
+			writer.name("instant").value(formatInstant(obs.getPhenomenonTime()));
+			writer.endObject();
+		}
+		
+		if (obs.getResultTime() != null)
+		{
+			writer.name("resultTime").value(formatInstant(obs.getResultTime()));
+		}
+		
+		writeLinkMember(writer, "procedure", obs.getProcedure());
+		writeLinkMember(writer, "observedProperty", obs.getObservedProperty());
+		writeLinkMember(writer, "featureOfInterest", obs.getFeatureOfInterest());
+		writeLinkMember(writer, "resultQuality", obs.getResultQuality() == null ? null : obs.getResultQuality().getValue());
+		
+		if (obs.getResult() != null)
+		{
+			writer.name("result");
+			writeResult(writer, obs.getResult());
+		}
+		
+		writer.endObject();
+	}
+	
+	private static void writeResult(Writer writer, Item item) throws IOException
+	{
+		if (item instanceof Item_Measurement)
+		{
+			Item_Measurement measurement = (Item_Measurement)item;
+			writer.beginObject();
+			writer.name("value").value(measurement.getValue());
+			writer.name("uom").value(measurement.getUnitOfMeasure());
+			writer.endObject();
+		}
+		else if (item instanceof Item_Boolean)
+		{
+			writer.value(((Item_Boolean)item).getValue());
+		}
+		else if (item instanceof Item_Category)
+		{
+			writer.beginObject();
+			writer.name("title").value(((Item_Category)item).getValue());
+			writer.endObject();
+		}
+		else if (item instanceof Item_Count)
+		{
+			writer.value(((Item_Count)item).getValue());
+		}
+		else if (item instanceof Item_Text)
+		{
+			writer.value(((Item_Text)item).getValue());
+		}
+		else if (item instanceof Item_TimeInstant)
+		{
+			writer.beginObject();
+			writer.name("instant").value(formatInstant((Item_TimeInstant)item));
+			writer.endObject();
+		}
+		else if (item instanceof Item_TimeRange)
+		{
+			Item_TimeRange range = (Item_TimeRange)item;
+			writer.beginObject();
+			writer.name("begin").value(formatInstant(range.getStart()));
+			writer.name("end").value(formatInstant(range.getEnd()));
+			writer.endObject();
+		}
+		else if (item instanceof Item_DataRecord)
+		{
+			writer.beginObject();
+			writer.name("type").value(COMPONENT_DATARECORD);
+			writeRecordFields(writer, (Item_DataRecord)item);
+			writer.endObject();
+		}
+		else if (item instanceof Item_Array)
+		{
+			writer.beginObject();
+			writer.name("type").value(COMPONENT_DATAARRAY);
+			writeArrayMembers(writer, (Item_Array)item);
+			writer.endObject();
+		}
+		else if (item instanceof Item_TimeSeries)
+		{
+			writeTimeSeries(writer, (Item_TimeSeries)item);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported item type " + item.getClass().getSimpleName() + "; registered types have no JSON encoding");
+		}
+	}
+	
+	private static void writeRecordFields(Writer writer, Item_DataRecord record) throws IOException
+	{
+		writer.name("fields").beginArray();
+		
+		for (String name : record.getItemNames())
+		{
+			Item item = record.getItem(name);
+			writer.beginObject();
+			writer.name("name").value(name);
+			writer.name("type").value(getComponentType(item));
+			
+			DataQuality quality = record.getExplicitQualityOfItem(name);
+			
+			if (quality != null)
+			{
+				writer.name("quality").value(quality.getValue());
+			}
+			
+			if (item instanceof Item_Measurement)
+			{
+				Item_Measurement measurement = (Item_Measurement)item;
+				writer.name("uom").value(measurement.getUnitOfMeasure());
+				writer.name("value").value(measurement.getValue());
+			}
+			else if (item instanceof Item_Boolean)
+			{
+				writer.name("value").value(((Item_Boolean)item).getValue());
+			}
+			else if (item instanceof Item_Category)
+			{
+				writer.name("value").value(((Item_Category)item).getValue());
+			}
+			else if (item instanceof Item_Count)
+			{
+				writer.name("value").value(((Item_Count)item).getValue());
+			}
+			else if (item instanceof Item_Text)
+			{
+				writer.name("value").value(((Item_Text)item).getValue());
+			}
+			else if (item instanceof Item_TimeInstant)
+			{
+				writer.name("value").value(formatInstant((Item_TimeInstant)item));
+			}
+			else if (item instanceof Item_TimeRange)
+			{
+				Item_TimeRange range = (Item_TimeRange)item;
+				writer.name("value").beginArray();
+				writer.value(formatInstant(range.getStart()));
+				writer.value(formatInstant(range.getEnd()));
+				writer.endArray();
+			}
+			else if (item instanceof Item_DataRecord)
+			{
+				writeRecordFields(writer, (Item_DataRecord)item);
+			}
+			else if (item instanceof Item_Array)
+			{
+				writeArrayMembers(writer, (Item_Array)item);
+			}
+			else
+			{
+				// Not expected, because the component type is checked above
+				throw new IllegalArgumentException("Unsupported data record field type " + item.getClass().getSimpleName());
+			}
+			
+			writer.endObject();
+		}
+		
+		writer.endArray();
+	}
+	
+	private static String formatInstant(Item_TimeInstant instant)
+	{
+		if (instant.getHasExplicitUtcOffset())
+		{
+			return instant.toXsdDateTime();
+		}
+		else
+		{
+			// Without an offset, so that the decoded instant has no explicit offset either
+			return instant.getValue().toLocalDateTime().toString();
+		}
+	}
+	
+	private static String getComponentType(Item item)
+	{
+		if (item instanceof Item_Measurement)
+		{
+			return COMPONENT_QUANTITY;
+		}
+		else if (item instanceof Item_Boolean)
+		{
+			return COMPONENT_BOOLEAN;
+		}
+		else if (item instanceof Item_Category)
+		{
+			return COMPONENT_CATEGORY;
+		}
+		else if (item instanceof Item_Count)
+		{
+			return COMPONENT_COUNT;
+		}
+		else if (item instanceof Item_Text)
+		{
+			return COMPONENT_TEXT;
+		}
+		else if (item instanceof Item_TimeInstant)
+		{
+			return COMPONENT_TIME;
+		}
+		else if (item instanceof Item_TimeRange)
+		{
+			return COMPONENT_TIMERANGE;
+		}
+		else if (item instanceof Item_DataRecord)
+		{
+			return COMPONENT_DATARECORD;
+		}
+		else if (item instanceof Item_Array)
+		{
+			return COMPONENT_DATAARRAY;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported data record field type " + item.getClass().getSimpleName() + "; registered types have no JSON encoding");
+		}
+	}
+	
+	private static void writeArrayMembers(Writer writer, Item_Array array) throws IOException
+	{
+		ArrayList<ArrayColumn> columns = array.getColumns();
+		String[] columnTypes = new String[columns.size()];
+		
+		writer.name("fields").beginArray();
+		
+		for (int c = 0; c < columns.size(); ++c)
+		{
+			ArrayColumn column = columns.get(c);
+			columnTypes[c] = getColumnComponentType(column.getDataType());
+			
+			writer.beginObject();
+			writer.name("name").value(column.getName());
+			writer.name("type").value(columnTypes[c]);
+			
+			if (column.getUnitOfMeasure() != null && !column.getUnitOfMeasure().isEmpty())
+			{
+				writer.name("uom").value(column.getUnitOfMeasure());
+			}
+			
+			writeStringMember(writer, "label", column.getLabel());
+			writeStringMember(writer, "description", column.getDescription());
+			writer.endObject();
+		}
+		
+		writer.endArray();
+		writer.name("values").beginArray();
+		
+		for (int r = 0; r < array.getRowCount(); ++r)
+		{
+			Object[] row = array.get(r);
+			writer.beginArray();
+			
+			for (int c = 0; c < row.length; ++c)
+			{
+				Object cell = row[c];
+				
+				if (cell == null)
+				{
+					writer.nullValue();
+					continue;
+				}
+				
+				switch (columnTypes[c])
+				{
+				case COMPONENT_BOOLEAN:
+					writer.value((Boolean)cell);
+					break;
+				case COMPONENT_COUNT:
+					writer.value((Long)cell);
+					break;
+				case COMPONENT_QUANTITY:
+					writer.value((Double)cell);
+					break;
+				case COMPONENT_TIME:
+					writer.value(formatInstant((Item_TimeInstant)cell));
+					break;
+				default:
+					writer.value((String)cell);
+					break;
+				}
+			}
+			
+			writer.endArray();
+		}
+		
+		writer.endArray();
+	}
+	
+	private static String getColumnComponentType(Class<?> type)
+	{
+		// The unsupported types are strings as in XML
+		if (type == Boolean.class)
+		{
+			return COMPONENT_BOOLEAN;
+		}
+		else if (type == Long.class)
+		{
+			return COMPONENT_COUNT;
+		}
+		else if (type == Double.class)
+		{
+			return COMPONENT_QUANTITY;
+		}
+		else if (type == Item_TimeInstant.class)
+		{
+			return COMPONENT_TIME;
+		}
+		else
+		{
+			return COMPONENT_TEXT;
+		}
+	}
+	
+	private static void writeTimeSeries(Writer writer, Item_TimeSeries series) throws IOException
+	{
+		Item_TimeSeriesFlexible flexible = series instanceof Item_TimeSeriesFlexible ? (Item_TimeSeriesFlexible)series : null;
+		
+		writer.beginObject();
+		writer.name("uom").value(series.getUnitOfMeasure());
+		writeStringMember(writer, "description", series.getDescription());
+		
+		if (flexible == null)
+		{
+			Item_TimeSeriesConstant constant = (Item_TimeSeriesConstant)series;
+			
+			if (constant.getBaseTime() != null)
+			{
+				writer.name("baseTime").value(formatInstant(constant.getBaseTime()));
+			}
+			if (constant.getSpacing() != null)
+			{
+				writer.name("spacing").value(constant.getSpacing().toString());
+			}
+		}
+		else
+		{
+			writer.name("timestamps").beginArray();
+			
+			for (int a = 0; a < flexible.getValueCount(); ++a)
+			{
+				writer.value(formatInstant(flexible.getTimestamp(a)));
+			}
+			
+			writer.endArray();
+		}
+		
+		writer.name("values").beginArray();
+		TimeSeriesCursor cursor = series.createCursor();
+		
+		while (cursor.next())
+		{
+			writer.value(cursor.getValue());
+		}
+		
+		writer.endArray();
+		writer.name("qualities").beginArray();
+		cursor = series.createCursor();
+		
+		while (cursor.next())
+		{
+			writer.value(cursor.getDataQuality().getValue());
+		}
+		
+		writer.endArray();
+		writer.endObject();
+	}
+	
+	private static void writeStringMember(Writer writer, String name, String value) throws IOException
+	{
+		if (value != null)
+		{
+			writer.name(name).value(value);
+		}
+	}
+	
+	private static void writeLinkMember(Writer writer, String name, String title) throws IOException
+	{
+		// In XML, these are references with a title
+		if (title != null)
+		{
+			writer.name(name).beginObject();
+			writer.name("title").value(title);
+			writer.endObject();
+		}
+	}
+	
+	
+	
+	// ### Decoding ###
+	
+	private static Observation readObservation(Parser parser) throws InvalidMessageException, IOException
+	{
+		String type = null;
+		String name = null;
+		String description = null;
+		Item_TimeInstant phenoTime = null;
+		Item_TimeInstant resultTime = null;
+		String procedure = null;
+		String property = null;
+		String feature = null;
+		DataQuality quality = null;
+		Item result = null;
+		
+		parser.beginObject();
+		String member;
+		
+		while ((member = parser.nextName()) != null)
+		{
+			switch (member)
+			{
+			case "type":
+				type = parser.readString();
+				break;
+			case "name":
+				name = parser.readString();
+				break;
+			case "description":
+				description = parser.readString();
+				break;
+			case "phenomenonTime":
+				phenoTime = readInstantObject(parser);
+				break;
+			case "resultTime":
+				resultTime = readInstant(parser);
+				break;
+			case "procedure":
+				procedure = readLinkTitle(parser);
+				break;
+			case "observedProperty":
+				property = readLinkTitle(parser);
+				break;
+			case "featureOfInterest":
+				feature = readLinkTitle(parser);
+				break;
+			case "resultQuality":
+				String qualityString = readLinkTitle(parser);
+				quality = qualityString == null ? null : DataQuality.fromXml(qualityString);
+				break;
+			case "result":
+				if (type == null)
+				{
+					throw new InvalidMessageException("The member \"type\" must precede \"result\"");
+				}
+				
+				result = readResult(parser, type);
+				break;
+			default:
+				parser.skipValue();
+				break;
+			}
+		}
+		
+		Observation retval = new Observation(result);
+		retval.setName(name);
+		retval.setDescription(description);
+		retval.setPhenomenonTime(phenoTime);
+		retval.setResultTime(resultTime);
+		retval.setProcedure(procedure);
+		retval.setObservedProperty(property);
+		retval.setFeatureOfInterest(feature);
+		retval.setResultQuality(quality);
+		return retval;
+	}
+	
+	private static Item readResult(Parser parser, String type) throws InvalidMessageException, IOException
+	{
+		switch (type)
+		{
+		case XmlHelper.TYPEURI_TRUTH:
+			return new Item_Boolean(parser.readBoolean());
+		
+		case XmlHelper.TYPEURI_COUNT:
+			return new Item_Count(parser.readLong());
+		
+		case XmlHelper.TYPEURI_TEXT:
+			return new Item_Text(parser.readString());
+		
+		case XmlHelper.TYPEURI_CATEGORY:
+			return new Item_Category(readLinkTitle(parser));
+		
+		case XmlHelper.TYPEURI_MEASUREMENT:
+		{
+			double value = Double.NaN;
+			String uom = null;
+			parser.beginObject();
+			String member;
+			
+			while ((member = parser.nextName()) != null)
+			{
+				if (member.equals("value"))
+				{
+					value = parser.readDouble();
+				}
+				else if (member.equals("uom"))
+				{
+					uom = parser.readString();
+				}
+				else
+				{
+					parser.skipValue();
+				}
+			}
+			
+			return new Item_Measurement(uom, value);
+		}
+		
+		case XmlHelper.TYPEURI_TEMPORAL:
+		{
+			Item_TimeInstant instant = null;
+			Item_TimeInstant begin = null;
+			Item_TimeInstant end = null;
+			parser.beginObject();
+			String member;
+			
+			while ((member = parser.nextName()) != null)
+			{
+				switch (member)
+				{
+				case "instant":
+					instant = readInstant(parser);
+					break;
+				case "begin":
+					begin = readInstant(parser);
+					break;
+				case "end":
+					end = readInstant(parser);
+					break;
+				default:
+					parser.skipValue();
+					break;
+				}
+			}
+			
+			if (instant != null)
+			{
+				return instant;
+			}
+			if (begin == null || end == null)
+			{
+				throw new InvalidMessageException("A temporal result must have either \"instant\" or \"begin\" and \"end\"");
+			}
+			
+			return new Item_TimeRange(begin, end);
+		}
+		
+		case XmlHelper.TYPEURI_COMPLEX:
+		{
+			parser.beginObject();
+			
+			if (!"type".equals(parser.nextName()))
+			{
+				throw new InvalidMessageException("A complex result must begin with the member \"type\"");
+			}
+			
+			String componentType = parser.readString();
+			Item retval = readComponentMembers(parser, componentType, null);
+			
+			if (retval == null)
+			{
+				throw new InvalidMessageException("Unsupported complex result type \"" + componentType + "\"");
+			}
+			
+			return retval;
+		}
+		
+		case XmlHelper.TYPEURI_TIMESERIESCONSTANT:
+		case XmlHelper.TYPEURI_TIMESERIESFLEXIBLE:
+			return readTimeSeries(parser, type.equals(XmlHelper.TYPEURI_TIMESERIESFLEXIBLE));
+		
+		default:
+			throw new InvalidMessageException("Unsupported observation type \"" + type + "\"");
+		}
+	}
+	
+	/**
+	 * Reads the rest of the members of a data record field or a complex
+	 * result after the member "type". The parser is positioned inside the
+	 * object, and this consumes the end of the object.
+	 * @param parser Parser.
+	 * @param componentType Component type.
+	 * @param field Receives the name and quality of a data record field; null for a complex result.
+	 * @return Item or null if the component type is not supported.
+	 * @throws InvalidMessageException Thrown if the JSON is invalid.
+	 * @throws IOException Thrown if reading fails.
+	 */
+	private static Item readComponentMembers(Parser parser, String componentType, FieldInfo field) throws InvalidMessageException, IOException
+	{
+		Item_DataRecord record = null;
+		ArrayList<ArrayColumn> columns = null;
+		Item_Array array = null;
+		String uom = null;
+		Object value = null;
+		boolean hasValue = false;
+		String member;
+		
+		while ((member = parser.nextName()) != null)
+		{
+			switch (member)
+			{
+			case "name":
+				if (field == null)
+				{
+					parser.skipValue();
+				}
+				else
+				{
+					field.name = parser.readString();
+				}
+				break;
+			
+			case "quality":
+				if (field == null)
+				{
+					parser.skipValue();
+				}
+				else
+				{
+					String qualityString = parser.readString();
+					field.quality = qualityString == null ? null : DataQuality.fromXml(qualityString);
+				}
+				break;
+			
+			case "uom":
+				uom = parser.readString();
+				break;
+			
+			case "fields":
+				if (COMPONENT_DATARECORD.equals(componentType))
+				{
+					record = readRecordFields(parser);
+				}
+				else if (COMPONENT_DATAARRAY.equals(componentType))
+				{
+					columns = readArrayColumns(parser);
+				}
+				else
+				{
+					parser.skipValue();
+				}
+				break;
+			
+			case "values":
+				if (!COMPONENT_DATAARRAY.equals(componentType))
+				{
+					parser.skipValue();
+				}
+				else if (columns == null)
+				{
+					throw new InvalidMessageException("The fields of an array must precede its values");
+				}
+				else
+				{
+					array = readArrayValues(parser, columns);
+				}
+				break;
+			
+			case "value":
+				value = readComponentValue(parser, componentType);
+				hasValue = true;
+				break;
+			
+			default:
+				parser.skipValue();
+				break;
+			}
+		}
+		
+		switch (componentType)
+		{
+		case COMPONENT_DATARECORD:
+			return record == null ? new Item_DataRecord() : record;
+		
+		case COMPONENT_DATAARRAY:
+			if (array == null)
+			{
+				array = new Item_Array(columns == null ? new ArrayList<>() : columns);
+			}
+			
+			return array;
+		
+		case COMPONENT_QUANTITY:
+			return new Item_Measurement(uom, hasValue ? (Double)value : Double.NaN);
+		
+		case COMPONENT_TIMERANGE:
+		{
+			if (!hasValue)
+			{
+				throw new InvalidMessageException("Missing value of a time range");
+			}
+			
+			Item_TimeInstant[] range = (Item_TimeInstant[])value;
+			return new Item_TimeRange(range[0], range[1]);
+		}
+		
+		case COMPONENT_BOOLEAN:
+		case COMPONENT_CATEGORY:
+		case COMPONENT_COUNT:
+		case COMPONENT_TEXT:
+		case COMPONENT_TIME:
+			if (!hasValue)
+			{
+				throw new InvalidMessageException("Missing value of a " + componentType + " field");
+			}
+			
+			return (Item)value;
+		
+		default:
+			return null;
+		}
+	}
+	
+	private static Object readComponentValue(Parser parser, String componentType) throws InvalidMessageException, IOException
+	{
+		switch (componentType)
+		{
+		case COMPONENT_QUANTITY:
+			return parser.readDouble();
+		case COMPONENT_BOOLEAN:
+			return new Item_Boolean(parser.readBoolean());
+		case COMPONENT_CATEGORY:
+			return new Item_Category(parser.readString());
+		case COMPONENT_COUNT:
+			return new Item_Count(parser.readLong());
+		case COMPONENT_TEXT:
+			return new Item_Text(parser.readString());
+		case COMPONENT_TIME:
+			return readInstant(parser);
+		case COMPONENT_TIMERANGE:
+		{
+			Item_TimeInstant[] retval = new Item_TimeInstant[2];
+			parser.beginArray();
+			
+			for (int a = 0; a < 2; ++a)
+			{
+				if (!parser.hasNext())
+				{
+					throw new InvalidMessageException("A time range must have two timestamps");
+				}
+				
+				retval[a] = readInstant(parser);
+			}
+			
+			if (parser.hasNext())
+			{
+				throw new InvalidMessageException("A time range must have two timestamps");
+			}
+			
+			return retval;
+		}
+		default:
+			parser.skipValue();
+			return null;
+		}
+	}
+	
+	private static Item_DataRecord readRecordFields(Parser parser) throws InvalidMessageException, IOException
+	{
+		Item_DataRecord retval = new Item_DataRecord();
+		parser.beginArray();
+		
+		while (parser.hasNext())
+		{
+			FieldInfo field = new FieldInfo();
+			parser.beginObject();
+			String member = parser.nextName();
+			
+			// The name may precede the type
+			if ("name".equals(member))
+			{
+				field.name = parser.readString();
+				member = parser.nextName();
+			}
+			if (!"type".equals(member))
+			{
+				throw new InvalidMessageException("The member \"type\" of a data record field must precede its value");
+			}
+			
+			String componentType = parser.readString();
+			Item item = readComponentMembers(parser, componentType, field);
+			
+			if (item == null)
+			{
+				// For robustness, just skipping an unknown field type as with XML
+				continue;
+			}
+			if (field.name == null)
+			{
+				throw new InvalidMessageException("Missing name of a data record field");
+			}
+			
+			if (field.quality == null)
+			{
+				retval.addItem(field.name, item);
+			}
+			else
+			{
+				retval.addItem(field.name, item, field.quality);
+			}
+		}
+		
+		return retval;
+	}
+	
+	private static ArrayList<ArrayColumn> readArrayColumns(Parser parser) throws InvalidMessageException, IOException
+	{
+		ArrayList<ArrayColumn> retval = new ArrayList<>();
+		parser.beginArray();
+		
+		while (parser.hasNext())
+		{
+			String name = null;
+			String type = COMPONENT_TEXT;
+			String uom = null;
+			String label = null;
+			String description = null;
+			parser.beginObject();
+			String member;
+			
+			while ((member = parser.nextName()) != null)
+			{
+				switch (member)
+				{
+				case "name":
+					name = parser.readString();
+					break;
+				case "type":
+					type = parser.readString();
+					break;
+				case "uom":
+					uom = parser.readString();
+					break;
+				case "label":
+					label = parser.readString();
+					break;
+				case "description":
+					description = parser.readString();
+					break;
+				default:
+					parser.skipValue();
+					break;
+				}
+			}
+			
+			ArrayColumn column = new ArrayColumn(name, getColumnClass(type), uom == null ? "" : uom);
+			column.setLabel(label);
+			column.setDescription(description);
+			retval.add(column);
+		}
+		
+		return retval;
+	}
+	
+	private static Class<?> getColumnClass(String componentType) throws InvalidMessageException
+	{
+		switch (componentType)
+		{
+		case COMPONENT_BOOLEAN:
+			return Boolean.class;
+		case COMPONENT_COUNT:
+			return Long.class;
+		case COMPONENT_QUANTITY:
+			return Double.class;
+		case COMPONENT_TEXT:
+			return String.class;
+		case COMPONENT_TIME:
+			return Item_TimeInstant.class;
+		default:
+			throw new InvalidMessageException("Unsupported array column type \"" + componentType + "\"");
+		}
+	}
+	
+	private static Item_Array readArrayValues(Parser parser, ArrayList<ArrayColumn> columns) throws InvalidMessageException, IOException
+	{
+		Item_Array retval = new Item_Array(columns);
+		Class<?>[] types = new Class<?>[columns.size()];
+		
+		for (int c = 0; c < types.length; ++c)
+		{
+			types[c] = columns.get(c).getDataType();
+		}
+		
+		parser.beginArray();
+		
+		while (parser.hasNext())
+		{
+			Object[] row = new Object[types.length];
+			parser.beginArray();
+			
+			for (int c = 0; c < types.length; ++c)
+			{
+				if (!parser.hasNext())
+				{
+					throw new InvalidMessageException("Too few cells in an array row");
+				}
+				if (parser.readNull())
+				{
+					continue;
+				}
+				
+				if (types[c] == Boolean.class)
+				{
+					row[c] = parser.readBoolean();
+				}
+				else if (types[c] == Long.class)
+				{
+					row[c] = parser.readLong();
+				}
+				else if (types[c] == Double.class)
+				{
+					row[c] = parser.readDouble();
+				}
+				else if (types[c] == Item_TimeInstant.class)
+				{
+					row[c] = readInstant(parser);
+				}
+				else
+				{
+					row[c] = parser.readString();
+				}
+			}
+			
+			if (parser.hasNext())
+			{
+				throw new InvalidMessageException("Too many cells in an array row");
+			}
+			
+			retval.add(row);
+		}
+		
+		return retval;
+	}
+	
+	private static Item_TimeSeries readTimeSeries(Parser parser, boolean flexible) throws InvalidMessageException, IOException
+	{
+		String uom = null;
+		String description = null;
+		Item_TimeInstant baseTime = null;
+		Period spacing = null;
+		long[] timestamps = new long[0];
+		int timestampCount = 0;
+		double[] values = new double[0];
+		int valueCount = 0;
+		DataQuality[] qualities = new DataQuality[0];
+		int qualityCount = 0;
+		
+		parser.beginObject();
+		String member;
+		
+		while ((member = parser.nextName()) != null)
+		{
+			switch (member)
+			{
+			case "uom":
+				uom = parser.readString();
+				break;
+			case "description":
+				description = parser.readString();
+				break;
+			case "baseTime":
+				baseTime = readInstant(parser);
+				break;
+			case "spacing":
+				spacing = Period.parse(parser.readString());
+				break;
+			case "timestamps":
+				timestamps = new long[16];
+				parser.beginArray();
+				
+				while (parser.hasNext())
+				{
+					if (timestampCount == timestamps.length)
+					{
+						timestamps = Arrays.copyOf(timestamps, timestampCount * 2);
+					}
+					
+					timestamps[timestampCount++] = readInstant(parser).getValue().getMillis();
+				}
+				break;
+			case "values":
+				values = new double[16];
+				parser.beginArray();
+				
+				while (parser.hasNext())
+				{
+					if (valueCount == values.length)
+					{
+						values = Arrays.copyOf(values, valueCount * 2);
+					}
+					
+					values[valueCount++] = parser.readDouble();
+				}
+				break;
+			case "qualities":
+				qualities = new DataQuality[16];
+				parser.beginArray();
+				
+				while (parser.hasNext())
+				{
+					if (qualityCount == qualities.length)
+					{
+						qualities = Arrays.copyOf(qualities, qualityCount * 2);
+					}
+					
+					qualities[qualityCount++] = DataQuality.fromXml(parser.readString());
+				}
+				break;
+			default:
+				parser.skipValue();
+				break;
+			}
+		}
+		
+		if (qualityCount != valueCount || (flexible && timestampCount != valueCount))
+		{
+			throw new InvalidMessageException("The arrays of a time series must have equal lengths");
+		}
+		
+		Item_TimeSeries retval;
+		
+		if (flexible)
+		{
+			Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible(uom);
+			series.addValues(timestamps, values, qualities, 0, valueCount);
+			retval = series;
+		}
+		else
+		{
+			Item_TimeSeriesConstant series = new Item_TimeSeriesConstant(uom, baseTime, spacing);
+			series.addValues(values, qualities, 0, valueCount);
+			retval = series;
+		}
+		
+		retval.setDescription(description);
+		return retval;
+	}
+	
+	private static Item_TimeInstant readInstantObject(Parser parser) throws InvalidMessageException, IOException
+	{
+		Item_TimeInstant retval = null;
+		parser.beginObject();
+		String member;
+		
+		while ((member = parser.nextName()) != null)
+		{
+			if (member.equals("instant"))
+			{
+				retval = readInstant(parser);
+			}
+			else
+			{
+				parser.skipValue();
+			}
+		}
+		
+		if (retval == null)
+		{
+			throw new InvalidMessageException("Missing member \"instant\"");
+		}
+		
+		return retval;
+	}
+	
+	private static Item_TimeInstant readInstant(Parser parser) throws InvalidMessageException, IOException
+	{
+		String value = parser.readString();
+		
+		try
+		{
+			return new Item_TimeInstant(value);
+		}
+		catch (IllegalArgumentException | NullPointerException e)
+		{
+			throw new InvalidMessageException("Failed to parse timestamp \"" + value + "\"", e);
+		}
+	}
+	
+	private static String readLinkTitle(Parser parser) throws InvalidMessageException, IOException
+	{
+		String retval = null;
+		parser.beginObject();
+		String member;
+		
+		while ((member = parser.nextName()) != null)
+		{
+			if (member.equals("title"))
+			{
+				retval = parser.readString();
+			}
+			else
+			{
+				parser.skipValue();
+			}
+		}
+		
+		return retval;
+	}
+	
+	
+	/**
+	 * The name and quality of a data record field.
+	 */
+	private static final class FieldInfo
+	{
+		String name = null;
+		DataQuality quality = null;
+	}
+	
+	
+	
+	// ### JSON primitives ###
+	
+	/**
+	 * Writes JSON as UTF-8 to a stream through a buffer.
+	 */
+	private static final class Writer
+	{
+		private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+		
+		private final OutputStream m_out;
+		private final byte[] m_buffer = new byte[8192];
+		private int m_length = 0;
+		
+		// Whether a comma is needed before the next value or name
+		private boolean m_needComma = false;
+		
+		Writer(OutputStream out)
+		{
+			m_out = out;
+		}
+		
+		Writer beginObject() throws IOException
+		{
+			beforeValue();
+			put('{');
+			m_needComma = false;
+			return this;
+		}
+		
+		Writer endObject() throws IOException
+		{
+			put('}');
+			m_needComma = true;
+			return this;
+		}
+		
+		Writer beginArray() throws IOException
+		{
+			beforeValue();
+			put('[');
+			m_needComma = false;
+			return this;
+		}
+		
+		Writer endArray() throws IOException
+		{
+			put(']');
+			m_needComma = true;
+			return this;
+		}
+		
+		Writer name(String name) throws IOException
+		{
+			beforeValue();
+			putString(name);
+			put(':');
+			m_needComma = false;
+			return this;
+		}
+		
+		void value(String s) throws IOException
+		{
+			if (s == null)
+			{
+				nullValue();
+				return;
+			}
+			
+			beforeValue();
+			putString(s);
+			m_needComma = true;
+		}
+		
+		void value(boolean b) throws IOException
+		{
+			beforeValue();
+			putAscii(b ? "true" : "false");
+			m_needComma = true;
+		}
+		
+		void value(long l) throws IOException
+		{
+			beforeValue();
+			putAscii(Long.toString(l));
+			m_needComma = true;
+		}
+		
+		void value(double d) throws IOException
+		{
+			// JSON has no representation for these; using the XML notation
+			if (Double.isNaN(d))
+			{
+				value("NaN");
+			}
+			else if (Double.isInfinite(d))
+			{
+				value(d > 0 ? "INF" : "-INF");
+			}
+			else
+			{
+				beforeValue();
+				putAscii(Double.toString(d)); // The shortest representation that parses back to the same value
+				m_needComma = true;
+			}
+		}
+		
+		void nullValue() throws IOException
+		{
+			beforeValue();
+			putAscii("null");
+			m_needComma = true;
+		}
+		
+		void flush() throws IOException
+		{
+			m_out.write(m_buffer, 0, m_length);
+			m_length = 0;
+		}
+		
+		private void beforeValue() throws IOException
+		{
+			if (m_needComma)
+			{
+				put(',');
+			}
+		}
+		
+		private void putString(String s) throws IOException
+		{
+			put('"');
+			
+			for (int a = 0; a < s.length(); ++a)
+			{
+				char c = s.charAt(a);
+				
+				if (c == '"' || c == '\\')
+				{
+					put('\\');
+					put(c);
+				}
+				else if (c < 0x20)
+				{
+					switch (c)
+					{
+					case '\n':
+						put('\\');
+						put('n');
+						break;
+					case '\r':
+						put('\\');
+						put('r');
+						break;
+					case '\t':
+						put('\\');
+						put('t');
+						break;
+					default:
+						putAscii("\\u00");
+						put(HEX[c >> 4]);
+						put(HEX[c & 0xF]);
+						break;
+					}
+				}
+				else if (c < 0x80)
+				{
+					put(c);
+				}
+				else if (c < 0x800)
+				{
+					put(0xC0 | (c >> 6));
+					put(0x80 | (c & 0x3F));
+				}
+				else if (Character.isHighSurrogate(c) && a + 1 < s.length() && Character.isLowSurrogate(s.charAt(a + 1)))
+				{
+					int codePoint = Character.toCodePoint(c, s.charAt(++a));
+					put(0xF0 | (codePoint >> 18));
+					put(0x80 | ((codePoint >> 12) & 0x3F));
+					put(0x80 | ((codePoint >> 6) & 0x3F));
+					put(0x80 | (codePoint & 0x3F));
+				}
+				else
+				{
+					if (Character.isSurrogate(c))
+					{
+						// An unpaired surrogate is not valid in UTF-8, so it is
+						// replaced with U+FFFD (the replacement character)
+						c = '\uFFFD';
+					}
+					
+					put(0xE0 | (c >> 12));
+					put(0x80 | ((c >> 6) & 0x3F));
+					put(0x80 | (c & 0x3F));
+				}
+			}
+			
+			put('"');
+		}
+		
+		private void putAscii(String s) throws IOException
+		{
+			for (int a = 0; a < s.length(); ++a)
+			{
+				put(s.charAt(a));
+			}
+		}
+		
+		private void put(int b) throws IOException
+		{
+			if (m_length == m_buffer.length)
+			{
+				flush();
+			}
+			
+			m_buffer[m_length++] = (byte)b;
+		}
+	}
+	
+	/**
+	 * A pull parser that reads JSON as UTF-8 from a stream through a buffer.
+	 */
+	private static final class Parser
+	{
+		private final InputStream m_in;
+		private final byte[] m_buffer = new byte[8192];
+		private int m_position = 0;
+		private int m_limit = 0;
+		
+		// For each open object or array, whether a member or value has been read
+		private final boolean[] m_hasMembers = new boolean[MAX_DEPTH];
+		private int m_depth = 0;
+		
+		// Reused for string contents
+		private byte[] m_stringBytes = new byte[64];
+		private final StringBuilder m_number = new StringBuilder();
+		
+		Parser(InputStream in)
+		{
+			m_in = in;
+		}
+		
+		void beginObject() throws InvalidMessageException, IOException
+		{
+			expect('{');
+			push();
+		}
+		
+		/**
+		 * Reads the name of the next member.
+		 * @return Name or null if the object ended.
+		 */
+		String nextName() throws InvalidMessageException, IOException
+		{
+			int c = skipWhitespace();
+			
+			if (c == '}')
+			{
+				++m_position;
+				--m_depth;
+				return null;
+			}
+			
+			if (m_hasMembers[m_depth - 1])
+			{
+				expect(',');
+				skipWhitespace();
+			}
+			
+			m_hasMembers[m_depth - 1] = true;
+			String retval = readString();
+			expect(':');
+			
+			if (retval == null)
+			{
+				throw new InvalidMessageException("A member name cannot be null");
+			}
+			
+			return retval;
+		}
+		
+		void beginArray() throws InvalidMessageException, IOException
+		{
+			expect('[');
+			push();
+		}
+		
+		/**
+		 * Checks whether the array has another value.
+		 * @return True if there is a value, false if the array ended.
+		 */
+		boolean hasNext() throws InvalidMessageException, IOException
+		{
+			int c = skipWhitespace();
+			
+			if (c == ']')
+			{
+				++m_position;
+				--m_depth;
+				return false;
+			}
+			
+			if (m_hasMembers[m_depth - 1])
+			{
+				expect(',');
+			}
+			
+			m_hasMembers[m_depth - 1] = true;
+			return true;
+		}
+		
+		/**
+		 * Reads a string value.
+		 * @return Value or null if the value was null.
+		 */
+		String readString() throws InvalidMessageException, IOException
+		{
+			if (readNull())
+			{
+				return null;
+			}
+			
+			expect('"');
+			int length = 0;
+			
+			while (true)
+			{
+				int b = nextByte();
+				
+				if (b == '"')
+				{
+					break;
+				}
+				else if (b < 0x20)
+				{
+					throw new InvalidMessageException("Unescaped control character in a JSON string");
+				}
+				
+				if (length + 4 > m_stringBytes.length)
+				{
+					m_stringBytes = Arrays.copyOf(m_stringBytes, m_stringBytes.length * 2);
+				}
+				
+				if (b == '\\')
+				{
+					length = readEscape(length);
+				}
+				else
+				{
+					m_stringBytes[length++] = (byte)b;
+				}
+			}
+			
+			return new String(m_stringBytes, 0, length, StandardCharsets.UTF_8);
+		}
+		
+		boolean readBoolean() throws InvalidMessageException, IOException
+		{
+			int c = skipWhitespace();
+			
+			if (c == 't')
+			{
+				expectWord("true");
+				return true;
+			}
+			else if (c == 'f')
+			{
+				expectWord("false");
+				return false;
+			}
+			else
+			{
+				throw new InvalidMessageException("Expected a boolean in JSON");
+			}
+		}
+		
+		long readLong() throws InvalidMessageException, IOException
+		{
+			String number = readNumberToken();
+			
+			try
+			{
+				return Long.parseLong(number);
+			}
+			catch (NumberFormatException e)
+			{
+				throw new InvalidMessageException("Expected an integer in JSON but got " + number);
+			}
+		}
+		
+		double readDouble() throws InvalidMessageException, IOException
+		{
+			if (skipWhitespace() == '"')
+			{
+				String value = readString();
+				
+				switch (value)
+				{
+				case "NaN":
+					return Double.NaN;
+				case "INF":
+					return Double.POSITIVE_INFINITY;
+				case "-INF":
+					return Double.NEGATIVE_INFINITY;
+				default:
+					throw new InvalidMessageException("Expected a number in JSON but got \"" + value + "\"");
+				}
+			}
+			
+			String number = readNumberToken();
+			
+			try
+			{
+				return Double.parseDouble(number);
+			}
+			catch (NumberFormatException e)
+			{
+				throw new InvalidMessageException("Expected a number in JSON but got " + number);
+			}
+		}
+		
+		/**
+		 * Consumes null if it is the next value.
+		 * @return True if the value was null, otherwise false.
+		 */
+		boolean readNull() throws InvalidMessageException, IOException
+		{
+			if (skipWhitespace() == 'n')
+			{
+				expectWord("null");
+				return true;
+			}
+			
+			return false;
+		}
+		
+		void skipValue() throws InvalidMessageException, IOException
+		{
+			int c = skipWhitespace();
+			
+			switch (c)
+			{
+			case '{':
+				beginObject();
+				
+				while (nextName() != null)
+				{
+					skipValue();
+				}
+				break;
+			case '[':
+				beginArray();
+				
+				while (hasNext())
+				{
+					skipValue();
+				}
+				break;
+			case '"':
+				readString();
+				break;
+			case 't':
+			case 'f':
+				readBoolean();
+				break;
+			case 'n':
+				readNull();
+				break;
+			default:
+				readNumberToken();
+				break;
+			}
+		}
+		
+		void expectEnd() throws InvalidMessageException, IOException
+		{
+			if (skipWhitespace() != -1)
+			{
+				throw new InvalidMessageException("Unexpected data after the end of the JSON object");
+			}
+		}
+		
+		private void push() throws InvalidMessageException
+		{
+			if (m_depth == MAX_DEPTH)
+			{
+				throw new InvalidMessageException("JSON nesting is too deep");
+			}
+			
+			m_hasMembers[m_depth++] = false;
+		}
+		
+		private String readNumberToken() throws InvalidMessageException, IOException
+		{
+			skipWhitespace();
+			m_number.setLength(0);
+			
+			while (true)
+			{
+				int c = peekByte();
+				
+				if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')
+				{
+					m_number.append((char)c);
+					++m_position;
+				}
+				else
+				{
+					break;
+				}
+			}
+			
+			if (m_number.length() == 0)
+			{
+				throw new InvalidMessageException("Unexpected character in JSON");
+			}
+			
+			return m_number.toString();
+		}
+		
+		private int readEscape(int length) throws InvalidMessageException, IOException
+		{
+			int b = nextByte();
+			char c;
+			
+			switch (b)
+			{
+			case '"':
+			case '\\':
+			case '/':
+				c = (char)b;
+				break;
+			case 'b':
+				c = '\b';
+				break;
+			case 'f':
+				c = '\f';
+				break;
+			case 'n':
+				c = '\n';
+				break;
+			case 'r':
+				c = '\r';
+				break;
+			case 't':
+				c = '\t';
+				break;
+			case 'u':
+				c = (char)readHex4();
+				break;
+			default:
+				throw new InvalidMessageException("Invalid escape sequence in JSON");
+			}
+			
+			// Combining a surrogate pair into one code point
+			int codePoint = c;
+			
+			if (Character.isHighSurrogate(c) && peekByte() == '\\')
+			{
+				++m_position;
+				
+				if (nextByte() != 'u')
+				{
+					throw new InvalidMessageException("Invalid surrogate pair in JSON");
+				}
+				
+				char low = (char)readHex4();
+				
+				if (!Character.isLowSurrogate(low))
+				{
+					throw new InvalidMessageException("Invalid surrogate pair in JSON");
+				}
+				
+				codePoint = Character.toCodePoint(c, low);
+			}
+			
+			// The caller has ensured space for 4 bytes
+			byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(utf8, 0, m_stringBytes, length, utf8.length);
+			return length + utf8.length;
+		}
+		
+		private int readHex4() throws InvalidMessageException, IOException
+		{
+			int retval = 0;
+			
+			for (int a = 0; a < 4; ++a)
+			{
+				int digit = Character.digit(nextByte(), 16);
+				
+				if (digit < 0)
+				{
+					throw new InvalidMessageException("Invalid unicode escape in JSON");
+				}
+				
+				retval = retval * 16 + digit;
+			}
+			
+			return retval;
+		}
+		
+		private void expectWord(String word) throws InvalidMessageException, IOException
+		{
+			for (int a = 0; a < word.length(); ++a)
+			{
+				if (nextByte() != word.charAt(a))
+				{
+					throw new InvalidMessageException("Unexpected character in JSON; expected " + word);
+				}
+			}
+		}
+		
+		private void expect(char c) throws InvalidMessageException, IOException
+		{
+			int next = skipWhitespace();
+			
+			if (next == -1)
+			{
+				throw new InvalidMessageException("Unexpected end of JSON");
+			}
+			else if (next != c)
+			{
+				throw new InvalidMessageException("Unexpected character in JSON; expected " + c);
+			}
+			
+			++m_position;
+		}
+		
+		/**
+		 * Skips whitespace and peeks the next byte.
+		 * @return Byte or -1 at the end.
+		 */
+		private int skipWhitespace() throws IOException
+		{
+			while (true)
+			{
+				int c = peekByte();
+				
+				if (c == ' ' || c == '\n' || c == '\r' || c == '\t')
+				{
+					++m_position;
+				}
+				else
+				{
+					return c;
+				}
+			}
+		}
+		
+		private int nextByte() throws InvalidMessageException, IOException
+		{
+			int retval = peekByte();
+			
+			if (retval == -1)
+			{
+				throw new InvalidMessageException("Unexpected end of JSON");
+			}
+			
+			++m_position;
+			return retval;
+		}
+		
+		private int peekByte() throws IOException
+		{
+			if (m_position == m_limit)
+			{
+				m_limit = m_in.read(m_buffer, 0, m_buffer.length);
+				m_position = 0;
+				
+				if (m_limit <= 0)
+				{
+					m_limit = 0;
+					return -1;
+				}
+			}
+			
+			return m_buffer[m_position] & 0xFF;
+		}
+	}
+}
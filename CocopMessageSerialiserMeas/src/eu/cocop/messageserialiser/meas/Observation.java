@@ -5,7 +5,7 @@
 // Optimisation of Complex Industrial Processes).
 // https://cocop-spire.eu/
 // Author: Petri Kannisto, Tampere University, Finland
-// Last modified: 4/2020
+// Last modified: 10/2026
 //
 // This API has been derived from standards and XML schemata provided by the
 // Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
@@ -24,6 +24,7 @@ package eu.cocop.messageserialiser.meas;
 import java.util.List;
 
 import javax.xml.bind.JAXBElement;
+import javax.xml.stream.StreamFilter;
 
 import net.opengis.gml._3.AbstractTimeObjectType;
 import net.opengis.gml._3.CodeType;
@@ -89,12 +90,24 @@ public final class Observation
 	 */
 	public Observation(byte[] xmlBytes) throws InvalidMessageException
 	{
-		setDefaults();
+		this(xmlBytes, null);
+	}
+	
+	/**
+	 * Constructor to populate the information from XML.
+	 * @param xmlBytes Serialised XML document.
+	 * @param filter Filter for parsing events or null.
+	 * @exception InvalidMessageException Thrown if an error is encountered.
+	 */
+	Observation(byte[] xmlBytes, StreamFilter filter) throws InvalidMessageException
+	{
+		// Result time is always read from XML, so no default is needed for that
+		setDefaultsForRead();
 		
 		try
 		{
 			@SuppressWarnings("unchecked")
-			JAXBElement<OMObservationType> observationJaxb = (JAXBElement<OMObservationType>)XmlHelper.deserialiseFromXml(xmlBytes);
+			JAXBElement<OMObservationType> observationJaxb = (JAXBElement<OMObservationType>)XmlHelper.deserialiseFromXml(xmlBytes, filter);
 			
 			// Reading other values from XML
 			readFieldValuesFromXmlDoc(observationJaxb.getValue());
@@ -115,6 +128,62 @@ public final class Observation
 		readFieldValuesFromXmlDoc(proxy);
 	}
 	
+	/**
+	 * Populates an existing observation from XML. This enables the reuse of
+	 * observation objects when a high volume of messages is decoded. All fields are
+	 * reset before reading. If the current result is a mutable item (time
+	 * series or data record) of the same type as in the message, it is refilled
+	 * instead of creating a new result object.
+	 * 
+	 * The caller must not share the target object between threads while decoding.
+	 * @param target Observation to be populated.
+	 * @param xmlBytes Serialised XML document.
+	 * @throws InvalidMessageException Thrown if an error is encountered. In this case,
+	 * the state of the target is undefined.
+	 */
+	public static void decodeInto(Observation target, byte[] xmlBytes) throws InvalidMessageException
+	{
+		decodeInto(target, xmlBytes, null);
+	}
+	
+	/**
+	 * Populates an existing observation from XML as in {@link #decodeInto(Observation, byte[])}.
+	 * @param target Observation to be populated.
+	 * @param xmlBytes Serialised XML document.
+	 * @param filter Filter for parsing events or null.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	static void decodeInto(Observation target, byte[] xmlBytes, StreamFilter filter) throws InvalidMessageException
+	{
+		try
+		{
+			@SuppressWarnings("unchecked")
+			JAXBElement<OMObservationType> observationJaxb = (JAXBElement<OMObservationType>)XmlHelper.deserialiseFromXml(xmlBytes, filter);
+			
+			// Result time is always read from XML, so no default is needed for that
+			Item reusable = target.m_result;
+			target.setDefaultsForRead();
+			target.readFieldValuesFromXmlDoc(observationJaxb.getValue(), reusable);
+		}
+		catch (ClassCastException e)
+		{
+			throw new InvalidMessageException("Failed to parse XML", e);
+		}
+	}
+	
+	private void setDefaultsForRead()
+	{
+		m_description = null;
+		m_name = null;
+		m_phenomenonTime = null;
+		m_resultTime = null;
+		m_procedure = "";
+		m_observedProperty = "";
+		m_featureOfInterest = "";
+		m_resultQuality = DataQuality.createGood();
+		m_result = null;
+	}
+	
 	private void setDefaults()
 	{
 		// For the sake of consistency, all defaults are now set here.
@@ -213,6 +282,19 @@ public final class Observation
 		return m_result;
 	}
 	
+	/**
+	 * Walks the result and the items nested in it depth first. The result has
+	 * the result quality of the observation. Nothing is visited if there is no result.
+	 * @param visitor Visitor.
+	 */
+	public void walk(ItemVisitor visitor)
+	{
+		if (m_result != null)
+		{
+			m_result.accept(null, m_resultQuality, visitor);
+		}
+	}
+	
 	
 	// ### Setters ###
 	
@@ -296,6 +378,18 @@ public final class Observation
 	 * @return Serialised presentation.
 	 */
 	public byte[] toXmlBytes()
+	{
+		return toXmlBytes(false);
+	}
+	
+	/**
+	 * Serialises the object to XML.
+	 * @param minimalNamespaces If true, only the namespaces actually used are declared,
+	 * and they have short prefixes such as "om" and "gml". This makes small messages
+	 * considerably smaller.
+	 * @return Serialised presentation.
+	 */
+	public byte[] toXmlBytes(boolean minimalNamespaces)
 	{
 		// Create proxy
 		OMObservationType proxy = toXmlProxy(""); // No ID prefix because document root is assumed
@@ -303,7 +397,7 @@ public final class Observation
 		Object actualProxy = objectFactory.createOMObservation(proxy);
 		
 		// Serialising
-		return XmlHelper.toXmlBytes(actualProxy);
+		return XmlHelper.toXmlBytes(actualProxy, minimalNamespaces);
 	}
 	
 	/**
@@ -385,7 +479,7 @@ public final class Observation
 		obsToMarshal.getResultQuality().add(resultQuality);
 		
 		// Result
-		obsToMarshal.setResult(m_result.getObjectForXml_Result(myUniqueId + "_result_"));
+		obsToMarshal.setResult(ResultTypeManager.getObjectForXml_Result(m_result, myUniqueId + "_result_"));
 		
 		return obsToMarshal;
 	}
@@ -394,6 +488,11 @@ public final class Observation
 	// ### Private functions for read ###
 	
 	private void readFieldValuesFromXmlDoc(OMObservationType observationRaw) throws InvalidMessageException
+	{
+		readFieldValuesFromXmlDoc(observationRaw, null);
+	}
+	
+	private void readFieldValuesFromXmlDoc(OMObservationType observationRaw, Item reusableResult) throws InvalidMessageException
 	{
 		try
 		{
@@ -433,11 +532,11 @@ public final class Observation
 			if (observationRaw.getResultQuality() != null && observationRaw.getResultQuality().size() > 0)
 			{
 				String qualityStringRaw = observationRaw.getResultQuality().get(0).getTitleAttr();
-				m_resultQuality = new DataQuality(qualityStringRaw);
+				m_resultQuality = DataQuality.fromXml(qualityStringRaw);
 			}
 			
 			// Processing result information
-			m_result = ResultTypeManager.buildResultFromXml(typeUri, observationRaw.getResult());
+			m_result = ResultTypeManager.buildResultFromXml(typeUri, observationRaw.getResult(), reusableResult);
 		}
 		catch (ClassCastException e)
 		{
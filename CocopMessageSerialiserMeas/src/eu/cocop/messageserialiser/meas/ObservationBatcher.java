@@ -0,0 +1,474 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joda.time.Period;
+
+/**
+ * Collects observations into batches and publishes each batch as a single
+ * GetObservationResponse document. This saves the envelope and namespace
+ * declarations that each observation would otherwise have in its own document.
+ *
+ * A batch is flushed when it reaches the maximum observation count, when its
+ * estimated size reaches the maximum byte count, or when its first observation
+ * has waited for the linger time. The size of a batch is estimated before
+ * serialisation from the average size per observation in the previous batches,
+ * so the actual size can exceed the maximum slightly.
+ *
+ * The methods of this class are thread-safe. A batch is serialised and
+ * published outside the lock of the current batch, so adding observations
+ * continues meanwhile. The batches are published in the order they were
+ * flushed. If the serialisation or the sink fails, the batch
+ * is dropped and counted as failed, and the exception is thrown to the caller.
+ * If the linger time is set, the lingering batches are flushed by a background
+ * thread, which has no caller to report to.
+ * @author Petri Kannisto
+ */
+public final class ObservationBatcher implements Closeable
+{
+	/**
+	 * The size per observation assumed before the first batch has been serialised.
+	 */
+	public static final int DEFAULT_OBSERVATION_BYTES = 1024;
+	
+	/**
+	 * Receives flushed batches.
+	 * @author Petri Kannisto
+	 */
+	@FunctionalInterface
+	public interface BatchSink
+	{
+		/**
+		 * Publishes a batch.
+		 * @param xmlBytes The batch as a GetObservationResponse document.
+		 * @param observationCount The number of observations in the batch.
+		 * @throws IOException Thrown if publishing fails.
+		 */
+		void publish(byte[] xmlBytes, int observationCount) throws IOException;
+	}
+	
+	/**
+	 * Specifies why a batch was flushed.
+	 * @author Petri Kannisto
+	 */
+	public enum FlushReasonType
+	{
+		/**
+		 * The batch reached the maximum observation count.
+		 */
+		Count,
+		/**
+		 * The batch reached the maximum size.
+		 */
+		Size,
+		/**
+		 * The first observation of the batch waited for the linger time.
+		 */
+		Linger,
+		/**
+		 * The batch was flushed explicitly or on close.
+		 */
+		Explicit
+	}
+	
+	private final int m_maxCount;
+	private final long m_maxBytes;
+	private final long m_lingerMillis;
+	private final BatchSink m_sink;
+	
+	// Null if there is no linger time
+	private final ScheduledThreadPoolExecutor m_timer;
+	
+	private final Object m_lock = new Object();
+	private ArrayList<Observation> m_batch = new ArrayList<>();
+	private long m_batchGeneration = 0;
+	private boolean m_closed = false;
+	
+	// Taken before m_lock is released to keep the order of the batches.
+	// Never take m_lock while holding this.
+	private final ReentrantLock m_publishLock = new ReentrantLock();
+	
+	// Written while publishing
+	private volatile double m_bytesPerObservation = DEFAULT_OBSERVATION_BYTES;
+	
+	// Metrics; guarded by m_metricsLock
+	private final Object m_metricsLock = new Object();
+	private long m_batchCount = 0;
+	private long m_observationCount = 0;
+	private long m_byteCount = 0;
+	private long m_failedBatchCount = 0;
+	private final long[] m_reasonCounts = new long[FlushReasonType.values().length];
+	private long m_totalFlushNanos = 0;
+	private long m_maxFlushNanos = 0;
+	
+	
+	/**
+	 * Constructor.
+	 * @param maxCount The maximum number of observations in a batch.
+	 * @param maxBytes The maximum estimated size of a batch in bytes.
+	 * @param linger The maximum time an observation waits in a batch. This must
+	 * have a fixed length, i.e., no months or years. If null, batches are only
+	 * flushed by count, size or explicitly.
+	 * @param sink Receives the batches.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public ObservationBatcher(int maxCount, long maxBytes, Period linger, BatchSink sink) throws IllegalArgumentException
+	{
+		if (maxCount < 1)
+		{
+			throw new IllegalArgumentException("The maximum count must be at least 1");
+		}
+		if (maxBytes < 1)
+		{
+			throw new IllegalArgumentException("The maximum size must be at least 1");
+		}
+		
+		m_maxCount = maxCount;
+		m_maxBytes = maxBytes;
+		m_sink = sink;
+		
+		if (linger == null)
+		{
+			m_lingerMillis = -1;
+			m_timer = null;
+		}
+		else
+		{
+			m_lingerMillis = TimeHelper.getFixedLengthMillis(linger);
+			
+			if (m_lingerMillis < 0)
+			{
+				throw new IllegalArgumentException("The linger time must have a fixed length (no months or years)");
+			}
+			if (m_lingerMillis == 0)
+			{
+				throw new IllegalArgumentException("The linger time must be positive");
+			}
+			
+			m_timer = new ScheduledThreadPoolExecutor(1, runnable ->
+			{
+				Thread thread = new Thread(runnable, "ObservationBatcher linger");
+				thread.setDaemon(true);
+				return thread;
+			});
+			m_timer.setRemoveOnCancelPolicy(true);
+		}
+	}
+	
+	/**
+	 * Adds an observation to the current batch. If this fills the batch, the
+	 * batch is flushed in the calling thread.
+	 * @param obs Observation. This must not be modified after it has been added.
+	 * @throws IOException Thrown if the sink fails.
+	 * @throws IllegalStateException Thrown if the batcher has been closed.
+	 */
+	public void add(Observation obs) throws IOException, IllegalStateException
+	{
+		FlushReasonType reason = null;
+		ArrayList<Observation> batch = null;
+		
+		synchronized (m_lock)
+		{
+			if (m_closed)
+			{
+				throw new IllegalStateException("The batcher has been closed");
+			}
+			
+			m_batch.add(obs);
+			
+			if (m_batch.size() >= m_maxCount)
+			{
+				reason = FlushReasonType.Count;
+			}
+			else if (m_batch.size() * m_bytesPerObservation >= m_maxBytes)
+			{
+				reason = FlushReasonType.Size;
+			}
+			else if (m_batch.size() == 1 && m_timer != null)
+			{
+				// The first observation of a batch starts the linger time
+				final long generation = m_batchGeneration;
+				m_timer.schedule(() -> flushLingering(generation), m_lingerMillis, TimeUnit.MILLISECONDS);
+			}
+			
+			if (reason != null)
+			{
+				batch = takeBatchLocked();
+			}
+		}
+		
+		publish(batch, reason);
+	}
+	
+	/**
+	 * Flushes the current batch if it is not empty.
+	 * @throws IOException Thrown if the sink fails.
+	 */
+	public void flush() throws IOException
+	{
+		ArrayList<Observation> batch;
+		
+		synchronized (m_lock)
+		{
+			batch = takeBatchLocked();
+		}
+		
+		publish(batch, FlushReasonType.Explicit);
+	}
+	
+	/**
+	 * Flushes the current batch and stops the background thread.
+	 * @throws IOException Thrown if the sink fails.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		ArrayList<Observation> batch;
+		
+		synchronized (m_lock)
+		{
+			if (m_closed)
+			{
+				return;
+			}
+			
+			m_closed = true;
+			
+			if (m_timer != null)
+			{
+				m_timer.shutdownNow();
+			}
+			
+			batch = takeBatchLocked();
+		}
+		
+		publish(batch, FlushReasonType.Explicit);
+	}
+	
+	/**
+	 * Gets the number of observations in the current batch.
+	 * @return Count.
+	 */
+	public int getPendingCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_batch.size();
+		}
+	}
+	
+	/**
+	 * Gets the number of published batches.
+	 * @return Count.
+	 */
+	public long getBatchCount()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_batchCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of observations in the published batches.
+	 * @return Count.
+	 */
+	public long getObservationCount()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_observationCount;
+		}
+	}
+	
+	/**
+	 * Gets the total size of the published batches.
+	 * @return Size in bytes.
+	 */
+	public long getByteCount()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_byteCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of batches that the sink failed to publish.
+	 * @return Count.
+	 */
+	public long getFailedBatchCount()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_failedBatchCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of flushes for a reason.
+	 * @param reason Reason.
+	 * @return Count.
+	 */
+	public long getFlushCount(FlushReasonType reason)
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_reasonCounts[reason.ordinal()];
+		}
+	}
+	
+	/**
+	 * Gets the average fill level of the published batches, i.e., the average
+	 * observation count relative to the maximum count.
+	 * @return Fill level between 0 and 1 or 0 if nothing has been published.
+	 */
+	public double getAverageFillLevel()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_batchCount == 0 ? 0 : (double)m_observationCount / m_batchCount / m_maxCount;
+		}
+	}
+	
+	/**
+	 * Gets the average time to serialise and publish a batch.
+	 * @return Time in nanoseconds or 0 if nothing has been published.
+	 */
+	public long getAverageFlushNanos()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_batchCount == 0 ? 0 : m_totalFlushNanos / m_batchCount;
+		}
+	}
+	
+	/**
+	 * Gets the maximum time to serialise and publish a batch.
+	 * @return Time in nanoseconds.
+	 */
+	public long getMaxFlushNanos()
+	{
+		synchronized (m_metricsLock)
+		{
+			return m_maxFlushNanos;
+		}
+	}
+	
+	private void flushLingering(long generation)
+	{
+		ArrayList<Observation> batch;
+		
+		synchronized (m_lock)
+		{
+			// The batch may have been flushed already for another reason
+			if (generation != m_batchGeneration || m_closed)
+			{
+				return;
+			}
+			
+			batch = takeBatchLocked();
+		}
+		
+		try
+		{
+			publish(batch, FlushReasonType.Linger);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// Already counted as failed; there is no caller to report to
+		}
+	}
+	
+	/**
+	 * Replaces the current batch with an empty one. If the batch is not
+	 * empty, this takes the publish lock, which the caller must release by
+	 * calling {@link #publish(ArrayList, FlushReasonType)}.
+	 * @return Batch or null if empty.
+	 */
+	private ArrayList<Observation> takeBatchLocked()
+	{
+		if (m_batch.isEmpty())
+		{
+			return null;
+		}
+		
+		ArrayList<Observation> retval = m_batch;
+		m_batch = new ArrayList<>();
+		++m_batchGeneration;
+		
+		// Waiting here blocks the adding of observations, which limits the
+		// batches in flight to one while the next one is being filled
+		m_publishLock.lock();
+		return retval;
+	}
+	
+	private void publish(ArrayList<Observation> batch, FlushReasonType reason) throws IOException
+	{
+		if (batch == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			long startNanos = System.nanoTime();
+			byte[] xmlBytes;
+			
+			try
+			{
+				GetObservationResponse response = new GetObservationResponse();
+				response.getObservations().addAll(batch);
+				xmlBytes = response.toXmlBytes();
+				
+				// Updating the size estimate for the next batches
+				m_bytesPerObservation = (double)xmlBytes.length / batch.size();
+				
+				m_sink.publish(xmlBytes, batch.size());
+			}
+			catch (IOException | RuntimeException e)
+			{
+				// The batch is not kept, because a batch that cannot be serialised
+				// would fail again on every flush
+				synchronized (m_metricsLock)
+				{
+					++m_failedBatchCount;
+				}
+				
+				throw e;
+			}
+			
+			long elapsed = System.nanoTime() - startNanos;
+			
+			synchronized (m_metricsLock)
+			{
+				++m_batchCount;
+				m_observationCount += batch.size();
+				m_byteCount += xmlBytes.length;
+				++m_reasonCounts[reason.ordinal()];
+				m_totalFlushNanos += elapsed;
+				m_maxFlushNanos = Math.max(m_maxFlushNanos, elapsed);
+			}
+		}
+		finally
+		{
+			m_publishLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,363 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+//
+// This API has been derived from standards and XML schemata provided by the
+// Open Geospatial Consortium (OGC(r)). Please make sure to read and understand
+// the following legal conditions:
+// (1) Copyright Notice and Disclaimers at https://www.ogc.org/ogc/legal
+// (2) OGC(r) Document Notice; the most recent version is at
+//     https://www.ogc.org/ogc/document and another enclosed in file
+//     "ogc_document_notice.txt"
+// (3) OGC(r) Software Notice; the most recent version is at
+//     https://www.ogc.org/ogc/software and another enclosed in file
+//     "ogc_software_notice.txt"
+// (4) The license of each related standard referred to in this file.
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A compiled, immutable predicate to evaluate temporal filters and requests
+ * against observations in memory. Compilation takes a snapshot of the
+ * conditions, and later changes to the source objects have no effect.
+ *
+ * The semantics are as follows:
+ * <ul>
+ * <li>The operators are strict as in Filter Encoding: "After" and "Before"
+ * do not match the given instant itself, and "During" excludes the start
+ * and the end of the range.</li>
+ * <li>Multiple temporal filters must all match (logical AND).</li>
+ * <li>If the set of features of interest or observed properties is empty,
+ * it does not restrict the results. Otherwise, the value of the observation
+ * must be in the set.</li>
+ * <li>If an observation has no phenomenon time, its result time is used
+ * instead, as it is done in serialisation.</li>
+ * <li>The items (extension data records) of a request are not evaluated,
+ * because their meaning is application-specific.</li>
+ * </ul>
+ *
+ * Because the conditions on each time value are all strict bounds, they
+ * are reduced to a single open interval of epoch milliseconds per time
+ * value at compilation. An evaluation is thus two comparisons per time value
+ * and at most two hash lookups. Objects of this class are thread-safe.
+ *
+ * In this module, the code has been derived from OGC Filter Encoding 2.0
+ * Encoding Standard - With Corrigendum (OGC 09-026r2; please see the file
+ * "ref_and_license_ogc_filter.txt") and OGC(r) Sensor Observation Service
+ * Interface Standard (OGC 12-006; please see the file
+ * "ref_and_license_ogc_sos.txt").
+ * @author Petri Kannisto
+ */
+public final class ObservationFilter implements Predicate<Observation>
+{
+	// Open intervals (exclusive bounds) in epoch milliseconds
+	private final long m_phenoTimeAfter;
+	private final long m_phenoTimeBefore;
+	private final long m_resultTimeAfter;
+	private final long m_resultTimeBefore;
+	
+	// Whether any time condition exists
+	private final boolean m_phenoTimeRestricted;
+	private final boolean m_resultTimeRestricted;
+	
+	// Null if not restricted
+	private final Set<String> m_featuresOfInterest;
+	private final Set<String> m_observedProperties;
+	
+	
+	private ObservationFilter(Collection<TemporalFilter> temporalFilters, Set<String> features, Set<String> properties)
+	{
+		long phenoAfter = Long.MIN_VALUE;
+		long phenoBefore = Long.MAX_VALUE;
+		long resultAfter = Long.MIN_VALUE;
+		long resultBefore = Long.MAX_VALUE;
+		boolean phenoRestricted = false;
+		boolean resultRestricted = false;
+		
+		for (TemporalFilter filter : temporalFilters)
+		{
+			long after = Long.MIN_VALUE;
+			long before = Long.MAX_VALUE;
+			
+			switch (filter.getOperator())
+			{
+			case After:
+				after = getEpochMillis((Item_TimeInstant)filter.getTime());
+				break;
+			case Before:
+				before = getEpochMillis((Item_TimeInstant)filter.getTime());
+				break;
+			case During:
+				Item_TimeRange range = (Item_TimeRange)filter.getTime();
+				after = getEpochMillis(range.getStart());
+				before = getEpochMillis(range.getEnd());
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported operator " + filter.getOperator().toString());
+			}
+			
+			// Narrowing the interval of the referred value
+			switch (filter.getValueReference())
+			{
+			case PhenomenonTime:
+				phenoAfter = Math.max(phenoAfter, after);
+				phenoBefore = Math.min(phenoBefore, before);
+				phenoRestricted = true;
+				break;
+			case ResultTime:
+				resultAfter = Math.max(resultAfter, after);
+				resultBefore = Math.min(resultBefore, before);
+				resultRestricted = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported value reference " + filter.getValueReference().toString());
+			}
+		}
+		
+		m_phenoTimeAfter = phenoAfter;
+		m_phenoTimeBefore = phenoBefore;
+		m_resultTimeAfter = resultAfter;
+		m_resultTimeBefore = resultBefore;
+		m_phenoTimeRestricted = phenoRestricted;
+		m_resultTimeRestricted = resultRestricted;
+		
+		// Copying to hash sets for fast lookups
+		m_featuresOfInterest = features.isEmpty() ? null : new HashSet<>(features);
+		m_observedProperties = properties.isEmpty() ? null : new HashSet<>(properties);
+	}
+	
+	/**
+	 * Compiles a temporal filter.
+	 * @param filter Filter.
+	 * @return Compiled filter.
+	 */
+	public static ObservationFilter compile(TemporalFilter filter)
+	{
+		return new ObservationFilter(Collections.singletonList(filter),
+				Collections.<String>emptySet(), Collections.<String>emptySet());
+	}
+	
+	/**
+	 * Compiles the conditions of a request (temporal filters, features of interest
+	 * and observed properties).
+	 * @param request Request.
+	 * @return Compiled filter.
+	 */
+	public static ObservationFilter compile(GetObservationRequest request)
+	{
+		return new ObservationFilter(request.getTemporalFilters(),
+				request.getFeaturesOfInterest(), request.getObservedProperties());
+	}
+	
+	/**
+	 * Evaluates the filter.
+	 * @param obs Observation.
+	 * @return True if the observation matches, otherwise false.
+	 */
+	@Override
+	public boolean test(Observation obs)
+	{
+		// The cheapest checks first
+		if (m_phenoTimeRestricted || m_resultTimeRestricted)
+		{
+			Item_TimeInstant resultTime = obs.getResultTime();
+			
+			if (m_resultTimeRestricted && !isInside(resultTime, m_resultTimeAfter, m_resultTimeBefore))
+			{
+				return false;
+			}
+			
+			if (m_phenoTimeRestricted)
+			{
+				Item_TimeInstant phenoTime = obs.getPhenomenonTime();
+				
+				if (phenoTime == null)
+				{
+					// Default: using result time as the phenomenon time
+					phenoTime = resultTime;
+				}
+				
+				if (!isInside(phenoTime, m_phenoTimeAfter, m_phenoTimeBefore))
+				{
+					return false;
+				}
+			}
+		}
+		
+		if (m_featuresOfInterest != null && !m_featuresOfInterest.contains(obs.getFeatureOfInterest()))
+		{
+			return false;
+		}
+		
+		return m_observedProperties == null || m_observedProperties.contains(obs.getObservedProperty());
+	}
+	
+	/**
+	 * Evaluates the filter for each observation in a list.
+	 * @param observations Observations. For linked lists, the cost is linear anyway,
+	 * because the list is only iterated.
+	 * @return The indices of matching observations in ascending order.
+	 */
+	public int[] findMatches(List<Observation> observations)
+	{
+		int[] indices = new int[Math.min(observations.size(), 16)];
+		int count = 0;
+		int index = 0;
+		
+		for (Observation obs : observations)
+		{
+			if (test(obs))
+			{
+				if (count == indices.length)
+				{
+					indices = Arrays.copyOf(indices, Math.max(16, indices.length * 2));
+				}
+				
+				indices[count++] = index;
+			}
+			
+			++index;
+		}
+		
+		return count == indices.length ? indices : Arrays.copyOf(indices, count);
+	}
+	
+	/**
+	 * Evaluates the filter for each observation in an array.
+	 * @param observations Observations.
+	 * @return The indices of matching observations in ascending order.
+	 */
+	public int[] findMatches(Observation[] observations)
+	{
+		return findMatches(Arrays.asList(observations));
+	}
+	
+	/**
+	 * Evaluates the filter on raw values, e.g., those stored in an index.
+	 * @param phenoMillis Phenomenon time (or result time if the phenomenon time is missing) in epoch milliseconds.
+	 * @param resultMillis Result time in epoch milliseconds.
+	 * @param feature Feature of interest.
+	 * @param property Observed property.
+	 * @return True if the values match, otherwise false.
+	 */
+	boolean test(long phenoMillis, long resultMillis, String feature, String property)
+	{
+		if (phenoMillis <= m_phenoTimeAfter || phenoMillis >= m_phenoTimeBefore)
+		{
+			return false;
+		}
+		
+		if (resultMillis <= m_resultTimeAfter || resultMillis >= m_resultTimeBefore)
+		{
+			return false;
+		}
+		
+		if (m_featuresOfInterest != null && !m_featuresOfInterest.contains(feature))
+		{
+			return false;
+		}
+		
+		return m_observedProperties == null || m_observedProperties.contains(property);
+	}
+	
+	/**
+	 * Whether values within the given ranges (inclusive) may match the time
+	 * conditions of the filter.
+	 * @param phenoMin Minimum phenomenon time in epoch milliseconds.
+	 * @param phenoMax Maximum phenomenon time in epoch milliseconds.
+	 * @param resultMin Minimum result time in epoch milliseconds.
+	 * @param resultMax Maximum result time in epoch milliseconds.
+	 * @return True if a match is possible, otherwise false.
+	 */
+	boolean mayMatchTimes(long phenoMin, long phenoMax, long resultMin, long resultMax)
+	{
+		return phenoMax > m_phenoTimeAfter && phenoMin < m_phenoTimeBefore &&
+				resultMax > m_resultTimeAfter && resultMin < m_resultTimeBefore;
+	}
+	
+	/**
+	 * Gets the exclusive lower bound of phenomenon time.
+	 * @return Epoch milliseconds or Long.MIN_VALUE if not restricted.
+	 */
+	long getPhenomenonTimeAfter()
+	{
+		return m_phenoTimeAfter;
+	}
+	
+	/**
+	 * Gets the exclusive upper bound of phenomenon time.
+	 * @return Epoch milliseconds or Long.MAX_VALUE if not restricted.
+	 */
+	long getPhenomenonTimeBefore()
+	{
+		return m_phenoTimeBefore;
+	}
+	
+	/**
+	 * Gets the exclusive lower bound of result time.
+	 * @return Epoch milliseconds or Long.MIN_VALUE if not restricted.
+	 */
+	long getResultTimeAfter()
+	{
+		return m_resultTimeAfter;
+	}
+	
+	/**
+	 * Gets the exclusive upper bound of result time.
+	 * @return Epoch milliseconds or Long.MAX_VALUE if not restricted.
+	 */
+	long getResultTimeBefore()
+	{
+		return m_resultTimeBefore;
+	}
+	
+	/**
+	 * Gets the accepted features of interest.
+	 * @return Features or null if not restricted.
+	 */
+	Set<String> getFeaturesOfInterest()
+	{
+		return m_featuresOfInterest;
+	}
+	
+	/**
+	 * Gets the accepted observed properties.
+	 * @return Properties or null if not restricted.
+	 */
+	Set<String> getObservedProperties()
+	{
+		return m_observedProperties;
+	}
+	
+	private static boolean isInside(Item_TimeInstant time, long after, long before)
+	{
+		if (time == null)
+		{
+			// Cannot match a time condition
+			return false;
+		}
+		
+		long millis = getEpochMillis(time);
+		return millis > after && millis < before;
+	}
+	
+	private static long getEpochMillis(Item_TimeInstant time)
+	{
+		return time.getValue().getMillis();
+	}
+}
@@ -0,0 +1,860 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+/**
+ * A persistent, append-only observation log. The observations are stored
+ * in their XML form in segment files, which are read with memory mapping.
+ *
+ * For each segment, the log keeps statistics in memory to skip segments
+ * and parts of them in queries:
+ * <ul>
+ * <li>a sparse index with the minimum and maximum phenomenon time and
+ * result time of each block of records</li>
+ * <li>the minimum and maximum phenomenon time per feature of interest
+ * and per observed property</li>
+ * </ul>
+ * These are rebuilt from the files when the log is opened. If the last
+ * record of the newest segment is incomplete (e.g., due to a crash), it
+ * is truncated. Likewise, if the file header of the newest segment is
+ * incomplete, the header is written again.
+ *
+ * When a segment reaches its maximum size, a new segment is started.
+ * Retention removes whole segments whose observations have all expired. If
+ * the file of a segment cannot be deleted (e.g., a mapped file on Windows),
+ * the segment is kept and the removal is tried again later.
+ *
+ * Record format (big endian): body length (int), CRC32 of the body (int),
+ * body. The body is phenomenon time (long, epoch ms), result time (long,
+ * epoch ms), feature of interest and observed property (each a short length
+ * and UTF-8 bytes, -1 for null) and the XML of the observation.
+ *
+ * The methods of this class are thread-safe. Queries read without holding
+ * the lock, so appends are not blocked by long queries.
+ * @author Petri Kannisto
+ */
+public final class ObservationLog implements Closeable
+{
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final byte[] FILE_MAGIC = "COCOPLOG".getBytes(StandardCharsets.US_ASCII);
+	private static final int FILE_VERSION = 1;
+	private static final int FILE_HEADER_LENGTH = FILE_MAGIC.length + 4;
+	private static final int RECORD_HEADER_LENGTH = 8;
+	private static final int BLOCK_SIZE = 64; // Records per block in the sparse index
+	
+	/**
+	 * The default maximum size of a segment.
+	 */
+	public static final long DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+	
+	private final File m_directory;
+	private final long m_maxSegmentBytes;
+	private final Period m_retention;
+	
+	private final Object m_lock = new Object();
+	private final ArrayList<Segment> m_segments = new ArrayList<>();
+	private Segment m_activeSegment = null;
+	private FileChannel m_activeChannel = null;
+	private boolean m_closed = false;
+	
+	
+	/**
+	 * Constructor. Opens or creates a log with the default segment size and
+	 * without retention.
+	 * @param directory Directory of segment files. It is created if it does not exist.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public ObservationLog(File directory) throws IOException
+	{
+		this(directory, DEFAULT_SEGMENT_BYTES, null);
+	}
+	
+	/**
+	 * Constructor. Opens or creates a log.
+	 * @param directory Directory of segment files. It is created if it does not exist.
+	 * @param maxSegmentBytes The size after which a new segment is started.
+	 * @param retention The age of observations to be retained, measured from
+	 * the current time to the phenomenon time. If null, everything is retained.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public ObservationLog(File directory, long maxSegmentBytes, Period retention) throws IOException
+	{
+		if (maxSegmentBytes <= FILE_HEADER_LENGTH || maxSegmentBytes > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid segment size " + maxSegmentBytes);
+		}
+		
+		m_directory = directory;
+		m_maxSegmentBytes = maxSegmentBytes;
+		m_retention = retention;
+		
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Failed to create directory " + directory.getPath());
+		}
+		
+		recover();
+	}
+	
+	/**
+	 * Appends an observation.
+	 * @param obs Observation.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 */
+	public void append(Observation obs) throws IOException, IllegalArgumentException
+	{
+		Item_TimeInstant resultTimeItem = obs.getResultTime();
+		Item_TimeInstant phenoTimeItem = obs.getPhenomenonTime() == null ? resultTimeItem : obs.getPhenomenonTime();
+		
+		if (phenoTimeItem == null)
+		{
+			throw new IllegalArgumentException("Observation has neither phenomenon time nor result time");
+		}
+		
+		long phenoTime = phenoTimeItem.getValue().getMillis();
+		long resultTime = resultTimeItem == null ? phenoTime : resultTimeItem.getValue().getMillis();
+		
+		// Encoding outside the lock
+		ByteBuffer record = encodeRecord(phenoTime, resultTime, obs.getFeatureOfInterest(), obs.getObservedProperty(), obs.toXmlBytes());
+		
+		synchronized (m_lock)
+		{
+			checkNotClosed();
+			
+			if (m_activeSegment.length > FILE_HEADER_LENGTH && m_activeSegment.length + record.remaining() > m_maxSegmentBytes)
+			{
+				rollOver();
+			}
+			
+			long position = m_activeSegment.length;
+			
+			while (record.hasRemaining())
+			{
+				m_activeChannel.write(record, m_activeSegment.length + record.position());
+			}
+			
+			m_activeSegment.addRecord(position, record.limit(), phenoTime, resultTime, obs.getFeatureOfInterest(), obs.getObservedProperty());
+		}
+	}
+	
+	/**
+	 * Forces the appended data to the storage device.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public void flush() throws IOException
+	{
+		synchronized (m_lock)
+		{
+			checkNotClosed();
+			m_activeChannel.force(false);
+		}
+	}
+	
+	/**
+	 * Answers a request. The items (extension data records) of the request
+	 * are not evaluated.
+	 * @param request Request.
+	 * @return Response with the matching observations in the order of appending.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public GetObservationResponse query(GetObservationRequest request) throws IOException
+	{
+		GetObservationResponse retval = new GetObservationResponse();
+		retval.getObservations().addAll(find(ObservationFilter.compile(request)));
+		return retval;
+	}
+	
+	/**
+	 * Finds observations that match a filter.
+	 * @param filter Filter.
+	 * @return Matching observations in the order of appending.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public List<Observation> find(ObservationFilter filter) throws IOException
+	{
+		ArrayList<SegmentSnapshot> snapshots = new ArrayList<>();
+		
+		synchronized (m_lock)
+		{
+			checkNotClosed();
+			
+			for (Segment segment : m_segments)
+			{
+				if (segment.mayMatch(filter))
+				{
+					snapshots.add(segment.snapshot());
+				}
+			}
+		}
+		
+		ArrayList<Observation> retval = new ArrayList<>();
+		
+		for (SegmentSnapshot snapshot : snapshots)
+		{
+			snapshot.find(filter, retval);
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Gets the count of segments.
+	 * @return Count.
+	 */
+	public int getSegmentCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_segments.size();
+		}
+	}
+	
+	/**
+	 * Gets the count of observations in the log.
+	 * @return Count.
+	 */
+	public long size()
+	{
+		synchronized (m_lock)
+		{
+			long retval = 0;
+			
+			for (Segment segment : m_segments)
+			{
+				retval += segment.recordCount;
+			}
+			
+			return retval;
+		}
+	}
+	
+	/**
+	 * Removes the segments where all observations are older than the retention
+	 * period. The active segment is never removed. If there is no retention
+	 * period, this does nothing.
+	 * @return The count of removed segments. This is less than expected if
+	 * a file could not be deleted.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public int applyRetention() throws IOException
+	{
+		if (m_retention == null)
+		{
+			return 0;
+		}
+		
+		return removeOlderThan(new Item_TimeInstant(DateTime.now(DateTimeZone.UTC).minus(m_retention)));
+	}
+	
+	/**
+	 * Removes the segments where the phenomenon time of all observations is
+	 * before the given time. The active segment is never removed.
+	 * @param limit Time limit.
+	 * @return The count of removed segments. This is less than expected if
+	 * a file could not be deleted.
+	 * @throws IOException Thrown if an I/O error occurs.
+	 */
+	public int removeOlderThan(Item_TimeInstant limit) throws IOException
+	{
+		synchronized (m_lock)
+		{
+			checkNotClosed();
+			return removeSegmentsBefore(limit.getValue().getMillis());
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (m_lock)
+		{
+			if (!m_closed)
+			{
+				m_closed = true;
+				m_activeChannel.close();
+			}
+		}
+	}
+	
+	private void checkNotClosed()
+	{
+		if (m_closed)
+		{
+			throw new IllegalStateException("The log has been closed");
+		}
+	}
+	
+	private void rollOver() throws IOException
+	{
+		m_activeChannel.force(false);
+		m_activeChannel.close();
+		
+		long nextSequence = m_activeSegment.sequence + 1;
+		m_activeSegment = createSegment(nextSequence);
+		m_activeChannel = openForAppend(m_activeSegment.file);
+		
+		// Retention is checked here, because rollover is the first moment when
+		// another segment may have expired
+		if (m_retention != null)
+		{
+			removeSegmentsBefore(DateTime.now(DateTimeZone.UTC).minus(m_retention).getMillis());
+		}
+	}
+	
+	private int removeSegmentsBefore(long limit)
+	{
+		int removed = 0;
+		
+		while (m_segments.size() > 1 && m_segments.get(0).maxPhenoTime < limit)
+		{
+			Segment segment = m_segments.get(0);
+			
+			// The file is deleted first so that a failure leaves the segment in
+			// use. This is not thrown, as it would fail an append that caused a
+			// rollover. The later segments are kept to remain contiguous.
+			// Ongoing queries still hold the mapping, which remains valid on most
+			// platforms even after the file has been deleted.
+			if (!segment.file.delete())
+			{
+				break;
+			}
+			
+			m_segments.remove(0);
+			++removed;
+		}
+		
+		return removed;
+	}
+	
+	private Segment createSegment(long sequence) throws IOException
+	{
+		File file = new File(m_directory, String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+		{
+			writeFileHeader(channel);
+		}
+		
+		Segment retval = new Segment(file, sequence);
+		retval.length = FILE_HEADER_LENGTH;
+		m_segments.add(retval);
+		return retval;
+	}
+	
+	private static void writeFileHeader(FileChannel channel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+		header.put(FILE_MAGIC);
+		header.putInt(FILE_VERSION);
+		header.flip();
+		
+		while (header.hasRemaining())
+		{
+			channel.write(header, header.position());
+		}
+	}
+	
+	private static boolean readFileHeader(FileChannel channel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+		
+		while (header.hasRemaining())
+		{
+			if (channel.read(header, header.position()) < 0)
+			{
+				return false;
+			}
+		}
+		
+		header.flip();
+		byte[] magic = new byte[FILE_MAGIC.length];
+		header.get(magic);
+		return Arrays.equals(magic, FILE_MAGIC) && header.getInt() == FILE_VERSION;
+	}
+	
+	private static FileChannel openForAppend(File file) throws IOException
+	{
+		return FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+	
+	private void recover() throws IOException
+	{
+		// Other files, such as "segment-old.log", are left alone
+		File[] files = m_directory.listFiles((dir, name) -> getSegmentSequence(name) >= 0);
+		
+		if (files == null)
+		{
+			throw new IOException("Failed to list directory " + m_directory.getPath());
+		}
+		
+		// The zero-padded sequence number makes the name order chronological
+		Arrays.sort(files);
+		
+		for (int a = 0; a < files.length; ++a)
+		{
+			boolean isLast = a == files.length - 1;
+			Segment segment = new Segment(files[a], getSegmentSequence(files[a].getName()));
+			scanSegment(segment, isLast);
+			m_segments.add(segment);
+		}
+		
+		if (m_segments.isEmpty())
+		{
+			m_activeSegment = createSegment(0);
+		}
+		else
+		{
+			m_activeSegment = m_segments.get(m_segments.size() - 1);
+		}
+		
+		m_activeChannel = openForAppend(m_activeSegment.file);
+	}
+	
+	/**
+	 * Parses the sequence number from the name of a segment file.
+	 * @param name File name.
+	 * @return Sequence number or -1 if the name is not that of a segment.
+	 */
+	private static long getSegmentSequence(String name)
+	{
+		// The names have a sequence number of exactly 20 digits
+		if (name.length() != SEGMENT_PREFIX.length() + 20 + SEGMENT_SUFFIX.length() ||
+				!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+		{
+			return -1;
+		}
+		
+		String digits = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+		
+		for (int a = 0; a < digits.length(); ++a)
+		{
+			if (digits.charAt(a) < '0' || digits.charAt(a) > '9')
+			{
+				return -1;
+			}
+		}
+		
+		try
+		{
+			return Long.parseLong(digits);
+		}
+		catch (NumberFormatException e)
+		{
+			// Too great for a sequence number
+			return -1;
+		}
+	}
+	
+	private void scanSegment(Segment segment, boolean isLast) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			long fileLength = channel.size();
+			
+			if (!readFileHeader(channel))
+			{
+				// A crash while creating the newest segment may leave the header
+				// incomplete. No records can follow such a header.
+				if (!isLast || fileLength > FILE_HEADER_LENGTH)
+				{
+					throw new IOException("Invalid segment file " + segment.file.getPath());
+				}
+				
+				channel.truncate(0);
+				writeFileHeader(channel);
+				fileLength = FILE_HEADER_LENGTH;
+			}
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+			long position = FILE_HEADER_LENGTH;
+			
+			while (position < fileLength)
+			{
+				RecordHeader header = readRecordHeader(buffer, (int)position, (int)fileLength, true);
+				
+				if (header == null)
+				{
+					if (!isLast)
+					{
+						throw new IOException("Corrupted record in " + segment.file.getPath() + " at " + position);
+					}
+					
+					// An incomplete record due to a crash; dropping it
+					channel.truncate(position);
+					break;
+				}
+				
+				int recordLength = RECORD_HEADER_LENGTH + header.bodyLength;
+				segment.addRecord(position, recordLength, header.phenoTime, header.resultTime, header.feature, header.property);
+				position += recordLength;
+			}
+			
+			segment.length = position;
+		}
+	}
+	
+	private static ByteBuffer encodeRecord(long phenoTime, long resultTime, String feature, String property, byte[] payload)
+	{
+		byte[] featureBytes = feature == null ? null : feature.getBytes(StandardCharsets.UTF_8);
+		byte[] propertyBytes = property == null ? null : property.getBytes(StandardCharsets.UTF_8);
+		
+		if ((featureBytes != null && featureBytes.length > Short.MAX_VALUE) ||
+				(propertyBytes != null && propertyBytes.length > Short.MAX_VALUE))
+		{
+			throw new IllegalArgumentException("Feature of interest or observed property is too long");
+		}
+		
+		int bodyLength = 8 + 8 + 2 + lengthOf(featureBytes) + 2 + lengthOf(propertyBytes) + payload.length;
+		ByteBuffer retval = ByteBuffer.allocate(RECORD_HEADER_LENGTH + bodyLength);
+		retval.putInt(bodyLength);
+		retval.putInt(0); // CRC placeholder
+		retval.putLong(phenoTime);
+		retval.putLong(resultTime);
+		putString(retval, featureBytes);
+		putString(retval, propertyBytes);
+		retval.put(payload);
+		
+		CRC32 crc = new CRC32();
+		crc.update(retval.array(), RECORD_HEADER_LENGTH, bodyLength);
+		retval.putInt(4, (int)crc.getValue());
+		retval.flip();
+		return retval;
+	}
+	
+	private static int lengthOf(byte[] bytes)
+	{
+		return bytes == null ? 0 : bytes.length;
+	}
+	
+	private static void putString(ByteBuffer buffer, byte[] bytes)
+	{
+		if (bytes == null)
+		{
+			buffer.putShort((short)-1);
+		}
+		else
+		{
+			buffer.putShort((short)bytes.length);
+			buffer.put(bytes);
+		}
+	}
+	
+	private static String getString(ByteBuffer buffer, int position, int length)
+	{
+		if (length < 0)
+		{
+			return null;
+		}
+		
+		byte[] bytes = new byte[length];
+		
+		for (int a = 0; a < length; ++a)
+		{
+			bytes[a] = buffer.get(position + a);
+		}
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Reads a record header.
+	 * @param buffer Buffer.
+	 * @param position Position of the record.
+	 * @param limit The end of valid data.
+	 * @param verify Whether to verify the checksum.
+	 * @return Header or null if the record is incomplete or corrupted.
+	 */
+	private static RecordHeader readRecordHeader(ByteBuffer buffer, int position, int limit, boolean verify)
+	{
+		if (limit - position < RECORD_HEADER_LENGTH)
+		{
+			return null;
+		}
+		
+		int bodyLength = buffer.getInt(position);
+		int bodyStart = position + RECORD_HEADER_LENGTH;
+		
+		if (bodyLength < 20 || bodyLength > limit - bodyStart)
+		{
+			return null;
+		}
+		
+		if (verify)
+		{
+			ByteBuffer body = buffer.duplicate();
+			body.position(bodyStart);
+			body.limit(bodyStart + bodyLength);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			
+			if ((int)crc.getValue() != buffer.getInt(position + 4))
+			{
+				return null;
+			}
+		}
+		
+		RecordHeader retval = new RecordHeader();
+		retval.bodyLength = bodyLength;
+		retval.phenoTime = buffer.getLong(bodyStart);
+		retval.resultTime = buffer.getLong(bodyStart + 8);
+		int featureLength = buffer.getShort(bodyStart + 16);
+		retval.feature = getString(buffer, bodyStart + 18, featureLength);
+		int propertyPos = bodyStart + 18 + Math.max(featureLength, 0);
+		int propertyLength = buffer.getShort(propertyPos);
+		retval.property = getString(buffer, propertyPos + 2, propertyLength);
+		retval.payloadStart = propertyPos + 2 + Math.max(propertyLength, 0);
+		retval.payloadLength = bodyStart + bodyLength - retval.payloadStart;
+		return retval;
+	}
+	
+	
+	/**
+	 * The header information of a record.
+	 */
+	private static final class RecordHeader
+	{
+		int bodyLength;
+		long phenoTime;
+		long resultTime;
+		String feature;
+		String property;
+		int payloadStart;
+		int payloadLength;
+	}
+	
+	/**
+	 * A segment file and its in-memory statistics. Modified only while holding the lock of the log.
+	 */
+	private static final class Segment
+	{
+		final File file;
+		final long sequence;
+		long length = 0;
+		int recordCount = 0;
+		
+		long minPhenoTime = Long.MAX_VALUE;
+		long maxPhenoTime = Long.MIN_VALUE;
+		long minResultTime = Long.MAX_VALUE;
+		long maxResultTime = Long.MIN_VALUE;
+		
+		// Min and max phenomenon time by feature and property
+		final HashMap<String, long[]> featureStats = new HashMap<>();
+		final HashMap<String, long[]> propertyStats = new HashMap<>();
+		
+		// Sparse index; one entry per block of records. The arrays are replaced
+		// when grown. An offset is never modified after it has been written,
+		// so snapshots can share the offsets. The stats of the last block change
+		// with each record, so snapshots copy the stats.
+		long[] blockOffsets = new long[16];
+		long[] blockStats = new long[16 * 4]; // Pheno min, pheno max, result min, result max
+		int blockCount = 0;
+		
+		// A cached mapping for queries
+		MappedByteBuffer mapping = null;
+		
+		Segment(File f, long seq)
+		{
+			file = f;
+			sequence = seq;
+		}
+		
+		void addRecord(long position, int recordLength, long phenoTime, long resultTime, String feature, String property)
+		{
+			if (recordCount % BLOCK_SIZE == 0)
+			{
+				// Starting a new block
+				if (blockCount == blockOffsets.length)
+				{
+					blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+					blockStats = Arrays.copyOf(blockStats, blockCount * 2 * 4);
+				}
+				
+				blockOffsets[blockCount] = position;
+				blockStats[blockCount * 4] = Long.MAX_VALUE;
+				blockStats[blockCount * 4 + 1] = Long.MIN_VALUE;
+				blockStats[blockCount * 4 + 2] = Long.MAX_VALUE;
+				blockStats[blockCount * 4 + 3] = Long.MIN_VALUE;
+				++blockCount;
+			}
+			
+			int statIndex = (blockCount - 1) * 4;
+			blockStats[statIndex] = Math.min(blockStats[statIndex], phenoTime);
+			blockStats[statIndex + 1] = Math.max(blockStats[statIndex + 1], phenoTime);
+			blockStats[statIndex + 2] = Math.min(blockStats[statIndex + 2], resultTime);
+			blockStats[statIndex + 3] = Math.max(blockStats[statIndex + 3], resultTime);
+			
+			minPhenoTime = Math.min(minPhenoTime, phenoTime);
+			maxPhenoTime = Math.max(maxPhenoTime, phenoTime);
+			minResultTime = Math.min(minResultTime, resultTime);
+			maxResultTime = Math.max(maxResultTime, resultTime);
+			updateStats(featureStats, feature, phenoTime);
+			updateStats(propertyStats, property, phenoTime);
+			
+			++recordCount;
+			length = position + recordLength;
+		}
+		
+		boolean mayMatch(ObservationFilter filter)
+		{
+			if (recordCount == 0 || !filter.mayMatchTimes(minPhenoTime, maxPhenoTime, minResultTime, maxResultTime))
+			{
+				return false;
+			}
+			
+			return mayMatchStats(featureStats, filter.getFeaturesOfInterest(), filter) &&
+					mayMatchStats(propertyStats, filter.getObservedProperties(), filter);
+		}
+		
+		SegmentSnapshot snapshot() throws IOException
+		{
+			if (mapping == null || mapping.capacity() < length)
+			{
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+				{
+					mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+				}
+			}
+			
+			return new SegmentSnapshot(mapping, (int)length, blockOffsets, Arrays.copyOf(blockStats, blockCount * 4), blockCount);
+		}
+		
+		private static boolean mayMatchStats(HashMap<String, long[]> stats, Set<String> values, ObservationFilter filter)
+		{
+			if (values == null)
+			{
+				// Not restricted
+				return true;
+			}
+			
+			for (String value : values)
+			{
+				long[] range = stats.get(value);
+				
+				if (range != null && filter.mayMatchTimes(range[0], range[1], Long.MIN_VALUE, Long.MAX_VALUE))
+				{
+					return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		private static void updateStats(HashMap<String, long[]> stats, String key, long phenoTime)
+		{
+			long[] range = stats.get(key);
+			
+			if (range == null)
+			{
+				stats.put(key, new long[] { phenoTime, phenoTime });
+			}
+			else
+			{
+				range[0] = Math.min(range[0], phenoTime);
+				range[1] = Math.max(range[1], phenoTime);
+			}
+		}
+	}
+	
+	/**
+	 * An immutable view of a segment for a query.
+	 */
+	private static final class SegmentSnapshot
+	{
+		private final ByteBuffer m_buffer;
+		private final int m_length;
+		private final long[] m_blockOffsets;
+		private final long[] m_blockStats;
+		private final int m_blockCount;
+		
+		SegmentSnapshot(MappedByteBuffer mapping, int length, long[] blockOffsets, long[] blockStats, int blockCount)
+		{
+			// A duplicate, because the position of a buffer is not thread-safe
+			m_buffer = mapping.duplicate();
+			m_length = length;
+			m_blockOffsets = blockOffsets;
+			m_blockStats = blockStats;
+			m_blockCount = blockCount;
+		}
+		
+		void find(ObservationFilter filter, List<Observation> results) throws IOException
+		{
+			for (int b = 0; b < m_blockCount; ++b)
+			{
+				int statIndex = b * 4;
+				
+				if (!filter.mayMatchTimes(m_blockStats[statIndex], m_blockStats[statIndex + 1], m_blockStats[statIndex + 2], m_blockStats[statIndex + 3]))
+				{
+					continue;
+				}
+				
+				int position = (int)m_blockOffsets[b];
+				int blockEnd = b + 1 < m_blockCount ? (int)m_blockOffsets[b + 1] : m_length;
+				
+				while (position < blockEnd)
+				{
+					RecordHeader header = readRecordHeader(m_buffer, position, m_length, false);
+					
+					if (header == null)
+					{
+						throw new IOException("Corrupted record at " + position);
+					}
+					
+					if (filter.test(header.phenoTime, header.resultTime, header.feature, header.property))
+					{
+						results.add(decode(header));
+					}
+					
+					position += RECORD_HEADER_LENGTH + header.bodyLength;
+				}
+			}
+		}
+		
+		private Observation decode(RecordHeader header) throws IOException
+		{
+			byte[] payload = new byte[header.payloadLength];
+			ByteBuffer view = m_buffer.duplicate();
+			view.position(header.payloadStart);
+			view.get(payload);
+			
+			try
+			{
+				return new Observation(payload);
+			}
+			catch (InvalidMessageException e)
+			{
+				throw new IOException("Failed to decode a stored observation", e);
+			}
+		}
+	}
+}
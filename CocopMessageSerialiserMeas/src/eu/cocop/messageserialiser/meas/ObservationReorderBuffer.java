@@ -0,0 +1,361 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.joda.time.Period;
+
+/**
+ * Puts observations that arrive out of order into the order of phenomenon
+ * time (or result time if the phenomenon time is missing).
+ *
+ * The buffer tracks a watermark, which is the greatest time seen minus the
+ * allowed lateness. The buffered observations up to the watermark are
+ * released in time order; observations with equal times are released in
+ * arrival order. An observation older than the watermark is late, because
+ * it can no longer be released in order, and it goes to the late output
+ * instead.
+ *
+ * The latency is bounded by the allowed lateness, and the memory by the
+ * maximum buffer size: if the buffer is full, the oldest observation is
+ * released and the watermark advances to its time. If the input pauses, call
+ * {@link #advanceWatermark(long)} to release the buffered observations based
+ * on the wall clock, or {@link #flush()} at the end of a stream.
+ *
+ * The buffer is a binary heap on primitive arrays. The methods are thread-safe,
+ * and the outputs are called while holding the lock, so they receive the
+ * observations in order.
+ * @author Petri Kannisto
+ */
+public final class ObservationReorderBuffer
+{
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private final long m_latenessMillis;
+	private final int m_maxSize;
+	private final Consumer<Observation> m_output;
+	private final Consumer<Observation> m_lateOutput;
+	
+	private final Object m_lock = new Object();
+	
+	// The heap; each entry is ordered by time and then by sequence number
+	private long[] m_times = new long[INITIAL_CAPACITY];
+	private long[] m_sequences = new long[INITIAL_CAPACITY];
+	private Observation[] m_observations = new Observation[INITIAL_CAPACITY];
+	private int m_size = 0;
+	private long m_nextSequence = 0;
+	
+	private long m_watermark = Long.MIN_VALUE;
+	
+	// Metrics; guarded by m_lock
+	private long m_releasedCount = 0;
+	private long m_lateCount = 0;
+	private long m_forcedCount = 0;
+	
+	
+	/**
+	 * Constructor.
+	 * @param allowedLateness How much older than the greatest time seen an
+	 * observation can be without being late. This must have a fixed length,
+	 * i.e., no months or years.
+	 * @param maxSize The maximum number of buffered observations.
+	 * @param output Receives the observations in order.
+	 * @param lateOutput Receives the late observations. If null, these are dropped.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public ObservationReorderBuffer(Period allowedLateness, int maxSize, Consumer<Observation> output, Consumer<Observation> lateOutput) throws IllegalArgumentException
+	{
+		if (allowedLateness == null || allowedLateness.getYears() != 0 || allowedLateness.getMonths() != 0)
+		{
+			throw new IllegalArgumentException("The allowed lateness must have a fixed length (no months or years)");
+		}
+		if (maxSize < 1)
+		{
+			throw new IllegalArgumentException("The maximum size must be at least 1");
+		}
+		
+		m_latenessMillis = TimeHelper.getFixedLengthMillis(allowedLateness);
+		
+		if (m_latenessMillis < 0)
+		{
+			throw new IllegalArgumentException("The allowed lateness must be non-negative");
+		}
+		
+		m_maxSize = maxSize;
+		m_output = output;
+		m_lateOutput = lateOutput;
+	}
+	
+	/**
+	 * Adds an observation. This releases the observations that the watermark has passed.
+	 * @param obs Observation.
+	 * @return True if the observation was accepted, false if it was late.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 */
+	public boolean add(Observation obs) throws IllegalArgumentException
+	{
+		long millis = TimeHelper.getTimeMillis(obs);
+		
+		synchronized (m_lock)
+		{
+			if (millis < m_watermark)
+			{
+				++m_lateCount;
+				
+				if (m_lateOutput != null)
+				{
+					m_lateOutput.accept(obs);
+				}
+				
+				return false;
+			}
+			
+			if (m_size == m_maxSize)
+			{
+				++m_forcedCount;
+				
+				if (millis < m_times[0])
+				{
+					// This is the oldest one, so it is released right away
+					m_watermark = millis;
+					++m_releasedCount;
+					m_output.accept(obs);
+					return true;
+				}
+				
+				// Making room by releasing the oldest
+				m_watermark = m_times[0];
+				releaseFirst();
+			}
+			
+			push(millis, obs);
+			
+			if (millis > Long.MIN_VALUE + m_latenessMillis)
+			{
+				m_watermark = Math.max(m_watermark, millis - m_latenessMillis);
+			}
+			
+			releaseUpToWatermark();
+			return true;
+		}
+	}
+	
+	/**
+	 * Advances the watermark if the given time minus the allowed lateness is
+	 * greater than the current watermark. Use this to release the observations
+	 * when the input has paused, e.g., with the current time.
+	 * @param millis Time in epoch milliseconds.
+	 */
+	public void advanceWatermark(long millis)
+	{
+		synchronized (m_lock)
+		{
+			if (millis > Long.MIN_VALUE + m_latenessMillis)
+			{
+				m_watermark = Math.max(m_watermark, millis - m_latenessMillis);
+			}
+			
+			releaseUpToWatermark();
+		}
+	}
+	
+	/**
+	 * Releases all buffered observations. The watermark advances to the time of the last one.
+	 */
+	public void flush()
+	{
+		synchronized (m_lock)
+		{
+			while (m_size > 0)
+			{
+				m_watermark = Math.max(m_watermark, m_times[0]);
+				releaseFirst();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the current watermark.
+	 * @return Watermark in epoch milliseconds or Long.MIN_VALUE if nothing has been received.
+	 */
+	public long getWatermark()
+	{
+		synchronized (m_lock)
+		{
+			return m_watermark;
+		}
+	}
+	
+	/**
+	 * Gets the number of buffered observations.
+	 * @return Count.
+	 */
+	public int getBufferedCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_size;
+		}
+	}
+	
+	/**
+	 * Gets the number of observations released in order.
+	 * @return Count.
+	 */
+	public long getReleasedCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_releasedCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of late observations.
+	 * @return Count.
+	 */
+	public long getLateCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_lateCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of observations released early, because the buffer was full.
+	 * @return Count.
+	 */
+	public long getForcedReleaseCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_forcedCount;
+		}
+	}
+	
+	private void releaseUpToWatermark()
+	{
+		while (m_size > 0 && m_times[0] <= m_watermark)
+		{
+			releaseFirst();
+		}
+	}
+	
+	private void releaseFirst()
+	{
+		Observation obs = m_observations[0];
+		--m_size;
+		
+		if (m_size > 0)
+		{
+			moveEntry(m_size, 0);
+			siftDown(0);
+		}
+		
+		m_observations[m_size] = null;
+		++m_releasedCount;
+		m_output.accept(obs);
+	}
+	
+	private void push(long millis, Observation obs)
+	{
+		if (m_size == m_times.length)
+		{
+			int newCapacity = Math.min(m_maxSize, m_times.length * 2);
+			m_times = Arrays.copyOf(m_times, newCapacity);
+			m_sequences = Arrays.copyOf(m_sequences, newCapacity);
+			m_observations = Arrays.copyOf(m_observations, newCapacity);
+		}
+		
+		int index = m_size++;
+		m_times[index] = millis;
+		m_sequences[index] = m_nextSequence++;
+		m_observations[index] = obs;
+		siftUp(index);
+	}
+	
+	private void siftUp(int index)
+	{
+		long time = m_times[index];
+		long sequence = m_sequences[index];
+		Observation obs = m_observations[index];
+		
+		while (index > 0)
+		{
+			int parent = (index - 1) >>> 1;
+			
+			if (!isLess(time, sequence, parent))
+			{
+				break;
+			}
+			
+			moveEntry(parent, index);
+			index = parent;
+		}
+		
+		m_times[index] = time;
+		m_sequences[index] = sequence;
+		m_observations[index] = obs;
+	}
+	
+	private void siftDown(int index)
+	{
+		long time = m_times[index];
+		long sequence = m_sequences[index];
+		Observation obs = m_observations[index];
+		int half = m_size >>> 1;
+		
+		while (index < half)
+		{
+			int child = 2 * index + 1;
+			int right = child + 1;
+			
+			if (right < m_size && isLess(m_times[right], m_sequences[right], child))
+			{
+				child = right;
+			}
+			
+			if (!isLessThan(m_times[child], m_sequences[child], time, sequence))
+			{
+				break;
+			}
+			
+			moveEntry(child, index);
+			index = child;
+		}
+		
+		m_times[index] = time;
+		m_sequences[index] = sequence;
+		m_observations[index] = obs;
+	}
+	
+	private boolean isLess(long time, long sequence, int index)
+	{
+		return isLessThan(time, sequence, m_times[index], m_sequences[index]);
+	}
+	
+	private static boolean isLessThan(long time1, long sequence1, long time2, long sequence2)
+	{
+		return time1 < time2 || (time1 == time2 && sequence1 < sequence2);
+	}
+	
+	private void moveEntry(int from, int to)
+	{
+		m_times[to] = m_times[from];
+		m_sequences[to] = m_sequences[from];
+		m_observations[to] = m_observations[from];
+	}
+}
@@ -0,0 +1,615 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+/**
+ * An in-memory observation store that answers GetObservationRequests.
+ *
+ * Observations are grouped into series by feature of interest and observed
+ * property. There are hash indices from features and properties to series,
+ * and each series keeps its observations in arrays sorted by phenomenon time
+ * (or result time if the phenomenon time is missing). A temporal query is a binary
+ * search within each candidate series. Result time conditions are mapped to
+ * phenomenon time bounds with the minimum and maximum lag between the two
+ * times in the series, after which each candidate is checked exactly.
+ *
+ * The series are distributed over lock stripes, so that concurrent ingest
+ * and queries only contend if they touch the same stripe. Queries only take
+ * read locks.
+ *
+ * The store keeps references to the observations it receives. Observations
+ * must not be modified after they have been added; otherwise, the indices
+ * become inconsistent.
+ * @author Petri Kannisto
+ */
+public final class ObservationStore
+{
+	private static final int STRIPE_COUNT = 64; // Must be a power of two
+	private static final int RETENTION_CHECK_INTERVAL = 4096; // Must be a power of two
+	
+	private final Period m_retention;
+	
+	private final Stripe[] m_stripes;
+	
+	// Indices from features and properties to series; these are only
+	// modified while holding the write lock of the stripe of the series
+	private final ConcurrentHashMap<String, Set<SeriesKey>> m_featureIndex = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Set<SeriesKey>> m_propertyIndex = new ConcurrentHashMap<>();
+	
+	private final AtomicLong m_size = new AtomicLong(0);
+	private final AtomicLong m_addCounter = new AtomicLong(0);
+	
+	
+	/**
+	 * Constructor. The observations are retained until removed explicitly.
+	 */
+	public ObservationStore()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param retention The age of observations to be retained, measured from
+	 * the current time to the phenomenon time. Older observations are
+	 * removed periodically during ingest and when applyRetention() is called.
+	 * If null, the observations are retained until removed explicitly.
+	 */
+	public ObservationStore(Period retention)
+	{
+		m_retention = retention;
+		m_stripes = new Stripe[STRIPE_COUNT];
+		
+		for (int a = 0; a < STRIPE_COUNT; ++a)
+		{
+			m_stripes[a] = new Stripe();
+		}
+	}
+	
+	/**
+	 * Adds an observation.
+	 * @param obs Observation.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 */
+	public void add(Observation obs) throws IllegalArgumentException
+	{
+		long phenoTime = TimeHelper.getTimeMillis(obs);
+		long resultTime = obs.getResultTime() == null ? phenoTime : obs.getResultTime().getValue().getMillis();
+		
+		SeriesKey key = new SeriesKey(obs.getFeatureOfInterest(), obs.getObservedProperty());
+		Stripe stripe = getStripe(key);
+		
+		stripe.lock.writeLock().lock();
+		
+		try
+		{
+			Series series = stripe.series.get(key);
+			
+			if (series == null)
+			{
+				series = new Series();
+				stripe.series.put(key, series);
+				addToIndex(m_featureIndex, key.feature, key);
+				addToIndex(m_propertyIndex, key.property, key);
+			}
+			
+			series.add(phenoTime, resultTime, obs);
+		}
+		finally
+		{
+			stripe.lock.writeLock().unlock();
+		}
+		
+		m_size.incrementAndGet();
+		
+		if (m_retention != null && (m_addCounter.incrementAndGet() & (RETENTION_CHECK_INTERVAL - 1)) == 0)
+		{
+			applyRetention();
+		}
+	}
+	
+	/**
+	 * Adds multiple observations.
+	 * @param observations Observations.
+	 * @throws IllegalArgumentException Thrown if an observation has neither
+	 * phenomenon time nor result time.
+	 */
+	public void addAll(Collection<Observation> observations) throws IllegalArgumentException
+	{
+		for (Observation obs : observations)
+		{
+			add(obs);
+		}
+	}
+	
+	/**
+	 * Gets the count of observations in the store.
+	 * @return Count.
+	 */
+	public long size()
+	{
+		return m_size.get();
+	}
+	
+	/**
+	 * Answers a request. The items (extension data records) of the request
+	 * are not evaluated.
+	 * @param request Request.
+	 * @return Response with matching observations sorted by phenomenon time.
+	 */
+	public GetObservationResponse query(GetObservationRequest request)
+	{
+		GetObservationResponse retval = new GetObservationResponse();
+		retval.getObservations().addAll(find(ObservationFilter.compile(request)));
+		return retval;
+	}
+	
+	/**
+	 * Finds observations that match a filter.
+	 * @param filter Filter.
+	 * @return Matching observations sorted by phenomenon time.
+	 */
+	public List<Observation> find(ObservationFilter filter)
+	{
+		ArrayList<Hit> hits = new ArrayList<>();
+		
+		for (SeriesKey key : getCandidateSeries(filter))
+		{
+			Stripe stripe = getStripe(key);
+			stripe.lock.readLock().lock();
+			
+			try
+			{
+				Series series = stripe.series.get(key);
+				
+				if (series != null)
+				{
+					series.find(filter, hits);
+				}
+			}
+			finally
+			{
+				stripe.lock.readLock().unlock();
+			}
+		}
+		
+		// Series are sorted individually, so a merge is needed
+		Collections.sort(hits);
+		ArrayList<Observation> retval = new ArrayList<>(hits.size());
+		
+		for (Hit hit : hits)
+		{
+			retval.add(hit.observation);
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Removes the observations that are older than the retention period. If
+	 * there is no retention period, this does nothing.
+	 */
+	public void applyRetention()
+	{
+		if (m_retention != null)
+		{
+			removeOlderThan(new Item_TimeInstant(DateTime.now(DateTimeZone.UTC).minus(m_retention)));
+		}
+	}
+	
+	/**
+	 * Removes the observations with a phenomenon time before the given time.
+	 * @param limit Time limit.
+	 * @return The count of removed observations.
+	 */
+	public long removeOlderThan(Item_TimeInstant limit)
+	{
+		long limitMillis = limit.getValue().getMillis();
+		long removed = 0;
+		
+		for (Stripe stripe : m_stripes)
+		{
+			stripe.lock.writeLock().lock();
+			
+			try
+			{
+				ArrayList<SeriesKey> emptied = new ArrayList<>();
+				
+				for (Map.Entry<SeriesKey, Series> entry : stripe.series.entrySet())
+				{
+					removed += entry.getValue().removeBefore(limitMillis);
+					
+					if (entry.getValue().size() == 0)
+					{
+						emptied.add(entry.getKey());
+					}
+				}
+				
+				// Removing empty series to release memory
+				for (SeriesKey key : emptied)
+				{
+					stripe.series.remove(key);
+					removeFromIndex(m_featureIndex, key.feature, key);
+					removeFromIndex(m_propertyIndex, key.property, key);
+				}
+			}
+			finally
+			{
+				stripe.lock.writeLock().unlock();
+			}
+		}
+		
+		m_size.addAndGet(-removed);
+		return removed;
+	}
+	
+	/**
+	 * Gets the count of features and properties in the lookup indexes.
+	 * @return Count.
+	 */
+	int getIndexedValueCount()
+	{
+		return m_featureIndex.size() + m_propertyIndex.size();
+	}
+	
+	private Collection<SeriesKey> getCandidateSeries(ObservationFilter filter)
+	{
+		Set<String> features = filter.getFeaturesOfInterest();
+		Set<String> properties = filter.getObservedProperties();
+		ArrayList<SeriesKey> retval = new ArrayList<>();
+		
+		if (features != null && properties != null)
+		{
+			// Direct lookups
+			for (String f : features)
+			{
+				for (String p : properties)
+				{
+					retval.add(new SeriesKey(f, p));
+				}
+			}
+		}
+		else if (features != null)
+		{
+			addFromIndex(m_featureIndex, features, retval);
+		}
+		else if (properties != null)
+		{
+			addFromIndex(m_propertyIndex, properties, retval);
+		}
+		else
+		{
+			// No restriction; taking all series
+			for (Set<SeriesKey> keys : m_featureIndex.values())
+			{
+				retval.addAll(keys);
+			}
+		}
+		
+		return retval;
+	}
+	
+	private static void addFromIndex(ConcurrentHashMap<String, Set<SeriesKey>> index, Set<String> values, ArrayList<SeriesKey> target)
+	{
+		for (String value : values)
+		{
+			Set<SeriesKey> keys = index.get(value);
+			
+			if (keys != null)
+			{
+				target.addAll(keys);
+			}
+		}
+	}
+	
+	private static void addToIndex(ConcurrentHashMap<String, Set<SeriesKey>> index, String value, SeriesKey key)
+	{
+		// Changing the set within compute() is atomic with respect to the
+		// removal of the set, so an add cannot go to a set just removed
+		index.compute(value, (v, keys) ->
+		{
+			Set<SeriesKey> retval = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+			retval.add(key);
+			return retval;
+		});
+	}
+	
+	private static void removeFromIndex(ConcurrentHashMap<String, Set<SeriesKey>> index, String value, SeriesKey key)
+	{
+		// An empty set is removed to release memory
+		index.computeIfPresent(value, (v, keys) ->
+		{
+			keys.remove(key);
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+	
+	private Stripe getStripe(SeriesKey key)
+	{
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return m_stripes[h & (STRIPE_COUNT - 1)];
+	}
+	
+	
+	/**
+	 * A lock stripe and the series that belong to it.
+	 */
+	private static final class Stripe
+	{
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		final HashMap<SeriesKey, Series> series = new HashMap<>();
+	}
+	
+	/**
+	 * Identifies a series. Null values are allowed.
+	 */
+	private static final class SeriesKey
+	{
+		final String feature;
+		final String property;
+		private final int m_hash;
+		
+		SeriesKey(String f, String p)
+		{
+			feature = f == null ? "" : f;
+			property = p == null ? "" : p;
+			m_hash = 31 * feature.hashCode() + property.hashCode();
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return m_hash;
+		}
+		
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof SeriesKey))
+			{
+				return false;
+			}
+			
+			SeriesKey otherKey = (SeriesKey)other;
+			return m_hash == otherKey.m_hash && feature.equals(otherKey.feature) && property.equals(otherKey.property);
+		}
+	}
+	
+	/**
+	 * A query result before the merge of series.
+	 */
+	private static final class Hit implements Comparable<Hit>
+	{
+		final long phenoTime;
+		final Observation observation;
+		
+		Hit(long t, Observation o)
+		{
+			phenoTime = t;
+			observation = o;
+		}
+		
+		@Override
+		public int compareTo(Hit other)
+		{
+			return Long.compare(phenoTime, other.phenoTime);
+		}
+	}
+	
+	/**
+	 * Observations of one feature and property, sorted by phenomenon time.
+	 * The valid entries are between m_start (inclusive) and m_end (exclusive),
+	 * which makes the removal of old entries cheap.
+	 */
+	private static final class Series
+	{
+		private long[] m_phenoTimes = new long[8];
+		private long[] m_resultTimes = new long[8];
+		private Observation[] m_observations = new Observation[8];
+		private int m_start = 0;
+		private int m_end = 0;
+		
+		// The range of (result time - phenomenon time)
+		private long m_minLag = Long.MAX_VALUE;
+		private long m_maxLag = Long.MIN_VALUE;
+		
+		int size()
+		{
+			return m_end - m_start;
+		}
+		
+		void add(long phenoTime, long resultTime, Observation obs)
+		{
+			ensureCapacity();
+			
+			// Usually, observations arrive in order, so appending is the common case
+			int position = m_end;
+			
+			if (m_end > m_start && m_phenoTimes[m_end - 1] > phenoTime)
+			{
+				// Insertion after any equal values keeps the arrival order
+				position = upperBound(phenoTime);
+				int moved = m_end - position;
+				System.arraycopy(m_phenoTimes, position, m_phenoTimes, position + 1, moved);
+				System.arraycopy(m_resultTimes, position, m_resultTimes, position + 1, moved);
+				System.arraycopy(m_observations, position, m_observations, position + 1, moved);
+			}
+			
+			m_phenoTimes[position] = phenoTime;
+			m_resultTimes[position] = resultTime;
+			m_observations[position] = obs;
+			++m_end;
+			
+			long lag = resultTime - phenoTime;
+			m_minLag = Math.min(m_minLag, lag);
+			m_maxLag = Math.max(m_maxLag, lag);
+		}
+		
+		void find(ObservationFilter filter, ArrayList<Hit> hits)
+		{
+			if (size() == 0)
+			{
+				return;
+			}
+			
+			long after = filter.getPhenomenonTimeAfter();
+			long before = filter.getPhenomenonTimeBefore();
+			
+			// Mapping result time bounds to phenomenon time
+			if (filter.getResultTimeAfter() != Long.MIN_VALUE)
+			{
+				after = Math.max(after, saturatingSubtract(filter.getResultTimeAfter(), m_maxLag));
+			}
+			
+			if (filter.getResultTimeBefore() != Long.MAX_VALUE)
+			{
+				before = Math.min(before, saturatingSubtract(filter.getResultTimeBefore(), m_minLag));
+			}
+			
+			// The interval is open, so the first candidate is after any equal values
+			int first = after == Long.MIN_VALUE ? m_start : upperBound(after);
+			
+			for (int a = first; a < m_end && m_phenoTimes[a] < before; ++a)
+			{
+				// The exact check; this also covers the conditions on result time
+				if (filter.test(m_observations[a]))
+				{
+					hits.add(new Hit(m_phenoTimes[a], m_observations[a]));
+				}
+			}
+		}
+		
+		int removeBefore(long limit)
+		{
+			int newStart = lowerBound(limit);
+			int removed = newStart - m_start;
+			
+			// Releasing references
+			Arrays.fill(m_observations, m_start, newStart, null);
+			m_start = newStart;
+			
+			if (m_start == m_end)
+			{
+				m_start = 0;
+				m_end = 0;
+			}
+			
+			return removed;
+		}
+		
+		private void ensureCapacity()
+		{
+			if (m_end < m_phenoTimes.length)
+			{
+				return;
+			}
+			
+			int count = size();
+			
+			if (m_start > 0 && count < m_phenoTimes.length / 2)
+			{
+				// Compacting is enough
+				System.arraycopy(m_phenoTimes, m_start, m_phenoTimes, 0, count);
+				System.arraycopy(m_resultTimes, m_start, m_resultTimes, 0, count);
+				System.arraycopy(m_observations, m_start, m_observations, 0, count);
+				Arrays.fill(m_observations, count, m_end, null);
+			}
+			else
+			{
+				int newLength = m_phenoTimes.length * 2;
+				m_phenoTimes = Arrays.copyOfRange(m_phenoTimes, m_start, m_start + newLength);
+				m_resultTimes = Arrays.copyOfRange(m_resultTimes, m_start, m_start + newLength);
+				m_observations = Arrays.copyOfRange(m_observations, m_start, m_start + newLength);
+			}
+			
+			m_start = 0;
+			m_end = count;
+		}
+		
+		// The first index with a value greater than the given
+		private int upperBound(long value)
+		{
+			int low = m_start;
+			int high = m_end;
+			
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				
+				if (m_phenoTimes[mid] <= value)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+			
+			return low;
+		}
+		
+		// The first index with a value greater than or equal to the given
+		private int lowerBound(long value)
+		{
+			int low = m_start;
+			int high = m_end;
+			
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				
+				if (m_phenoTimes[mid] < value)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+			
+			return low;
+		}
+		
+		private static long saturatingSubtract(long a, long b)
+		{
+			long retval = a - b;
+			
+			// Overflow occurs if the operands have different signs and the sign of the result differs from a
+			if (((a ^ b) & (a ^ retval)) < 0)
+			{
+				return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+			}
+			
+			return retval;
+		}
+	}
+}
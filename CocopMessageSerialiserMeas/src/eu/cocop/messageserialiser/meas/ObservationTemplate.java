@@ -0,0 +1,525 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Serialises observations that differ from a prototype only in the
+ * phenomenon time, result time, result value and result quality. The
+ * constant parts of the XML are rendered once, and the variable fields are
+ * written between them. The output is byte-identical to
+ * {@link Observation#toXmlBytes(boolean)}.
+ *
+ * The supported result types are Item_Boolean, Item_Category, Item_Count,
+ * Item_Measurement and Item_Text. For a measurement, the unit of measure is
+ * constant. The objects are immutable and thread-safe.
+ * @author Petri Kannisto
+ */
+public final class ObservationTemplate
+{
+	private static final int FIELD_PHENOMENON_TIME = 0;
+	private static final int FIELD_RESULT_TIME = 1;
+	private static final int FIELD_QUALITY = 2;
+	private static final int FIELD_RESULT = 3;
+	private static final int FIELD_COUNT = 4;
+	
+	// The values that mark the variable fields in the rendered prototype
+	private static final String SENTINEL_TEXT = "sentinel_9c4e1f7a";
+	private static final String SENTINEL_QUALITY = DataQuality.BAD + "/quality_9c4e1f7a";
+	private static final double SENTINEL_DOUBLE = -1.2345678901234567E-300;
+	private static final long SENTINEL_LONG = Long.MIN_VALUE + 4321;
+	private static final Item_TimeInstant SENTINEL_PHENOMENON_TIME = new Item_TimeInstant(new DateTime(1111, 11, 11, 11, 11, 11, 111, DateTimeZone.UTC));
+	private static final Item_TimeInstant SENTINEL_RESULT_TIME = new Item_TimeInstant(new DateTime(1222, 12, 12, 12, 12, 12, 122, DateTimeZone.UTC));
+	
+	private final String m_name;
+	private final String m_description;
+	private final String m_procedure;
+	private final String m_observedProperty;
+	private final String m_featureOfInterest;
+	private final Class<? extends Item> m_resultType;
+	private final String m_unitOfMeasure;
+	private final boolean m_minimalNamespaces;
+	private final Charset m_charset;
+	
+	// The constant fragments; there is one more fragment than fields
+	private final byte[][] m_fragments = new byte[FIELD_COUNT + 1][];
+	
+	// The fields in the order of appearance
+	private final int[] m_fieldOrder = new int[FIELD_COUNT];
+	
+	private final boolean m_resultIsAttribute;
+	
+	
+	/**
+	 * Constructor. The output will equal {@link Observation#toXmlBytes()}.
+	 * @param prototype Observation to take the constant fields from.
+	 * @throws IllegalArgumentException Thrown if the result type is not supported.
+	 */
+	public ObservationTemplate(Observation prototype) throws IllegalArgumentException
+	{
+		this(prototype, false);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param prototype Observation to take the constant fields from.
+	 * @param minimalNamespaces See {@link Observation#toXmlBytes(boolean)}.
+	 * @throws IllegalArgumentException Thrown if the result type is not supported.
+	 */
+	public ObservationTemplate(Observation prototype, boolean minimalNamespaces) throws IllegalArgumentException
+	{
+		m_name = prototype.getName();
+		m_description = prototype.getDescription();
+		m_procedure = prototype.getProcedure();
+		m_observedProperty = prototype.getObservedProperty();
+		m_featureOfInterest = prototype.getFeatureOfInterest();
+		m_resultType = prototype.getResult().getClass();
+		m_unitOfMeasure = m_resultType == Item_Measurement.class ? ((Item_Measurement)prototype.getResult()).getUnitOfMeasure() : null;
+		m_minimalNamespaces = minimalNamespaces;
+		
+		// The minimal output is always UTF-8, whereas JAXB writes with the default charset
+		m_charset = minimalNamespaces ? StandardCharsets.UTF_8 : Charset.defaultCharset();
+		m_resultIsAttribute = m_resultType == Item_Category.class;
+		
+		// Rendering the prototype with sentinels in the variable fields
+		Item sentinelResult;
+		String sentinelResultText;
+		
+		if (m_resultType == Item_Boolean.class)
+		{
+			sentinelResult = new Item_Boolean(true);
+			sentinelResultText = null; // Located by position
+		}
+		else if (m_resultType == Item_Category.class)
+		{
+			sentinelResult = new Item_Category(SENTINEL_TEXT);
+			sentinelResultText = SENTINEL_TEXT;
+		}
+		else if (m_resultType == Item_Count.class)
+		{
+			sentinelResult = new Item_Count(SENTINEL_LONG);
+			sentinelResultText = Long.toString(SENTINEL_LONG);
+		}
+		else if (m_resultType == Item_Measurement.class)
+		{
+			sentinelResult = new Item_Measurement(m_unitOfMeasure, SENTINEL_DOUBLE);
+			sentinelResultText = XmlHelper.serialiseXmlDouble(SENTINEL_DOUBLE);
+		}
+		else if (m_resultType == Item_Text.class)
+		{
+			sentinelResult = new Item_Text(SENTINEL_TEXT);
+			sentinelResultText = SENTINEL_TEXT;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported result type " + m_resultType.getSimpleName());
+		}
+		
+		byte[] rendered = createObservation(SENTINEL_PHENOMENON_TIME, SENTINEL_RESULT_TIME, sentinelResult,
+				new DataQuality(SENTINEL_QUALITY)).toXmlBytes(minimalNamespaces);
+		
+		// Locating the fields
+		int[] starts = new int[FIELD_COUNT];
+		int[] lengths = new int[FIELD_COUNT];
+		locate(rendered, SENTINEL_PHENOMENON_TIME.toXsdDateTime(), FIELD_PHENOMENON_TIME, starts, lengths);
+		locate(rendered, SENTINEL_RESULT_TIME.toXsdDateTime(), FIELD_RESULT_TIME, starts, lengths);
+		locate(rendered, SENTINEL_QUALITY, FIELD_QUALITY, starts, lengths);
+		
+		if (sentinelResultText != null)
+		{
+			locate(rendered, sentinelResultText, FIELD_RESULT, starts, lengths);
+		}
+		else
+		{
+			// The result is the last element, so its value is the last text content
+			byte[] valueInContext = ">true<".getBytes(StandardCharsets.US_ASCII);
+			starts[FIELD_RESULT] = lastIndexOf(rendered, valueInContext) + 1;
+			lengths[FIELD_RESULT] = 4;
+		}
+		
+		// Splitting the rendering to constant fragments
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			m_fieldOrder[a] = a;
+		}
+		
+		for (int a = 1; a < FIELD_COUNT; ++a)
+		{
+			for (int b = a; b > 0 && starts[m_fieldOrder[b]] < starts[m_fieldOrder[b - 1]]; --b)
+			{
+				int temp = m_fieldOrder[b];
+				m_fieldOrder[b] = m_fieldOrder[b - 1];
+				m_fieldOrder[b - 1] = temp;
+			}
+		}
+		
+		int position = 0;
+		
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			int field = m_fieldOrder[a];
+			m_fragments[a] = Arrays.copyOfRange(rendered, position, starts[field]);
+			position = starts[field] + lengths[field];
+		}
+		
+		m_fragments[FIELD_COUNT] = Arrays.copyOfRange(rendered, position, rendered.length);
+	}
+	
+	/**
+	 * Whether an observation has the same constant fields as the template.
+	 * @param obs Observation.
+	 * @return True if matches, otherwise false.
+	 */
+	public boolean matches(Observation obs)
+	{
+		Item result = obs.getResult();
+		
+		return result != null && result.getClass() == m_resultType &&
+				(m_unitOfMeasure == null || m_unitOfMeasure.equals(((Item_Measurement)result).getUnitOfMeasure())) &&
+				sameText(m_name, obs.getName()) &&
+				sameText(m_description, obs.getDescription()) &&
+				m_procedure.equals(obs.getProcedure()) &&
+				m_observedProperty.equals(obs.getObservedProperty()) &&
+				m_featureOfInterest.equals(obs.getFeatureOfInterest());
+	}
+	
+	/**
+	 * Serialises an observation that matches the template.
+	 * @param obs Observation.
+	 * @return Serialised presentation.
+	 * @throws IllegalArgumentException Thrown if the observation does not match the template.
+	 */
+	public byte[] toXmlBytes(Observation obs) throws IllegalArgumentException
+	{
+		checkMatches(obs);
+		return toXmlBytes(obs.getPhenomenonTime(), obs.getResultTime(), obs.getResult(), obs.getResultQuality());
+	}
+	
+	/**
+	 * Serialises an observation that matches the template. The fragments are
+	 * written to the stream as such, so consider buffering.
+	 * @param obs Observation.
+	 * @param output Stream to write to.
+	 * @throws IllegalArgumentException Thrown if the observation does not match the template.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	public void write(Observation obs, OutputStream output) throws IllegalArgumentException, IOException
+	{
+		checkMatches(obs);
+		write(obs.getPhenomenonTime(), obs.getResultTime(), obs.getResult(), obs.getResultQuality(), output);
+	}
+	
+	/**
+	 * Serialises an observation with the constant fields of the template.
+	 * @param phenomenonTime Phenomenon time or null to use the result time.
+	 * @param resultTime Result time.
+	 * @param result Result. The type must be that of the template.
+	 * @param quality Result quality.
+	 * @return Serialised presentation.
+	 * @throws IllegalArgumentException Thrown if the result does not match the template.
+	 */
+	public byte[] toXmlBytes(Item_TimeInstant phenomenonTime, Item_TimeInstant resultTime, Item result, DataQuality quality) throws IllegalArgumentException
+	{
+		byte[][] encoded = encodeFields(phenomenonTime, resultTime, result, quality);
+		
+		if (encoded == null)
+		{
+			return createObservation(phenomenonTime, resultTime, result, quality).toXmlBytes(m_minimalNamespaces);
+		}
+		
+		int length = m_fragments[FIELD_COUNT].length;
+		
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			length += m_fragments[a].length + encoded[a].length;
+		}
+		
+		byte[] retval = new byte[length];
+		int position = 0;
+		
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			System.arraycopy(m_fragments[a], 0, retval, position, m_fragments[a].length);
+			position += m_fragments[a].length;
+			System.arraycopy(encoded[a], 0, retval, position, encoded[a].length);
+			position += encoded[a].length;
+		}
+		
+		System.arraycopy(m_fragments[FIELD_COUNT], 0, retval, position, m_fragments[FIELD_COUNT].length);
+		return retval;
+	}
+	
+	/**
+	 * Serialises an observation with the constant fields of the template.
+	 * @param phenomenonTime Phenomenon time or null to use the result time.
+	 * @param resultTime Result time.
+	 * @param result Result. The type must be that of the template.
+	 * @param quality Result quality.
+	 * @param output Stream to write to.
+	 * @throws IllegalArgumentException Thrown if the result does not match the template.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	public void write(Item_TimeInstant phenomenonTime, Item_TimeInstant resultTime, Item result, DataQuality quality, OutputStream output)
+			throws IllegalArgumentException, IOException
+	{
+		byte[][] encoded = encodeFields(phenomenonTime, resultTime, result, quality);
+		
+		if (encoded == null)
+		{
+			output.write(createObservation(phenomenonTime, resultTime, result, quality).toXmlBytes(m_minimalNamespaces));
+			return;
+		}
+		
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			output.write(m_fragments[a]);
+			output.write(encoded[a]);
+		}
+		
+		output.write(m_fragments[FIELD_COUNT]);
+	}
+	
+	private void checkMatches(Observation obs) throws IllegalArgumentException
+	{
+		if (!matches(obs))
+		{
+			throw new IllegalArgumentException("The observation does not match the template");
+		}
+	}
+	
+	/**
+	 * Encodes the variable fields in the order of appearance.
+	 * @return Encoded fields or null if the values require a full rendering.
+	 */
+	private byte[][] encodeFields(Item_TimeInstant phenomenonTime, Item_TimeInstant resultTime, Item result, DataQuality quality) throws IllegalArgumentException
+	{
+		if (result.getClass() != m_resultType ||
+				(m_unitOfMeasure != null && !m_unitOfMeasure.equals(((Item_Measurement)result).getUnitOfMeasure())))
+		{
+			throw new IllegalArgumentException("The result does not match the template");
+		}
+		
+		String[] values = new String[FIELD_COUNT];
+		values[FIELD_PHENOMENON_TIME] = (phenomenonTime == null ? resultTime : phenomenonTime).toXsdDateTime();
+		values[FIELD_RESULT_TIME] = resultTime.toXsdDateTime();
+		values[FIELD_QUALITY] = escape(quality.getValue(), true);
+		values[FIELD_RESULT] = escape(getResultValue(result), m_resultIsAttribute);
+		
+		if (values[FIELD_QUALITY] == null || values[FIELD_RESULT] == null)
+		{
+			// Characters that JAXB handles specially
+			return null;
+		}
+		
+		byte[][] retval = new byte[FIELD_COUNT][];
+		
+		for (int a = 0; a < FIELD_COUNT; ++a)
+		{
+			retval[a] = encode(values[m_fieldOrder[a]]);
+		}
+		
+		return retval;
+	}
+	
+	private Observation createObservation(Item_TimeInstant phenomenonTime, Item_TimeInstant resultTime, Item result, DataQuality quality)
+	{
+		try
+		{
+			Observation retval = new Observation(result);
+			retval.setName(m_name);
+			retval.setDescription(m_description);
+			retval.setProcedure(m_procedure);
+			retval.setObservedProperty(m_observedProperty);
+			retval.setFeatureOfInterest(m_featureOfInterest);
+			retval.setPhenomenonTime(phenomenonTime);
+			retval.setResultTime(resultTime);
+			retval.setResultQuality(quality);
+			return retval;
+		}
+		catch (InvalidMessageException e)
+		{
+			// Not expected
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+	
+	private static String getResultValue(Item result)
+	{
+		if (result instanceof Item_Measurement)
+		{
+			return XmlHelper.serialiseXmlDouble(((Item_Measurement)result).getValue());
+		}
+		else if (result instanceof Item_Count)
+		{
+			return Long.toString(((Item_Count)result).getValue());
+		}
+		else if (result instanceof Item_Boolean)
+		{
+			return ((Item_Boolean)result).getValue() ? "true" : "false";
+		}
+		else if (result instanceof Item_Category)
+		{
+			return ((Item_Category)result).getValue();
+		}
+		else
+		{
+			return ((Item_Text)result).getValue();
+		}
+	}
+	
+	/**
+	 * Escapes a value. Only the characters that both JAXB and the minimal
+	 * namespace writer escape alike are supported.
+	 * @param value Value.
+	 * @param attribute Whether the value is an attribute.
+	 * @return Escaped value or null if the value has other special characters.
+	 */
+	private String escape(String value, boolean attribute)
+	{
+		StringBuilder builder = null;
+		
+		for (int a = 0; a < value.length(); ++a)
+		{
+			char c = value.charAt(a);
+			String replacement;
+			
+			switch (c)
+			{
+			case '&':
+				replacement = "&amp;";
+				break;
+			case '<':
+				replacement = "&lt;";
+				break;
+			case '>':
+				replacement = "&gt;";
+				break;
+			case '"':
+				replacement = attribute ? "&quot;" : null;
+				break;
+			case '\n':
+				replacement = attribute && m_minimalNamespaces ? "&#10;" : null;
+				break;
+			case '\t':
+				replacement = attribute && m_minimalNamespaces ? "&#9;" : null;
+				break;
+			default:
+				if (c < 0x20 || Character.isSurrogate(c))
+				{
+					return null;
+				}
+				
+				replacement = null;
+				break;
+			}
+			
+			if (replacement != null && builder == null)
+			{
+				builder = new StringBuilder(value.length() + 16);
+				builder.append(value, 0, a);
+			}
+			
+			if (builder != null)
+			{
+				if (replacement != null)
+				{
+					builder.append(replacement);
+				}
+				else
+				{
+					builder.append(c);
+				}
+			}
+		}
+		
+		return builder == null ? value : builder.toString();
+	}
+	
+	private byte[] encode(String value)
+	{
+		byte[] retval = new byte[value.length()];
+		
+		for (int a = 0; a < value.length(); ++a)
+		{
+			char c = value.charAt(a);
+			
+			if (c >= 0x80)
+			{
+				return value.getBytes(m_charset);
+			}
+			
+			retval[a] = (byte)c;
+		}
+		
+		return retval;
+	}
+	
+	private static void locate(byte[] rendered, String sentinel, int field, int[] starts, int[] lengths)
+	{
+		byte[] needle = sentinel.getBytes(StandardCharsets.US_ASCII);
+		int index = indexOf(rendered, needle, 0);
+		
+		if (index < 0 || indexOf(rendered, needle, index + 1) >= 0)
+		{
+			// The prototype contains a sentinel value
+			throw new IllegalArgumentException("Cannot create a template of this observation");
+		}
+		
+		starts[field] = index;
+		lengths[field] = needle.length;
+	}
+	
+	private static int indexOf(byte[] haystack, byte[] needle, int from)
+	{
+		outer:
+		for (int a = from; a <= haystack.length - needle.length; ++a)
+		{
+			for (int b = 0; b < needle.length; ++b)
+			{
+				if (haystack[a + b] != needle[b])
+				{
+					continue outer;
+				}
+			}
+			
+			return a;
+		}
+		
+		return -1;
+	}
+	
+	private static int lastIndexOf(byte[] haystack, byte[] needle)
+	{
+		int retval = -1;
+		
+		for (int index = indexOf(haystack, needle, 0); index >= 0; index = indexOf(haystack, needle, index + 1))
+		{
+			retval = index;
+		}
+		
+		return retval;
+	}
+	
+	private static boolean sameText(String s1, String s2)
+	{
+		// Null and empty are both omitted from XML
+		return (s1 == null ? "" : s1).equals(s2 == null ? "" : s2);
+	}
+}
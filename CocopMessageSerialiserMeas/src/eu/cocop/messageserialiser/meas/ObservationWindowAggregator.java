@@ -0,0 +1,435 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+/**
+ * Collects single-value observations into time series observations. The
+ * observations are grouped by procedure, observed property and feature of
+ * interest into tumbling windows aligned to the Unix epoch, and one
+ * observation is emitted per group and window. Item_Measurement and
+ * Item_Count results are supported; the unit of a count is
+ * {@link TimeSeriesAggregator#COUNT_UNIT}.
+ *
+ * The sample time is the phenomenon time (or result time if the phenomenon
+ * time is missing), and the sample quality is the result quality. The result
+ * of an emitted observation is either:
+ * <ul>
+ * <li>Item_TimeSeriesFlexible with the samples in time order, or</li>
+ * <li>Item_TimeSeriesConstant that covers the whole window with the given
+ * spacing. A sample goes to the slot of its time; if a slot has several
+ * samples, the last one remains. Empty slots are NaN with bad quality.</li>
+ * </ul>
+ * The phenomenon time of an emitted observation is the start of the window,
+ * and the result time is the end of the window. The unit of measure and the
+ * identifiers come from the first observation in the window. An observation
+ * with another unit is rejected while the window is open.
+ *
+ * A window is emitted when an observation of the same group arrives for a
+ * later window, when {@link #advanceTo(long)} passes the end of the window or
+ * when {@link #flush()} is called. An observation for a window already
+ * emitted is late and rejected; for this, the state of each group is kept
+ * after its window has been emitted. When {@link #advanceTo(long)} passes
+ * the end of a window, any observation for that window is late, so the groups
+ * without an open window are removed then. The methods are thread-safe, and
+ * the output is called while holding the lock.
+ * @author Petri Kannisto
+ */
+public final class ObservationWindowAggregator
+{
+	private final long m_windowMillis;
+	private final Period m_spacing;
+	private final long m_spacingMillis;
+	private final Consumer<Observation> m_output;
+	
+	private final Object m_lock = new Object();
+	private final HashMap<TagKey, Window> m_windows = new HashMap<>();
+	private int m_openCount = 0;
+	
+	// The windows that end at or before this are closed in all groups
+	private long m_closedUntil = Long.MIN_VALUE;
+	
+	// Metrics; guarded by m_lock
+	private long m_emittedCount = 0;
+	private long m_sampleCount = 0;
+	private long m_lateCount = 0;
+	private long m_unitMismatchCount = 0;
+	
+	
+	/**
+	 * Constructor.
+	 * @param windowLength Window length. This must have a fixed length, i.e., no months or years.
+	 * @param spacing The spacing of an Item_TimeSeriesConstant result. The window length must
+	 * be a multiple of this. If null, the result is Item_TimeSeriesFlexible.
+	 * @param output Receives the emitted observations.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public ObservationWindowAggregator(Period windowLength, Period spacing, Consumer<Observation> output) throws IllegalArgumentException
+	{
+		m_windowMillis = TimeHelper.getFixedLengthMillis(windowLength);
+		
+		if (m_windowMillis <= 0)
+		{
+			throw new IllegalArgumentException("The window length must be positive and have a fixed length (no months or years)");
+		}
+		
+		if (spacing == null)
+		{
+			m_spacingMillis = -1;
+		}
+		else
+		{
+			m_spacingMillis = TimeHelper.getFixedLengthMillis(spacing);
+			
+			if (m_spacingMillis <= 0 || m_windowMillis % m_spacingMillis != 0)
+			{
+				throw new IllegalArgumentException("The window length must be a multiple of the spacing");
+			}
+		}
+		
+		m_spacing = spacing;
+		m_output = output;
+	}
+	
+	/**
+	 * Adds an observation. This emits the previous window of the group if the
+	 * observation belongs to a later window.
+	 * @param obs Observation.
+	 * @return True if the observation was added, false if its result type is
+	 * not supported, its unit differs from that of the open window or it was late.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 * @throws InvalidMessageException Thrown if the emitted observation cannot be created.
+	 */
+	public boolean add(Observation obs) throws IllegalArgumentException, InvalidMessageException
+	{
+		Item result = obs.getResult();
+		double value;
+		String uom;
+		
+		if (result instanceof Item_Measurement)
+		{
+			Item_Measurement measurement = (Item_Measurement)result;
+			value = measurement.getValue();
+			uom = measurement.getUnitOfMeasure();
+		}
+		else if (result instanceof Item_Count)
+		{
+			value = ((Item_Count)result).getValue();
+			uom = TimeSeriesAggregator.COUNT_UNIT;
+		}
+		else
+		{
+			return false;
+		}
+		
+		long millis = TimeHelper.getTimeMillis(obs);
+		long windowStart = millis - Math.floorMod(millis, m_windowMillis);
+		DataQuality quality = obs.getResultQuality() == null ? DataQuality.createGood() : obs.getResultQuality();
+		TagKey key = new TagKey(obs);
+		
+		synchronized (m_lock)
+		{
+			if (windowStart + m_windowMillis <= m_closedUntil)
+			{
+				++m_lateCount;
+				return false;
+			}
+			
+			Window window = m_windows.get(key);
+			
+			if (window == null)
+			{
+				window = new Window();
+				m_windows.put(key, window);
+			}
+			
+			if (window.count > 0 && windowStart != window.start)
+			{
+				if (windowStart < window.start)
+				{
+					++m_lateCount;
+					return false;
+				}
+				
+				emit(window);
+			}
+			else if (window.count > 0 && !uom.equals(window.uom))
+			{
+				++m_unitMismatchCount;
+				return false;
+			}
+			
+			if (windowStart < window.emittedEnd)
+			{
+				++m_lateCount;
+				return false;
+			}
+			
+			if (window.count == 0)
+			{
+				window.open(windowStart, obs, uom);
+				++m_openCount;
+			}
+			
+			window.add(millis, value, quality);
+			++m_sampleCount;
+			return true;
+		}
+	}
+	
+	/**
+	 * Emits the windows that end at or before the given time. Use this to emit
+	 * the windows of the groups that receive no more data, e.g., with the current time.
+	 * After this, the observations for these windows are late in all groups, and
+	 * the groups without an open window are removed.
+	 * @param millis Time in epoch milliseconds.
+	 * @throws InvalidMessageException Thrown if an emitted observation cannot be created.
+	 */
+	public void advanceTo(long millis) throws InvalidMessageException
+	{
+		synchronized (m_lock)
+		{
+			emitWhere(window -> window.start + m_windowMillis <= millis);
+			
+			if (millis > m_closedUntil)
+			{
+				m_closedUntil = millis;
+			}
+			
+			// The closed windows are now rejected without the state of the group
+			m_windows.values().removeIf(window -> window.count == 0 && window.emittedEnd <= m_closedUntil);
+		}
+	}
+	
+	/**
+	 * Emits all windows.
+	 * @throws InvalidMessageException Thrown if an emitted observation cannot be created.
+	 */
+	public void flush() throws InvalidMessageException
+	{
+		synchronized (m_lock)
+		{
+			emitWhere(window -> true);
+		}
+	}
+	
+	/**
+	 * Gets the number of open windows.
+	 * @return Count.
+	 */
+	public int getOpenWindowCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_openCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of groups that have state, i.e., an open window or an
+	 * emitted window that {@link #advanceTo(long)} has not passed.
+	 * @return Count.
+	 */
+	public int getGroupCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_windows.size();
+		}
+	}
+	
+	/**
+	 * Gets the number of emitted observations.
+	 * @return Count.
+	 */
+	public long getEmittedCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_emittedCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of samples added.
+	 * @return Count.
+	 */
+	public long getSampleCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_sampleCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of late observations.
+	 * @return Count.
+	 */
+	public long getLateCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_lateCount;
+		}
+	}
+	
+	/**
+	 * Gets the number of observations rejected because their unit differs from
+	 * that of the open window.
+	 * @return Count.
+	 */
+	public long getUnitMismatchCount()
+	{
+		synchronized (m_lock)
+		{
+			return m_unitMismatchCount;
+		}
+	}
+	
+	private void emitWhere(Predicate<Window> condition) throws InvalidMessageException
+	{
+		// Emitting in the order of window start for a predictable output
+		ArrayList<Window> toEmit = new ArrayList<>();
+		
+		for (Window window : m_windows.values())
+		{
+			if (window.count > 0 && condition.test(window))
+			{
+				toEmit.add(window);
+			}
+		}
+		
+		toEmit.sort((w1, w2) -> Long.compare(w1.start, w2.start));
+		
+		for (Window window : toEmit)
+		{
+			emit(window);
+		}
+	}
+	
+	private void emit(Window window) throws InvalidMessageException
+	{
+		Item_TimeInstant windowStart = new Item_TimeInstant(new DateTime(window.start, DateTimeZone.UTC));
+		Item_TimeSeries series;
+		
+		if (m_spacing == null)
+		{
+			Item_TimeSeriesFlexible flexible = new Item_TimeSeriesFlexible(window.uom);
+			flexible.addValues(window.times, window.values, window.qualities, 0, window.count);
+			
+			if (!flexible.isSortedByTime())
+			{
+				flexible.sortByTime();
+			}
+			
+			series = flexible;
+		}
+		else
+		{
+			int slotCount = (int)(m_windowMillis / m_spacingMillis);
+			double[] slotValues = new double[slotCount];
+			DataQuality[] slotQualities = new DataQuality[slotCount];
+			Arrays.fill(slotValues, Double.NaN);
+			Arrays.fill(slotQualities, DataQuality.createBad());
+			
+			// In arrival order, so that the last sample of a slot remains
+			for (int a = 0; a < window.count; ++a)
+			{
+				int slot = (int)((window.times[a] - window.start) / m_spacingMillis);
+				slotValues[slot] = window.values[a];
+				slotQualities[slot] = window.qualities[a];
+			}
+			
+			Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant(window.uom, windowStart, m_spacing);
+			constant.addValues(slotValues, slotQualities, 0, slotCount);
+			series = constant;
+		}
+		
+		Observation retval = new Observation(series);
+		retval.setProcedure(window.procedure);
+		retval.setObservedProperty(window.observedProperty);
+		retval.setFeatureOfInterest(window.featureOfInterest);
+		retval.setPhenomenonTime(windowStart);
+		retval.setResultTime(new Item_TimeInstant(new DateTime(window.start + m_windowMillis, DateTimeZone.UTC)));
+		
+		window.close(window.start + m_windowMillis);
+		--m_openCount;
+		++m_emittedCount;
+		m_output.accept(retval);
+	}
+	
+	
+	/**
+	 * The window of a group. The object is reused for the next windows of the group.
+	 */
+	private static final class Window
+	{
+		// The end of the last emitted window
+		long emittedEnd = Long.MIN_VALUE;
+		
+		// The samples of the open window; count is 0 if no window is open
+		long start;
+		int count = 0;
+		long[] times = new long[8];
+		double[] values = new double[8];
+		DataQuality[] qualities = new DataQuality[8];
+		
+		// From the first observation of the window
+		String procedure;
+		String observedProperty;
+		String featureOfInterest;
+		String uom;
+		
+		void open(long windowStart, Observation obs, String unit)
+		{
+			start = windowStart;
+			procedure = obs.getProcedure();
+			observedProperty = obs.getObservedProperty();
+			featureOfInterest = obs.getFeatureOfInterest();
+			uom = unit;
+		}
+		
+		void add(long millis, double value, DataQuality quality)
+		{
+			if (count == times.length)
+			{
+				int newCapacity = count * 2;
+				times = Arrays.copyOf(times, newCapacity);
+				values = Arrays.copyOf(values, newCapacity);
+				qualities = Arrays.copyOf(qualities, newCapacity);
+			}
+			
+			times[count] = millis;
+			values[count] = value;
+			qualities[count] = quality;
+			++count;
+		}
+		
+		void close(long end)
+		{
+			emittedEnd = end;
+			Arrays.fill(qualities, 0, count, null);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,550 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses message payloads with Deflate and a preset dictionary. The
+ * dictionary contains fragments that appear in most messages, such as
+ * namespace declarations, type URIs and element names, so that even small
+ * messages compress well.
+ *
+ * Compression is transparent in the sense that {@link #decompress(byte[])}
+ * returns uncompressed data as such. Payloads smaller than the threshold are
+ * not compressed, and neither are payloads that would not become smaller.
+ * The sender and the receiver must use the same dictionary; the dictionary is
+ * identified in each compressed payload to detect a mismatch.
+ *
+ * The format of a compressed payload is: the bytes 'C', 'Z' and the format
+ * version, the Adler-32 checksum of the dictionary (4 bytes, big-endian), the
+ * uncompressed length as an unsigned LEB128 varint and the zlib stream.
+ *
+ * The objects are thread-safe. Each thread reuses its own Deflater and
+ * Inflater; these are released when the thread or the compressor is garbage
+ * collected.
+ * @author Petri Kannisto
+ */
+public final class PayloadCompressor
+{
+	/**
+	 * The default size threshold in bytes.
+	 */
+	public static final int DEFAULT_THRESHOLD = 256;
+	
+	/**
+	 * The version of the format.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	
+	private static final byte MAGIC_1 = 'C';
+	private static final byte MAGIC_2 = 'Z';
+	private static final int FIXED_HEADER_LENGTH = 7;
+	
+	// Deflate cannot compress more than this; a larger declared length is invalid
+	private static final int MAX_COMPRESSION_RATIO = 1032;
+	
+	// The fragments of the default dictionary. Deflate finds the near
+	// references cheaper, so the most common fragments are last.
+	private static final String[] DEFAULT_DICTIONARY_PARTS = new String[]
+	{
+		// Requests and responses
+		"<ns13:GetObservation version=\"2.0.0\" service=\"SOS\"><ns13:featureOfInterest></ns13:featureOfInterest><ns13:observedProperty></ns13:observedProperty>",
+		"<ns13:temporalFilter><ns11:After><ns11:ValueReference>phenomenonTime</ns11:ValueReference></ns11:After></ns13:temporalFilter>",
+		"<ns13:GetObservationResponse><ns13:observationData></ns13:observationData></ns13:GetObservationResponse>",
+		
+		// Arrays and data records
+		"<ns4:result xsi:type=\"ns9:DataArrayType\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><ns9:elementCount/><ns9:elementType name=\"columns\">",
+		"</ns9:elementType><ns9:values><ns17:Array><ns17:Row><ns17:I></ns17:I></ns17:Row></ns17:Array></ns9:values>",
+		"<ns9:Boolean><ns9:value>true</ns9:value></ns9:Boolean><ns9:Category><ns9:value></ns9:value></ns9:Category><ns9:Text><ns9:value></ns9:value></ns9:Text>",
+		"<ns9:Time><ns9:uom/><ns9:value></ns9:value></ns9:Time><ns9:TimeRange><ns9:uom/><ns9:value></ns9:value></ns9:TimeRange>",
+		"<ns9:Count><ns9:value></ns9:value></ns9:Count><ns9:quality ns2:title=\"good\"/>",
+		"<ns4:result xsi:type=\"ns9:DataRecordPropertyType\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><ns9:DataRecord>",
+		"<ns9:field name=\"\"><ns9:Quantity><ns9:uom code=\"\"/><ns9:value></ns9:value></ns9:Quantity></ns9:field></ns9:DataRecord>",
+		
+		// Time series
+		"<ns8:timeseriesMetadata><ns8:TimeseriesMetadata><ns8:baseTime></ns8:baseTime><ns8:spacing>PT</ns8:spacing></ns8:TimeseriesMetadata></ns8:timeseriesMetadata>",
+		"<ns4:result xsi:type=\"ns8:TimeseriesDomainRangeType\" ns1:id=\"Obs_result_TimeSer\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><ns1:boundedBy xsi:nil=\"true\"/>",
+		"<ns1:domainSet><ns8:TimePositionList ns1:id=\"timestamps\"><ns8:timePositionList></ns8:timePositionList></ns8:TimePositionList></ns1:domainSet>",
+		"<ns1:rangeSet><ns1:QuantityList uom=\"\"></ns1:QuantityList></ns1:rangeSet><ns3:rangeType/><ns8:metadata><ns8:TimeseriesMetadataExtension><ns8:annotation>",
+		"<ns8:AnnotationCoverage ns1:id=\"Obs_result_TimeSer_qualCov\"><ns1:boundedBy xsi:nil=\"true\"/><ns1:domainSet/><ns1:rangeSet><ns1:CategoryList codeSpace=\"http://cocop\">good good ",
+		"</ns1:CategoryList></ns1:rangeSet><ns3:rangeType/></ns8:AnnotationCoverage></ns8:annotation></ns8:TimeseriesMetadataExtension></ns8:metadata>",
+		
+		// Scalar results
+		"<ns4:result xsi:type=\"xs:integer\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">",
+		"<ns4:result xsi:type=\"xs:boolean\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">true</ns4:result>",
+		"<ns4:result xsi:type=\"xs:string\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">",
+		"<ns4:result xsi:type=\"ns1:TimeInstantPropertyType\"><ns4:result xsi:type=\"ns1:ReferenceType\" ns2:title=\"\"/>",
+		
+		// Observation types
+		XmlHelper.TYPEURI_TEXT + "\"/>" + XmlHelper.TYPEURI_TIMESERIESCONSTANT + "\"/>" + XmlHelper.TYPEURI_TIMESERIESFLEXIBLE + "\"/>",
+		XmlHelper.TYPEURI_TEMPORAL + "\"/>" + XmlHelper.TYPEURI_CATEGORY + "\"/>" + XmlHelper.TYPEURI_TRUTH + "\"/>" + XmlHelper.TYPEURI_COUNT + "\"/>",
+		XmlHelper.TYPEURI_COMPLEX + "\"/>" + XmlHelper.TYPEURI_MEASUREMENT + "\"/>",
+		
+		// The observation itself
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><ns4:OM_Observation ns1:id=\"Obs\" " +
+		"xmlns:ns2=\"http://www.w3.org/1999/xlink\" xmlns:ns1=\"http://www.opengis.net/gml/3.2\" xmlns:ns4=\"http://www.opengis.net/om/2.0\" " +
+		"xmlns:ns3=\"http://www.opengis.net/gmlcov/1.0\" xmlns:ns6=\"http://www.isotc211.org/2005/gmd\" xmlns:ns5=\"http://www.isotc211.org/2005/gco\" " +
+		"xmlns:ns8=\"http://www.opengis.net/tsml/1.0\" xmlns:ns7=\"http://www.isotc211.org/2005/gts\" xmlns:ns13=\"http://www.opengis.net/sos/2.0\" " +
+		"xmlns:ns9=\"http://www.opengis.net/swe/2.0\" xmlns:ns12=\"http://www.opengis.net/swes/2.0\" xmlns:ns11=\"http://www.opengis.net/fes/2.0\" " +
+		"xmlns:ns10=\"http://www.cocop-spire.eu/om-custom/1.1\" xmlns:ns17=\"http://www.cocop-spire.eu/om-custom/1.2\" " +
+		"xmlns:ns16=\"http://www.opengis.net/ows/1.1\" xmlns:ns15=\"http://docs.oasis-open.org/wsn/t-1\" xmlns:ns14=\"http://www.w3.org/2005/08/addressing\">",
+		"<ns1:boundedBy xsi:nil=\"true\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"/><ns4:type ns2:href=\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_",
+		"\"/><ns4:phenomenonTime><ns1:TimeInstant ns1:id=\"Obs_pheno_TimeInst\"><ns1:timePosition></ns1:timePosition></ns1:TimeInstant></ns4:phenomenonTime>",
+		"<ns4:resultTime><ns1:TimeInstant ns1:id=\"Obs_res_TimeInst\"><ns1:timePosition></ns1:timePosition></ns1:TimeInstant></ns4:resultTime>",
+		"<ns4:procedure ns2:title=\"\"/><ns4:observedProperty ns2:title=\"\"/><ns4:featureOfInterest ns2:title=\"\"/><ns4:resultQuality ns2:title=\"good\"/>",
+		"<ns4:result xsi:type=\"ns1:MeasureType\" uom=\"\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"></ns4:result></ns4:OM_Observation>"
+	};
+	
+	private static final byte[] DEFAULT_DICTIONARY = String.join("", DEFAULT_DICTIONARY_PARTS).getBytes(StandardCharsets.UTF_8);
+	
+	private final byte[] m_dictionary;
+	private final int m_dictionaryId;
+	private final int m_threshold;
+	private final int m_level;
+	
+	private final ThreadLocal<Deflater> m_deflaters;
+	private final ThreadLocal<Inflater> m_inflaters = ThreadLocal.withInitial(Inflater::new);
+	
+	
+	/**
+	 * Constructor. Uses the default dictionary, threshold and compression level.
+	 */
+	public PayloadCompressor()
+	{
+		this(DEFAULT_DICTIONARY, DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param dictionary Preset dictionary or null for none. See {@link #trainDictionary(Collection, int)}.
+	 * @param threshold The payloads smaller than this many bytes are not compressed.
+	 * @param level Compression level from 0 to 9 or Deflater.DEFAULT_COMPRESSION.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public PayloadCompressor(byte[] dictionary, int threshold, int level) throws IllegalArgumentException
+	{
+		if (threshold < 0)
+		{
+			throw new IllegalArgumentException("The threshold cannot be negative");
+		}
+		if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+		{
+			throw new IllegalArgumentException("Invalid compression level " + level);
+		}
+		
+		m_dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary.clone();
+		m_dictionaryId = m_dictionary == null ? 0 : getAdler32(m_dictionary);
+		m_threshold = threshold;
+		m_level = level;
+		m_deflaters = ThreadLocal.withInitial(() -> new Deflater(m_level));
+	}
+	
+	/**
+	 * Compresses a payload unless it is smaller than the threshold or does not
+	 * become smaller.
+	 * @param payload Payload.
+	 * @return Compressed payload or the payload itself.
+	 */
+	public byte[] compress(byte[] payload)
+	{
+		if (payload.length < m_threshold || payload.length == 0)
+		{
+			return payload;
+		}
+		
+		// The output must be smaller than the payload to be worth it
+		byte[] output = new byte[payload.length];
+		output[0] = MAGIC_1;
+		output[1] = MAGIC_2;
+		output[2] = (byte)FORMAT_VERSION;
+		output[3] = (byte)(m_dictionaryId >>> 24);
+		output[4] = (byte)(m_dictionaryId >>> 16);
+		output[5] = (byte)(m_dictionaryId >>> 8);
+		output[6] = (byte)m_dictionaryId;
+		int position = FIXED_HEADER_LENGTH;
+		
+		for (int value = payload.length; ; value >>>= 7)
+		{
+			if (position == output.length)
+			{
+				return payload;
+			}
+			if ((value & ~0x7F) == 0)
+			{
+				output[position++] = (byte)value;
+				break;
+			}
+			
+			output[position++] = (byte)((value & 0x7F) | 0x80);
+		}
+		
+		Deflater deflater = m_deflaters.get();
+		deflater.reset();
+		
+		if (m_dictionary != null)
+		{
+			deflater.setDictionary(m_dictionary);
+		}
+		
+		deflater.setInput(payload);
+		deflater.finish();
+		
+		while (!deflater.finished() && position < output.length)
+		{
+			position += deflater.deflate(output, position, output.length - position);
+		}
+		
+		if (!deflater.finished())
+		{
+			// Did not become smaller
+			return payload;
+		}
+		
+		return Arrays.copyOf(output, position);
+	}
+	
+	/**
+	 * Decompresses a payload. If the payload is not compressed, it is returned as such.
+	 * @param data Data.
+	 * @return Decompressed payload.
+	 * @throws InvalidMessageException Thrown if the data is invalid or compressed with another dictionary.
+	 */
+	public byte[] decompress(byte[] data) throws InvalidMessageException
+	{
+		if (!isCompressed(data))
+		{
+			return data;
+		}
+		
+		if (data[2] != FORMAT_VERSION)
+		{
+			throw new InvalidMessageException("Unsupported compression format version " + data[2]);
+		}
+		
+		int dictionaryId = ((data[3] & 0xFF) << 24) | ((data[4] & 0xFF) << 16) | ((data[5] & 0xFF) << 8) | (data[6] & 0xFF);
+		
+		if (dictionaryId != m_dictionaryId)
+		{
+			throw new InvalidMessageException("The payload was compressed with another dictionary");
+		}
+		
+		// Reading the length
+		long length = 0;
+		int position = FIXED_HEADER_LENGTH;
+		
+		for (int shift = 0; ; shift += 7)
+		{
+			if (position == data.length || shift > 28)
+			{
+				throw new InvalidMessageException("Invalid length in a compressed payload");
+			}
+			
+			byte b = data[position++];
+			length |= (long)(b & 0x7F) << shift;
+			
+			if ((b & 0x80) == 0)
+			{
+				break;
+			}
+		}
+		
+		if (length > (long)(data.length - position) * MAX_COMPRESSION_RATIO || length > Integer.MAX_VALUE - 8)
+		{
+			throw new InvalidMessageException("Invalid length in a compressed payload");
+		}
+		
+		byte[] retval = new byte[(int)length];
+		Inflater inflater = m_inflaters.get();
+		inflater.reset();
+		inflater.setInput(data, position, data.length - position);
+		
+		try
+		{
+			int outputPosition = 0;
+			
+			while (!inflater.finished())
+			{
+				int count = inflater.inflate(retval, outputPosition, retval.length - outputPosition);
+				outputPosition += count;
+				
+				if (count > 0)
+				{
+					continue;
+				}
+				
+				if (inflater.needsDictionary())
+				{
+					if (m_dictionary == null)
+					{
+						throw new InvalidMessageException("The payload requires a dictionary");
+					}
+					
+					inflater.setDictionary(m_dictionary);
+				}
+				else if (inflater.needsInput() || outputPosition == retval.length)
+				{
+					// Truncated or longer than declared
+					throw new InvalidMessageException("Invalid compressed payload");
+				}
+			}
+			
+			if (outputPosition != retval.length || inflater.getRemaining() != 0)
+			{
+				throw new InvalidMessageException("Invalid compressed payload");
+			}
+		}
+		catch (DataFormatException | IllegalArgumentException e)
+		{
+			throw new InvalidMessageException("Invalid compressed payload", e);
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Checks whether data is a compressed payload.
+	 * @param data Data.
+	 * @return True if compressed, otherwise false.
+	 */
+	public static boolean isCompressed(byte[] data)
+	{
+		return data.length > FIXED_HEADER_LENGTH && data[0] == MAGIC_1 && data[1] == MAGIC_2;
+	}
+	
+	/**
+	 * Serialises an observation to XML and compresses it.
+	 * @param obs Observation.
+	 * @return Payload.
+	 */
+	public byte[] encode(Observation obs)
+	{
+		return compress(obs.toXmlBytes());
+	}
+	
+	/**
+	 * Serialises a request to XML and compresses it.
+	 * @param request Request.
+	 * @return Payload.
+	 */
+	public byte[] encode(GetObservationRequest request)
+	{
+		return compress(request.toXmlBytes());
+	}
+	
+	/**
+	 * Serialises a response to XML and compresses it.
+	 * @param response Response.
+	 * @return Payload.
+	 */
+	public byte[] encode(GetObservationResponse response)
+	{
+		return compress(response.toXmlBytes());
+	}
+	
+	/**
+	 * Decompresses and reads an observation. The payload may also be uncompressed XML.
+	 * @param data Payload.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if the payload is invalid.
+	 */
+	public Observation decodeObservation(byte[] data) throws InvalidMessageException
+	{
+		return new Observation(decompress(data));
+	}
+	
+	/**
+	 * Decompresses and reads a request. The payload may also be uncompressed XML.
+	 * @param data Payload.
+	 * @return Request.
+	 * @throws InvalidMessageException Thrown if the payload is invalid.
+	 */
+	public GetObservationRequest decodeGetObservationRequest(byte[] data) throws InvalidMessageException
+	{
+		return new GetObservationRequest(decompress(data));
+	}
+	
+	/**
+	 * Decompresses and reads a response. The payload may also be uncompressed XML.
+	 * @param data Payload.
+	 * @return Response.
+	 * @throws InvalidMessageException Thrown if the payload is invalid.
+	 */
+	public GetObservationResponse decodeGetObservationResponse(byte[] data) throws InvalidMessageException
+	{
+		return new GetObservationResponse(decompress(data));
+	}
+	
+	/**
+	 * Gets the size threshold.
+	 * @return Threshold in bytes.
+	 */
+	public int getThreshold()
+	{
+		return m_threshold;
+	}
+	
+	/**
+	 * Gets the dictionary.
+	 * @return Dictionary or null if none.
+	 */
+	public byte[] getDictionary()
+	{
+		return m_dictionary == null ? null : m_dictionary.clone();
+	}
+	
+	/**
+	 * Gets the default dictionary. This has been built from the typical XML
+	 * that this library produces.
+	 * @return Dictionary.
+	 */
+	public static byte[] getDefaultDictionary()
+	{
+		return DEFAULT_DICTIONARY.clone();
+	}
+	
+	/**
+	 * Builds a dictionary from sample payloads. Use samples that represent the
+	 * actual traffic; a few hundred is typically enough. The dictionary
+	 * consists of the byte sequences that occur in many samples, weighted by
+	 * their occurrence and length. The memory use is proportional to the
+	 * total size of the samples.
+	 * @param samples Samples.
+	 * @param maxSize Maximum size of the dictionary in bytes. Deflate uses at most 32 KiB.
+	 * @return Dictionary.
+	 * @throws IllegalArgumentException Thrown if maxSize is not positive.
+	 */
+	public static byte[] trainDictionary(Collection<byte[]> samples, int maxSize) throws IllegalArgumentException
+	{
+		final int gramLength = 12;
+		
+		if (maxSize <= 0)
+		{
+			throw new IllegalArgumentException("The maximum size must be positive");
+		}
+		
+		// How many samples contain each gram
+		HashMap<String, Integer> gramFrequencies = new HashMap<>();
+		
+		for (byte[] sample : samples)
+		{
+			HashSet<String> seen = new HashSet<>();
+			
+			for (int a = 0; a + gramLength <= sample.length; ++a)
+			{
+				String gram = new String(sample, a, gramLength, StandardCharsets.ISO_8859_1);
+				
+				if (seen.add(gram))
+				{
+					gramFrequencies.merge(gram, 1, Integer::sum);
+				}
+			}
+		}
+		
+		// Segments are the runs of frequent grams. The score of a segment is
+		// its total length in the samples.
+		int minFrequency = Math.max(2, samples.size() / 20);
+		HashMap<String, Long> segmentScores = new HashMap<>();
+		
+		for (byte[] sample : samples)
+		{
+			int runStart = -1;
+			
+			for (int a = 0; a + gramLength <= sample.length + 1; ++a)
+			{
+				boolean frequent = a + gramLength <= sample.length &&
+						gramFrequencies.get(new String(sample, a, gramLength, StandardCharsets.ISO_8859_1)) >= minFrequency;
+				
+				if (frequent && runStart < 0)
+				{
+					runStart = a;
+				}
+				else if (!frequent && runStart >= 0)
+				{
+					String segment = new String(sample, runStart, a - 1 + gramLength - runStart, StandardCharsets.ISO_8859_1);
+					segmentScores.merge(segment, (long)segment.length(), Long::sum);
+					runStart = -1;
+				}
+			}
+		}
+		
+		// Choosing the segments with the highest scores
+		ArrayList<Map.Entry<String, Long>> sorted = new ArrayList<>(segmentScores.entrySet());
+		sorted.sort((e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+		
+		ArrayList<String> chosen = new ArrayList<>();
+		HashSet<String> coveredGrams = new HashSet<>();
+		int size = 0;
+		
+		for (Map.Entry<String, Long> entry : sorted)
+		{
+			String segment = entry.getKey();
+			
+			if (size + segment.length() > maxSize)
+			{
+				continue;
+			}
+			
+			// Skipping the segments that are mostly in the dictionary already
+			int gramCount = segment.length() - gramLength + 1;
+			int newGramCount = 0;
+			
+			for (int a = 0; a < gramCount; ++a)
+			{
+				if (!coveredGrams.contains(segment.substring(a, a + gramLength)))
+				{
+					++newGramCount;
+				}
+			}
+			
+			if (newGramCount * 2 < gramCount)
+			{
+				continue;
+			}
+			
+			for (int a = 0; a < gramCount; ++a)
+			{
+				coveredGrams.add(segment.substring(a, a + gramLength));
+			}
+			
+			chosen.add(segment);
+			size += segment.length();
+		}
+		
+		// The most valuable last
+		StringBuilder retval = new StringBuilder(size);
+		
+		for (int a = chosen.size() - 1; a >= 0; --a)
+		{
+			retval.append(chosen.get(a));
+		}
+		
+		return retval.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+	private static int getAdler32(byte[] bytes)
+	{
+		Adler32 adler = new Adler32();
+		adler.update(bytes, 0, bytes.length);
+		return (int)adler.getValue();
+	}
+}
@@ -0,0 +1,367 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBElement;
+
+import eu.cocop_spire.om_custom._1_1.AbstractGmlAsSweDataComponentType;
+import net.opengis.gml._3.MeasureType;
+import net.opengis.gml._3.ReferenceType;
+import net.opengis.gml._3.TimeInstantPropertyType;
+import net.opengis.gml._3.TimePeriodPropertyType;
+import net.opengis.swe._2.AbstractDataComponentType;
+import net.opengis.swe._2.BooleanType;
+import net.opengis.swe._2.CategoryType;
+import net.opengis.swe._2.CountType;
+import net.opengis.swe._2.DataArrayType;
+import net.opengis.swe._2.DataRecordPropertyType;
+import net.opengis.swe._2.DataRecordType;
+import net.opengis.swe._2.QuantityType;
+import net.opengis.swe._2.TextType;
+import net.opengis.swe._2.TimeRangeType;
+import net.opengis.swe._2.TimeType;
+import net.opengis.tsml._1.TimeseriesDomainRangeType;
+
+/**
+ * A registry of the item types that can be read from XML. The decoders are
+ * looked up by the observation type URI and the class of the XML proxy
+ * object, so the cost of a lookup does not depend on the number of types.
+ *
+ * The built-in item types are registered by default. Applications can
+ * register their own item types with a codec, which then takes care of both
+ * reading and writing the items. An item type of an application extends
+ * Item with the protected constructor.
+ * @author Petri Kannisto
+ */
+public final class ResultTypeRegistry
+{
+	/**
+	 * Converts items of an application-specific type to and from the XML
+	 * proxies of observation results. The proxy must be of a type known to
+	 * the JAXB context, such as a proxy class of SWE Common.
+	 * @param <T> Item type.
+	 * @author Petri Kannisto
+	 */
+	public interface ResultCodec<T extends Item>
+	{
+		/**
+		 * Builds an item from an XML proxy.
+		 * @param proxy Proxy object.
+		 * @return Item.
+		 * @throws InvalidMessageException Thrown if the proxy is invalid.
+		 */
+		T decode(Object proxy) throws InvalidMessageException;
+		
+		/**
+		 * Builds an XML proxy from an item.
+		 * @param item Item.
+		 * @param idPrefix String to be utilised to create IDs that are unique within XML documents.
+		 * @return Proxy object.
+		 */
+		Object encode(T item, String idPrefix);
+	}
+	
+	/**
+	 * Converts items of an application-specific type to and from the XML
+	 * proxies of data record fields.
+	 * @param <T> Item type.
+	 * @author Petri Kannisto
+	 */
+	public interface FieldCodec<T extends Item>
+	{
+		/**
+		 * Builds an item from an XML proxy.
+		 * @param proxy Proxy object.
+		 * @return Item.
+		 * @throws InvalidMessageException Thrown if the proxy is invalid.
+		 */
+		T decode(AbstractDataComponentType proxy) throws InvalidMessageException;
+		
+		/**
+		 * Builds an XML proxy from an item. Each call must return a new
+		 * object, because the caller may add data quality to it.
+		 * @param item Item.
+		 * @param fact Object factory.
+		 * @return Proxy object.
+		 */
+		JAXBElement<? extends AbstractDataComponentType> encode(T item, net.opengis.swe._2.ObjectFactory fact);
+	}
+	
+	/**
+	 * Decodes a proxy object. Null means that the proxy is skipped.
+	 */
+	private interface Decoder
+	{
+		Item decode(Object proxy) throws InvalidMessageException;
+	}
+	
+	/**
+	 * The decoders of a set of proxy classes.
+	 */
+	private static final class DecoderTable
+	{
+		// Proxy class -> decoder
+		final ConcurrentHashMap<Class<?>, Decoder> registered = new ConcurrentHashMap<>();
+		
+		// Sub-class of a registered proxy class -> decoder. Kept apart from the
+		// registrations, so that a cached sub-class does not block registering it.
+		final ConcurrentHashMap<Class<?>, Decoder> subClasses = new ConcurrentHashMap<>();
+	}
+	
+	// Type URI -> decoders
+	private static final ConcurrentHashMap<String, DecoderTable> RESULT_DECODERS = new ConcurrentHashMap<>();
+	
+	private static final DecoderTable FIELD_DECODERS = new DecoderTable();
+	
+	// Item class -> codec. These only contain the types of applications, as
+	// the built-in items write themselves.
+	private static final ConcurrentHashMap<Class<?>, ResultCodec<?>> RESULT_ENCODERS = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Class<?>, FieldCodec<?>> FIELD_ENCODERS = new ConcurrentHashMap<>();
+	
+	static
+	{
+		// Observation results
+		addResultDecoder(XmlHelper.TYPEURI_TRUTH, Boolean.class, p -> new Item_Boolean((boolean)p));
+		addResultDecoder(XmlHelper.TYPEURI_CATEGORY, ReferenceType.class, p -> new Item_Category((ReferenceType)p));
+		addResultDecoder(XmlHelper.TYPEURI_COMPLEX, DataRecordPropertyType.class, p -> new Item_DataRecord((DataRecordPropertyType)p));
+		addResultDecoder(XmlHelper.TYPEURI_COMPLEX, DataArrayType.class, p -> new Item_Array((DataArrayType)p));
+		addResultDecoder(XmlHelper.TYPEURI_COUNT, BigInteger.class, p -> new Item_Count((BigInteger)p));
+		addResultDecoder(XmlHelper.TYPEURI_MEASUREMENT, MeasureType.class, p -> new Item_Measurement((MeasureType)p));
+		addResultDecoder(XmlHelper.TYPEURI_TIMESERIESCONSTANT, TimeseriesDomainRangeType.class, p -> new Item_TimeSeriesConstant((TimeseriesDomainRangeType)p));
+		addResultDecoder(XmlHelper.TYPEURI_TIMESERIESFLEXIBLE, TimeseriesDomainRangeType.class, p -> new Item_TimeSeriesFlexible((TimeseriesDomainRangeType)p));
+		addResultDecoder(XmlHelper.TYPEURI_TEMPORAL, TimeInstantPropertyType.class, p -> new Item_TimeInstant((TimeInstantPropertyType)p));
+		addResultDecoder(XmlHelper.TYPEURI_TEMPORAL, TimePeriodPropertyType.class, p -> new Item_TimeRange((TimePeriodPropertyType)p));
+		addResultDecoder(XmlHelper.TYPEURI_TEXT, String.class, p -> new Item_Text((String)p));
+		
+		// Data record fields
+		addFieldDecoder(BooleanType.class, p -> new Item_Boolean((BooleanType)p));
+		addFieldDecoder(CategoryType.class, p -> new Item_Category((CategoryType)p));
+		addFieldDecoder(CountType.class, p -> new Item_Count((CountType)p));
+		addFieldDecoder(DataArrayType.class, p -> new Item_Array((DataArrayType)p));
+		addFieldDecoder(DataRecordType.class, p -> new Item_DataRecord((DataRecordType)p));
+		addFieldDecoder(QuantityType.class, p -> new Item_Measurement((QuantityType)p));
+		addFieldDecoder(TextType.class, p -> new Item_Text((TextType)p));
+		addFieldDecoder(TimeType.class, p -> new Item_TimeInstant((TimeType)p));
+		addFieldDecoder(TimeRangeType.class, p -> new Item_TimeRange((TimeRangeType)p));
+		
+		// To have time series working in data records, the proxy class
+		// "eu.cocop_spire.om_custom._1_1.SweDataComponentAsFeatureType" was
+		// generated with XJC. The proxies referring to the object have
+		// been modified manually, as the default namespace conflicted
+		// with the namespace of COCOP custom 1.2.
+		// For robustness, just skipping this unsupported field type.
+		// TODO: Implement support for time series in a data record
+		addFieldDecoder(AbstractGmlAsSweDataComponentType.class, p -> null);
+	}
+	
+	
+	private ResultTypeRegistry()
+	{
+		// Private ctor -> use static methods
+	}
+	
+	/**
+	 * Registers an item type for observation results.
+	 * @param typeUri The observation type URI of the item type. This must equal
+	 * the URI that the items pass to the constructor of Item.
+	 * @param proxyClass The class of the XML proxy that represents the result.
+	 * @param itemClass Item class.
+	 * @param codec Codec.
+	 * @param <T> Item type.
+	 * @throws IllegalArgumentException Thrown if the type URI and proxy class or
+	 * the item class have already been registered.
+	 */
+	public static <T extends Item> void registerResultType(String typeUri, Class<?> proxyClass, Class<T> itemClass, ResultCodec<T> codec)
+			throws IllegalArgumentException
+	{
+		if (RESULT_ENCODERS.putIfAbsent(itemClass, codec) != null)
+		{
+			throw new IllegalArgumentException("Item class already registered: " + itemClass.getName());
+		}
+		
+		try
+		{
+			addResultDecoder(typeUri, proxyClass, p -> codec.decode(p));
+		}
+		catch (IllegalArgumentException e)
+		{
+			RESULT_ENCODERS.remove(itemClass);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Registers an item type for data record fields.
+	 * @param proxyClass The class of the XML proxy that represents the field.
+	 * @param itemClass Item class.
+	 * @param codec Codec.
+	 * @param <T> Item type.
+	 * @throws IllegalArgumentException Thrown if the proxy class or the item class
+	 * have already been registered.
+	 */
+	public static <T extends Item> void registerFieldType(Class<? extends AbstractDataComponentType> proxyClass, Class<T> itemClass, FieldCodec<T> codec)
+			throws IllegalArgumentException
+	{
+		if (FIELD_ENCODERS.putIfAbsent(itemClass, codec) != null)
+		{
+			throw new IllegalArgumentException("Item class already registered: " + itemClass.getName());
+		}
+		
+		try
+		{
+			addFieldDecoder(proxyClass, p -> codec.decode((AbstractDataComponentType)p));
+		}
+		catch (IllegalArgumentException e)
+		{
+			FIELD_ENCODERS.remove(itemClass);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Builds an observation result.
+	 * @param typeUri Observation type URI.
+	 * @param proxy Raw result object from XML.
+	 * @return Item.
+	 * @throws InvalidMessageException Thrown if the proxy does not match the type.
+	 */
+	static Item decodeResult(String typeUri, Object proxy) throws InvalidMessageException
+	{
+		DecoderTable decoders = RESULT_DECODERS.get(typeUri);
+		
+		if (decoders == null)
+		{
+			throw new RuntimeException("No support implemented for type \"" + typeUri + "\"");
+		}
+		
+		if (proxy == null)
+		{
+			throw new InvalidMessageException("Result is missing");
+		}
+		
+		Decoder decoder = findDecoder(decoders, proxy.getClass());
+		
+		if (decoder == null)
+		{
+			throw new InvalidMessageException("Unexpected result type " + proxy.getClass().getSimpleName() + " in observation of type \"" + typeUri + "\"");
+		}
+		
+		return decoder.decode(proxy);
+	}
+	
+	/**
+	 * Builds a data record field.
+	 * @param proxy Raw field object from XML.
+	 * @return Item or null if the field type is not supported.
+	 * @throws InvalidMessageException Thrown if the proxy is invalid.
+	 */
+	static Item decodeField(AbstractDataComponentType proxy) throws InvalidMessageException
+	{
+		Decoder decoder = findDecoder(FIELD_DECODERS, proxy.getClass());
+		return decoder == null ? null : decoder.decode(proxy);
+	}
+	
+	/**
+	 * Builds the result proxy of an item. The item types of applications are
+	 * written with their codec and the built-in ones by themselves.
+	 * @param item Item.
+	 * @param idPrefix String to be utilised to create IDs that are unique within XML documents.
+	 * @return Proxy object.
+	 */
+	@SuppressWarnings("unchecked")
+	static Object encodeResult(Item item, String idPrefix)
+	{
+		ResultCodec<Item> codec = (ResultCodec<Item>)RESULT_ENCODERS.get(item.getClass());
+		return codec == null ? item.getObjectForXml_Result(idPrefix) : codec.encode(item, idPrefix);
+	}
+	
+	/**
+	 * Builds the data record field proxy of an item. The item types of
+	 * applications are written with their codec and the built-in ones by
+	 * themselves.
+	 * @param item Item.
+	 * @param fact Object factory.
+	 * @return Proxy object.
+	 */
+	@SuppressWarnings("unchecked")
+	static JAXBElement<? extends AbstractDataComponentType> encodeField(Item item, net.opengis.swe._2.ObjectFactory fact)
+	{
+		FieldCodec<Item> codec = (FieldCodec<Item>)FIELD_ENCODERS.get(item.getClass());
+		return codec == null ? item.getObjectForXml_DataRecordField(fact) : codec.encode(item, fact);
+	}
+	
+	private static void addResultDecoder(String typeUri, Class<?> proxyClass, Decoder decoder)
+	{
+		DecoderTable decoders = RESULT_DECODERS.computeIfAbsent(typeUri, k -> new DecoderTable());
+		
+		if (decoders.registered.putIfAbsent(proxyClass, decoder) != null)
+		{
+			throw new IllegalArgumentException("Proxy class " + proxyClass.getName() + " already registered for type \"" + typeUri + "\"");
+		}
+		
+		clearSubClassCaches();
+	}
+	
+	private static void addFieldDecoder(Class<?> proxyClass, Decoder decoder)
+	{
+		if (FIELD_DECODERS.registered.putIfAbsent(proxyClass, decoder) != null)
+		{
+			throw new IllegalArgumentException("Proxy class already registered: " + proxyClass.getName());
+		}
+		
+		clearSubClassCaches();
+	}
+	
+	private static void clearSubClassCaches()
+	{
+		// A new registration may match a cached sub-class better
+		FIELD_DECODERS.subClasses.clear();
+		
+		for (DecoderTable decoders : RESULT_DECODERS.values())
+		{
+			decoders.subClasses.clear();
+		}
+	}
+	
+	private static Decoder findDecoder(DecoderTable decoders, Class<?> proxyClass)
+	{
+		// The proxies are usually of the registered class exactly
+		Decoder retval = decoders.registered.get(proxyClass);
+		
+		if (retval == null)
+		{
+			retval = decoders.subClasses.get(proxyClass);
+		}
+		
+		if (retval != null)
+		{
+			return retval;
+		}
+		
+		// Otherwise, looking for a registered super class or interface and
+		// caching the outcome for the sub-class
+		for (Map.Entry<Class<?>, Decoder> entry : decoders.registered.entrySet())
+		{
+			if (entry.getKey().isAssignableFrom(proxyClass))
+			{
+				decoders.subClasses.putIfAbsent(proxyClass, entry.getValue());
+				return entry.getValue();
+			}
+		}
+		
+		return null;
+	}
+}
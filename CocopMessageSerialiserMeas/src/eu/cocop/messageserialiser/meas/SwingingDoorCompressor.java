@@ -0,0 +1,230 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import org.joda.time.Period;
+
+/**
+ * Reduces the samples of a signal with the swinging-door trending algorithm
+ * used in process historians. A sample is retained only if it is needed to
+ * reconstruct the signal by linear interpolation so that the error does not
+ * exceed the configured deviation. In addition:
+ * <ul>
+ * <li>the retained samples are at most the maximum interval apart (unless
+ * the input itself has a longer gap),</li>
+ * <li>on each change of data quality, both the last sample before the change
+ * and the first sample after the change are retained,</li>
+ * <li>samples with the value NaN are retained as quality changes are, and</li>
+ * <li>if a timestamp does not increase, the sample is retained as such.</li>
+ * </ul>
+ *
+ * Unlike in the classic algorithm, which only checks whether the doors have
+ * opened, a sample can end a segment only if the line to it stays between the
+ * doors. This guarantees the error bound for the interpolation between the
+ * retained samples at the cost of a slightly lower compression.
+ *
+ * The decision to retain a sample is made when the next sample arrives.
+ * Therefore, call {@link #flush()} after the last sample of a stream.
+ * Use one object per signal; the objects are not thread-safe.
+ * @author Petri Kannisto
+ */
+public final class SwingingDoorCompressor
+{
+	private final double m_deviation;
+	private final long m_maxIntervalMillis;
+	private final Item_TimeSeriesFlexible m_target;
+	
+	// The last retained sample
+	private boolean m_hasArchived = false;
+	private long m_archivedTime;
+	private double m_archivedValue;
+	
+	// The last received sample
+	private boolean m_heldArchived = true;
+	private long m_heldTime;
+	private double m_heldValue;
+	private DataQuality m_heldQuality;
+	
+	// The slopes of the doors
+	private double m_upperSlope;
+	private double m_lowerSlope;
+	
+	
+	/**
+	 * Constructor.
+	 * @param deviation The maximum deviation between the original and the reconstructed signal.
+	 * @param maxInterval The maximum interval between retained samples. This must have a fixed
+	 * length, i.e., no months or years. If null, there is no maximum.
+	 * @param target The series where the retained samples are added to.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public SwingingDoorCompressor(double deviation, Period maxInterval, Item_TimeSeriesFlexible target) throws IllegalArgumentException
+	{
+		if (!(deviation >= 0))
+		{
+			throw new IllegalArgumentException("The deviation must be non-negative");
+		}
+		
+		m_deviation = deviation;
+		m_target = target;
+		
+		if (maxInterval == null)
+		{
+			m_maxIntervalMillis = Long.MAX_VALUE;
+		}
+		else
+		{
+			m_maxIntervalMillis = TimeHelper.getFixedLengthMillis(maxInterval);
+			
+			if (m_maxIntervalMillis <= 0)
+			{
+				throw new IllegalArgumentException("The maximum interval must be positive and have a fixed length (no months or years)");
+			}
+		}
+	}
+	
+	/**
+	 * Compresses a time series.
+	 * @param series Series. This must be sorted by time.
+	 * @param deviation The maximum deviation between the original and the reconstructed signal.
+	 * @param maxInterval The maximum interval between retained samples or null if there is no maximum.
+	 * @return A new series with the retained samples.
+	 * @throws IllegalArgumentException Thrown if an argument is invalid.
+	 */
+	public static Item_TimeSeriesFlexible compress(Item_TimeSeriesFlexible series, double deviation, Period maxInterval) throws IllegalArgumentException
+	{
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible(series.getUnitOfMeasure());
+		retval.setDescription(series.getDescription());
+		SwingingDoorCompressor compressor = new SwingingDoorCompressor(deviation, maxInterval, retval);
+		TimeSeriesCursor cursor = series.createCursor();
+		
+		while (cursor.next())
+		{
+			compressor.add(cursor.getTimestampMillis(), cursor.getValue(), cursor.getDataQuality());
+		}
+		
+		compressor.flush();
+		return retval;
+	}
+	
+	/**
+	 * Gets the series where the retained samples are added to.
+	 * @return Series.
+	 */
+	public Item_TimeSeriesFlexible getTarget()
+	{
+		return m_target;
+	}
+	
+	/**
+	 * Adds a sample.
+	 * @param time Timestamp.
+	 * @param value Value.
+	 * @param dq Data quality.
+	 */
+	public void add(Item_TimeInstant time, double value, DataQuality dq)
+	{
+		add(time.getValue().getMillis(), value, dq);
+	}
+	
+	/**
+	 * Adds a sample.
+	 * @param millis Timestamp in epoch milliseconds.
+	 * @param value Value.
+	 * @param dq Data quality.
+	 */
+	public void add(long millis, double value, DataQuality dq)
+	{
+		if (!m_hasArchived || millis <= m_heldTime)
+		{
+			// The first sample or a timestamp that does not increase. The held
+			// sample is compared, as it is never older than the archived one.
+			// This also ensures that the time differences below are positive.
+			retainHeld();
+			archive(millis, value, dq);
+			return;
+		}
+		
+		boolean qualityChanged = !dq.getValue().equals(m_heldQuality.getValue());
+		
+		if (qualityChanged || Double.isNaN(value) || Double.isNaN(m_heldValue))
+		{
+			// Both sides of the change are retained
+			retainHeld();
+			archive(millis, value, dq);
+			return;
+		}
+		
+		if (millis - m_archivedTime > m_maxIntervalMillis)
+		{
+			retainHeld();
+			
+			if (millis - m_archivedTime > m_maxIntervalMillis)
+			{
+				// There is a gap in the input
+				archive(millis, value, dq);
+				return;
+			}
+		}
+		
+		// If the line to this sample is outside the doors, the previous sample starts a new segment
+		double slope = (value - m_archivedValue) / (millis - m_archivedTime);
+		
+		if (slope > m_upperSlope || slope < m_lowerSlope)
+		{
+			retainHeld();
+		}
+		
+		// Narrowing the doors
+		double dt = millis - m_archivedTime;
+		m_upperSlope = Math.min(m_upperSlope, (value + m_deviation - m_archivedValue) / dt);
+		m_lowerSlope = Math.max(m_lowerSlope, (value - m_deviation - m_archivedValue) / dt);
+		m_heldTime = millis;
+		m_heldValue = value;
+		m_heldQuality = dq;
+		m_heldArchived = false;
+	}
+	
+	/**
+	 * Retains the last received sample if not retained yet. Call this at the end of a stream.
+	 */
+	public void flush()
+	{
+		retainHeld();
+	}
+	
+	private void retainHeld()
+	{
+		if (!m_heldArchived)
+		{
+			archive(m_heldTime, m_heldValue, m_heldQuality);
+		}
+	}
+	
+	private void archive(long millis, double value, DataQuality dq)
+	{
+		m_target.addValue(millis, value, dq);
+		
+		m_hasArchived = true;
+		m_archivedTime = millis;
+		m_archivedValue = value;
+		
+		// The held sample is the archived one
+		m_heldTime = millis;
+		m_heldValue = value;
+		m_heldQuality = dq;
+		m_heldArchived = true;
+		
+		m_upperSlope = Double.POSITIVE_INFINITY;
+		m_lowerSlope = Double.NEGATIVE_INFINITY;
+	}
+}
@@ -0,0 +1,68 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+/**
+ * Identifies the tag of an observation by procedure, observed property and
+ * feature of interest. Null values are allowed and equal to empty strings.
+ * @author Petri Kannisto
+ */
+final class TagKey
+{
+	private final String m_procedure;
+	private final String m_property;
+	private final String m_feature;
+	private final int m_hash;
+	
+	
+	/**
+	 * Constructor.
+	 * @param proc Procedure.
+	 * @param prop Observed property.
+	 * @param feat Feature of interest.
+	 */
+	TagKey(String proc, String prop, String feat)
+	{
+		m_procedure = proc == null ? "" : proc;
+		m_property = prop == null ? "" : prop;
+		m_feature = feat == null ? "" : feat;
+		m_hash = 31 * (31 * m_procedure.hashCode() + m_property.hashCode()) + m_feature.hashCode();
+	}
+	
+	/**
+	 * Constructor.
+	 * @param obs Observation to take the tag from.
+	 */
+	TagKey(Observation obs)
+	{
+		this(obs.getProcedure(), obs.getObservedProperty(), obs.getFeatureOfInterest());
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return m_hash;
+	}
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof TagKey))
+		{
+			return false;
+		}
+		
+		TagKey otherKey = (TagKey)other;
+		return m_hash == otherKey.m_hash && m_procedure.equals(otherKey.m_procedure) &&
+				m_property.equals(otherKey.m_property) && m_feature.equals(otherKey.m_feature);
+	}
+}
@@ -0,0 +1,67 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import org.joda.time.Period;
+
+/**
+ * Time-related helpers for the stream processing classes.
+ * @author Petri Kannisto
+ */
+final class TimeHelper
+{
+	private TimeHelper()
+	{
+		// No instances
+	}
+	
+	/**
+	 * Gets the length of a period in milliseconds.
+	 * @param period Period.
+	 * @return Length or -1 if the period is null or has months or years.
+	 */
+	static long getFixedLengthMillis(Period period)
+	{
+		if (period == null || period.getYears() != 0 || period.getMonths() != 0)
+		{
+			return -1;
+		}
+		
+		// A day is considered 24 hours
+		return period.toStandardDuration().getMillis();
+	}
+	
+	/**
+	 * Gets the time of an observation, which is its phenomenon time or, if
+	 * missing, its result time.
+	 * @param obs Observation.
+	 * @return Milliseconds since the epoch.
+	 * @throws IllegalArgumentException Thrown if the observation has neither
+	 * phenomenon time nor result time.
+	 */
+	static long getTimeMillis(Observation obs) throws IllegalArgumentException
+	{
+		Item_TimeInstant time = obs.getPhenomenonTime();
+		
+		if (time == null)
+		{
+			time = obs.getResultTime();
+		}
+		
+		if (time == null)
+		{
+			throw new IllegalArgumentException("Observation has neither phenomenon time nor result time");
+		}
+		
+		return time.getValue().getMillis();
+	}
+}
@@ -0,0 +1,632 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+/**
+ * Aggregates time series into fixed-size time buckets, e.g., to reduce the
+ * amount of data sent to a dashboard. The buckets are aligned to an origin
+ * (by default, the Unix epoch), and the result is a constant-interval time
+ * series with one value per bucket from the first to the last bucket that
+ * contains samples. Empty buckets get the value NaN and a bad data quality,
+ * except for the count aggregate, which is 0 with a good quality.
+ *
+ * The input series need not be sorted. The values are processed in a single
+ * pass over the primitive arrays of the series, and all requested aggregates
+ * are calculated in the same pass. The count of buckets is limited to
+ * {@link #MAX_BUCKET_COUNT}.
+ *
+ * In addition, the class provides the Largest-Triangle-Three-Buckets (LTTB)
+ * algorithm for visual downsampling.
+ * @author Petri Kannisto
+ */
+public final class TimeSeriesAggregator
+{
+	/**
+	 * The unit of measure of count aggregates (dimensionless).
+	 */
+	public static final String COUNT_UNIT = "1";
+	
+	/**
+	 * The maximum count of buckets in an aggregated series. The accumulators
+	 * and the results take memory in proportion to the count of buckets
+	 * between the first and the last sample, regardless of the count of
+	 * samples, so a long time span requires a greater bucket size.
+	 */
+	public static final int MAX_BUCKET_COUNT = 1000000;
+	
+	/**
+	 * Aggregate types.
+	 */
+	public enum AggregateType
+	{
+		/**
+		 * The minimum value.
+		 */
+		Min,
+		/**
+		 * The maximum value.
+		 */
+		Max,
+		/**
+		 * The arithmetic mean.
+		 */
+		Mean,
+		/**
+		 * The value with the earliest timestamp.
+		 */
+		First,
+		/**
+		 * The value with the latest timestamp.
+		 */
+		Last,
+		/**
+		 * The count of samples included in the bucket.
+		 */
+		Count
+	}
+	
+	/**
+	 * Specifies how the data quality of samples affects the buckets.
+	 */
+	public enum QualityPolicyType
+	{
+		/**
+		 * A bucket is bad if any of its samples is bad. All samples are included in aggregates.
+		 */
+		AnyBad,
+		/**
+		 * A bucket is bad only if all of its samples are bad. All samples are included in aggregates.
+		 */
+		AllBad,
+		/**
+		 * Bad samples are excluded from aggregates. A bucket is bad if it has no good samples.
+		 */
+		IgnoreBad
+	}
+	
+	private final Period m_bucketSize;
+	private final long m_bucketMillis;
+	private final long m_originMillis;
+	
+	private QualityPolicyType m_qualityPolicy = QualityPolicyType.AnyBad;
+	
+	
+	/**
+	 * Constructor. The buckets are aligned to the Unix epoch.
+	 * @param bucketSize Bucket size. This must have a fixed length, i.e., no months or years.
+	 * @throws IllegalArgumentException Thrown if the bucket size is invalid.
+	 */
+	public TimeSeriesAggregator(Period bucketSize) throws IllegalArgumentException
+	{
+		this(bucketSize, 0);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param bucketSize Bucket size. This must have a fixed length, i.e., no months or years.
+	 * @param origin The start time of a bucket. The other buckets are aligned to this.
+	 * @throws IllegalArgumentException Thrown if the bucket size is invalid.
+	 */
+	public TimeSeriesAggregator(Period bucketSize, Item_TimeInstant origin) throws IllegalArgumentException
+	{
+		this(bucketSize, origin.getValue().getMillis());
+	}
+	
+	private TimeSeriesAggregator(Period bucketSize, long originMillis)
+	{
+		m_bucketMillis = TimeHelper.getFixedLengthMillis(bucketSize);
+		
+		if (m_bucketMillis <= 0)
+		{
+			throw new IllegalArgumentException("The bucket size must be positive and have a fixed length (no months or years)");
+		}
+		
+		m_bucketSize = bucketSize;
+		m_originMillis = originMillis;
+	}
+	
+	/**
+	 * Gets the bucket size.
+	 * @return Bucket size.
+	 */
+	public Period getBucketSize()
+	{
+		return m_bucketSize;
+	}
+	
+	/**
+	 * Gets the quality policy. The default is {@link QualityPolicyType#AnyBad}.
+	 * @return Quality policy.
+	 */
+	public QualityPolicyType getQualityPolicy()
+	{
+		return m_qualityPolicy;
+	}
+	
+	/**
+	 * Sets the quality policy.
+	 * @param policy Quality policy.
+	 */
+	public void setQualityPolicy(QualityPolicyType policy)
+	{
+		m_qualityPolicy = policy;
+	}
+	
+	/**
+	 * Aggregates a time series.
+	 * @param series Time series.
+	 * @param type Aggregate type.
+	 * @return Aggregated time series.
+	 * @throws IllegalArgumentException Thrown if the time span of the series requires more than {@link #MAX_BUCKET_COUNT} buckets.
+	 */
+	public Item_TimeSeriesConstant aggregate(Item_TimeSeries series, AggregateType type) throws IllegalArgumentException
+	{
+		return aggregate(series, new AggregateType[] { type })[0];
+	}
+	
+	/**
+	 * Aggregates a time series with multiple aggregate types at once.
+	 * @param series Time series.
+	 * @param types Aggregate types.
+	 * @return Aggregated time series in the same order as the types.
+	 * @throws IllegalArgumentException Thrown if the time span of the series requires more than {@link #MAX_BUCKET_COUNT} buckets.
+	 */
+	public Item_TimeSeriesConstant[] aggregate(Item_TimeSeries series, AggregateType... types) throws IllegalArgumentException
+	{
+		// A compressed series is decompressed into a temporary copy
+		series = series.getUncompressed();
+		int sampleCount = series.getValueCount();
+		long[] times = getTimestamps(series);
+		int timeOffset = getTimestampOffset(series);
+		int valueOffset = series.getArrayOffset();
+		
+		// A single pass over the samples. The range of buckets grows as needed,
+		// so the time span of the series is not resolved beforehand.
+		Buckets buckets = new Buckets(types);
+		double[] values = series.getValueArray();
+		DataQuality[] qualities = series.getDataQualityArray();
+		boolean ignoreBad = m_qualityPolicy == QualityPolicyType.IgnoreBad;
+		
+		for (int a = 0; a < sampleCount; ++a)
+		{
+			long time = times[timeOffset + a];
+			long bucket = Math.floorDiv(time - m_originMillis, m_bucketMillis);
+			buckets.add(bucket, time, values[valueOffset + a], qualities[valueOffset + a].isGood(), ignoreBad);
+		}
+		
+		// Creating the results
+		int bucketCount = buckets.getCount();
+		long firstBucketStart = m_originMillis + buckets.getFirstBucket() * m_bucketMillis;
+		Item_TimeInstant baseTime = new Item_TimeInstant(new DateTime(firstBucketStart, DateTimeZone.UTC));
+		Item_TimeSeriesConstant[] retval = new Item_TimeSeriesConstant[types.length];
+		
+		for (int t = 0; t < types.length; ++t)
+		{
+			AggregateType type = types[t];
+			String uom = type == AggregateType.Count ? COUNT_UNIT : series.getUnitOfMeasure();
+			Item_TimeSeriesConstant result = new Item_TimeSeriesConstant(uom, baseTime, m_bucketSize);
+			result.ensureCapacity(bucketCount);
+			
+			for (int b = 0; b < bucketCount; ++b)
+			{
+				int included = buckets.getIncludedCount(b);
+				int total = buckets.getTotalCount(b);
+				DataQuality dq = getBucketQuality(total, buckets.getBadCount(b), included);
+				
+				if (type == AggregateType.Count)
+				{
+					// An empty bucket has a known count
+					result.addValue(included, total == 0 ? DataQuality.createGood() : dq);
+				}
+				else if (included == 0)
+				{
+					result.addValue(Double.NaN, DataQuality.createBad());
+				}
+				else
+				{
+					result.addValue(buckets.getValue(type, b), dq);
+				}
+			}
+			
+			retval[t] = result;
+		}
+		
+		return retval;
+	}
+	
+	/**
+	 * Downsamples a time series with the Largest-Triangle-Three-Buckets (LTTB)
+	 * algorithm. This retains the visual shape of the series better than
+	 * bucketed aggregates. The first and the last sample are always retained.
+	 * The samples must be in ascending order of time.
+	 * @param series Time series.
+	 * @param threshold The count of samples to retain. If this is at least the
+	 * count of samples in the series, all samples are retained.
+	 * @return Downsampled series.
+	 * @throws IllegalArgumentException Thrown if the threshold is less than 3.
+	 */
+	public static Item_TimeSeriesFlexible downsampleLttb(Item_TimeSeries series, int threshold) throws IllegalArgumentException
+	{
+		if (threshold < 3)
+		{
+			throw new IllegalArgumentException("The threshold must be at least 3");
+		}
+		
+		// A compressed series is decompressed into a temporary copy
+		series = series.getUncompressed();
+		int sampleCount = series.getValueCount();
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible(series.getUnitOfMeasure());
+		retval.setDescription(series.getDescription());
+		
+		if (threshold >= sampleCount)
+		{
+			for (int a = 0; a < sampleCount; ++a)
+			{
+				addSample(series, a, retval);
+			}
+			
+			return retval;
+		}
+		
+		long[] times = getTimestamps(series);
+		int timeOffset = getTimestampOffset(series);
+		double[] values = series.getValueArray();
+		int valueOffset = series.getArrayOffset();
+		long firstTime = times[timeOffset];
+		
+		// The samples between the first and the last are divided into buckets
+		double bucketSize = (double)(sampleCount - 2) / (threshold - 2);
+		int selected = 0;
+		addSample(series, 0, retval);
+		
+		for (int b = 0; b < threshold - 2; ++b)
+		{
+			// The average of the next bucket (or the last sample) is the third point
+			int nextStart = (int)((b + 1) * bucketSize) + 1;
+			int nextEnd = Math.min((int)((b + 2) * bucketSize) + 1, sampleCount);
+			double avgX = 0;
+			double avgY = 0;
+			
+			for (int a = nextStart; a < nextEnd; ++a)
+			{
+				avgX += times[timeOffset + a] - firstTime;
+				avgY += values[valueOffset + a];
+			}
+			
+			avgX /= nextEnd - nextStart;
+			avgY /= nextEnd - nextStart;
+			
+			// Selecting the point that forms the largest triangle
+			int start = (int)(b * bucketSize) + 1;
+			int end = nextStart;
+			double selectedX = times[timeOffset + selected] - firstTime;
+			double selectedY = values[valueOffset + selected];
+			double maxArea = -1;
+			int maxIndex = start;
+			
+			for (int a = start; a < end; ++a)
+			{
+				// Twice the area is enough for comparison
+				double area = Math.abs((selectedX - avgX) * (values[valueOffset + a] - selectedY) -
+						(selectedX - (times[timeOffset + a] - firstTime)) * (avgY - selectedY));
+				
+				if (area > maxArea)
+				{
+					maxArea = area;
+					maxIndex = a;
+				}
+			}
+			
+			addSample(series, maxIndex, retval);
+			selected = maxIndex;
+		}
+		
+		addSample(series, sampleCount - 1, retval);
+		return retval;
+	}
+	
+	private DataQuality getBucketQuality(int total, int bad, int included)
+	{
+		boolean isBad;
+		
+		switch (m_qualityPolicy)
+		{
+		case AnyBad:
+			isBad = bad > 0;
+			break;
+		case AllBad:
+			isBad = total > 0 && bad == total;
+			break;
+		case IgnoreBad:
+			isBad = total > 0 && included == 0;
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported quality policy " + m_qualityPolicy.toString());
+		}
+		
+		return isBad ? DataQuality.createBad() : DataQuality.createGood();
+	}
+	
+	private static void addSample(Item_TimeSeries source, int index, Item_TimeSeriesFlexible target)
+	{
+		if (source instanceof Item_TimeSeriesFlexible)
+		{
+			// Reusing the timestamp object to preserve the time zone
+			Item_TimeInstant timestamp = ((Item_TimeSeriesFlexible)source).getTimestamp(index);
+			target.addValue(timestamp, source.getValue(index), source.getDataQuality(index));
+		}
+		else
+		{
+			target.addValue(source.getTimestampMillis(index), source.getValue(index), source.getDataQuality(index));
+		}
+	}
+	
+	private static long[] getTimestamps(Item_TimeSeries series)
+	{
+		if (series instanceof Item_TimeSeriesFlexible)
+		{
+			// No copying needed; the offset equals that of the values
+			return ((Item_TimeSeriesFlexible)series).getTimestampMillisArray();
+		}
+		
+		long[] retval = new long[series.getValueCount()];
+		
+		for (int a = 0; a < retval.length; ++a)
+		{
+			retval[a] = series.getTimestampMillis(a);
+		}
+		
+		return retval;
+	}
+	
+	private static int getTimestampOffset(Item_TimeSeries series)
+	{
+		return series instanceof Item_TimeSeriesFlexible ? series.getArrayOffset() : 0;
+	}
+	
+	
+	/**
+	 * Accumulators for a contiguous range of buckets. The range grows in
+	 * either direction as samples arrive.
+	 */
+	private static final class Buckets
+	{
+		private static final int INITIAL_CAPACITY = 16;
+		
+		private final boolean m_needMin;
+		private final boolean m_needMax;
+		private final boolean m_needSum;
+		private final boolean m_needFirst;
+		private final boolean m_needLast;
+		
+		// The bucket at index 0 of the arrays
+		private long m_baseBucket = 0;
+		private int m_capacity = 0;
+		
+		// The range of buckets with samples in between
+		private long m_firstBucket = 0;
+		private int m_count = 0;
+		
+		private int[] m_includedCounts = new int[0];
+		private int[] m_totalCounts = new int[0];
+		private int[] m_badCounts = new int[0];
+		private double[] m_mins;
+		private double[] m_maxs;
+		private double[] m_sums;
+		private long[] m_firstTimes;
+		private double[] m_firstValues;
+		private long[] m_lastTimes;
+		private double[] m_lastValues;
+		
+		
+		Buckets(AggregateType[] types)
+		{
+			// Only allocating the accumulators needed
+			boolean needMin = false, needMax = false, needSum = false, needFirst = false, needLast = false;
+			
+			for (AggregateType t : types)
+			{
+				needMin |= t == AggregateType.Min;
+				needMax |= t == AggregateType.Max;
+				needSum |= t == AggregateType.Mean;
+				needFirst |= t == AggregateType.First;
+				needLast |= t == AggregateType.Last;
+			}
+			
+			m_needMin = needMin;
+			m_needMax = needMax;
+			m_needSum = needSum;
+			m_needFirst = needFirst;
+			m_needLast = needLast;
+			m_mins = needMin ? new double[0] : null;
+			m_maxs = needMax ? new double[0] : null;
+			m_sums = needSum ? new double[0] : null;
+			m_firstTimes = needFirst ? new long[0] : null;
+			m_firstValues = needFirst ? new double[0] : null;
+			m_lastTimes = needLast ? new long[0] : null;
+			m_lastValues = needLast ? new double[0] : null;
+		}
+		
+		void add(long bucket, long time, double value, boolean good, boolean ignoreBad) throws IllegalArgumentException
+		{
+			int index = reserve(bucket);
+			++m_totalCounts[index];
+			
+			if (!good)
+			{
+				++m_badCounts[index];
+				
+				if (ignoreBad)
+				{
+					return;
+				}
+			}
+			
+			boolean isFirstInBucket = m_includedCounts[index]++ == 0;
+			
+			if (m_needMin)
+			{
+				m_mins[index] = isFirstInBucket ? value : Math.min(m_mins[index], value);
+			}
+			if (m_needMax)
+			{
+				m_maxs[index] = isFirstInBucket ? value : Math.max(m_maxs[index], value);
+			}
+			if (m_needSum)
+			{
+				m_sums[index] += value;
+			}
+			if (m_needFirst && (isFirstInBucket || time < m_firstTimes[index]))
+			{
+				m_firstTimes[index] = time;
+				m_firstValues[index] = value;
+			}
+			if (m_needLast && (isFirstInBucket || time >= m_lastTimes[index]))
+			{
+				m_lastTimes[index] = time;
+				m_lastValues[index] = value;
+			}
+		}
+		
+		long getFirstBucket()
+		{
+			return m_firstBucket;
+		}
+		
+		int getCount()
+		{
+			return m_count;
+		}
+		
+		int getIncludedCount(int bucket)
+		{
+			return m_includedCounts[toIndex(bucket)];
+		}
+		
+		int getTotalCount(int bucket)
+		{
+			return m_totalCounts[toIndex(bucket)];
+		}
+		
+		int getBadCount(int bucket)
+		{
+			return m_badCounts[toIndex(bucket)];
+		}
+		
+		double getValue(AggregateType type, int bucket)
+		{
+			int index = toIndex(bucket);
+			
+			switch (type)
+			{
+			case Min:
+				return m_mins[index];
+			case Max:
+				return m_maxs[index];
+			case Mean:
+				return m_sums[index] / m_includedCounts[index];
+			case First:
+				return m_firstValues[index];
+			case Last:
+				return m_lastValues[index];
+			default:
+				throw new IllegalArgumentException("Unsupported aggregate type " + type.toString());
+			}
+		}
+		
+		private int toIndex(int bucket)
+		{
+			// The bucket is relative to the first bucket with samples
+			return (int)(m_firstBucket - m_baseBucket) + bucket;
+		}
+		
+		private int reserve(long bucket) throws IllegalArgumentException
+		{
+			long first = m_count == 0 ? bucket : Math.min(m_firstBucket, bucket);
+			long last = m_count == 0 ? bucket : Math.max(m_firstBucket + m_count - 1, bucket);
+			
+			if (last - first + 1 > MAX_BUCKET_COUNT)
+			{
+				throw new IllegalArgumentException("Too many buckets (max " + MAX_BUCKET_COUNT + "); use a greater bucket size");
+			}
+			
+			if (m_count == 0 || first < m_baseBucket || last >= m_baseBucket + m_capacity)
+			{
+				grow(first, last);
+			}
+			
+			m_firstBucket = first;
+			m_count = (int)(last - first + 1);
+			return (int)(bucket - m_baseBucket);
+		}
+		
+		private void grow(long first, long last)
+		{
+			// Doubling the capacity keeps the growth amortised in either direction
+			int span = (int)(last - first + 1);
+			int capacity = (int)Math.min(Math.max(span, Math.max(2L * m_capacity, INITIAL_CAPACITY)), MAX_BUCKET_COUNT);
+			
+			// The free space goes to the side where the range grew
+			long base = m_count > 0 && first < m_firstBucket ? last - capacity + 1 : first;
+			int from = m_count > 0 ? (int)(m_firstBucket - m_baseBucket) : 0;
+			int to = m_count > 0 ? (int)(m_firstBucket - base) : 0;
+			
+			m_includedCounts = copy(m_includedCounts, capacity, from, to, m_count);
+			m_totalCounts = copy(m_totalCounts, capacity, from, to, m_count);
+			m_badCounts = copy(m_badCounts, capacity, from, to, m_count);
+			m_mins = copy(m_mins, capacity, from, to, m_count);
+			m_maxs = copy(m_maxs, capacity, from, to, m_count);
+			m_sums = copy(m_sums, capacity, from, to, m_count);
+			m_firstTimes = copy(m_firstTimes, capacity, from, to, m_count);
+			m_firstValues = copy(m_firstValues, capacity, from, to, m_count);
+			m_lastTimes = copy(m_lastTimes, capacity, from, to, m_count);
+			m_lastValues = copy(m_lastValues, capacity, from, to, m_count);
+			m_baseBucket = base;
+			m_capacity = capacity;
+		}
+		
+		private static int[] copy(int[] source, int capacity, int from, int to, int length)
+		{
+			int[] retval = new int[capacity];
+			System.arraycopy(source, from, retval, to, length);
+			return retval;
+		}
+		
+		private static long[] copy(long[] source, int capacity, int from, int to, int length)
+		{
+			if (source == null)
+			{
+				return null;
+			}
+			
+			long[] retval = new long[capacity];
+			System.arraycopy(source, from, retval, to, length);
+			return retval;
+		}
+		
+		private static double[] copy(double[] source, int capacity, int from, int to, int length)
+		{
+			if (source == null)
+			{
+				return null;
+			}
+			
+			double[] retval = new double[capacity];
+			System.arraycopy(source, from, retval, to, length);
+			return retval;
+		}
+	}
+}
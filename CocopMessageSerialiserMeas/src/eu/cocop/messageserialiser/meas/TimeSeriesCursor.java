@@ -0,0 +1,111 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+/**
+ * Iterates the samples of a time series sequentially. This is the efficient
+ * way to read a compressed time series, because each sample is decoded
+ * only once. Call {@link #next()} before reading the first sample. The
+ * series must not be modified during the iteration.
+ * @see Item_TimeSeries#createCursor()
+ * @author Petri Kannisto
+ */
+public final class TimeSeriesCursor
+{
+	private final Item_TimeSeries m_series;
+	private final int m_count;
+	
+	// Null if the series is not compressed
+	private final CompressedTimeSeriesData.Reader m_reader;
+	private final boolean m_readerHasTimestamps;
+	
+	private int m_index = -1;
+	
+	
+	/**
+	 * Constructor.
+	 * @param series Time series.
+	 * @param compressed Compressed data or null if the series is not compressed.
+	 */
+	TimeSeriesCursor(Item_TimeSeries series, CompressedTimeSeriesData compressed)
+	{
+		m_series = series;
+		m_count = series.getValueCount();
+		m_reader = compressed == null ? null : compressed.createReader();
+		m_readerHasTimestamps = compressed != null && compressed.getHasTimestamps();
+	}
+	
+	/**
+	 * Moves to the next sample.
+	 * @return True if a sample was available, otherwise false.
+	 */
+	public boolean next()
+	{
+		if (m_index + 1 >= m_count)
+		{
+			return false;
+		}
+		
+		++m_index;
+		
+		if (m_reader != null)
+		{
+			m_reader.next();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Gets the index of the current sample.
+	 * @return Index.
+	 */
+	public int getIndex()
+	{
+		return m_index;
+	}
+	
+	/**
+	 * Gets the timestamp of the current sample.
+	 * @return Timestamp in epoch milliseconds.
+	 */
+	public long getTimestampMillis()
+	{
+		if (m_readerHasTimestamps)
+		{
+			return m_reader.getTimestamp();
+		}
+		else
+		{
+			// Either uncompressed or calculated from base time and spacing
+			return m_series.getTimestampMillis(m_index);
+		}
+	}
+	
+	/**
+	 * Gets the value of the current sample.
+	 * @return Value.
+	 */
+	public double getValue()
+	{
+		return m_reader != null ? m_reader.getValue() : m_series.getValue(m_index);
+	}
+	
+	/**
+	 * Gets the data quality of the current sample.
+	 * @return Data quality.
+	 */
+	public DataQuality getDataQuality()
+	{
+		return m_reader != null ? m_reader.getDataQuality() : m_series.getDataQuality(m_index);
+	}
+}
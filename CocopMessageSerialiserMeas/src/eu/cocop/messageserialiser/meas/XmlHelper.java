@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 2/2018
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package eu.cocop.messageserialiser.meas;
 
@@ -21,8 +21,16 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.StreamFilter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.joda.time.Period;
+import org.w3c.dom.Document;
 
 import eu.cocop.messageserialiser.meas.InvalidMessageException;
 import eu.cocop.messageserialiser.meas.XmlHelper;
@@ -58,6 +66,14 @@ class XmlHelper
 	private static Object m_jaxbContextLock = new Object();
 	private static JAXBContext m_jaxbContext = null; // This will be created as needed
 	
+	// Unmarshallers are not thread-safe, but each thread can reuse its own instance
+	private static final ThreadLocal<Unmarshaller> m_unmarshallers = new ThreadLocal<>();
+	
+	// The same applies to StAX input factories, marshallers and DOM document builders
+	private static final ThreadLocal<XMLInputFactory> m_inputFactories = new ThreadLocal<>();
+	private static final ThreadLocal<Marshaller> m_marshallers = new ThreadLocal<>();
+	private static final ThreadLocal<DocumentBuilder> m_documentBuilders = new ThreadLocal<>();
+	
 	
 	private XmlHelper()
 	{
@@ -93,6 +109,44 @@ class XmlHelper
 		}
 	}
 	
+	/**
+	 * Gets an unmarshaller for the current thread. Creating an unmarshaller
+	 * is expensive, and therefore each thread reuses its own instance.
+	 * @return Unmarshaller.
+	 * @throws JAXBException (Not expected in normal conditions.)
+	 */
+	static Unmarshaller getUnmarshaller() throws JAXBException
+	{
+		Unmarshaller unmarshaller = m_unmarshallers.get();
+		
+		if (unmarshaller == null)
+		{
+			unmarshaller = getJaxbContext().createUnmarshaller();
+			m_unmarshallers.set(unmarshaller);
+		}
+		
+		return unmarshaller;
+	}
+	
+	/**
+	 * Gets a marshaller for the current thread. Like unmarshallers, each
+	 * thread reuses its own instance.
+	 * @return Marshaller.
+	 * @throws JAXBException (Not expected in normal conditions.)
+	 */
+	private static Marshaller getMarshaller() throws JAXBException
+	{
+		Marshaller marshaller = m_marshallers.get();
+		
+		if (marshaller == null)
+		{
+			marshaller = getJaxbContext().createMarshaller();
+			m_marshallers.set(marshaller);
+		}
+		
+		return marshaller;
+	}
+	
 	/**
 	 * Parses a period value from XML.
 	 * @param v Value as XML string.
@@ -239,8 +293,7 @@ class XmlHelper
 			writer = new OutputStreamWriter(stream);
 			
 			// Do marshalling
-			Marshaller marshaller = XmlHelper.getJaxbContext().createMarshaller();
-			marshaller.marshal(proxy, writer);
+			getMarshaller().marshal(proxy, writer);
 			
 			writer.flush();
 			return stream.toByteArray();
@@ -251,6 +304,8 @@ class XmlHelper
 		}
 		catch (JAXBException e)
 		{
+			// The state of the marshaller is unknown after a failure
+			m_marshallers.remove();
 			throw new RuntimeException(e.getMessage(), e);
 		}
 		finally
@@ -268,6 +323,40 @@ class XmlHelper
 		}
 	}
 	
+	/**
+	 * Serialises an object to XML.
+	 * @param proxy Proxy to be serialised.
+	 * @param minimalNamespaces If true, only the namespaces actually used are
+	 * declared and with short prefixes. Otherwise, JAXB declares every namespace
+	 * of the context.
+	 * @return Serialised presentation.
+	 */
+	static byte[] toXmlBytes(Object proxy, boolean minimalNamespaces)
+	{
+		if (!minimalNamespaces)
+		{
+			return toXmlBytes(proxy);
+		}
+		
+		try
+		{
+			// Marshalling to DOM to find out the namespaces used
+			Document document = getDocumentBuilder().newDocument();
+			getMarshaller().marshal(proxy, document);
+			
+			return XmlNamespaceWriter.write(document);
+		}
+		catch (ParserConfigurationException e)
+		{
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		catch (JAXBException e)
+		{
+			m_marshallers.remove();
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+	
 	/**
 	 * Deserialises an object from XML.
 	 * @param xmlBytes XML data.
@@ -278,9 +367,6 @@ class XmlHelper
 	{
 		try
 		{
-			// Get JAXB context
-			JAXBContext jaxbContext = XmlHelper.getJaxbContext();
-			
 			// Do JAXB unmarshalling
 			ByteArrayInputStream reader = null;
 			Object proxy = null;
@@ -288,7 +374,7 @@ class XmlHelper
 			try
 			{
 				reader = new ByteArrayInputStream(xmlBytes);
-				Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+				Unmarshaller unmarshaller = getUnmarshaller();
 				proxy = unmarshaller.unmarshal(reader);
 			}
 			finally
@@ -308,4 +394,101 @@ class XmlHelper
 			throw new InvalidMessageException("Failed to deserialise from XML", e);
 		}
 	}
+	
+	/**
+	 * Deserialises an object from XML so that a filter decides which parsing
+	 * events reach JAXB. The whole document is parsed regardless of the filter,
+	 * so it must be well-formed.
+	 * @param xmlBytes XML data.
+	 * @param filter Filter or null to deserialise everything.
+	 * @return Proxy object.
+	 * @throws InvalidMessageException Thrown if a message-related error is found.
+	 */
+	static Object deserialiseFromXml(byte[] xmlBytes, StreamFilter filter) throws InvalidMessageException
+	{
+		if (filter == null)
+		{
+			return deserialiseFromXml(xmlBytes);
+		}
+		
+		XMLStreamReader reader = null;
+		
+		try
+		{
+			XMLInputFactory factory = getInputFactory();
+			reader = factory.createFilteredReader(factory.createXMLStreamReader(new ByteArrayInputStream(xmlBytes)), filter);
+			Object proxy = getUnmarshaller().unmarshal(reader);
+			
+			// JAXB stops at the end of the root element; checking the rest
+			while (reader.hasNext())
+			{
+				reader.next();
+			}
+			
+			return proxy;
+		}
+		catch (XMLStreamException e)
+		{
+			throw new InvalidMessageException("Failed to deserialise from XML", e);
+		}
+		catch (JAXBException e)
+		{
+			// Unlike with streams, the unmarshaller keeps its state after a
+			// failure in a StAX reader, so it cannot be reused
+			m_unmarshallers.remove();
+			throw new InvalidMessageException("Failed to deserialise from XML", e);
+		}
+		finally
+		{
+			closeReader(reader);
+		}
+	}
+	
+	private static XMLInputFactory getInputFactory()
+	{
+		XMLInputFactory factory = m_inputFactories.get();
+		
+		if (factory == null)
+		{
+			factory = XMLInputFactory.newInstance();
+			// No DTDs, so that entity expansion cannot be used to exhaust memory
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			m_inputFactories.set(factory);
+		}
+		
+		return factory;
+	}
+	
+	private static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException
+	{
+		DocumentBuilder builder = m_documentBuilders.get();
+		
+		if (builder == null)
+		{
+			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			dbf.setNamespaceAware(true);
+			builder = dbf.newDocumentBuilder();
+			m_documentBuilders.set(builder);
+		}
+		
+		return builder;
+	}
+	
+	private static void closeReader(XMLStreamReader reader)
+	{
+		if (reader == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			reader.close();
+		}
+		catch (XMLStreamException e)
+		{
+			// Nothing to do; the data is in memory
+		}
+	}
 }
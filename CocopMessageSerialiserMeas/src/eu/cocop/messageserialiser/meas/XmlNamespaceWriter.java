@@ -0,0 +1,304 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Serialises a DOM document so that only the namespaces actually used are
+ * declared. The declarations are all on the root element, and each
+ * namespace has a short, stable prefix regardless of the JAXB context. The
+ * prefixes in xsi:type values are rewritten accordingly.
+ * @author Petri Kannisto
+ */
+final class XmlNamespaceWriter
+{
+	private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+	private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+	
+	// The known namespaces in the order of declaration
+	private static final Map<String, String> KNOWN_PREFIXES = new LinkedHashMap<>();
+	
+	static
+	{
+		KNOWN_PREFIXES.put("http://www.opengis.net/gml/3.2", "gml");
+		KNOWN_PREFIXES.put("http://www.opengis.net/om/2.0", "om");
+		KNOWN_PREFIXES.put("http://www.w3.org/1999/xlink", "xlink");
+		KNOWN_PREFIXES.put("http://www.opengis.net/swe/2.0", "swe");
+		KNOWN_PREFIXES.put("http://www.opengis.net/tsml/1.0", "tsml");
+		KNOWN_PREFIXES.put("http://www.opengis.net/gmlcov/1.0", "gmlcov");
+		KNOWN_PREFIXES.put("http://www.opengis.net/sos/2.0", "sos");
+		KNOWN_PREFIXES.put("http://www.opengis.net/swes/2.0", "swes");
+		KNOWN_PREFIXES.put("http://www.opengis.net/fes/2.0", "fes");
+		KNOWN_PREFIXES.put("http://www.opengis.net/ows/1.1", "ows");
+		KNOWN_PREFIXES.put("http://www.isotc211.org/2005/gmd", "gmd");
+		KNOWN_PREFIXES.put("http://www.isotc211.org/2005/gco", "gco");
+		KNOWN_PREFIXES.put("http://www.isotc211.org/2005/gts", "gts");
+		KNOWN_PREFIXES.put("http://www.cocop-spire.eu/om-custom/1.1", "cc11");
+		KNOWN_PREFIXES.put("http://www.cocop-spire.eu/om-custom/1.2", "cc");
+		KNOWN_PREFIXES.put("http://docs.oasis-open.org/wsn/t-1", "wstop");
+		KNOWN_PREFIXES.put("http://www.w3.org/2005/08/addressing", "wsa");
+		KNOWN_PREFIXES.put(XSI_NAMESPACE, "xsi");
+		KNOWN_PREFIXES.put("http://www.w3.org/2001/XMLSchema", "xs");
+	}
+	
+	// Namespace URI -> prefix for the namespaces used in the document
+	private final HashMap<String, String> m_prefixes = new HashMap<>();
+	private final StringBuilder m_builder = new StringBuilder();
+	private int m_unknownCounter = 0;
+	
+	
+	private XmlNamespaceWriter()
+	{
+		// Private ctor -> use the static method
+	}
+	
+	/**
+	 * Serialises a document.
+	 * @param document Document.
+	 * @return XML data in UTF-8.
+	 * @throws IllegalStateException Thrown if an xsi:type value has an undeclared prefix.
+	 */
+	static byte[] write(Document document) throws IllegalStateException
+	{
+		XmlNamespaceWriter writer = new XmlNamespaceWriter();
+		Element root = document.getDocumentElement();
+		
+		// Collecting the namespaces first to declare them on the root
+		LinkedHashMap<String, Boolean> unknown = new LinkedHashMap<>();
+		writer.collectNamespaces(root, unknown);
+		
+		StringBuilder declarations = new StringBuilder();
+		
+		for (Map.Entry<String, String> known : KNOWN_PREFIXES.entrySet())
+		{
+			if (writer.m_prefixes.containsKey(known.getKey()))
+			{
+				writer.m_prefixes.put(known.getKey(), known.getValue());
+				appendDeclaration(declarations, known.getValue(), known.getKey());
+			}
+		}
+		
+		for (String namespace : unknown.keySet())
+		{
+			String prefix = "ns" + (++writer.m_unknownCounter);
+			writer.m_prefixes.put(namespace, prefix);
+			appendDeclaration(declarations, prefix, namespace);
+		}
+		
+		writer.m_builder.append(XML_DECLARATION);
+		writer.writeElement(root, declarations.toString());
+		return writer.m_builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private void collectNamespaces(Element element, LinkedHashMap<String, Boolean> unknown)
+	{
+		addNamespace(element.getNamespaceURI(), unknown);
+		NamedNodeMap attributes = element.getAttributes();
+		
+		for (int a = 0; a < attributes.getLength(); ++a)
+		{
+			Attr attribute = (Attr)attributes.item(a);
+			
+			if (XMLNS_NAMESPACE.equals(attribute.getNamespaceURI()))
+			{
+				continue;
+			}
+			
+			addNamespace(attribute.getNamespaceURI(), unknown);
+			
+			if (isXsiType(attribute))
+			{
+				addNamespace(resolveQNameNamespace(element, attribute.getValue()), unknown);
+			}
+		}
+		
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			if (child.getNodeType() == Node.ELEMENT_NODE)
+			{
+				collectNamespaces((Element)child, unknown);
+			}
+		}
+	}
+	
+	private void addNamespace(String namespace, LinkedHashMap<String, Boolean> unknown)
+	{
+		if (namespace == null || namespace.isEmpty() || m_prefixes.containsKey(namespace))
+		{
+			return;
+		}
+		
+		// The known ones get their prefix later
+		m_prefixes.put(namespace, null);
+		
+		if (!KNOWN_PREFIXES.containsKey(namespace))
+		{
+			unknown.put(namespace, true);
+		}
+	}
+	
+	private void writeElement(Element element, String declarations)
+	{
+		String name = getQualifiedName(element.getNamespaceURI(), element.getLocalName());
+		m_builder.append('<').append(name).append(declarations);
+		NamedNodeMap attributes = element.getAttributes();
+		
+		for (int a = 0; a < attributes.getLength(); ++a)
+		{
+			Attr attribute = (Attr)attributes.item(a);
+			
+			if (XMLNS_NAMESPACE.equals(attribute.getNamespaceURI()))
+			{
+				continue;
+			}
+			
+			String value = attribute.getValue();
+			
+			if (isXsiType(attribute))
+			{
+				int colon = value.indexOf(':');
+				String namespace = resolveQNameNamespace(element, value);
+				
+				if (namespace != null)
+				{
+					value = m_prefixes.get(namespace) + ":" + value.substring(colon + 1);
+				}
+			}
+			
+			m_builder.append(' ').append(getQualifiedName(attribute.getNamespaceURI(), getLocalName(attribute))).append("=\"");
+			appendEscaped(value, true);
+			m_builder.append('"');
+		}
+		
+		if (element.getFirstChild() == null)
+		{
+			m_builder.append("/>");
+			return;
+		}
+		
+		m_builder.append('>');
+		
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			switch (child.getNodeType())
+			{
+			case Node.ELEMENT_NODE:
+				writeElement((Element)child, "");
+				break;
+			
+			case Node.TEXT_NODE:
+			case Node.CDATA_SECTION_NODE:
+				appendEscaped(child.getNodeValue(), false);
+				break;
+			
+			default:
+				// Comments and processing instructions are not expected
+				break;
+			}
+		}
+		
+		m_builder.append("</").append(name).append('>');
+	}
+	
+	private String getQualifiedName(String namespace, String localName)
+	{
+		if (namespace == null || namespace.isEmpty())
+		{
+			return localName;
+		}
+		
+		return m_prefixes.get(namespace) + ":" + localName;
+	}
+	
+	private void appendEscaped(String value, boolean attribute)
+	{
+		for (int a = 0; a < value.length(); ++a)
+		{
+			char c = value.charAt(a);
+			
+			switch (c)
+			{
+			case '&':
+				m_builder.append("&amp;");
+				break;
+			case '<':
+				m_builder.append("&lt;");
+				break;
+			case '>':
+				m_builder.append("&gt;");
+				break;
+			case '"':
+				m_builder.append(attribute ? "&quot;" : "\"");
+				break;
+			case '\r':
+				m_builder.append("&#13;");
+				break;
+			case '\n':
+				m_builder.append(attribute ? "&#10;" : "\n");
+				break;
+			case '\t':
+				m_builder.append(attribute ? "&#9;" : "\t");
+				break;
+			default:
+				m_builder.append(c);
+				break;
+			}
+		}
+	}
+	
+	private static void appendDeclaration(StringBuilder builder, String prefix, String namespace)
+	{
+		builder.append(" xmlns:").append(prefix).append("=\"").append(namespace).append('"');
+	}
+	
+	private static boolean isXsiType(Attr attribute)
+	{
+		return XSI_NAMESPACE.equals(attribute.getNamespaceURI()) && "type".equals(getLocalName(attribute));
+	}
+	
+	private static String getLocalName(Attr attribute)
+	{
+		// A DOM level 1 attribute has no local name
+		return attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getName();
+	}
+	
+	private static String resolveQNameNamespace(Element element, String qName)
+	{
+		int colon = qName.indexOf(':');
+		
+		if (colon < 0)
+		{
+			return null;
+		}
+		
+		String prefix = qName.substring(0, colon);
+		String namespace = element.lookupNamespaceURI(prefix);
+		
+		if (namespace == null)
+		{
+			throw new IllegalStateException("Undeclared prefix in xsi:type \"" + qName + "\"");
+		}
+		
+		return namespace;
+	}
+}
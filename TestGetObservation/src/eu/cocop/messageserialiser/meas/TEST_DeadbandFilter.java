@@ -0,0 +1,231 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.DeadbandFilter.DeadbandType;
+
+public class TEST_DeadbandFilter
+{
+	// This test focuses on:
+	// - Absolute deadband (10)
+	// - Percentage deadband and NaN (20)
+	// - Heartbeat and data quality transitions (30)
+	// - Tag keys and other result types (40)
+	// - Concurrent use (50)
+	
+	
+	@Test
+	public void deadband_10_absolute() throws Exception
+	{
+		DeadbandFilter filter = new DeadbandFilter(DeadbandType.Absolute, 0.5, null);
+		
+		assertTrue(filter.test(createObservation(0, 10, "tag"))); // First one always passes
+		assertFalse(filter.test(createObservation(1, 10.3, "tag")));
+		assertFalse(filter.test(createObservation(2, 10.5, "tag"))); // Exactly on the deadband
+		assertFalse(filter.test(createObservation(3, 9.6, "tag")));
+		assertTrue(filter.test(createObservation(4, 10.6, "tag")));
+		
+		// Relative to the last passed value (10.6), not the last received value
+		assertFalse(filter.test(createObservation(5, 10.2, "tag")));
+		assertFalse(filter.test(createObservation(6, 11.0, "tag")));
+		assertTrue(filter.test(createObservation(7, 10.0, "tag")));
+		
+		assertEquals(3, filter.getPassedCount());
+		assertEquals(5, filter.getSuppressedCount());
+		
+		// Zero deadband passes any change
+		DeadbandFilter zeroFilter = new DeadbandFilter(DeadbandType.Absolute, 0, null);
+		assertTrue(zeroFilter.test(createObservation(0, 10, "tag")));
+		assertFalse(zeroFilter.test(createObservation(1, 10, "tag")));
+		assertTrue(zeroFilter.test(createObservation(2, 10.000001, "tag")));
+		
+		// Invalid deadband
+		try
+		{
+			new DeadbandFilter(DeadbandType.Absolute, -1, null);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("non-negative"));
+		}
+	}
+	
+	@Test
+	public void deadband_20_percentageAndNaN() throws Exception
+	{
+		DeadbandFilter filter = new DeadbandFilter(DeadbandType.Percentage, 10, null);
+		
+		assertTrue(filter.test(createObservation(0, -200, "tag")));
+		assertFalse(filter.test(createObservation(1, -181, "tag")));
+		assertFalse(filter.test(createObservation(2, -219, "tag")));
+		assertTrue(filter.test(createObservation(3, -221, "tag")));
+		
+		// The band is now 22.1
+		assertFalse(filter.test(createObservation(4, -199, "tag")));
+		assertTrue(filter.test(createObservation(5, -198, "tag")));
+		
+		// Changes to and from NaN pass; NaN to NaN is suppressed
+		assertTrue(filter.test(createObservation(6, Double.NaN, "tag")));
+		assertFalse(filter.test(createObservation(7, Double.NaN, "tag")));
+		assertTrue(filter.test(createObservation(8, -198, "tag")));
+	}
+	
+	@Test
+	public void deadband_30_heartbeatAndQuality() throws Exception
+	{
+		DeadbandFilter filter = new DeadbandFilter(DeadbandType.Absolute, 1, Period.seconds(10));
+		
+		assertTrue(filter.test(createObservation(0, 5, "tag")));
+		assertFalse(filter.test(createObservation(5, 5, "tag")));
+		assertFalse(filter.test(createObservation(10, 5, "tag"))); // Exactly the maximum silence
+		assertTrue(filter.test(createObservation(11, 5, "tag"))); // Heartbeat
+		assertFalse(filter.test(createObservation(20, 5, "tag")));
+		
+		// Quality transitions pass both ways
+		Observation bad = createObservation(21, 5, "tag");
+		bad.setResultQuality(DataQuality.createBad());
+		assertTrue(filter.test(bad));
+		
+		Observation bad2 = createObservation(22, 5.5, "tag");
+		bad2.setResultQuality(DataQuality.createBad());
+		assertFalse(filter.test(bad2));
+		
+		assertTrue(filter.test(createObservation(23, 5, "tag")));
+		
+		// The time comes from result time if phenomenon time is missing
+		Observation noPheno = createObservation(0, 5, "tag");
+		noPheno.setPhenomenonTime(null);
+		noPheno.setResultTime(instant(40));
+		assertTrue(filter.test(noPheno));
+		
+		// Variable-length silence is rejected
+		try
+		{
+			new DeadbandFilter(DeadbandType.Absolute, 1, Period.months(1));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("fixed length"));
+		}
+	}
+	
+	@Test
+	public void deadband_40_keysAndResultTypes() throws Exception
+	{
+		DeadbandFilter filter = new DeadbandFilter(DeadbandType.Absolute, 1, null);
+		
+		// Each component of the key makes a separate tag
+		Observation obs1 = createObservation(0, 5, "tag");
+		Observation obs2 = createObservation(0, 5, "tag");
+		obs2.setProcedure("otherProc");
+		Observation obs3 = createObservation(0, 5, "tag");
+		obs3.setObservedProperty("otherProp");
+		Observation obs4 = createObservation(0, 5, "otherFeat");
+		
+		assertTrue(filter.test(obs1));
+		assertTrue(filter.test(obs2));
+		assertTrue(filter.test(obs3));
+		assertTrue(filter.test(obs4));
+		assertEquals(4, filter.getTagCount());
+		
+		// Removing a tag
+		assertTrue(filter.remove("proc", "prop", "tag"));
+		assertFalse(filter.remove("proc", "prop", "tag"));
+		assertTrue(filter.test(createObservation(1, 5, "tag")));
+		
+		filter.clear();
+		assertEquals(0, filter.getTagCount());
+		
+		// Other result types always pass and create no state
+		Observation timeObs = new Observation(instant(0));
+		timeObs.setPhenomenonTime(instant(0));
+		assertTrue(filter.test(timeObs));
+		assertTrue(filter.test(timeObs));
+		assertEquals(0, filter.getTagCount());
+	}
+	
+	@Test
+	public void deadband_50_concurrent() throws Exception
+	{
+		final DeadbandFilter filter = new DeadbandFilter(DeadbandType.Absolute, 0.5, null);
+		final int tagCount = 1000;
+		final AtomicInteger passed = new AtomicInteger(0);
+		
+		// Each thread sends the same constant values of all tags, so each tag passes exactly once
+		ArrayList<Thread> threads = new ArrayList<>();
+		
+		for (int t = 0; t < 4; ++t)
+		{
+			final int offset = t;
+			
+			threads.add(new Thread(() ->
+			{
+				try
+				{
+					for (int a = 0; a < tagCount; ++a)
+					{
+						if (filter.test(createObservation(offset, 1, "tag" + a)))
+						{
+							passed.incrementAndGet();
+						}
+					}
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException(e);
+				}
+			}));
+		}
+		
+		for (Thread t : threads)
+		{
+			t.start();
+		}
+		
+		for (Thread t : threads)
+		{
+			t.join();
+		}
+		
+		assertEquals(tagCount, passed.get());
+		assertEquals(tagCount, filter.getTagCount());
+		assertEquals(tagCount, filter.getPassedCount());
+		assertEquals(3 * tagCount, filter.getSuppressedCount());
+	}
+	
+	private Observation createObservation(int seconds, double value, String feature) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("Cel", value));
+		retval.setPhenomenonTime(instant(seconds));
+		retval.setProcedure("proc");
+		retval.setObservedProperty("prop");
+		retval.setFeatureOfInterest(feature);
+		return retval;
+	}
+	
+	private Item_TimeInstant instant(int seconds)
+	{
+		return new Item_TimeInstant(new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).plusSeconds(seconds));
+	}
+}
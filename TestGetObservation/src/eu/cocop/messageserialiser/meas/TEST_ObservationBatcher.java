@@ -0,0 +1,302 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.ObservationBatcher.FlushReasonType;
+
+public class TEST_ObservationBatcher
+{
+	// This test focuses on:
+	// - Flushing by count and explicitly, and the content of batches (10)
+	// - Flushing by size (20)
+	// - Flushing by linger time and close (30)
+	// - Sink and serialisation failures (40)
+	// - Adding observations while a batch is being published (50)
+	
+	
+	@Test
+	public void batcher_10_countAndContent() throws Exception
+	{
+		List<byte[]> published = Collections.synchronizedList(new ArrayList<>());
+		ObservationBatcher batcher = new ObservationBatcher(3, Long.MAX_VALUE, null, (xml, count) -> published.add(xml));
+		
+		for (int a = 0; a < 7; ++a)
+		{
+			batcher.add(createObservation(a));
+		}
+		
+		assertEquals(2, published.size());
+		assertEquals(1, batcher.getPendingCount());
+		
+		batcher.flush();
+		assertEquals(3, published.size());
+		assertEquals(0, batcher.getPendingCount());
+		
+		// Flushing an empty batch does nothing
+		batcher.flush();
+		assertEquals(3, published.size());
+		
+		// Content in order
+		GetObservationResponse first = new GetObservationResponse(published.get(0));
+		GetObservationResponse last = new GetObservationResponse(published.get(2));
+		assertEquals(3, first.getObservations().size());
+		assertEquals(1, last.getObservations().size());
+		assertEquals(1.0, ((Item_Measurement)first.getObservations().get(1).getResult()).getValue(), 0);
+		assertEquals(6.0, ((Item_Measurement)last.getObservations().get(0).getResult()).getValue(), 0);
+		assertEquals("feat", first.getObservations().get(0).getFeatureOfInterest());
+		
+		// Metrics
+		assertEquals(3, batcher.getBatchCount());
+		assertEquals(7, batcher.getObservationCount());
+		assertEquals(2, batcher.getFlushCount(FlushReasonType.Count));
+		assertEquals(1, batcher.getFlushCount(FlushReasonType.Explicit));
+		assertEquals(0, batcher.getFlushCount(FlushReasonType.Size));
+		assertEquals(7.0 / 9, batcher.getAverageFillLevel(), 0.0001);
+		assertEquals(published.get(0).length + published.get(1).length + published.get(2).length, batcher.getByteCount());
+		assertTrue(batcher.getMaxFlushNanos() > 0);
+		assertTrue(batcher.getAverageFlushNanos() <= batcher.getMaxFlushNanos());
+		
+		batcher.close();
+		
+		try
+		{
+			batcher.add(createObservation(0));
+			fail("Expected exception");
+		}
+		catch (IllegalStateException e)
+		{
+			assertTrue(e.getMessage().contains("closed"));
+		}
+	}
+	
+	@Test
+	public void batcher_20_size() throws Exception
+	{
+		List<byte[]> published = new ArrayList<>();
+		ObservationBatcher batcher = new ObservationBatcher(1000, 10000, null, (xml, count) -> published.add(xml));
+		
+		// The first batch uses the default estimate
+		int firstBatchSize = (int)Math.ceil(10000.0 / ObservationBatcher.DEFAULT_OBSERVATION_BYTES);
+		
+		for (int a = 0; a < firstBatchSize; ++a)
+		{
+			batcher.add(createObservation(a));
+		}
+		
+		assertEquals(1, published.size());
+		assertEquals(1, batcher.getFlushCount(FlushReasonType.Size));
+		
+		// Later batches use the measured size, so they stay close to the maximum
+		for (int a = 0; a < 500; ++a)
+		{
+			batcher.add(createObservation(a));
+		}
+		
+		batcher.close();
+		
+		for (int a = 1; a < published.size() - 1; ++a)
+		{
+			int length = published.get(a).length;
+			assertTrue("Batch size " + length, length > 8000 && length < 12000);
+		}
+		
+		// Batching is much smaller than one document per observation
+		int singleSize = createObservation(0).toXmlBytes().length;
+		assertTrue(batcher.getByteCount() < (firstBatchSize + 500) * singleSize);
+	}
+	
+	@Test
+	public void batcher_30_lingerAndClose() throws Exception
+	{
+		List<Integer> counts = Collections.synchronizedList(new ArrayList<>());
+		ObservationBatcher batcher = new ObservationBatcher(100, Long.MAX_VALUE, Period.millis(50), (xml, count) -> counts.add(count));
+		
+		batcher.add(createObservation(0));
+		batcher.add(createObservation(1));
+		assertEquals(0, counts.size());
+		
+		waitForCount(counts, 1);
+		assertEquals(Integer.valueOf(2), counts.get(0));
+		assertEquals(1, batcher.getFlushCount(FlushReasonType.Linger));
+		
+		// A batch flushed before the linger time is not flushed again
+		batcher.add(createObservation(2));
+		batcher.flush();
+		Thread.sleep(150);
+		assertEquals(2, counts.size());
+		assertEquals(1, batcher.getFlushCount(FlushReasonType.Linger));
+		
+		// Close flushes the pending batch
+		batcher.add(createObservation(3));
+		batcher.close();
+		assertEquals(3, counts.size());
+		assertEquals(Integer.valueOf(1), counts.get(2));
+		
+		// Invalid linger time
+		try
+		{
+			new ObservationBatcher(1, 1, Period.years(1), (xml, count) -> {});
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("fixed length"));
+		}
+	}
+	
+	@Test
+	public void batcher_40_sinkFailure() throws Exception
+	{
+		ObservationBatcher batcher = new ObservationBatcher(2, Long.MAX_VALUE, null, (xml, count) ->
+		{
+			throw new IOException("Sink down");
+		});
+		
+		batcher.add(createObservation(0));
+		
+		try
+		{
+			batcher.add(createObservation(1));
+			fail("Expected exception");
+		}
+		catch (IOException e)
+		{
+			assertEquals("Sink down", e.getMessage());
+		}
+		
+		// The batch is dropped
+		assertEquals(0, batcher.getPendingCount());
+		assertEquals(1, batcher.getFailedBatchCount());
+		assertEquals(0, batcher.getBatchCount());
+	}
+	
+	@Test
+	public void batcher_41_serialisationFailure() throws Exception
+	{
+		List<Integer> published = Collections.synchronizedList(new ArrayList<>());
+		ObservationBatcher batcher = new ObservationBatcher(2, Long.MAX_VALUE, null, (xml, count) -> published.add(count));
+		
+		// The stub result type cannot be serialised
+		batcher.add(createObservation(0));
+		
+		try
+		{
+			batcher.add(new Observation(new Item_Count(1)));
+			fail("Expected exception");
+		}
+		catch (RuntimeException e)
+		{
+			assertTrue(e.getMessage().contains("does not support serialisation"));
+		}
+		
+		// The batch is dropped and counted as failed
+		assertEquals(0, batcher.getPendingCount());
+		assertEquals(1, batcher.getFailedBatchCount());
+		assertEquals(0, published.size());
+		
+		// The next batch is published
+		batcher.add(createObservation(2));
+		batcher.add(createObservation(3));
+		assertEquals(Collections.singletonList(2), published);
+		assertEquals(1, batcher.getBatchCount());
+	}
+	
+@Test
+	public void batcher_50_addWhilePublishing() throws Exception
+	{
+		CountDownLatch publishing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> published = Collections.synchronizedList(new ArrayList<>());
+		
+		ObservationBatcher batcher = new ObservationBatcher(2, Long.MAX_VALUE, null, (xml, count) ->
+		{
+			publishing.countDown();
+			
+			try
+			{
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				throw new IOException(e);
+			}
+			
+			published.add(new String(xml, StandardCharsets.UTF_8));
+		});
+		
+		// The sink blocks in another thread
+		Thread thread = new Thread(() ->
+		{
+			try
+			{
+				batcher.add(createObservation(0));
+				batcher.add(createObservation(1));
+			}
+			catch (Exception e)
+			{
+				// The assertions below fail
+			}
+		});
+		thread.start();
+		assertTrue(publishing.await(5, TimeUnit.SECONDS));
+		
+		// Adding continues meanwhile, and so do the metrics
+		batcher.add(createObservation(2));
+		assertEquals(1, batcher.getPendingCount());
+		assertEquals(0, batcher.getBatchCount());
+		
+		release.countDown();
+		thread.join(5000);
+		batcher.add(createObservation(3));
+		batcher.close();
+		
+		// The batches are published in order; the phenomenon time tells the observation
+		assertEquals(2, published.size());
+		assertTrue(published.get(0).contains("2018-05-18T10:00:00"));
+		assertTrue(published.get(1).contains("2018-05-18T10:00:02"));
+		assertEquals(2, batcher.getBatchCount());
+	}
+	
+		private void waitForCount(List<?> list, int count) throws InterruptedException
+	{
+		for (int a = 0; a < 200 && list.size() < count; ++a)
+		{
+			Thread.sleep(10);
+		}
+		
+		assertEquals(count, list.size());
+	}
+	
+	private Observation createObservation(int value) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("Cel", value));
+		retval.setPhenomenonTime(new Item_TimeInstant(new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).plusSeconds(value)));
+		retval.setFeatureOfInterest("feat");
+		retval.setObservedProperty("prop");
+		return retval;
+	}
+}
@@ -0,0 +1,153 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.TemporalFilter.OperatorType;
+import eu.cocop.messageserialiser.meas.TemporalFilter.ValueReferenceType;
+
+public class TEST_ObservationFilter
+{
+	// This test focuses on:
+	// - The evaluation of temporal operators, including bounds (10)
+	// - Multiple temporal filters and the default phenomenon time (20)
+	// - Features of interest and observed properties (30)
+	// - Bulk evaluation (40)
+	
+	
+	@Test
+	public void obsFilter_10_operators() throws Exception
+	{
+		Observation obs = createObservation("2018-05-18T10:00:00Z", "feat", "prop");
+		
+		// After
+		assertTrue(matches(ValueReferenceType.PhenomenonTime, OperatorType.After, instant("2018-05-18T09:59:59Z"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.After, instant("2018-05-18T10:00:00Z"), obs));
+		
+		// Before
+		assertTrue(matches(ValueReferenceType.PhenomenonTime, OperatorType.Before, instant("2018-05-18T10:00:01Z"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.Before, instant("2018-05-18T10:00:00Z"), obs));
+		
+		// During; the bounds are exclusive
+		assertTrue(matches(ValueReferenceType.PhenomenonTime, OperatorType.During, range("2018-05-18T09:00:00Z", "2018-05-18T11:00:00Z"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.During, range("2018-05-18T10:00:00Z", "2018-05-18T11:00:00Z"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.During, range("2018-05-18T09:00:00Z", "2018-05-18T10:00:00Z"), obs));
+		
+		// Time zone must not matter (a non-UTC zone is possible when read from XML)
+		assertTrue(matches(ValueReferenceType.PhenomenonTime, OperatorType.After, new Item_TimeInstant("2018-05-18T12:59:59+03:00"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.After, new Item_TimeInstant("2018-05-18T13:00:00+03:00"), obs));
+		
+		// Result time
+		obs.setResultTime(instant("2018-05-18T12:00:00Z"));
+		assertTrue(matches(ValueReferenceType.ResultTime, OperatorType.After, instant("2018-05-18T11:00:00Z"), obs));
+		assertFalse(matches(ValueReferenceType.PhenomenonTime, OperatorType.After, instant("2018-05-18T11:00:00Z"), obs));
+	}
+	
+	@Test
+	public void obsFilter_20_multipleFilters() throws Exception
+	{
+		GetObservationRequest request = new GetObservationRequest();
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.After, instant("2018-05-18T09:00:00Z")));
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.Before, instant("2018-05-18T11:00:00Z")));
+		ObservationFilter filter = ObservationFilter.compile(request);
+		
+		assertTrue(filter.test(createObservation("2018-05-18T10:00:00Z", "feat", "prop")));
+		assertFalse(filter.test(createObservation("2018-05-18T08:00:00Z", "feat", "prop")));
+		assertFalse(filter.test(createObservation("2018-05-18T12:00:00Z", "feat", "prop")));
+		
+		// No phenomenon time -> result time applies
+		Observation obs = createObservation("2018-05-18T10:00:00Z", "feat", "prop");
+		obs.setPhenomenonTime(null);
+		obs.setResultTime(instant("2018-05-18T12:00:00Z"));
+		assertFalse(filter.test(obs));
+		obs.setResultTime(instant("2018-05-18T10:30:00Z"));
+		assertTrue(filter.test(obs));
+		
+		// Changes to the request after compilation have no effect
+		request.getTemporalFilters().clear();
+		assertFalse(filter.test(createObservation("2018-05-18T12:00:00Z", "feat", "prop")));
+	}
+	
+	@Test
+	public void obsFilter_30_featuresAndProperties() throws Exception
+	{
+		GetObservationRequest request = new GetObservationRequest();
+		
+		// No conditions -> everything matches
+		assertTrue(ObservationFilter.compile(request).test(createObservation("2018-05-18T10:00:00Z", "feat1", "prop1")));
+		
+		request.getFeaturesOfInterest().add("feat1");
+		request.getFeaturesOfInterest().add("feat2");
+		request.getObservedProperties().add("prop1");
+		ObservationFilter filter = ObservationFilter.compile(request);
+		
+		assertTrue(filter.test(createObservation("2018-05-18T10:00:00Z", "feat1", "prop1")));
+		assertTrue(filter.test(createObservation("2018-05-18T10:00:00Z", "feat2", "prop1")));
+		assertFalse(filter.test(createObservation("2018-05-18T10:00:00Z", "feat3", "prop1")));
+		assertFalse(filter.test(createObservation("2018-05-18T10:00:00Z", "feat1", "prop2")));
+	}
+	
+	@Test
+	public void obsFilter_40_bulk() throws Exception
+	{
+		ArrayList<Observation> observations = new ArrayList<>();
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			String time = new DateTime(2018, 5, 18, 0, a % 60, DateTimeZone.UTC).toString();
+			observations.add(createObservation(time, "feat" + (a % 2), "prop"));
+		}
+		
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feat1");
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.Before,
+				instant("2018-05-18T00:10:00Z")));
+		int[] indices = ObservationFilter.compile(request).findMatches(observations);
+		
+		// Odd indices with minute < 10
+		assertArrayEquals(new int[] { 1, 3, 5, 7, 9, 61, 63, 65, 67, 69 }, indices);
+		
+		// Empty input
+		assertEquals(0, ObservationFilter.compile(request).findMatches(new Observation[0]).length);
+	}
+	
+	private boolean matches(ValueReferenceType valRef, OperatorType op, Item time, Observation obs)
+	{
+		return ObservationFilter.compile(new TemporalFilter(valRef, op, time)).test(obs);
+	}
+	
+	private Observation createObservation(String phenoTime, String feature, String property) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("s", 1));
+		retval.setPhenomenonTime(instant(phenoTime));
+		retval.setFeatureOfInterest(feature);
+		retval.setObservedProperty(property);
+		return retval;
+	}
+	
+	private Item_TimeInstant instant(String xsdDateTime)
+	{
+		return new Item_TimeInstant(DateTime.parse(xsdDateTime).withZone(DateTimeZone.UTC));
+	}
+	
+	private Item_TimeRange range(String start, String end)
+	{
+		return new Item_TimeRange(instant(start), instant(end));
+	}
+}
@@ -0,0 +1,288 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.TemporalFilter.OperatorType;
+import eu.cocop.messageserialiser.meas.TemporalFilter.ValueReferenceType;
+
+public class TEST_ObservationLog
+{
+	// This test focuses on:
+	// - Appending and querying (10)
+	// - Recovery after reopening, including an incomplete record (20)
+	// - Segment rollover and removal of old segments (30)
+	// - An incomplete segment header and a failed deletion (40)
+	// - Other files in the directory (50)
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 0, 0, DateTimeZone.UTC);
+	
+	private File m_directory = null;
+	
+	
+	@Before
+	public void setUp() throws IOException
+	{
+		m_directory = Files.createTempDirectory("obslogtest").toFile();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		File[] files = m_directory.listFiles();
+		
+		if (files != null)
+		{
+			for (File f : files)
+			{
+				f.delete();
+			}
+		}
+		
+		m_directory.delete();
+	}
+	
+	@Test
+	public void obsLog_10_appendAndQuery() throws Exception
+	{
+		try (ObservationLog testObject = new ObservationLog(m_directory))
+		{
+			for (int a = 0; a < 200; ++a)
+			{
+				testObject.append(createObservation(a, "feat" + (a % 2), "prop" + (a % 3), a));
+			}
+			
+			assertEquals(200, testObject.size());
+			
+			// Feature, property and time
+			GetObservationRequest request = new GetObservationRequest();
+			request.getFeaturesOfInterest().add("feat1");
+			request.getObservedProperties().add("prop0");
+			request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.During,
+					new Item_TimeRange(minutes(100), minutes(130))));
+			List<Observation> results = testObject.query(request).getObservations();
+			
+			// Odd multiples of 3 between 100 and 130 (exclusive)
+			assertValues(new double[] { 105, 111, 117, 123, 129 }, results);
+			assertEquals("feat1", results.get(0).getFeatureOfInterest());
+			assertEquals("prop0", results.get(0).getObservedProperty());
+			
+			// Unknown feature
+			request = new GetObservationRequest();
+			request.getFeaturesOfInterest().add("feat9");
+			assertEquals(0, testObject.query(request).getObservations().size());
+		}
+	}
+	
+	@Test
+	public void obsLog_20_recovery() throws Exception
+	{
+		try (ObservationLog testObject = new ObservationLog(m_directory))
+		{
+			for (int a = 0; a < 10; ++a)
+			{
+				testObject.append(createObservation(a, "feat", "prop", a));
+			}
+			
+			testObject.flush();
+		}
+		
+		// Simulating a crash during a write by adding a partial record
+		File segmentFile = m_directory.listFiles()[0];
+		long validLength = segmentFile.length();
+		
+		try (RandomAccessFile raf = new RandomAccessFile(segmentFile, "rw"))
+		{
+			raf.seek(validLength);
+			raf.writeInt(1000);
+			raf.writeInt(1234);
+			raf.write(new byte[50]);
+		}
+		
+		try (ObservationLog testObject = new ObservationLog(m_directory))
+		{
+			assertEquals(10, testObject.size());
+			assertEquals(validLength, segmentFile.length());
+			
+			// Appending after recovery
+			testObject.append(createObservation(10, "feat", "prop", 10));
+			GetObservationRequest request = new GetObservationRequest();
+			request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.After, minutes(7)));
+			assertValues(new double[] { 8, 9, 10 }, testObject.query(request).getObservations());
+		}
+	}
+	
+	@Test
+	public void obsLog_30_rolloverAndRemoval() throws Exception
+	{
+		// A small segment size to cause rollovers
+		try (ObservationLog testObject = new ObservationLog(m_directory, 20000, null))
+		{
+			for (int a = 0; a < 100; ++a)
+			{
+				testObject.append(createObservation(a, "feat", "prop", a));
+			}
+			
+			int segmentCount = testObject.getSegmentCount();
+			assertTrue(segmentCount > 3);
+			assertEquals(segmentCount, m_directory.listFiles().length);
+			
+			// Queries must span segments
+			GetObservationRequest request = new GetObservationRequest();
+			request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.ResultTime, OperatorType.During,
+					new Item_TimeRange(minutes(94), minutes(98))));
+			assertValues(new double[] { 95, 96, 97 }, testObject.query(request).getObservations());
+			assertEquals(100, testObject.query(new GetObservationRequest()).getObservations().size());
+			
+			// Removing old segments
+			int removed = testObject.removeOlderThan(minutes(50));
+			assertTrue(removed > 0);
+			assertEquals(segmentCount - removed, testObject.getSegmentCount());
+			assertEquals(segmentCount - removed, m_directory.listFiles().length);
+			
+			List<Observation> remaining = testObject.query(new GetObservationRequest()).getObservations();
+			assertEquals(testObject.size(), remaining.size());
+			assertTrue(remaining.size() >= 50);
+			assertEquals(99, ((Item_Measurement)remaining.get(remaining.size() - 1).getResult()).getValue(), 0.0001);
+		}
+		
+		// Reopening
+		try (ObservationLog testObject = new ObservationLog(m_directory, 20000, null))
+		{
+			assertEquals(testObject.size(), testObject.query(new GetObservationRequest()).getObservations().size());
+		}
+	}
+	
+	@Test
+	public void obsLog_40_tornHeaderAndFailedDelete() throws Exception
+	{
+		try (ObservationLog testObject = new ObservationLog(m_directory, 20000, null))
+		{
+			for (int a = 0; a < 100; ++a)
+			{
+				testObject.append(createObservation(a, "feat", "prop", a));
+			}
+		}
+		
+		File[] files = m_directory.listFiles();
+		Arrays.sort(files);
+		int segmentCount = files.length;
+		
+		// Simulating a crash while the header of a new segment was written
+		File lastFile = files[files.length - 1];
+		String lastName = lastFile.getName();
+		long nextSequence = Long.parseLong(lastName.substring("segment-".length(), lastName.length() - ".log".length())) + 1;
+		File tornFile = new File(m_directory, String.format("segment-%020d.log", nextSequence));
+		Files.write(tornFile.toPath(), new byte[] { 'C', 'O', 'C' });
+		
+		try (ObservationLog testObject = new ObservationLog(m_directory, 20000, null))
+		{
+			assertEquals(100, testObject.size());
+			assertEquals(segmentCount + 1, testObject.getSegmentCount());
+			
+			// The recovered segment takes appends
+			testObject.append(createObservation(100, "feat", "prop", 100));
+			assertEquals(101, testObject.query(new GetObservationRequest()).getObservations().size());
+			
+			// Replacing the oldest file with a non-empty directory makes its deletion fail
+			assertTrue(files[0].delete());
+			assertTrue(files[0].mkdir());
+			File blocker = new File(files[0], "blocker");
+			assertTrue(blocker.createNewFile());
+			
+			assertEquals(0, testObject.removeOlderThan(minutes(50)));
+			assertEquals(segmentCount + 1, testObject.getSegmentCount());
+			
+			// Appends still succeed, and the removal succeeds later
+			testObject.append(createObservation(101, "feat", "prop", 101));
+			assertTrue(blocker.delete());
+			assertTrue(testObject.removeOlderThan(minutes(50)) > 0);
+			assertTrue(testObject.size() >= 52);
+		}
+	}
+	
+@Test
+	public void obsLog_50_otherFiles() throws Exception
+	{
+		try (ObservationLog testObject = new ObservationLog(m_directory))
+		{
+			for (int a = 0; a < 10; ++a)
+			{
+				testObject.append(createObservation(a, "feat", "prop", a));
+			}
+		}
+		
+		// Files that resemble segments but lack a valid sequence number
+		String[] otherNames = new String[] { "segment-old.log", "segment-1.log",
+				"segment-99999999999999999999.log", "segment-0000000000000000000x.log" };
+		
+		for (String name : otherNames)
+		{
+			Files.write(new File(m_directory, name).toPath(), new byte[] { 1, 2, 3 });
+		}
+		
+		try (ObservationLog testObject = new ObservationLog(m_directory))
+		{
+			assertEquals(10, testObject.size());
+			assertEquals(1, testObject.getSegmentCount());
+			
+			// Appending goes to the actual segment
+			testObject.append(createObservation(10, "feat", "prop", 10));
+			assertEquals(11, testObject.query(new GetObservationRequest()).getObservations().size());
+		}
+		
+		// The other files are left intact
+		for (String name : otherNames)
+		{
+			assertEquals(3, new File(m_directory, name).length());
+		}
+	}
+	
+		private void assertValues(double[] expected, List<Observation> actual)
+	{
+		assertEquals(expected.length, actual.size());
+		
+		for (int a = 0; a < expected.length; ++a)
+		{
+			assertEquals(expected[a], ((Item_Measurement)actual.get(a).getResult()).getValue(), 0.0001);
+		}
+	}
+	
+	private Observation createObservation(int phenoMinutes, String feature, String property, double value) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("s", value));
+		retval.setPhenomenonTime(minutes(phenoMinutes));
+		retval.setResultTime(minutes(phenoMinutes));
+		retval.setFeatureOfInterest(feature);
+		retval.setObservedProperty(property);
+		return retval;
+	}
+	
+	private Item_TimeInstant minutes(int m)
+	{
+		return new Item_TimeInstant(BASE_TIME.plusMinutes(m));
+	}
+}
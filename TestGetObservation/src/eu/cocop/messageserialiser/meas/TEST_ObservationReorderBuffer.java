@@ -0,0 +1,220 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+public class TEST_ObservationReorderBuffer
+{
+	// This test focuses on:
+	// - Reordering, watermark and late observations (10)
+	// - Shuffled input within the allowed lateness (20)
+	// - Maximum size (30)
+	// - Advancing the watermark, flushing and result time (40)
+	
+	
+	private static final long BASE_MILLIS = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).getMillis();
+	
+	
+	@Test
+	public void reorder_10_basic() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ArrayList<Observation> late = new ArrayList<>();
+		ObservationReorderBuffer buffer = new ObservationReorderBuffer(Period.seconds(10), 1000, output::add, late::add);
+		
+		assertTrue(buffer.add(createObservation(5)));
+		assertTrue(buffer.add(createObservation(3)));
+		assertTrue(buffer.add(createObservation(8)));
+		assertEquals(0, output.size());
+		assertEquals(8 * 1000 - 10000 + BASE_MILLIS, buffer.getWatermark());
+		
+		// Watermark to 4 s -> releases 3 s
+		assertTrue(buffer.add(createObservation(14)));
+		assertTimes(output, 3);
+		
+		// Late; the watermark is 4 s
+		assertFalse(buffer.add(createObservation(2)));
+		assertEquals(1, late.size());
+		assertEquals(1, buffer.getLateCount());
+		
+		// Exactly at the watermark is accepted and released at once
+		assertTrue(buffer.add(createObservation(4)));
+		assertTimes(output, 3, 4);
+		
+		// Equal times are released in arrival order
+		Observation first = createObservation(9);
+		Observation second = createObservation(9);
+		buffer.add(first);
+		buffer.add(second);
+		buffer.add(createObservation(20));
+		assertTimes(output, 3, 4, 5, 8, 9, 9);
+		assertSame(first, output.get(4));
+		assertSame(second, output.get(5));
+		
+		assertEquals(2, buffer.getBufferedCount());
+		assertEquals(6, buffer.getReleasedCount());
+	}
+	
+	@Test
+	public void reorder_20_shuffled() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ArrayList<Observation> late = new ArrayList<>();
+		ObservationReorderBuffer buffer = new ObservationReorderBuffer(Period.seconds(5), 1000, output::add, late::add);
+		
+		// Each observation is displaced by less than 5 s, i.e., the allowed lateness
+		int count = 5000;
+		int[] times = new int[count];
+		
+		for (int a = 0; a < count; ++a)
+		{
+			times[a] = a;
+		}
+		
+		Random random = new Random(42);
+		
+		// Shuffling within blocks of 5
+		for (int a = count - 1; a >= 0; --a)
+		{
+			int swapWith = a - a % 5 + random.nextInt(a % 5 + 1);
+			int temp = times[a];
+			times[a] = times[swapWith];
+			times[swapWith] = temp;
+		}
+		
+		for (int t : times)
+		{
+			assertTrue(buffer.add(createObservation(t)));
+		}
+		
+		buffer.flush();
+		
+		assertEquals(0, late.size());
+		assertEquals(count, output.size());
+		
+		for (int a = 0; a < count; ++a)
+		{
+			assertEquals(BASE_MILLIS + a * 1000L, getMillis(output.get(a)));
+		}
+	}
+	
+	@Test
+	public void reorder_30_maxSize() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationReorderBuffer buffer = new ObservationReorderBuffer(Period.hours(1), 3, output::add, null);
+		
+		buffer.add(createObservation(10));
+		buffer.add(createObservation(30));
+		buffer.add(createObservation(20));
+		assertEquals(0, output.size());
+		
+		// The buffer is full -> the oldest is released
+		buffer.add(createObservation(40));
+		assertTimes(output, 10);
+		assertEquals(3, buffer.getBufferedCount());
+		
+		// A new oldest one goes out at once
+		buffer.add(createObservation(15));
+		assertTimes(output, 10, 15);
+		
+		// Older than the forced watermark -> late and dropped
+		assertFalse(buffer.add(createObservation(12)));
+		assertEquals(2, buffer.getForcedReleaseCount());
+		assertEquals(1, buffer.getLateCount());
+		
+		buffer.flush();
+		assertTimes(output, 10, 15, 20, 30, 40);
+	}
+	
+	@Test
+	public void reorder_40_advanceAndFlush() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationReorderBuffer buffer = new ObservationReorderBuffer(Period.seconds(10), 100, output::add, null);
+		assertEquals(Long.MIN_VALUE, buffer.getWatermark());
+		
+		buffer.add(createObservation(1));
+		buffer.add(createObservation(2));
+		
+		// Result time is used when phenomenon time is missing
+		Observation noPheno = createObservation(0);
+		noPheno.setPhenomenonTime(null);
+		noPheno.setResultTime(new Item_TimeInstant(new DateTime(BASE_MILLIS + 3000, DateTimeZone.UTC)));
+		buffer.add(noPheno);
+		
+		// Advancing with a clock
+		buffer.advanceWatermark(BASE_MILLIS + 11500);
+		assertTimes(output, 1);
+		
+		// Advancing backwards has no effect
+		buffer.advanceWatermark(BASE_MILLIS);
+		assertEquals(BASE_MILLIS + 1500, buffer.getWatermark());
+		
+		buffer.flush();
+		assertEquals(3, output.size());
+		assertSame(noPheno, output.get(2));
+		assertEquals(BASE_MILLIS + 3000, buffer.getWatermark());
+		
+		// Invalid arguments
+		try
+		{
+			new ObservationReorderBuffer(Period.months(1), 100, output::add, null);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("fixed length"));
+		}
+		
+		try
+		{
+			new ObservationReorderBuffer(Period.seconds(1), 0, output::add, null);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("maximum size"));
+		}
+	}
+	
+	private void assertTimes(ArrayList<Observation> observations, int... seconds)
+	{
+		assertEquals(seconds.length, observations.size());
+		
+		for (int a = 0; a < seconds.length; ++a)
+		{
+			assertEquals(BASE_MILLIS + seconds[a] * 1000L, getMillis(observations.get(a)));
+		}
+	}
+	
+	private long getMillis(Observation obs)
+	{
+		return obs.getPhenomenonTime().getValue().getMillis();
+	}
+	
+	private Observation createObservation(int seconds) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("Cel", seconds));
+		retval.setPhenomenonTime(new Item_TimeInstant(new DateTime(BASE_MILLIS + seconds * 1000L, DateTimeZone.UTC)));
+		return retval;
+	}
+}
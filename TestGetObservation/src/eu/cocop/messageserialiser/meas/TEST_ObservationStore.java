@@ -0,0 +1,206 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.TemporalFilter.OperatorType;
+import eu.cocop.messageserialiser.meas.TemporalFilter.ValueReferenceType;
+
+public class TEST_ObservationStore
+{
+	// This test focuses on:
+	// - Queries by feature, property and time, including out-of-order ingest (10)
+	// - Result time conditions (20)
+	// - Removal of old observations (30)
+	// - Concurrent ingest and query (40)
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void obsStore_10_query() throws Exception
+	{
+		ObservationStore testObject = new ObservationStore();
+		
+		// Adding in reverse order to test sorting
+		for (int a = 9; a >= 0; --a)
+		{
+			testObject.add(createObservation(a, a, "feat" + (a % 2), "prop" + (a % 3)));
+		}
+		
+		assertEquals(10, testObject.size());
+		
+		// No conditions
+		assertMinutes(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, testObject.query(new GetObservationRequest()).getObservations());
+		
+		// Feature only
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feat1");
+		assertMinutes(new int[] { 1, 3, 5, 7, 9 }, testObject.query(request).getObservations());
+		
+		// Feature and property
+		request.getObservedProperties().add("prop0");
+		assertMinutes(new int[] { 3, 9 }, testObject.query(request).getObservations());
+		
+		// Property and time
+		request = new GetObservationRequest();
+		request.getObservedProperties().add("prop0");
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.During,
+				new Item_TimeRange(minutes(0), minutes(9))));
+		assertMinutes(new int[] { 3, 6 }, testObject.query(request).getObservations());
+		
+		// Unknown feature
+		request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feat9");
+		assertEquals(0, testObject.query(request).getObservations().size());
+	}
+	
+	@Test
+	public void obsStore_20_resultTime() throws Exception
+	{
+		ObservationStore testObject = new ObservationStore();
+		
+		// Varying lag between phenomenon time and result time
+		testObject.add(createObservation(0, 1, "feat", "prop"));
+		testObject.add(createObservation(1, 30, "feat", "prop"));
+		testObject.add(createObservation(2, 3, "feat", "prop"));
+		testObject.add(createObservation(3, 4, "feat", "prop"));
+		
+		GetObservationRequest request = new GetObservationRequest();
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.ResultTime, OperatorType.After, minutes(3)));
+		assertMinutes(new int[] { 1, 3 }, testObject.query(request).getObservations());
+		
+		request = new GetObservationRequest();
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.ResultTime, OperatorType.Before, minutes(4)));
+		assertMinutes(new int[] { 0, 2 }, testObject.query(request).getObservations());
+	}
+	
+	@Test
+	public void obsStore_30_remove() throws Exception
+	{
+		ObservationStore testObject = new ObservationStore();
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			testObject.add(createObservation(a, a, "feat" + (a % 4), "prop"));
+		}
+		
+		assertEquals(50, testObject.removeOlderThan(minutes(50)));
+		assertEquals(50, testObject.size());
+		
+		List<Observation> results = testObject.query(new GetObservationRequest()).getObservations();
+		assertEquals(50, results.size());
+		assertEquals(BASE_TIME.plusMinutes(50), results.get(0).getPhenomenonTime().getValue());
+		
+		// Removing all; the series should disappear
+		assertEquals(50, testObject.removeOlderThan(minutes(1000)));
+		assertEquals(0, testObject.size());
+		assertEquals(0, testObject.getIndexedValueCount());
+		
+		// Adding after removal works
+		testObject.add(createObservation(5, 5, "feat1", "prop"));
+		assertEquals(2, testObject.getIndexedValueCount());
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feat1");
+		assertMinutes(new int[] { 5 }, testObject.query(request).getObservations());
+	}
+	
+	@Test
+	public void obsStore_40_concurrent() throws Exception
+	{
+		final ObservationStore testObject = new ObservationStore();
+		final int threadCount = 4;
+		final int perThread = 2000;
+		ArrayList<Thread> threads = new ArrayList<>();
+		final ArrayList<Throwable> errors = new ArrayList<>();
+		
+		for (int t = 0; t < threadCount; ++t)
+		{
+			final int threadIndex = t;
+			
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						GetObservationRequest request = new GetObservationRequest();
+						request.getFeaturesOfInterest().add("feat" + threadIndex);
+						
+						for (int a = 0; a < perThread; ++a)
+						{
+							testObject.add(createObservation(a % 1000, a % 1000, "feat" + threadIndex, "prop" + (a % 5)));
+							
+							if (a % 100 == 0)
+							{
+								// Only this thread writes this feature, so the count is known
+								assertEquals(a + 1, testObject.query(request).getObservations().size());
+							}
+						}
+					}
+					catch (Throwable e)
+					{
+						synchronized (errors)
+						{
+							errors.add(e);
+						}
+					}
+				}
+			});
+			
+			threads.add(thread);
+			thread.start();
+		}
+		
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		
+		assertEquals(0, errors.size());
+		assertEquals(threadCount * perThread, testObject.size());
+	}
+	
+	private void assertMinutes(int[] expected, List<Observation> actual)
+	{
+		assertEquals(expected.length, actual.size());
+		
+		for (int a = 0; a < expected.length; ++a)
+		{
+			assertEquals(BASE_TIME.plusMinutes(expected[a]), actual.get(a).getPhenomenonTime().getValue());
+		}
+	}
+	
+	private Observation createObservation(int phenoMinutes, int resultMinutes, String feature, String property) throws Exception
+	{
+		Observation retval = new Observation(new Item_Measurement("s", 1));
+		retval.setPhenomenonTime(minutes(phenoMinutes));
+		retval.setResultTime(minutes(resultMinutes));
+		retval.setFeatureOfInterest(feature);
+		retval.setObservedProperty(property);
+		return retval;
+	}
+	
+	private Item_TimeInstant minutes(int m)
+	{
+		return new Item_TimeInstant(BASE_TIME.plusMinutes(m));
+	}
+}
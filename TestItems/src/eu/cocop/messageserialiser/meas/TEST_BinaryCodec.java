@@ -0,0 +1,344 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+import eu.cocop.messageserialiser.meas.TemporalFilter.OperatorType;
+import eu.cocop.messageserialiser.meas.TemporalFilter.ValueReferenceType;
+
+public class TEST_BinaryCodec
+{
+	// This test focuses on:
+	// - Each item type as an observation result; the XML must equal the original (10)
+	// - Observation metadata and timestamps (20)
+	// - Requests and responses (30)
+	// - Equivalence with the XML path and message size (40)
+	// - Invalid data (50)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void binary_10_items() throws Exception
+	{
+		assertRoundTrip(new Item_Boolean(true));
+		assertRoundTrip(new Item_Category("my_category"));
+		assertRoundTrip(new Item_Count(-42));
+		assertRoundTrip(new Item_Measurement("Cel", -3.25));
+		assertRoundTrip(new Item_Measurement("Cel", Double.NaN));
+		assertRoundTrip(new Item_Text("Some text åäö"));
+		assertRoundTrip(new Item_TimeInstant(BASE_TIME));
+		assertRoundTrip(new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusHours(2))));
+		assertRoundTrip(createArray());
+		assertRoundTrip(createDataRecord());
+		
+		// Time series
+		Item_TimeSeriesFlexible flexible = createFlexible(100);
+		assertRoundTrip(flexible);
+		flexible.compress();
+		assertRoundTrip(flexible);
+		assertRoundTrip(new Item_TimeSeriesFlexible("t"));
+		
+		Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant("m", new Item_TimeInstant(BASE_TIME), Period.minutes(15));
+		constant.setDescription("Some description");
+		
+		for (int a = 0; a < 50; ++a)
+		{
+			constant.addValue(a * 0.5, a % 7 == 0 ? DataQuality.createBad() : DataQuality.createGood());
+		}
+		
+		assertRoundTrip(constant);
+		constant.compress();
+		assertRoundTrip(constant);
+		
+		// A sub-series has an array offset
+		assertRoundTrip(createFlexible(100).subSeries(new Item_TimeInstant(BASE_TIME.plusSeconds(10)), new Item_TimeInstant(BASE_TIME.plusSeconds(20))));
+		
+		// Items encoded as such
+		Item_Measurement measurement = (Item_Measurement)BinaryCodec.decodeItem(BinaryCodec.encode(new Item_Measurement("Cel", 2.5)));
+		assertEquals("Cel", measurement.getUnitOfMeasure());
+		assertEquals(2.5, measurement.getValue(), 0);
+		assertNull(BinaryCodec.decodeItem(BinaryCodec.encode((Item)null)));
+		
+		// Unlike in XML, an empty string in an array remains an empty string
+		Item_Array array = createArray();
+		array.add(null, null, null, "", null);
+		Item_Array decodedArray = (Item_Array)BinaryCodec.decodeItem(BinaryCodec.encode(array));
+		assertEquals("", decodedArray.get(3)[3]);
+		assertNull(decodedArray.get(3)[0]);
+	}
+	
+	@Test
+	public void binary_20_observation() throws Exception
+	{
+		Observation original = new Observation(new Item_Measurement("Cel", 22.4));
+		original.setName("Some name");
+		original.setDescription("Some description");
+		original.setProcedure("my_procedure");
+		original.setObservedProperty("my_property");
+		original.setFeatureOfInterest("my_feature");
+		original.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		original.setResultTime(new Item_TimeInstant(BASE_TIME.plusMinutes(1)));
+		original.setResultQuality(DataQuality.createBad("sensor"));
+		
+		Observation decoded = BinaryCodec.decodeObservation(BinaryCodec.encode(original));
+		assertEquals("Some name", decoded.getName());
+		assertEquals("my_feature", decoded.getFeatureOfInterest());
+		assertEquals(BASE_TIME.getMillis(), decoded.getPhenomenonTime().getValue().getMillis());
+		assertEquals(original.getResultQuality().getValue(), decoded.getResultQuality().getValue());
+		assertArrayEquals(original.toXmlBytes(), decoded.toXmlBytes());
+		
+		// Timestamps without an explicit offset keep the flag
+		Observation parsed = new Observation(replaceInXml(original.toXmlBytes(), "2018-05-18T10:00:00.000Z", "2018-05-18T10:00:00.000"));
+		assertFalse(parsed.getPhenomenonTime().getHasExplicitUtcOffset());
+		
+		decoded = BinaryCodec.decodeObservation(BinaryCodec.encode(parsed));
+		assertFalse(decoded.getPhenomenonTime().getHasExplicitUtcOffset());
+		assertTrue(decoded.getResultTime().getHasExplicitUtcOffset());
+		assertEquals(parsed.getPhenomenonTime().getValue(), decoded.getPhenomenonTime().getValue());
+		assertArrayEquals(parsed.toXmlBytes(), decoded.toXmlBytes());
+	}
+	
+	@Test
+	public void binary_30_requestResponse() throws Exception
+	{
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feat1");
+		request.getFeaturesOfInterest().add("feat2");
+		request.getObservedProperties().add("prop");
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.PhenomenonTime, OperatorType.After, new Item_TimeInstant(BASE_TIME)));
+		request.getTemporalFilters().add(new TemporalFilter(ValueReferenceType.ResultTime, OperatorType.During,
+				new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusDays(1)))));
+		request.getItems().add(createDataRecord());
+		
+		GetObservationRequest decodedRequest = BinaryCodec.decodeGetObservationRequest(BinaryCodec.encode(request));
+		assertEquals(2, decodedRequest.getFeaturesOfInterest().size());
+		assertEquals(OperatorType.During, decodedRequest.getTemporalFilters().get(1).getOperator());
+		assertArrayEquals(request.toXmlBytes(), decodedRequest.toXmlBytes());
+		
+		GetObservationResponse response = new GetObservationResponse();
+		
+		for (int a = 0; a < 20; ++a)
+		{
+			response.getObservations().add(createMeasurementObservation(a));
+		}
+		
+		response.getObservations().add(createObservation(createFlexible(10)));
+		
+		GetObservationResponse decodedResponse = BinaryCodec.decodeGetObservationResponse(BinaryCodec.encode(response));
+		assertEquals(21, decodedResponse.getObservations().size());
+		assertArrayEquals(response.toXmlBytes(), decodedResponse.toXmlBytes());
+	}
+	
+	@Test
+	public void binary_40_equivalenceAndSize() throws Exception
+	{
+		// The XML path and the binary path yield the same objects
+		ArrayList<Observation> observations = new ArrayList<>();
+		observations.add(createMeasurementObservation(1));
+		observations.add(createObservation(createArray()));
+		observations.add(createObservation(createDataRecord()));
+		observations.add(createObservation(createFlexible(20)));
+		
+		for (Observation original : observations)
+		{
+			Observation fromXml = new Observation(original.toXmlBytes());
+			byte[] binary = BinaryCodec.encode(original);
+			assertArrayEquals(binary, BinaryCodec.encode(fromXml));
+			assertArrayEquals(fromXml.toXmlBytes(), BinaryCodec.decodeObservation(binary).toXmlBytes());
+		}
+		
+		// Size
+		Observation measurement = createMeasurementObservation(1);
+		byte[] xml = measurement.toXmlBytes();
+		byte[] binary = BinaryCodec.encode(measurement);
+		assertTrue("binary " + binary.length + " xml " + xml.length, binary.length * 5 <= xml.length);
+		
+		Observation series = createObservation(createFlexible(1000));
+		// The raw doubles dominate here, and the qualities change often
+		assertTrue(BinaryCodec.encode(series).length * 4 <= series.toXmlBytes().length);
+		
+		assertTrue(BinaryCodec.isBinary(binary));
+		assertFalse(BinaryCodec.isBinary(xml));
+	}
+	
+	@Test
+	public void binary_50_invalid() throws Exception
+	{
+		byte[] binary = BinaryCodec.encode(createObservation(createFlexible(10)));
+		
+		// XML is not binary
+		assertInvalid(createMeasurementObservation(1).toXmlBytes());
+		
+		// Another message type
+		assertInvalidItem(binary);
+		
+		// Truncated and extended
+		for (int length = 0; length < binary.length; ++length)
+		{
+			assertInvalid(Arrays.copyOf(binary, length));
+		}
+		
+		assertInvalid(Arrays.copyOf(binary, binary.length + 1));
+		
+		// An array whose row count fits in the message but the bitmaps do not.
+		// Without a check, allocating the rows would exhaust the heap.
+		ByteArrayOutputStream crafted = new ByteArrayOutputStream();
+		crafted.write(new byte[] { 'C', 'B', (byte)BinaryCodec.FORMAT_VERSION, 2 });
+		crafted.write(new byte[] { 1, 1, 'a' }); // String table
+		crafted.write(8); // Array
+		writeVarint(crafted, 1000);
+		
+		for (int c = 0; c < 1000; ++c)
+		{
+			crafted.write(new byte[] { 1, 1, 0, 0, 0 }); // Name, boolean type, no unit, label or description
+		}
+		
+		writeVarint(crafted, 1000000);
+		crafted.write(new byte[1000000]);
+		
+		try
+		{
+			BinaryCodec.decodeItem(crafted.toByteArray());
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertTrue(e.getCause().getMessage().contains("Unexpected end"));
+		}
+	}
+	
+	private void writeVarint(ByteArrayOutputStream stream, int value)
+	{
+		while (value >= 0x80)
+		{
+			stream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		
+		stream.write(value);
+	}
+	
+		private void assertInvalid(byte[] bytes)
+	{
+		try
+		{
+			BinaryCodec.decodeObservation(bytes);
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			// Expected
+		}
+	}
+	
+	private void assertInvalidItem(byte[] bytes)
+	{
+		try
+		{
+			BinaryCodec.decodeItem(bytes);
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertTrue(e.getMessage().contains("Unexpected message type"));
+		}
+	}
+	
+	private void assertRoundTrip(Item item) throws Exception
+	{
+		Observation original = createObservation(item);
+		Observation decoded = BinaryCodec.decodeObservation(BinaryCodec.encode(original));
+		assertEquals(item.getClass(), decoded.getResult().getClass());
+		assertArrayEquals(original.toXmlBytes(), decoded.toXmlBytes());
+	}
+	
+	private Observation createObservation(Item result) throws Exception
+	{
+		Observation retval = new Observation(result);
+		retval.setProcedure("proc");
+		retval.setObservedProperty("prop");
+		retval.setFeatureOfInterest("feat");
+		retval.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		retval.setResultTime(new Item_TimeInstant(BASE_TIME));
+		return retval;
+	}
+	
+	private Observation createMeasurementObservation(int index) throws Exception
+	{
+		Observation retval = createObservation(new Item_Measurement("Cel", 20 + index * 0.1));
+		retval.setPhenomenonTime(new Item_TimeInstant(BASE_TIME.plusSeconds(index)));
+		return retval;
+	}
+	
+	private Item_TimeSeriesFlexible createFlexible(int count) throws Exception
+	{
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < count; ++a)
+		{
+			DataQuality quality = a % 10 == 3 ? DataQuality.createBad() : DataQuality.createGood();
+			retval.addValue(new Item_TimeInstant(BASE_TIME.plusSeconds(a)), Math.sin(a), quality);
+		}
+		
+		return retval;
+	}
+	
+	private Item_Array createArray() throws Exception
+	{
+		ArrayList<ArrayColumn> columns = new ArrayList<>();
+		columns.add(new ArrayColumn("bool", Boolean.class));
+		columns.add(new ArrayColumn("long", Long.class));
+		columns.add(new ArrayColumn("double", Double.class, "Cel"));
+		columns.add(new ArrayColumn("string", String.class));
+		columns.add(new ArrayColumn("time", Item_TimeInstant.class));
+		columns.get(2).setLabel("Temperature");
+		columns.get(3).setDescription("Some description");
+		
+		Item_Array retval = new Item_Array(columns);
+		retval.add(true, -5L, 1.5, "abc", new Item_TimeInstant(BASE_TIME));
+		retval.add(null, null, null, null, null);
+		retval.add(false, 7L, -2.0, "def", new Item_TimeInstant(BASE_TIME.plusDays(1)));
+		return retval;
+	}
+	
+	private Item_DataRecord createDataRecord() throws Exception
+	{
+		Item_DataRecord nested = new Item_DataRecord();
+		nested.addItem("count", new Item_Count(3));
+		
+		Item_DataRecord retval = new Item_DataRecord();
+		retval.addItem("meas", new Item_Measurement("m", 1.25));
+		retval.addItem("text", new Item_Text("abc"), DataQuality.createBad());
+		retval.addItem("time", new Item_TimeInstant(BASE_TIME));
+		retval.addItem("nested", nested);
+		return retval;
+	}
+	
+	private byte[] replaceInXml(byte[] xml, String from, String to) throws Exception
+	{
+		String s = new String(xml, "UTF-8").replace(from, to);
+		return s.getBytes("UTF-8");
+	}
+}
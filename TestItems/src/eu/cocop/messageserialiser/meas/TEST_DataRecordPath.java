@@ -0,0 +1,191 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class TEST_DataRecordPath
+{
+	// This test focuses on:
+	// - Resolving nested paths (10)
+	// - Shapes and the reuse of resolutions (20)
+	// - Bulk extraction (30)
+	// - Invalid paths (40)
+	
+	
+	@Test
+	public void path_10_resolve() throws Exception
+	{
+		Item_DataRecord record = createFurnace(1);
+		
+		assertEquals(1.0, ((Item_Measurement)new DataRecordPath("furnace/zone3/temperature").resolve(record)).getValue(), 0.0001);
+		assertEquals("Cel", ((Item_Measurement)new DataRecordPath("furnace/zone3/temperature").resolve(record)).getUnitOfMeasure());
+		assertSame(record.getItem("furnace"), new DataRecordPath("furnace").resolve(record));
+		assertEquals("on", ((Item_Text)new DataRecordPath("furnace/state").resolve(record)).getValue());
+		
+		// Not found
+		assertNull(new DataRecordPath("furnace/zone4/temperature").resolve(record));
+		assertNull(new DataRecordPath("furnace/zone3/temperature/x").resolve(record));
+		assertNull(new DataRecordPath("nothing").resolve(new Item_DataRecord()));
+	}
+	
+	@Test
+	public void path_20_shapes() throws Exception
+	{
+		// The same fields in the same order give the same shape
+		assertSame(createFurnace(1).getShape(), createFurnace(2).getShape());
+		
+		Item_DataRecord reordered = new Item_DataRecord();
+		reordered.addItem("b", new Item_Count(2));
+		reordered.addItem("a", new Item_Count(1));
+		Item_DataRecord ordered = new Item_DataRecord();
+		ordered.addItem("a", new Item_Count(3));
+		ordered.addItem("b", new Item_Count(4));
+		assertNotSame(reordered.getShape(), ordered.getShape());
+		
+		// The cached resolution must not leak between shapes
+		DataRecordPath path = new DataRecordPath("a");
+		
+		for (int a = 0; a < 3; ++a)
+		{
+			assertEquals(1, ((Item_Count)path.resolve(reordered)).getValue());
+			assertEquals(3, ((Item_Count)path.resolve(ordered)).getValue());
+		}
+		
+		// Alternating shapes stay cached until more shapes than the cache size appear
+		assertTrue(path.isCached(0, reordered.getShape()));
+		assertTrue(path.isCached(0, ordered.getShape()));
+		
+		for (int a = 0; a < DataRecordPath.CACHE_SIZE - 1; ++a)
+		{
+			Item_DataRecord another = new Item_DataRecord();
+			another.addItem("path_20_" + a, new Item_Count(a));
+			another.addItem("a", new Item_Count(5));
+			assertEquals(5, ((Item_Count)path.resolve(another)).getValue());
+		}
+		
+		assertFalse(path.isCached(0, reordered.getShape()));
+		assertTrue(path.isCached(0, ordered.getShape()));
+		assertEquals(1, ((Item_Count)path.resolve(reordered)).getValue());
+		
+		// An unshared shape is resolved but not cached
+		Item_DataRecord unshared = null;
+		
+		for (int a = 0; a <= DataRecordShape.MAX_TRANSITIONS; ++a)
+		{
+			unshared = new Item_DataRecord();
+			unshared.addItem("path_20_unshared", new Item_Count(0));
+			unshared.addItem("a" + a, new Item_Count(a));
+		}
+		
+		assertFalse(unshared.getShape().isShared());
+		DataRecordPath unsharedPath = new DataRecordPath("a" + DataRecordShape.MAX_TRANSITIONS);
+		assertEquals(DataRecordShape.MAX_TRANSITIONS, ((Item_Count)unsharedPath.resolve(unshared)).getValue());
+		assertFalse(unsharedPath.isCached(0, unshared.getShape()));
+		
+		// Many records, one path
+		DataRecordPath temperature = new DataRecordPath("furnace/zone3/temperature");
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			assertEquals(a, temperature.resolveDouble(createFurnace(a)), 0.0001);
+		}
+		
+		// Reloading from XML resets the shape
+		Observation target = new Observation(createFurnace(5));
+		Item_DataRecord reusable = (Item_DataRecord)target.getResult();
+		assertEquals(5, temperature.resolveDouble(reusable), 0.0001);
+		
+		Item_DataRecord other = new Item_DataRecord();
+		other.addItem("other", new Item_Count(1));
+		other.addItem("furnace", createFurnace(7).getItem("furnace"));
+		Observation.decodeInto(target, new Observation(other).toXmlBytes());
+		assertSame(reusable, target.getResult());
+		assertEquals(7, temperature.resolveDouble(reusable), 0.0001);
+		assertEquals(1, new DataRecordPath("other").resolveDouble(reusable), 0.0001);
+	}
+	
+	@Test
+	public void path_30_extract() throws Exception
+	{
+		Item_DataRecord record = createFurnace(12.5);
+		DataRecordPath[] paths = new DataRecordPath[]
+				{
+					new DataRecordPath("furnace/zone3/temperature"),
+					new DataRecordPath("furnace/count"),
+					new DataRecordPath("furnace/on"),
+					new DataRecordPath("furnace/time"),
+					new DataRecordPath("furnace/state"), // text -> NaN
+					new DataRecordPath("missing")
+				};
+		
+		double[] values = new double[8];
+		assertEquals(4, DataRecordPath.extract(record, paths, values, 1));
+		assertEquals(0, values[0], 0);
+		assertEquals(12.5, values[1], 0);
+		assertEquals(42, values[2], 0);
+		assertEquals(1, values[3], 0);
+		assertEquals(1527238800000.0, values[4], 0);
+		assertTrue(Double.isNaN(values[5]));
+		assertTrue(Double.isNaN(values[6]));
+		
+		try
+		{
+			DataRecordPath.extract(record, paths, values, 3);
+			fail("Expected exception");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void path_40_invalid() throws Exception
+	{
+		for (String path : new String[] { "", "/a", "a/", "a//b" })
+		{
+			try
+			{
+				new DataRecordPath(path);
+				fail("Expected exception: " + path);
+			}
+			catch (IllegalArgumentException e)
+			{
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Empty field name"));
+			}
+		}
+		
+		assertEquals("a/b", new DataRecordPath("a/b").toString());
+	}
+	
+	private static Item_DataRecord createFurnace(double temperature) throws Exception
+	{
+		Item_DataRecord zone = new Item_DataRecord();
+		zone.addItem("temperature", new Item_Measurement("Cel", temperature));
+		
+		Item_DataRecord furnace = new Item_DataRecord();
+		furnace.addItem("state", new Item_Text("on"));
+		furnace.addItem("zone3", zone);
+		furnace.addItem("count", new Item_Count(42));
+		furnace.addItem("on", new Item_Boolean(true));
+		furnace.addItem("time", new Item_TimeInstant(new DateTime(2018, 5, 25, 9, 0, 0, DateTimeZone.UTC)));
+		
+		Item_DataRecord retval = new Item_DataRecord();
+		retval.addItem("furnace", furnace);
+		return retval;
+	}
+}
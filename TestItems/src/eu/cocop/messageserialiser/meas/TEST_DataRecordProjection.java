@@ -0,0 +1,168 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+
+public class TEST_DataRecordProjection
+{
+	// This test focuses on:
+	// - Selected fields, nested records and skipped arrays (10)
+	// - Malformed documents (20)
+	// - Reuse, other result types and GetObservation responses (30)
+	
+	
+	private static Item_DataRecord createRecord(double value) throws Exception
+	{
+		ArrayList<ArrayColumn> columns = new ArrayList<>();
+		columns.add(new ArrayColumn("double", Double.class, "Cel"));
+		Item_Array array = new Item_Array(columns);
+		array.add(1.5);
+		
+		Item_DataRecord deep = new Item_DataRecord();
+		deep.addItem("z", new Item_Count(3));
+		deep.addItem("w", new Item_Text("w"));
+		
+		Item_DataRecord inner = new Item_DataRecord();
+		inner.addItem("x", new Item_Measurement("m", value));
+		inner.addItem("y", new Item_Text("y"));
+		inner.addItem("deep", deep);
+		
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("a", new Item_Measurement("Cel", value), DataQuality.createBad());
+		record.addItem("b", new Item_Count(2));
+		record.addItem("inner", inner);
+		record.addItem("array", array);
+		record.addItem("text", new Item_Text("abc"));
+		return record;
+	}
+	
+	private static DataRecordProjection createProjection()
+	{
+		return new DataRecordProjection(new DataRecordPath("a"), new DataRecordPath("inner/x"), new DataRecordPath("inner/deep"),
+				new DataRecordPath("missing/field"));
+	}
+	
+	@Test
+	public void projection_10_selectedFields() throws Exception
+	{
+		byte[] xmlBytes = new Observation(createRecord(22.5)).toXmlBytes();
+		Observation parsed = createProjection().decodeObservation(xmlBytes);
+		Item_DataRecord record = (Item_DataRecord)parsed.getResult();
+		
+		// Only the selected fields and their parents
+		assertEquals(Arrays.asList("a", "inner"), new ArrayList<>(record.getItemNames()));
+		assertEquals(22.5, ((Item_Measurement)record.getItem("a")).getValue(), 0.0001);
+		assertFalse(record.getQualityOfItem("a").isGood());
+		
+		Item_DataRecord inner = (Item_DataRecord)record.getItem("inner");
+		assertEquals(Arrays.asList("deep", "x"), new ArrayList<>(inner.getItemNames()));
+		assertEquals(22.5, new DataRecordPath("inner/x").resolveDouble(record), 0.0001);
+		
+		// A selected record is decoded as a whole
+		Item_DataRecord deep = (Item_DataRecord)inner.getItem("deep");
+		assertEquals(Arrays.asList("w", "z"), new ArrayList<>(deep.getItemNames()));
+		assertEquals(3, ((Item_Count)deep.getItem("z")).getValue());
+		
+		// Without any paths, the record is empty
+		record = (Item_DataRecord)new DataRecordProjection().decodeObservation(xmlBytes).getResult();
+		assertEquals(0, record.getItemNames().size());
+		
+		// The observation itself is decoded as usual
+		Observation full = new Observation(xmlBytes);
+		assertEquals(full.getResultTime().getValue(), parsed.getResultTime().getValue());
+		assertEquals(5, ((Item_DataRecord)full.getResult()).getItemNames().size());
+	}
+	
+	@Test
+	public void projection_20_malformed() throws Exception
+	{
+		String xml = new String(new Observation(createRecord(1)).toXmlBytes(), "UTF-8");
+		DataRecordProjection projection = createProjection();
+		
+		// A broken element inside a skipped field
+		int position = xml.indexOf("name=\"text\"");
+		assertTrue(position > 0);
+		position = xml.indexOf("abc", position);
+		assertMalformed(projection, xml.substring(0, position) + "<oops>" + xml.substring(position));
+		
+		// Content after the root element
+		assertMalformed(projection, xml + "<extra/>");
+		
+		// Truncated document
+		assertMalformed(projection, xml.substring(0, xml.length() / 2));
+		
+		// Entities declared in a DTD are not expanded
+		int rootStart = xml.indexOf("?>") + 2;
+		String withDtd = xml.substring(0, rootStart) + "<!DOCTYPE root [<!ENTITY e \"abc\">]>" + xml.substring(rootStart);
+		assertMalformed(projection, withDtd.replace(">abc<", ">&e;<"));
+		
+		// Decoding works after the failures
+		Item_DataRecord record = (Item_DataRecord)projection.decodeObservation(xml.getBytes("UTF-8")).getResult();
+		assertEquals(2, record.getItemNames().size());
+	}
+	
+	private static void assertMalformed(DataRecordProjection projection, String xml) throws Exception
+	{
+		try
+		{
+			projection.decodeObservation(xml.getBytes("UTF-8"));
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertEquals("Failed to deserialise from XML", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void projection_30_reuseAndOtherResults() throws Exception
+	{
+		DataRecordProjection projection = createProjection();
+		DataRecordPath pathX = new DataRecordPath("inner/x");
+		
+		// Reusing an observation
+		Observation target = new Observation(new Item_Count(0));
+		projection.decodeInto(target, new Observation(createRecord(1.5)).toXmlBytes());
+		assertEquals(1.5, pathX.resolveDouble((Item_DataRecord)target.getResult()), 0.0001);
+		projection.decodeInto(target, new Observation(createRecord(2.5)).toXmlBytes());
+		assertEquals(2.5, pathX.resolveDouble((Item_DataRecord)target.getResult()), 0.0001);
+		assertEquals(2, ((Item_DataRecord)target.getResult()).getItemNames().size());
+		
+		// A result of another type
+		Observation parsed = projection.decodeObservation(new Observation(new Item_Measurement("Cel", 4.5)).toXmlBytes());
+		assertEquals(4.5, ((Item_Measurement)parsed.getResult()).getValue(), 0.0001);
+		
+		// A response with many observations
+		GetObservationResponse response = new GetObservationResponse();
+		response.getObservations().add(new Observation(createRecord(5.5)));
+		response.getObservations().add(new Observation(new Item_Text("abc")));
+		response.getObservations().add(new Observation(createRecord(6.5)));
+		
+		GetObservationResponse parsedResponse = projection.decodeGetObservationResponse(response.toXmlBytes());
+		assertEquals(3, parsedResponse.getObservations().size());
+		Item_DataRecord record = (Item_DataRecord)parsedResponse.getObservations().get(0).getResult();
+		assertEquals(5.5, pathX.resolveDouble(record), 0.0001);
+		assertNull(record.getItem("text"));
+		assertEquals("abc", ((Item_Text)parsedResponse.getObservations().get(1).getResult()).getValue());
+		record = (Item_DataRecord)parsedResponse.getObservations().get(2).getResult();
+		assertEquals(6.5, pathX.resolveDouble(record), 0.0001);
+		assertEquals(2, record.getItemNames().size());
+	}
+}
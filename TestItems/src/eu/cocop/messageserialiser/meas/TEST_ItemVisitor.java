@@ -0,0 +1,249 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+
+public class TEST_ItemVisitor
+{
+	// This test focuses on:
+	// - Each item type in a nested data record (10)
+	// - Skipping records and time series, compressed time series (20)
+	// - Walking an observation and an application-specific type (30)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	/**
+	 * Records the calls as text.
+	 */
+	private static class RecordingVisitor implements ItemVisitor
+	{
+		final StringBuilder trace = new StringBuilder();
+		
+		@Override
+		public void visitBoolean(String name, boolean value, DataQuality quality)
+		{
+			append(name + "=" + value + " " + quality.getValue());
+		}
+		
+		@Override
+		public void visitCategory(String name, String value, DataQuality quality)
+		{
+			append(name + "=category:" + value);
+		}
+		
+		@Override
+		public void visitCount(String name, long value, DataQuality quality)
+		{
+			append(name + "=" + value + " " + quality.getValue());
+		}
+		
+		@Override
+		public void visitMeasurement(String name, double value, String uom, DataQuality quality)
+		{
+			append(name + "=" + value + " " + uom + " " + quality.getValue());
+		}
+		
+		@Override
+		public void visitText(String name, String value, DataQuality quality)
+		{
+			append(name + "=text:" + value);
+		}
+		
+		@Override
+		public void visitTimeInstant(String name, long millis, DataQuality quality)
+		{
+			append(name + "=" + (millis - BASE_TIME.getMillis()));
+		}
+		
+		@Override
+		public void visitTimeRange(String name, long startMillis, long endMillis, DataQuality quality)
+		{
+			append(name + "=" + (startMillis - BASE_TIME.getMillis()) + ".." + (endMillis - BASE_TIME.getMillis()));
+		}
+		
+		@Override
+		public void visitArray(String name, Item_Array array)
+		{
+			append(name + "=array:" + array.getRowCount());
+		}
+		
+		@Override
+		public void visitOther(String name, Item item, DataQuality quality)
+		{
+			append(name + "=other " + quality.getValue());
+		}
+		
+		@Override
+		public boolean startDataRecord(String name, int fieldCount)
+		{
+			append("{" + name + ":" + fieldCount);
+			return true;
+		}
+		
+		@Override
+		public void endDataRecord(String name)
+		{
+			append("}" + name);
+		}
+		
+		@Override
+		public boolean startTimeSeries(String name, String uom, int valueCount)
+		{
+			append("[" + name + ":" + uom + ":" + valueCount);
+			return true;
+		}
+		
+		@Override
+		public void visitTimeSeriesValue(int index, long timestampMillis, double value, DataQuality quality)
+		{
+			append(index + "@" + (timestampMillis - BASE_TIME.getMillis()) + "=" + value + " " + quality.getValue());
+		}
+		
+		@Override
+		public void endTimeSeries(String name)
+		{
+			append("]" + name);
+		}
+		
+		private void append(String s)
+		{
+			trace.append(trace.length() > 0 ? "|" : "").append(s);
+		}
+	}
+	
+	
+	@Test
+	public void visitor_10_nestedRecord() throws Exception
+	{
+		ArrayList<ArrayColumn> columns = new ArrayList<>();
+		columns.add(new ArrayColumn("double", Double.class, "Cel"));
+		Item_Array array = new Item_Array(columns);
+		array.add(1.5);
+		array.add(2.5);
+		
+		Item_DataRecord inner = new Item_DataRecord();
+		inner.addItem("text", new Item_Text("abc"));
+		inner.addItem("category", new Item_Category("cat"));
+		
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("meas", new Item_Measurement("Cel", 1.25), DataQuality.createBad());
+		record.addItem("bool", new Item_Boolean(true));
+		record.addItem("count", new Item_Count(-7));
+		record.addItem("inner", inner);
+		record.addItem("array", array);
+		record.addItem("time", new Item_TimeInstant(BASE_TIME.plusSeconds(1)));
+		record.addItem("range", new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusMillis(5))));
+		
+		RecordingVisitor visitor = new RecordingVisitor();
+		record.walk(visitor);
+		
+		// The fields are in the order of their names
+		assertEquals("{null:7|array=array:2|bool=true good|count=-7 good|{inner:2|category=category:cat|text=text:abc|}inner|" +
+				"meas=1.25 Cel bad|range=0..5|time=1000|}null", visitor.trace.toString());
+		
+		// A single item
+		visitor = new RecordingVisitor();
+		new Item_Count(3).walk(visitor);
+		assertEquals("null=3 good", visitor.trace.toString());
+		
+		// The default methods do nothing
+		record.walk(new ItemVisitor() {});
+	}
+	
+	@Test
+	public void visitor_20_skipAndTimeSeries() throws Exception
+	{
+		Item_TimeSeriesFlexible flexible = new Item_TimeSeriesFlexible("Cel");
+		flexible.addValue(new Item_TimeInstant(BASE_TIME), 1.5, DataQuality.createGood());
+		flexible.addValue(new Item_TimeInstant(BASE_TIME.plusSeconds(1)), 2.5, DataQuality.createBad());
+		
+		Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant("m", new Item_TimeInstant(BASE_TIME), Period.seconds(10));
+		constant.addValue(3.0);
+		constant.addValue(4.0);
+		
+		RecordingVisitor visitor = new RecordingVisitor();
+		flexible.walk(visitor);
+		constant.walk(visitor);
+		String expected = "[null:Cel:2|0@0=1.5 good|1@1000=2.5 bad|]null|[null:m:2|0@0=3.0 good|1@10000=4.0 good|]null";
+		assertEquals(expected, visitor.trace.toString());
+		
+		// Compressed series give the same values
+		flexible.compress();
+		constant.compress();
+		visitor = new RecordingVisitor();
+		flexible.walk(visitor);
+		constant.walk(visitor);
+		assertEquals(expected, visitor.trace.toString());
+		
+		// Skipping the content
+		Item_DataRecord inner = new Item_DataRecord();
+		inner.addItem("count", new Item_Count(1));
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("inner", inner);
+		record.addItem("series", flexible);
+		record.addItem("text", new Item_Text("x"));
+		
+		visitor = new RecordingVisitor()
+		{
+			@Override
+			public boolean startDataRecord(String name, int fieldCount)
+			{
+				super.startDataRecord(name, fieldCount);
+				return name == null;
+			}
+			
+			@Override
+			public boolean startTimeSeries(String name, String uom, int valueCount)
+			{
+				super.startTimeSeries(name, uom, valueCount);
+				return false;
+			}
+		};
+		record.walk(visitor);
+		assertEquals("{null:3|{inner:1|}inner|[series:Cel:2|]series|text=text:x|}null", visitor.trace.toString());
+	}
+	
+	@Test
+	public void visitor_30_observationAndOtherTypes() throws Exception
+	{
+		Observation obs = new Observation(new Item_Measurement("Cel", 22.5));
+		obs.setResultQuality(DataQuality.createBad());
+		RecordingVisitor visitor = new RecordingVisitor();
+		obs.walk(visitor);
+		assertEquals("null=22.5 Cel bad", visitor.trace.toString());
+		
+		// No result
+		visitor = new RecordingVisitor();
+		new Observation((Item)null).walk(visitor);
+		assertEquals("", visitor.trace.toString());
+		
+		// An application-specific item type
+		Item other = new Item("test/observationType/Other") {};
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("other", other, DataQuality.createBad());
+		visitor = new RecordingVisitor();
+		record.walk(visitor);
+		assertEquals("{null:1|other=other bad|}null", visitor.trace.toString());
+	}
+}
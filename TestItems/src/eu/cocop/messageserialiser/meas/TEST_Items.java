@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 2/2018
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package eu.cocop.messageserialiser.meas;
 
@@ -324,6 +324,45 @@ public class TEST_Items
 		assertEquals("2019-07-05T08:39:02.000Z", instant.toXsdDateTime());
 	}
 	
+	@Test
+	public void timeInstant_toXsdDateTimeCached() throws Exception
+	{
+		// Testing that the serialised value is reused, also when shared between threads.
+		
+		final Item_TimeInstant instant = new Item_TimeInstant(getUtcTime("2019-07-05T11:39:02+03:00"));
+		final String[] results = new String[8];
+		Thread[] threads = new Thread[results.length];
+		
+		for (int a = 0; a < threads.length; ++a)
+		{
+			final int index = a;
+			threads[a] = new Thread(() -> results[index] = instant.toXsdDateTime());
+			threads[a].start();
+		}
+		
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		
+		for (String result : results)
+		{
+			assertEquals("2019-07-05T08:39:02.000Z", result);
+		}
+		
+		assertSame(instant.toXsdDateTime(), instant.toXsdDateTime());
+		
+		// A shared instance in several data records
+		Item_DataRecord record1 = new Item_DataRecord();
+		record1.addItem("start", instant);
+		Item_DataRecord record2 = new Item_DataRecord();
+		record2.addItem("start", instant);
+		Observation obs1 = new Observation(record1);
+		Observation obs2 = new Observation(record2);
+		obs2.setResultTime(obs1.getResultTime());
+		assertArrayEquals(obs1.toXmlBytes(), obs2.toXmlBytes());
+	}
+	
 	@Test
 	public void dataRecord_readEmpty() throws Exception
 	{
@@ -575,6 +614,156 @@ public class TEST_Items
 		{}
 	}
 	
+	@Test
+	public void dataRecord_slotStorage() throws Exception
+	{
+		// Records with the same fields in the same order share a shape
+		Item_DataRecord record1 = new Item_DataRecord();
+		Item_DataRecord record2 = new Item_DataRecord();
+		
+		for (int a = 0; a < 10; ++a)
+		{
+			record1.addItem("f" + a, new Item_Count(a));
+			record2.addItem("f" + a, new Item_Count(a * 2), a % 3 == 0 ? DataQuality.createBad() : DataQuality.createGood());
+		}
+		
+		assertSame(record1.getShape(), record2.getShape());
+		assertEquals(8, ((Item_Count)record1.getItem("f8")).getValue());
+		assertEquals(16, ((Item_Count)record2.getItem("f8")).getValue());
+		assertNull(record1.getItem("f10"));
+		
+		// Qualities, also after the item array has grown past the quality array
+		record1.addItem("z", new Item_Count(0), DataQuality.createBad());
+		record1.addItem("zz", new Item_Count(0));
+		assertTrue(record1.getQualityOfItem("f3").isGood());
+		assertFalse(record1.getQualityOfItem("z").isGood());
+		assertTrue(record1.getQualityOfItem("zz").isGood());
+		assertFalse(record2.getQualityOfItem("f3").isGood());
+		assertTrue(record2.getQualityOfItem("f4").isGood());
+		
+		// The names are sorted regardless of the insertion order
+		Item_DataRecord reversed = new Item_DataRecord();
+		reversed.addItem("b", new Item_Count(2), DataQuality.createBad());
+		reversed.addItem("a", new Item_Count(1));
+		Item_DataRecord ordered = new Item_DataRecord();
+		ordered.addItem("a", new Item_Count(1));
+		ordered.addItem("b", new Item_Count(2), DataQuality.createBad());
+		assertNotSame(reversed.getShape(), ordered.getShape());
+		assertEquals("[a, b]", reversed.getItemNames().toString());
+		Observation obsOrdered = new Observation(ordered);
+		Observation obsReversed = new Observation(reversed);
+		obsReversed.setResultTime(obsOrdered.getResultTime());
+		assertArrayEquals(obsOrdered.toXmlBytes(), obsReversed.toXmlBytes());
+		
+		try
+		{
+			reversed.getItemNames().clear();
+			fail("Expected exception");
+		}
+		catch (UnsupportedOperationException e)
+		{}
+		
+		// Duplicates are detected whether or not the shape is shared
+		try
+		{
+			record2.addItem("f5", new Item_Count(0));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertEquals("Duplicate item name \"f5\"", e.getMessage());
+		}
+		
+		try
+		{
+			new Item_DataRecord().addItem("f0", new Item_Count(0));
+			record2.addItem("f0", new Item_Count(0));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertEquals("Duplicate item name \"f0\"", e.getMessage());
+		}
+		
+		assertEquals(10, record2.getItemNames().size());
+	}
+	
+	@Test
+	public void dataRecord_shapeLimits() throws Exception
+	{
+		// The shared shapes after a shape are limited
+		int countBefore = DataRecordShape.EMPTY.getSharedCount();
+		
+		for (int a = 0; a < DataRecordShape.MAX_TRANSITIONS + 50; ++a)
+		{
+			Item_DataRecord record = new Item_DataRecord();
+			record.addItem("shapeLimits", new Item_Count(0));
+			record.addItem("next" + a, new Item_Count(a));
+			assertEquals(a < DataRecordShape.MAX_TRANSITIONS, record.getShape().isShared());
+			assertEquals(a, ((Item_Count)record.getItem("next" + a)).getValue());
+		}
+		
+		assertEquals(countBefore + 1 + DataRecordShape.MAX_TRANSITIONS, DataRecordShape.EMPTY.getSharedCount());
+		
+		// The shared shapes in total are limited. A root of its own leaves
+		// the shapes of the records intact.
+		DataRecordShape root = DataRecordShape.createRoot(100);
+		DataRecordShape[] lastShapes = new DataRecordShape[50];
+		
+		for (int a = 0; a < 50; ++a)
+		{
+			DataRecordShape shape = root;
+			
+			for (int b = 0; b < 10; ++b)
+			{
+				shape = shape.withField("total" + a + "_" + b);
+			}
+			
+			lastShapes[a] = shape;
+		}
+		
+		assertEquals(100, root.getSharedCount());
+		assertEquals(countBefore + 1 + DataRecordShape.MAX_TRANSITIONS, DataRecordShape.EMPTY.getSharedCount());
+		
+		// Beyond the limit, the shapes still work without sharing
+		DataRecordShape last = lastShapes[49];
+		assertFalse(last.isShared());
+		assertEquals(10, last.getFieldCount());
+		assertEquals(7, last.indexOf("total49_7"));
+		assertEquals("total49_7", last.getName(7));
+		assertNull(last.withField("total49_3"));
+		
+		DataRecordShape copy = root;
+		
+		for (int b = 0; b < 10; ++b)
+		{
+			copy = copy.withField("total49_" + b);
+		}
+		
+		assertNotSame(last, copy);
+		assertEquals(last.getSortedNames(), copy.getSortedNames());
+		
+		// The shapes shared before the limit remain shared
+		DataRecordShape early = root;
+		
+		for (int b = 0; b < 10; ++b)
+		{
+			early = early.withField("total0_" + b);
+		}
+		
+		assertTrue(early.isShared());
+		assertSame(lastShapes[0], early);
+		
+		// The next shapes do not leak their fields to the shape before them
+		DataRecordShape parent = root.withField("total0_0");
+		DataRecordShape sibling = parent.withField("sibling");
+		assertEquals(-1, parent.indexOf("total0_1"));
+		assertEquals(-1, parent.indexOf("sibling"));
+		assertEquals(1, sibling.indexOf("sibling"));
+		assertEquals(-1, sibling.indexOf("total0_1"));
+		assertEquals(0, sibling.indexOf("total0_0"));
+	}
+	
 	@Test
 	public void timeSeries_read() throws Exception
 	{
@@ -713,6 +902,37 @@ public class TEST_Items
         }
 	}
 	
+	@Test
+	public void timeSeriesFlexible_reuse() throws Exception
+	{
+		// Testing that an existing object is refilled when decoding into it
+		
+		Item_TimeSeriesFlexible originalObj = new Item_TimeSeriesFlexible("Cel");
+		originalObj.addValue(new Item_TimeInstant(getUtcTime("2018-03-16T08:30:00Z")), -9.4);
+		originalObj.addValue(new Item_TimeInstant(getUtcTime("2018-03-16T08:40:00Z")), -8.3, DataQuality.createBad());
+		
+		Item_TimeSeriesFlexible reusable = new Item_TimeSeriesFlexible("m");
+		reusable.addValue(new Item_TimeInstant(getUtcTime("2018-03-16T07:00:00Z")), 1);
+		reusable.addValue(new Item_TimeInstant(getUtcTime("2018-03-16T07:10:00Z")), 2);
+		reusable.addValue(new Item_TimeInstant(getUtcTime("2018-03-16T07:20:00Z")), 3);
+		
+		Object resultObj = serialiseAndReadRawResult(originalObj);
+		Item parsedObj = ResultTypeManager.buildResultFromXml(XmlHelper.TYPEURI_TIMESERIESFLEXIBLE, resultObj, reusable);
+		
+		// Expecting the same object with the new content
+		assertSame(reusable, parsedObj);
+		assertEquals("Cel", reusable.getUnitOfMeasure());
+		assertEquals(2, reusable.getValueCount());
+		assertEquals(-8.3, reusable.getValue(1), 0.0001);
+		assertFalse(reusable.getDataQuality(1).isGood());
+		assertTimeInstantExplUtc(getUtcTime("2018-03-16T08:40:00Z"), reusable.getTimestamp(1));
+		
+		// A mismatching type must not be reused
+		Item_TimeSeriesConstant other = new Item_TimeSeriesConstant("Cel", new Item_TimeInstant(getUtcTime("2018-03-16T08:30:00Z")), Period.minutes(1));
+		parsedObj = ResultTypeManager.buildResultFromXml(XmlHelper.TYPEURI_TIMESERIESFLEXIBLE, resultObj, other);
+		assertNotSame(other, parsedObj);
+	}
+	
 	@Test
 	public void timeSeriesConstant_read() throws Exception
 	{
@@ -784,6 +1004,13 @@ public class TEST_Items
 	}
 	
 	private Item serialiseAndReadResultObj(Item testObject, String obsTypeUri) throws Exception
+	{
+		// Testing that result mapping after URI works as expected
+		Object resultObj = serialiseAndReadRawResult(testObject);
+		return ResultTypeManager.buildResultFromXml(obsTypeUri, resultObj);
+	}
+	
+	private Object serialiseAndReadRawResult(Item testObject) throws Exception
 	{
 		// Using Observation class in serialisation.
 		// Otherwise, a lot of redundant code would be required here to enable XML validation.
@@ -805,9 +1032,7 @@ public class TEST_Items
 		JAXBElement<OMObservationType> observationJaxb = (JAXBElement<OMObservationType>)unmarshaller.unmarshal(reader);
 		reader.close();
 		
-		// Testing that result mapping after URI works as expected
-		Object resultObj = observationJaxb.getValue().getResult();
-		return ResultTypeManager.buildResultFromXml(obsTypeUri, resultObj);
+		return observationJaxb.getValue().getResult();
 	}
 	
 	private void validateXmlDoc(byte[] xmlBytes) throws Exception
@@ -0,0 +1,257 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+
+public class TEST_JsonCodec
+{
+	// This test focuses on:
+	// - Each item type as an observation result; the XML must equal the original (10)
+	// - The JSON structure of a measurement observation (20)
+	// - Strings, special doubles and member order (30)
+	// - Streams and invalid JSON (40)
+	// - Implicit UTC offsets and unpaired surrogates (50)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void json_10_items() throws Exception
+	{
+		assertRoundTrip(new Item_Boolean(false));
+		assertRoundTrip(new Item_Category("my_category"));
+		assertRoundTrip(new Item_Count(-42));
+		assertRoundTrip(new Item_Measurement("Cel", -3.25));
+		assertRoundTrip(new Item_Measurement("Cel", 1.0E-300));
+		assertRoundTrip(new Item_Text("Some text"));
+		assertRoundTrip(new Item_TimeInstant(BASE_TIME));
+		assertRoundTrip(new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusHours(2))));
+		assertRoundTrip(createArray());
+		assertRoundTrip(createDataRecord());
+		assertRoundTrip(new Item_DataRecord());
+		
+		Item_TimeSeriesFlexible flexible = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < 50; ++a)
+		{
+			flexible.addValue(new Item_TimeInstant(BASE_TIME.plusSeconds(a)), Math.sin(a), a % 10 == 3 ? DataQuality.createBad() : DataQuality.createGood());
+		}
+		
+		assertRoundTrip(flexible);
+		flexible.compress();
+		assertRoundTrip(flexible);
+		
+		Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant("m", new Item_TimeInstant(BASE_TIME), Period.minutes(15));
+		constant.setDescription("Some description");
+		constant.addValue(1.5, DataQuality.createGood());
+		constant.addValue(Double.NaN, DataQuality.createBad());
+		assertRoundTrip(constant);
+	}
+	
+	@Test
+	public void json_20_structure() throws Exception
+	{
+		Observation obs = new Observation(new Item_Measurement("Cel", 22.4));
+		obs.setProcedure("proc");
+		obs.setObservedProperty("prop");
+		obs.setFeatureOfInterest("feat");
+		obs.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		obs.setResultTime(new Item_TimeInstant(BASE_TIME));
+		
+		String expected = "{\"type\":\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement\"," +
+				"\"phenomenonTime\":{\"instant\":\"2018-05-18T10:00:00.000Z\"}," +
+				"\"resultTime\":\"2018-05-18T10:00:00.000Z\"," +
+				"\"procedure\":{\"title\":\"proc\"},\"observedProperty\":{\"title\":\"prop\"},\"featureOfInterest\":{\"title\":\"feat\"}," +
+				"\"resultQuality\":{\"title\":\"good\"}," +
+				"\"result\":{\"value\":22.4,\"uom\":\"Cel\"}}";
+		assertEquals(expected, new String(JsonCodec.encode(obs), StandardCharsets.UTF_8));
+		
+		// A data record field
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("temp", new Item_Measurement("Cel", 1.5), DataQuality.createBad());
+		String recordJson = new String(JsonCodec.encode(new Observation(record)), StandardCharsets.UTF_8);
+		assertTrue(recordJson, recordJson.contains("\"result\":{\"type\":\"DataRecord\",\"fields\":[{\"name\":\"temp\",\"type\":\"Quantity\",\"quality\":\"bad\",\"uom\":\"Cel\",\"value\":1.5}]}"));
+	}
+	
+	@Test
+	public void json_30_valuesAndOrder() throws Exception
+	{
+		// Escapes and non-ASCII characters
+		String text = "Quote \" backslash \\ newline \n tab \t control \u0001 åäö € 😀";
+		Observation decoded = assertRoundTrip(new Item_Text(text));
+		assertEquals(text, ((Item_Text)decoded.getResult()).getValue());
+		
+		// Special doubles
+		decoded = assertRoundTrip(new Item_Measurement("Cel", Double.POSITIVE_INFINITY));
+		assertEquals(Double.POSITIVE_INFINITY, ((Item_Measurement)decoded.getResult()).getValue(), 0);
+		decoded = assertRoundTrip(new Item_Measurement("Cel", Double.NaN));
+		assertTrue(Double.isNaN(((Item_Measurement)decoded.getResult()).getValue()));
+		
+		// Member order, whitespace, escapes and unknown members
+		String json = "{ \"id\": \"x\", \"type\": \"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_ComplexObservation\",\n" +
+				"  \"result\": { \"type\": \"DataRecord\", \"fields\": [\n" +
+				"    { \"type\": \"Count\", \"value\": 5, \"name\": \"c\", \"extra\": [1, {\"a\": null}] },\n" +
+				"    { \"name\": \"t\", \"type\": \"Text\", \"value\": \"a\\u00e5\\/\" } ] },\n" +
+				"  \"procedure\": { \"href\": \"http://example.com\", \"title\": \"proc\" }\n}\n";
+		decoded = JsonCodec.decodeObservation(json.getBytes(StandardCharsets.UTF_8));
+		Item_DataRecord record = (Item_DataRecord)decoded.getResult();
+		assertEquals(5, ((Item_Count)record.getItem("c")).getValue());
+		assertEquals("aå/", ((Item_Text)record.getItem("t")).getValue());
+		assertEquals("proc", decoded.getProcedure());
+		assertNull(decoded.getResultTime());
+		assertNull(decoded.getFeatureOfInterest());
+	}
+	
+	@Test
+	public void json_40_streamsAndInvalid() throws Exception
+	{
+		Observation obs = new Observation(createDataRecord());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonCodec.encode(obs, out);
+		
+		Observation decoded = JsonCodec.decodeObservation(new ByteArrayInputStream(out.toByteArray()));
+		assertArrayEquals(obs.toXmlBytes(), decoded.toXmlBytes());
+		
+		String type = "\"type\":\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement\"";
+		assertInvalid("", "Unexpected end");
+		assertInvalid("{" + type + ",\"result\":{\"value\":1.5,\"uom\":\"Cel\"}", "Unexpected end");
+		assertInvalid("{" + type + ",\"result\":{\"value\":1.5,\"uom\":\"Cel\"}} {}", "after the end");
+		assertInvalid("{\"result\":{\"value\":1.5},\"type\":\"x\"}", "must precede");
+		assertInvalid("{" + type + ",\"result\":{\"value\":\"abc\"}}", "Expected a number");
+		assertInvalid("{\"type\":\"unknown\",\"result\":1}", "Unsupported observation type");
+		assertInvalid("{\"name\":\"a\" \"description\":\"b\"}", "expected ,");
+		assertInvalid("{\"name\":\"a\\x\"}", "Invalid escape");
+		
+		// Truncated at any point
+		byte[] bytes = out.toByteArray();
+		
+		for (int length = 0; length < bytes.length; ++length)
+		{
+			try
+			{
+				JsonCodec.decodeObservation(java.util.Arrays.copyOf(bytes, length));
+				fail("Expected exception at length " + length);
+			}
+			catch (InvalidMessageException e)
+			{
+				// Expected
+			}
+		}
+	}
+	
+	@Test
+	public void json_50_implicitOffsetAndSurrogates() throws Exception
+	{
+		// Instants without an explicit UTC offset remain so
+		Item_TimeInstant implicit = new Item_TimeInstant("2018-05-18T10:00:00");
+		assertFalse(implicit.getHasExplicitUtcOffset());
+		
+		Item_TimeSeriesConstant series = new Item_TimeSeriesConstant("Cel", implicit, Period.seconds(10));
+		series.addValue(1.5, DataQuality.createGood());
+		Observation original = new Observation(series);
+		original.setResultTime(implicit);
+		original.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		
+		Observation decoded = JsonCodec.decodeObservation(JsonCodec.encode(original));
+		assertFalse(decoded.getResultTime().getHasExplicitUtcOffset());
+		assertEquals(implicit.getValue().getMillis(), decoded.getResultTime().getValue().getMillis());
+		assertTrue(decoded.getPhenomenonTime().getHasExplicitUtcOffset());
+		
+		Item_TimeInstant baseTime = ((Item_TimeSeriesConstant)decoded.getResult()).getBaseTime();
+		assertFalse(baseTime.getHasExplicitUtcOffset());
+		assertEquals(implicit.getValue().getMillis(), baseTime.getValue().getMillis());
+		
+		// An unpaired surrogate becomes the replacement character; the output is valid UTF-8
+		byte[] json = JsonCodec.encode(new Observation(new Item_Text("a\uD800b\uDC00c")));
+		assertTrue(StandardCharsets.UTF_8.newDecoder().decode(java.nio.ByteBuffer.wrap(json)).length() > 0);
+		decoded = JsonCodec.decodeObservation(json);
+		assertEquals("a\uFFFDb\uFFFDc", ((Item_Text)decoded.getResult()).getValue());
+	}
+	
+	private void assertInvalid(String json, String expectedMessage)
+	{
+		try
+		{
+			JsonCodec.decodeObservation(json.getBytes(StandardCharsets.UTF_8));
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+		}
+	}
+	
+	private Observation assertRoundTrip(Item item) throws Exception
+	{
+		Observation original = new Observation(item);
+		original.setName("Some name");
+		original.setProcedure("proc");
+		original.setObservedProperty("prop");
+		original.setFeatureOfInterest("feat");
+		original.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		original.setResultTime(new Item_TimeInstant(BASE_TIME));
+		
+		Observation decoded = JsonCodec.decodeObservation(JsonCodec.encode(original));
+		assertEquals(item.getClass(), decoded.getResult().getClass());
+		assertArrayEquals(original.toXmlBytes(), decoded.toXmlBytes());
+		return decoded;
+	}
+	
+	private Item_Array createArray() throws Exception
+	{
+		ArrayList<ArrayColumn> columns = new ArrayList<>();
+		columns.add(new ArrayColumn("bool", Boolean.class));
+		columns.add(new ArrayColumn("long", Long.class));
+		columns.add(new ArrayColumn("double", Double.class, "Cel"));
+		columns.add(new ArrayColumn("string", String.class));
+		columns.add(new ArrayColumn("time", Item_TimeInstant.class));
+		columns.get(2).setLabel("Temperature");
+		columns.get(3).setDescription("Some description");
+		
+		Item_Array retval = new Item_Array(columns);
+		retval.add(true, -5L, 1.5, "abc", new Item_TimeInstant(BASE_TIME));
+		retval.add(null, null, Double.NaN, null, null);
+		retval.add(false, 7L, -2.0, "def", new Item_TimeInstant(BASE_TIME.plusDays(1)));
+		return retval;
+	}
+	
+	private Item_DataRecord createDataRecord() throws Exception
+	{
+		Item_DataRecord nested = new Item_DataRecord();
+		nested.addItem("count", new Item_Count(3));
+		nested.addItem("array", createArray());
+		
+		Item_DataRecord retval = new Item_DataRecord();
+		retval.addItem("bool", new Item_Boolean(true));
+		retval.addItem("category", new Item_Category("cat"));
+		retval.addItem("meas", new Item_Measurement("m", 1.25));
+		retval.addItem("text", new Item_Text("abc"), DataQuality.createBad());
+		retval.addItem("time", new Item_TimeInstant(BASE_TIME));
+		retval.addItem("range", new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusHours(1))));
+		retval.addItem("nested", nested);
+		return retval;
+	}
+}
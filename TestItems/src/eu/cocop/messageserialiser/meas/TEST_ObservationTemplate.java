@@ -0,0 +1,220 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class TEST_ObservationTemplate
+{
+	// This test focuses on:
+	// - Output equals Observation.toXmlBytes() for each supported result type (10)
+	// - Minimal namespaces and the explicit-field methods (20)
+	// - Special characters (30)
+	// - Mismatching observations and unsupported types (40)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void template_10_resultTypes() throws Exception
+	{
+		assertSameOutput(new Item_Measurement("Cel", 0), false);
+		assertSameOutput(new Item_Count(0), false);
+		assertSameOutput(new Item_Boolean(false), false);
+		assertSameOutput(new Item_Category("x"), false);
+		assertSameOutput(new Item_Text("x"), false);
+	}
+	
+	@Test
+	public void template_20_minimalNamespaces() throws Exception
+	{
+		assertSameOutput(new Item_Measurement("Cel", 0), true);
+		assertSameOutput(new Item_Category("x"), true);
+		assertSameOutput(new Item_Text("x"), true);
+		
+		// Explicit fields; phenomenon time defaults to result time
+		ObservationTemplate template = new ObservationTemplate(createObservation(new Item_Count(0)), true);
+		Item_TimeInstant resultTime = new Item_TimeInstant(BASE_TIME);
+		Observation expected = createObservation(new Item_Count(42));
+		expected.setResultTime(resultTime);
+		expected.setResultQuality(DataQuality.createBad());
+		assertArrayEquals(expected.toXmlBytes(true), template.toXmlBytes(null, resultTime, new Item_Count(42), DataQuality.createBad()));
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		template.write(null, resultTime, new Item_Count(42), DataQuality.createBad(), output);
+		assertArrayEquals(expected.toXmlBytes(true), output.toByteArray());
+	}
+	
+	@Test
+	public void template_30_specialCharacters() throws Exception
+	{
+		String[] values = new String[]
+		{
+			"", "plain", "a & b", "<tag>", "\"quoted\" 'single'", "]]>", "tab\tand\nnewline",
+			"åäö €", "carriage\rreturn", "control \u0001", "emoji 😀", " "
+		};
+		
+		for (boolean minimal : new boolean[] { false, true })
+		{
+			ObservationTemplate categoryTemplate = new ObservationTemplate(createObservation(new Item_Category("x")), minimal);
+			ObservationTemplate textTemplate = new ObservationTemplate(createObservation(new Item_Text("x")), minimal);
+			
+			for (String value : values)
+			{
+				Observation category = createObservation(new Item_Category(value));
+				category.setResultQuality(DataQuality.createBad(value));
+				assertArrayEquals(value, category.toXmlBytes(minimal), categoryTemplate.toXmlBytes(category));
+				
+				Observation text = createObservation(new Item_Text(value));
+				text.setResultQuality(DataQuality.createBad(value));
+				assertArrayEquals(value, text.toXmlBytes(minimal), textTemplate.toXmlBytes(text));
+			}
+		}
+		
+		// Special characters in the constant fields
+		Observation prototype = createObservation(new Item_Measurement("m³/h & \"x\"", 0));
+		prototype.setName("name <&>");
+		prototype.setProcedure("proc\t\"1\"");
+		ObservationTemplate template = new ObservationTemplate(prototype);
+		Observation obs = createObservation(new Item_Measurement("m³/h & \"x\"", 2.5));
+		obs.setName("name <&>");
+		obs.setProcedure("proc\t\"1\"");
+		assertArrayEquals(obs.toXmlBytes(), template.toXmlBytes(obs));
+	}
+	
+	@Test
+	public void template_40_mismatch() throws Exception
+	{
+		ObservationTemplate template = new ObservationTemplate(createObservation(new Item_Measurement("Cel", 0)));
+		assertTrue(template.matches(createObservation(new Item_Measurement("Cel", 1))));
+		
+		// Null and empty description are equal in XML
+		Observation obs = createObservation(new Item_Measurement("Cel", 1));
+		obs.setDescription("");
+		assertTrue(template.matches(obs));
+		
+		assertMismatch(template, createObservation(new Item_Measurement("K", 1)));
+		assertMismatch(template, createObservation(new Item_Count(1)));
+		
+		obs = createObservation(new Item_Measurement("Cel", 1));
+		obs.setProcedure("other");
+		assertMismatch(template, obs);
+		
+		obs = createObservation(new Item_Measurement("Cel", 1));
+		obs.setName("other");
+		assertMismatch(template, obs);
+		
+		try
+		{
+			template.toXmlBytes(null, new Item_TimeInstant(BASE_TIME), new Item_Measurement("K", 1), DataQuality.createGood());
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+		
+		// Unsupported result type
+		try
+		{
+			new ObservationTemplate(new Observation(new Item_DataRecord()));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains("Unsupported result type"));
+		}
+	}
+	
+	private void assertMismatch(ObservationTemplate template, Observation obs)
+	{
+		assertFalse(template.matches(obs));
+		
+		try
+		{
+			template.toXmlBytes(obs);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+	
+	private void assertSameOutput(Item prototypeResult, boolean minimal) throws Exception
+	{
+		ObservationTemplate template = new ObservationTemplate(createObservation(prototypeResult), minimal);
+		Random random = new Random(3);
+		
+		for (int a = 0; a < 200; ++a)
+		{
+			Item result;
+			
+			if (prototypeResult instanceof Item_Measurement)
+			{
+				double value = a % 20 == 0 ? Double.NaN : random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+				result = new Item_Measurement("Cel", a % 20 == 1 ? Double.NEGATIVE_INFINITY : value);
+			}
+			else if (prototypeResult instanceof Item_Count)
+			{
+				result = new Item_Count(random.nextLong());
+			}
+			else if (prototypeResult instanceof Item_Boolean)
+			{
+				result = new Item_Boolean(random.nextBoolean());
+			}
+			else if (prototypeResult instanceof Item_Category)
+			{
+				result = new Item_Category("category_" + a);
+			}
+			else
+			{
+				result = new Item_Text("Text " + a + (a % 3 == 0 ? " & <more>" : ""));
+			}
+			
+			Observation obs = createObservation(result);
+			obs.setResultTime(new Item_TimeInstant(BASE_TIME.plusMillis(random.nextInt())));
+			
+			if (a % 2 == 0)
+			{
+				obs.setPhenomenonTime(new Item_TimeInstant(BASE_TIME.minusSeconds(a)));
+			}
+			
+			obs.setResultQuality(a % 5 == 0 ? DataQuality.createBad("reason " + a) : DataQuality.createGood());
+			
+			byte[] expected = obs.toXmlBytes(minimal);
+			assertArrayEquals(expected, template.toXmlBytes(obs));
+			
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			template.write(obs, output);
+			assertArrayEquals(expected, output.toByteArray());
+		}
+	}
+	
+	private static Observation createObservation(Item result) throws InvalidMessageException
+	{
+		Observation retval = new Observation(result);
+		retval.setProcedure("plant/line1/sensor1");
+		retval.setObservedProperty("temperature");
+		retval.setFeatureOfInterest("plant/line1");
+		retval.setResultTime(new Item_TimeInstant(BASE_TIME));
+		return retval;
+	}
+}
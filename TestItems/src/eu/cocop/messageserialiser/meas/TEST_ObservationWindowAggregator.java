@@ -0,0 +1,237 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+public class TEST_ObservationWindowAggregator
+{
+	// This test focuses on:
+	// - Flexible series per group and window (10)
+	// - Constant series with slots (20)
+	// - Counts, late observations and other result types (30)
+	// - Emission by time and serialisation (40)
+	// - Removal of idle groups and unit mismatches (50)
+	
+	
+	private static final long BASE_MILLIS = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).getMillis();
+	
+	
+	@Test
+	public void windowAggr_10_flexible() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationWindowAggregator aggregator = new ObservationWindowAggregator(Period.minutes(1), null, output::add);
+		
+		// Two groups; samples out of order within the window
+		assertTrue(aggregator.add(createMeasurement(10, 1.5, "feat1")));
+		assertTrue(aggregator.add(createMeasurement(5, 2.5, "feat1")));
+		assertTrue(aggregator.add(createMeasurement(7, 3.5, "feat2")));
+		
+		Observation bad = createMeasurement(30, 4.5, "feat1");
+		bad.setResultQuality(DataQuality.createBad());
+		assertTrue(aggregator.add(bad));
+		
+		assertEquals(2, aggregator.getOpenWindowCount());
+		assertEquals(0, output.size());
+		
+		// The next window of feat1 emits the first one
+		assertTrue(aggregator.add(createMeasurement(65, 5.5, "feat1")));
+		assertEquals(1, output.size());
+		
+		Observation emitted = output.get(0);
+		assertEquals("proc", emitted.getProcedure());
+		assertEquals("prop", emitted.getObservedProperty());
+		assertEquals("feat1", emitted.getFeatureOfInterest());
+		assertEquals(BASE_MILLIS, emitted.getPhenomenonTime().getValue().getMillis());
+		assertEquals(BASE_MILLIS + 60000, emitted.getResultTime().getValue().getMillis());
+		
+		Item_TimeSeriesFlexible series = (Item_TimeSeriesFlexible)emitted.getResult();
+		assertEquals("Cel", series.getUnitOfMeasure());
+		assertEquals(3, series.getValueCount());
+		assertEquals(BASE_MILLIS + 5000, series.getTimestamp(0).getValue().getMillis());
+		assertEquals(BASE_MILLIS + 10000, series.getTimestamp(1).getValue().getMillis());
+		assertEquals(2.5, series.getValue(0), 0);
+		assertEquals(1.5, series.getValue(1), 0);
+		assertEquals(4.5, series.getValue(2), 0);
+		assertTrue(series.getDataQuality(1).isGood());
+		assertFalse(series.getDataQuality(2).isGood());
+		
+		aggregator.flush();
+		assertEquals(3, output.size());
+		assertEquals(0, aggregator.getOpenWindowCount());
+		assertEquals(3, aggregator.getEmittedCount());
+		assertEquals(5, aggregator.getSampleCount());
+		
+		// Ordered by window start
+		assertEquals("feat2", output.get(1).getFeatureOfInterest());
+		assertEquals(BASE_MILLIS + 60000, output.get(2).getPhenomenonTime().getValue().getMillis());
+	}
+	
+	@Test
+	public void windowAggr_20_constant() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationWindowAggregator aggregator = new ObservationWindowAggregator(Period.seconds(10), Period.seconds(2), output::add);
+		
+		aggregator.add(createMeasurement(0, 1, "feat"));
+		aggregator.add(createMeasurement(2.5, 2, "feat"));
+		aggregator.add(createMeasurement(3, 3, "feat")); // Same slot; this remains
+		aggregator.add(createMeasurement(8, 4, "feat"));
+		aggregator.flush();
+		
+		Item_TimeSeriesConstant series = (Item_TimeSeriesConstant)output.get(0).getResult();
+		assertEquals(5, series.getValueCount());
+		assertEquals(BASE_MILLIS, series.getBaseTime().getValue().getMillis());
+		assertEquals(Period.seconds(2), series.getSpacing());
+		
+		assertEquals(1, series.getValue(0), 0);
+		assertEquals(3, series.getValue(1), 0);
+		assertTrue(Double.isNaN(series.getValue(2)));
+		assertFalse(series.getDataQuality(2).isGood());
+		assertTrue(Double.isNaN(series.getValue(3)));
+		assertEquals(4, series.getValue(4), 0);
+		assertTrue(series.getDataQuality(4).isGood());
+		
+		// The window length must be a multiple of the spacing
+		try
+		{
+			new ObservationWindowAggregator(Period.seconds(10), Period.seconds(3), output::add);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("multiple"));
+		}
+	}
+	
+	@Test
+	public void windowAggr_30_countsAndLate() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationWindowAggregator aggregator = new ObservationWindowAggregator(Period.minutes(1), null, output::add);
+		
+		assertTrue(aggregator.add(createObservation(new Item_Count(4), 1, "feat")));
+		assertTrue(aggregator.add(createObservation(new Item_Count(6), 2, "feat")));
+		
+		// Other result types are not aggregated
+		assertFalse(aggregator.add(createObservation(new Item_Text("x"), 3, "feat")));
+		
+		// Next window
+		assertTrue(aggregator.add(createObservation(new Item_Count(7), 61, "feat")));
+		assertEquals(1, output.size());
+		
+		Item_TimeSeriesFlexible series = (Item_TimeSeriesFlexible)output.get(0).getResult();
+		assertEquals(TimeSeriesAggregator.COUNT_UNIT, series.getUnitOfMeasure());
+		assertEquals(6, series.getValue(1), 0);
+		
+		// Late: the first window has been emitted
+		assertFalse(aggregator.add(createObservation(new Item_Count(1), 30, "feat")));
+		
+		// Late after flushing too
+		aggregator.flush();
+		assertFalse(aggregator.add(createObservation(new Item_Count(1), 100, "feat")));
+		assertEquals(2, aggregator.getLateCount());
+		
+		// A later window is accepted
+		assertTrue(aggregator.add(createObservation(new Item_Count(1), 120, "feat")));
+	}
+	
+	@Test
+	public void windowAggr_40_advanceAndSerialise() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationWindowAggregator aggregator = new ObservationWindowAggregator(Period.minutes(1), Period.seconds(30), output::add);
+		
+		aggregator.add(createMeasurement(0, 1, "feat1"));
+		aggregator.add(createMeasurement(30, 2, "feat1"));
+		aggregator.add(createMeasurement(70, 3, "feat2"));
+		
+		// Only the first window has ended
+		aggregator.advanceTo(BASE_MILLIS + 60000);
+		assertEquals(1, output.size());
+		assertEquals(1, aggregator.getOpenWindowCount());
+		
+		// Round trip through XML
+		Observation parsed = new Observation(output.get(0).toXmlBytes());
+		Item_TimeSeriesConstant series = (Item_TimeSeriesConstant)parsed.getResult();
+		assertEquals(2, series.getValueCount());
+		assertEquals(2, series.getValue(1), 0);
+		assertEquals("feat1", parsed.getFeatureOfInterest());
+	}
+	
+	@Test
+	public void windowAggr_50_evictionAndUnits() throws Exception
+	{
+		ArrayList<Observation> output = new ArrayList<>();
+		ObservationWindowAggregator aggregator = new ObservationWindowAggregator(Period.minutes(1), null, output::add);
+		
+		// Many groups, each with one window
+		for (int a = 0; a < 100; ++a)
+		{
+			assertTrue(aggregator.add(createMeasurement(a % 60, a, "feat" + a)));
+		}
+		
+		assertEquals(100, aggregator.getGroupCount());
+		
+		// Flushing keeps the groups to detect late observations
+		aggregator.flush();
+		assertEquals(100, output.size());
+		assertEquals(100, aggregator.getGroupCount());
+		assertFalse(aggregator.add(createMeasurement(10, 1, "feat1")));
+		
+		// Advancing past the windows removes the groups
+		aggregator.advanceTo(BASE_MILLIS + 60000);
+		assertEquals(0, aggregator.getGroupCount());
+		
+		// The closed window is still late, also for new groups
+		assertFalse(aggregator.add(createMeasurement(10, 1, "feat1")));
+		assertFalse(aggregator.add(createMeasurement(10, 1, "other")));
+		assertEquals(0, aggregator.getGroupCount());
+		assertEquals(3, aggregator.getLateCount());
+		
+		// Another unit in the open window is rejected
+		assertTrue(aggregator.add(createMeasurement(65, 1, "feat1")));
+		assertFalse(aggregator.add(createObservation(new Item_Measurement("K", 300), 70, "feat1")));
+		assertFalse(aggregator.add(createObservation(new Item_Count(2), 75, "feat1")));
+		assertEquals(2, aggregator.getUnitMismatchCount());
+		
+		// The next window can have another unit
+		assertTrue(aggregator.add(createObservation(new Item_Measurement("K", 300), 125, "feat1")));
+		aggregator.flush();
+		assertEquals(102, output.size());
+		assertEquals(1, ((Item_TimeSeries)output.get(100).getResult()).getValueCount());
+		assertEquals("K", ((Item_TimeSeries)output.get(101).getResult()).getUnitOfMeasure());
+	}
+	
+	private Observation createMeasurement(double seconds, double value, String feature) throws Exception
+	{
+		return createObservation(new Item_Measurement("Cel", value), seconds, feature);
+	}
+	
+	private Observation createObservation(Item result, double seconds, String feature) throws Exception
+	{
+		Observation retval = new Observation(result);
+		retval.setPhenomenonTime(new Item_TimeInstant(new DateTime(BASE_MILLIS + (long)(seconds * 1000), DateTimeZone.UTC)));
+		retval.setProcedure("proc");
+		retval.setObservedProperty("prop");
+		retval.setFeatureOfInterest(feature);
+		return retval;
+	}
+}
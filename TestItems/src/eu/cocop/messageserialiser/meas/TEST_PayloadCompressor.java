@@ -0,0 +1,294 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class TEST_PayloadCompressor
+{
+	// This test focuses on:
+	// - Round trips of observations, requests and responses (10)
+	// - Threshold and uncompressed data (20)
+	// - Invalid data and dictionary mismatch (30)
+	// - Compression ratio with the default and a trained dictionary (40)
+	// - Concurrent use (50)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void compress_10_roundTrip() throws Exception
+	{
+		PayloadCompressor compressor = new PayloadCompressor();
+		
+		Observation obs = createObservation(0);
+		byte[] payload = compressor.encode(obs);
+		assertTrue(PayloadCompressor.isCompressed(payload));
+		assertArrayEquals(obs.toXmlBytes(), compressor.decodeObservation(payload).toXmlBytes());
+		
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feature");
+		request.getObservedProperties().add("property");
+		byte[] requestPayload = compressor.encode(request);
+		assertArrayEquals(request.toXmlBytes(), compressor.decodeGetObservationRequest(requestPayload).toXmlBytes());
+		
+		GetObservationResponse response = new GetObservationResponse();
+		response.getObservations().add(obs);
+		response.getObservations().add(createObservation(1));
+		byte[] responsePayload = compressor.encode(response);
+		assertTrue(PayloadCompressor.isCompressed(responsePayload));
+		assertArrayEquals(response.toXmlBytes(), compressor.decodeGetObservationResponse(responsePayload).toXmlBytes());
+		
+		// No dictionary
+		PayloadCompressor plain = new PayloadCompressor(null, 0, Deflater.BEST_COMPRESSION);
+		assertNull(plain.getDictionary());
+		assertArrayEquals(obs.toXmlBytes(), plain.decodeObservation(plain.encode(obs)).toXmlBytes());
+	}
+	
+	@Test
+	public void compress_20_thresholdAndUncompressed() throws Exception
+	{
+		PayloadCompressor compressor = new PayloadCompressor(PayloadCompressor.getDefaultDictionary(), 100, Deflater.DEFAULT_COMPRESSION);
+		assertEquals(100, compressor.getThreshold());
+		
+		// Below the threshold
+		byte[] small = "<a>small</a>".getBytes(StandardCharsets.UTF_8);
+		assertSame(small, compressor.compress(small));
+		
+		// Does not become smaller
+		byte[] random = new byte[1000];
+		new Random(3).nextBytes(random);
+		random[0] = '<';
+		assertSame(random, compressor.compress(random));
+		
+		// Uncompressed data passes through
+		Observation obs = createObservation(0);
+		byte[] xml = obs.toXmlBytes();
+		assertSame(xml, compressor.decompress(xml));
+		assertArrayEquals(xml, compressor.decodeObservation(xml).toXmlBytes());
+		
+		byte[] binary = BinaryCodec.encode(obs);
+		assertFalse(PayloadCompressor.isCompressed(binary));
+		assertSame(binary, compressor.decompress(binary));
+		assertArrayEquals(binary, compressor.decompress(compressor.compress(binary)));
+	}
+	
+	@Test
+	public void compress_30_invalid() throws Exception
+	{
+		PayloadCompressor compressor = new PayloadCompressor();
+		byte[] payload = compressor.encode(createObservation(0));
+		
+		// Another dictionary
+		PayloadCompressor other = new PayloadCompressor("something else".getBytes(StandardCharsets.UTF_8), 0, Deflater.DEFAULT_COMPRESSION);
+		assertInvalid(other, payload, "another dictionary");
+		assertInvalid(new PayloadCompressor(null, 0, Deflater.DEFAULT_COMPRESSION), payload, "another dictionary");
+		
+		// Unsupported version
+		byte[] modified = payload.clone();
+		modified[2] = 9;
+		assertInvalid(compressor, modified, "version");
+		
+		// Wrong length
+		modified = payload.clone();
+		modified[7] ^= 1;
+		assertInvalid(compressor, modified, "Invalid");
+		
+		// Truncated at any point
+		for (int length = 8; length < payload.length; ++length)
+		{
+			assertInvalid(compressor, Arrays.copyOf(payload, length), "Invalid");
+		}
+		
+		// Corrupted content
+		for (int a = 10; a < payload.length; a += 7)
+		{
+			modified = payload.clone();
+			modified[a] ^= 0x55;
+			assertInvalid(compressor, modified, "Invalid");
+		}
+		
+		// A huge declared length
+		byte[] bomb = new byte[] { 'C', 'Z', 1, payload[3], payload[4], payload[5], payload[6], (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 0x78, 0x01 };
+		assertInvalid(compressor, bomb, "Invalid length");
+		
+		// Invalid arguments
+		try
+		{
+			new PayloadCompressor(null, -1, Deflater.DEFAULT_COMPRESSION);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+		
+		try
+		{
+			new PayloadCompressor(null, 0, 10);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void compress_40_ratio() throws Exception
+	{
+		PayloadCompressor withDictionary = new PayloadCompressor();
+		PayloadCompressor plain = new PayloadCompressor(null, 0, Deflater.DEFAULT_COMPRESSION);
+		
+		ArrayList<byte[]> corpus = new ArrayList<>();
+		
+		for (int a = 0; a < 60; ++a)
+		{
+			corpus.add(createObservation(a).toXmlBytes());
+		}
+		
+		byte[] trained = PayloadCompressor.trainDictionary(corpus, 8192);
+		assertTrue(trained.length > 0 && trained.length <= 8192);
+		PayloadCompressor withTrained = new PayloadCompressor(trained, 0, Deflater.DEFAULT_COMPRESSION);
+		
+		// Samples not in the corpus
+		long originalSize = 0;
+		long plainSize = 0;
+		long dictionarySize = 0;
+		long trainedSize = 0;
+		
+		for (int a = 100; a < 130; ++a)
+		{
+			byte[] xml = createObservation(a).toXmlBytes();
+			originalSize += xml.length;
+			plainSize += plain.compress(xml).length;
+			dictionarySize += withDictionary.compress(xml).length;
+			byte[] compressed = withTrained.compress(xml);
+			trainedSize += compressed.length;
+			assertArrayEquals(xml, withTrained.decompress(compressed));
+		}
+		
+		// The dictionary should make small messages much smaller than deflate alone
+		assertTrue(originalSize + " " + plainSize + " " + dictionarySize, dictionarySize * 2 < plainSize);
+		assertTrue(plainSize + " " + trainedSize, trainedSize * 2 < plainSize);
+		
+		try
+		{
+			PayloadCompressor.trainDictionary(corpus, 0);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void compress_50_concurrent() throws Exception
+	{
+		final PayloadCompressor compressor = new PayloadCompressor();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try
+		{
+			ArrayList<Future<Boolean>> futures = new ArrayList<>();
+			
+			for (int t = 0; t < 8; ++t)
+			{
+				final int seed = t;
+				
+				futures.add(executor.submit(() ->
+				{
+					for (int a = 0; a < 50; ++a)
+					{
+						byte[] xml = createObservation(seed * 1000 + a).toXmlBytes();
+						
+						if (!Arrays.equals(xml, compressor.decompress(compressor.compress(xml))))
+						{
+							return false;
+						}
+					}
+					
+					return true;
+				}));
+			}
+			
+			for (Future<Boolean> future : futures)
+			{
+				assertTrue(future.get());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	private void assertInvalid(PayloadCompressor compressor, byte[] data, String expectedMessage)
+	{
+		try
+		{
+			compressor.decompress(data);
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+		}
+	}
+	
+	private static Observation createObservation(int seed) throws InvalidMessageException
+	{
+		Item item;
+		
+		switch (seed % 3)
+		{
+		case 0:
+			item = new Item_Measurement("Cel", 20 + seed * 0.37);
+			break;
+		
+		case 1:
+			Item_DataRecord record = new Item_DataRecord();
+			record.addItem("temperature", new Item_Measurement("Cel", seed * 0.5));
+			record.addItem("count", new Item_Count(seed));
+			record.addItem("state", new Item_Category("running"));
+			item = record;
+			break;
+		
+		default:
+			item = new Item_Count(seed);
+			break;
+		}
+		
+		Observation retval = new Observation(item);
+		retval.setProcedure("plant/line" + seed % 4 + "/sensor" + seed);
+		retval.setObservedProperty("temperature");
+		retval.setFeatureOfInterest("plant/line" + seed % 4);
+		retval.setPhenomenonTime(new Item_TimeInstant(BASE_TIME.plusSeconds(seed)));
+		retval.setResultTime(new Item_TimeInstant(BASE_TIME.plusSeconds(seed + 1)));
+		return retval;
+	}
+}
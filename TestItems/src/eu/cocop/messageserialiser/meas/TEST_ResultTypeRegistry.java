@@ -0,0 +1,300 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.opengis.swe._2.AbstractDataComponentType;
+import net.opengis.swe._2.CountRangePropertyType;
+import net.opengis.swe._2.CountRangeType;
+import net.opengis.swe._2.CountType;
+import net.opengis.swe._2.ObjectFactory;
+
+public class TEST_ResultTypeRegistry
+{
+	// This test focuses on:
+	// - Built-in types after the lookup change (10)
+	// - An application-specific type as an observation result and a data record field (20)
+	// - Registration conflicts (30)
+	// - Registering a proxy sub-class after it has been looked up (40)
+	
+	
+	private static final String TYPEURI_COUNTRANGE = "test/observationType/CountRange";
+	
+	
+	/**
+	 * An item type outside of the built-in ones. It only uses the public API of Item.
+	 */
+	private static final class CountRange extends Item
+	{
+		private final long m_low;
+		private final long m_high;
+		
+		CountRange(long low, long high)
+		{
+			super(TYPEURI_COUNTRANGE);
+			
+			m_low = low;
+			m_high = high;
+		}
+		
+		static CountRange fromProxy(CountRangeType proxy)
+		{
+			return new CountRange(proxy.getValue().get(0).longValue(), proxy.getValue().get(1).longValue());
+		}
+		
+		CountRangeType toProxy()
+		{
+			CountRangeType retval = new CountRangeType();
+			retval.getValue().add(BigInteger.valueOf(m_low));
+			retval.getValue().add(BigInteger.valueOf(m_high));
+			return retval;
+		}
+	}
+	
+	
+	private static final class OtherItem extends Item
+	{
+		OtherItem()
+		{
+			super("test/observationType/Other");
+		}
+	}
+	
+	private static final class OtherCodec implements ResultTypeRegistry.FieldCodec<OtherItem>
+	{
+		@Override
+		public OtherItem decode(AbstractDataComponentType proxy)
+		{
+			return new OtherItem();
+		}
+		
+		@Override
+		public JAXBElement<? extends AbstractDataComponentType> encode(OtherItem item, ObjectFactory fact)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * A proxy sub-class that is first decoded as its super class.
+	 */
+	private static final class SubCountType extends CountType
+	{
+		// No additions
+	}
+	
+	private static final class SubCountItem extends Item
+	{
+		SubCountItem()
+		{
+			super("test/observationType/SubCount");
+		}
+	}
+	
+	private static final ResultTypeRegistry.FieldCodec<CountRange> FIELD_CODEC = new ResultTypeRegistry.FieldCodec<CountRange>()
+	{
+		@Override
+		public CountRange decode(AbstractDataComponentType proxy) throws InvalidMessageException
+		{
+			return CountRange.fromProxy((CountRangeType)proxy);
+		}
+		
+		@Override
+		public JAXBElement<? extends AbstractDataComponentType> encode(CountRange item, ObjectFactory fact)
+		{
+			return fact.createCountRange(item.toProxy());
+		}
+	};
+	
+	
+	@BeforeClass
+	public static void registerCountRange()
+	{
+		ResultTypeRegistry.registerResultType(TYPEURI_COUNTRANGE, CountRangePropertyType.class, CountRange.class,
+				new ResultTypeRegistry.ResultCodec<CountRange>()
+				{
+					@Override
+					public CountRange decode(Object proxy) throws InvalidMessageException
+					{
+						return CountRange.fromProxy(((CountRangePropertyType)proxy).getCountRange());
+					}
+					
+					@Override
+					public Object encode(CountRange item, String idPrefix)
+					{
+						CountRangePropertyType retval = new CountRangePropertyType();
+						retval.setCountRange(item.toProxy());
+						return retval;
+					}
+				});
+		
+		ResultTypeRegistry.registerFieldType(CountRangeType.class, CountRange.class, FIELD_CODEC);
+	}
+	
+	@Test
+	public void registry_10_builtInTypes() throws Exception
+	{
+		Item item = ResultTypeRegistry.decodeResult(XmlHelper.TYPEURI_TRUTH, true);
+		assertTrue(((Item_Boolean)item).getValue());
+		
+		item = ResultTypeRegistry.decodeResult(XmlHelper.TYPEURI_TEXT, "abc");
+		assertEquals("abc", ((Item_Text)item).getValue());
+		
+		CountType countProxy = new CountType();
+		countProxy.setValue(BigInteger.valueOf(-5));
+		item = ResultTypeRegistry.decodeField(countProxy);
+		assertEquals(-5, ((Item_Count)item).getValue());
+		
+		// A proxy that does not match the type URI
+		try
+		{
+			ResultTypeRegistry.decodeResult(XmlHelper.TYPEURI_COMPLEX, "abc");
+			fail("Expected exception");
+		}
+		catch (InvalidMessageException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unexpected result type String"));
+		}
+		
+		// Unknown type URI
+		try
+		{
+			ResultTypeRegistry.decodeResult("unknown/type", "abc");
+			fail("Expected exception");
+		}
+		catch (RuntimeException e)
+		{
+			assertEquals("No support implemented for type \"unknown/type\"", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void registry_20_applicationType() throws Exception
+	{
+		// As an observation result
+		Observation original = new Observation(new CountRange(-3, 12));
+		byte[] xmlBytes = original.toXmlBytes();
+		assertTrue(new String(xmlBytes, "UTF-8").contains(TYPEURI_COUNTRANGE));
+		
+		Observation parsed = new Observation(xmlBytes);
+		CountRange range = (CountRange)parsed.getResult();
+		assertEquals(-3, range.m_low);
+		assertEquals(12, range.m_high);
+		
+		// As a data record field, also with data quality
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("range", new CountRange(1, 2));
+		record.addItem("badRange", new CountRange(5, 7), DataQuality.createBad());
+		record.addItem("count", new Item_Count(4));
+		
+		Item_DataRecord parsedRecord = (Item_DataRecord)new Observation(new Observation(record).toXmlBytes()).getResult();
+		assertEquals(3, parsedRecord.getItemNames().size());
+		assertEquals(2, ((CountRange)parsedRecord.getItem("range")).m_high);
+		assertEquals(5, ((CountRange)parsedRecord.getItem("badRange")).m_low);
+		assertFalse(parsedRecord.getQualityOfItem("badRange").isGood());
+		assertTrue(parsedRecord.getQualityOfItem("range").isGood());
+		assertEquals(4, ((Item_Count)parsedRecord.getItem("count")).getValue());
+		
+		// No binary encoding for registered types
+		try
+		{
+			BinaryCodec.encode(new Observation(record));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unsupported item type CountRange"));
+		}
+		
+		// No JSON encoding either, also as a data record field
+		try
+		{
+			JsonCodec.encode(new Observation(record));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unsupported data record field type CountRange"));
+		}
+	}
+	
+	@Test
+	public void registry_30_conflicts() throws Exception
+	{
+		// The item class is already registered
+		try
+		{
+			ResultTypeRegistry.registerFieldType(CountRangeType.class, CountRange.class, FIELD_CODEC);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Item class already registered"));
+		}
+		
+		// The proxy class of a built-in type
+		try
+		{
+			ResultTypeRegistry.registerFieldType(CountType.class, OtherItem.class, new OtherCodec());
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Proxy class already registered"));
+		}
+		
+		// The failed registration must not leave the item class registered
+		try
+		{
+			ResultTypeRegistry.registerFieldType(CountType.class, OtherItem.class, new OtherCodec());
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Proxy class already registered"));
+		}
+	}	
+	@Test
+	public void registry_40_subClassAfterLookup() throws Exception
+	{
+		SubCountType proxy = new SubCountType();
+		proxy.setValue(BigInteger.valueOf(7));
+		
+		// Decoded with the decoder of the super class
+		assertEquals(7, ((Item_Count)ResultTypeRegistry.decodeField(proxy)).getValue());
+		
+		// The cached lookup must not block the registration
+		ResultTypeRegistry.registerFieldType(SubCountType.class, SubCountItem.class, new ResultTypeRegistry.FieldCodec<SubCountItem>()
+		{
+			@Override
+			public SubCountItem decode(AbstractDataComponentType p)
+			{
+				return new SubCountItem();
+			}
+			
+			@Override
+			public JAXBElement<? extends AbstractDataComponentType> encode(SubCountItem item, ObjectFactory fact)
+			{
+				return null;
+			}
+		});
+		assertEquals(SubCountItem.class, ResultTypeRegistry.decodeField(proxy).getClass());
+	}
+}
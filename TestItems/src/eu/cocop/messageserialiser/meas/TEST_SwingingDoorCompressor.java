@@ -0,0 +1,204 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+public class TEST_SwingingDoorCompressor
+{
+	// This test focuses on:
+	// - Straight lines (10)
+	// - The reconstruction error of a noisy signal (20)
+	// - Quality changes and NaN (30)
+	// - The maximum interval (40)
+	// - Timestamps that do not increase (50)
+	
+	private static final long BASE_MILLIS = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).getMillis();
+	
+	
+	@Test
+	public void swingingDoor_10_lines() throws Exception
+	{
+		// A ramp needs only the end points
+		Item_TimeSeriesFlexible ramp = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			ramp.addValue(BASE_MILLIS + a * 1000L, a * 0.5, DataQuality.createGood());
+		}
+		
+		Item_TimeSeriesFlexible result = SwingingDoorCompressor.compress(ramp, 0.01, null);
+		assertEquals(2, result.getValueCount());
+		assertEquals(0, result.getValue(0), 0);
+		assertEquals(49.5, result.getValue(1), 0);
+		assertEquals(BASE_MILLIS + 99000, result.getTimestampMillis(1));
+		
+		// Two lines need three points
+		Item_TimeSeriesFlexible peak = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			peak.addValue(BASE_MILLIS + a * 1000L, a < 50 ? a : 100 - a, DataQuality.createGood());
+		}
+		
+		result = SwingingDoorCompressor.compress(peak, 0.01, null);
+		assertEquals(3, result.getValueCount());
+		assertEquals(50, result.getValue(1), 0);
+	}
+	
+	@Test
+	public void swingingDoor_20_reconstructionError() throws Exception
+	{
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < 5000; ++a)
+		{
+			double value = 50 + 10 * Math.sin(a / 200.0) + 0.05 * Math.sin(a * 7.0);
+			series.addValue(BASE_MILLIS + a * 1000L, value, DataQuality.createGood());
+		}
+		
+		double deviation = 0.2;
+		Item_TimeSeriesFlexible result = SwingingDoorCompressor.compress(series, deviation, null);
+		assertTrue("Count " + result.getValueCount(), result.getValueCount() * 10 < series.getValueCount());
+		
+		// Linear interpolation between the retained samples
+		int segment = 0;
+		
+		for (int a = 0; a < series.getValueCount(); ++a)
+		{
+			long time = series.getTimestampMillis(a);
+			
+			while (result.getTimestampMillis(segment + 1) < time)
+			{
+				++segment;
+			}
+			
+			long t0 = result.getTimestampMillis(segment);
+			long t1 = result.getTimestampMillis(segment + 1);
+			double v0 = result.getValue(segment);
+			double v1 = result.getValue(segment + 1);
+			double interpolated = v0 + (v1 - v0) * (time - t0) / (t1 - t0);
+			assertEquals("Index " + a, series.getValue(a), interpolated, deviation + 1e-9);
+		}
+	}
+	
+	@Test
+	public void swingingDoor_30_qualityAndNaN() throws Exception
+	{
+		Item_TimeSeriesFlexible target = new Item_TimeSeriesFlexible("Cel");
+		SwingingDoorCompressor compressor = new SwingingDoorCompressor(1, null, target);
+		assertSame(target, compressor.getTarget());
+		
+		// A constant value with bad quality in the middle
+		for (int a = 0; a < 30; ++a)
+		{
+			DataQuality dq = a >= 10 && a < 20 ? DataQuality.createBad() : DataQuality.createGood();
+			compressor.add(instant(a), 5, dq);
+		}
+		
+		compressor.flush();
+		
+		// Both sides of each change
+		assertTimes(target, 0, 9, 10, 19, 20, 29);
+		
+		// NaN
+		target = new Item_TimeSeriesFlexible("Cel");
+		compressor = new SwingingDoorCompressor(1, null, target);
+		
+		for (int a = 0; a < 10; ++a)
+		{
+			compressor.add(instant(a), a == 5 ? Double.NaN : 5, DataQuality.createGood());
+		}
+		
+		compressor.flush();
+		assertTimes(target, 0, 4, 5, 6, 9);
+	}
+	
+	@Test
+	public void swingingDoor_40_maxInterval() throws Exception
+	{
+		Item_TimeSeriesFlexible target = new Item_TimeSeriesFlexible("Cel");
+		SwingingDoorCompressor compressor = new SwingingDoorCompressor(1, Period.seconds(10), target);
+		
+		for (int a = 0; a <= 30; ++a)
+		{
+			compressor.add(instant(a), 5, DataQuality.createGood());
+		}
+		
+		// A gap in the input
+		compressor.add(instant(100), 5, DataQuality.createGood());
+		compressor.flush();
+		
+		assertTimes(target, 0, 10, 20, 30, 100);
+		
+		try
+		{
+			new SwingingDoorCompressor(1, Period.months(1), target);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void swingingDoor_50_nonIncreasingTime() throws Exception
+	{
+		Item_TimeSeriesFlexible target = new Item_TimeSeriesFlexible("Cel");
+		SwingingDoorCompressor compressor = new SwingingDoorCompressor(1, null, target);
+		
+		for (int a = 0; a <= 5; ++a)
+		{
+			compressor.add(instant(a), 5, DataQuality.createGood());
+		}
+		
+		// Between the archived (0) and the held (5) sample
+		compressor.add(instant(3), 6, DataQuality.createGood());
+		
+		for (int a = 6; a <= 9; ++a)
+		{
+			compressor.add(instant(a), 6, DataQuality.createGood());
+		}
+		
+		// The same timestamp as the held sample
+		compressor.add(instant(9), 7, DataQuality.createGood());
+		compressor.flush();
+		
+		// Both the held sample and the one out of order are retained
+		assertTimes(target, 0, 5, 3, 9, 9);
+		assertEquals(5, target.getValue(1), 0);
+		assertEquals(6, target.getValue(2), 0);
+		assertEquals(6, target.getValue(3), 0);
+		assertEquals(7, target.getValue(4), 0);
+	}
+	
+	private void assertTimes(Item_TimeSeriesFlexible series, int... seconds)
+	{
+		assertEquals(seconds.length, series.getValueCount());
+		
+		for (int a = 0; a < seconds.length; ++a)
+		{
+			assertEquals(BASE_MILLIS + seconds[a] * 1000L, series.getTimestampMillis(a));
+		}
+	}
+	
+	private Item_TimeInstant instant(int seconds)
+	{
+		return new Item_TimeInstant(new DateTime(BASE_MILLIS + seconds * 1000L, DateTimeZone.UTC));
+	}
+}
@@ -0,0 +1,265 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.TimeSeriesAggregator.AggregateType;
+import eu.cocop.messageserialiser.meas.TimeSeriesAggregator.QualityPolicyType;
+
+public class TEST_TimeSeriesAggregator
+{
+	// This test focuses on:
+	// - Bucketed aggregates of a flexible series (10)
+	// - Quality policies (20)
+	// - Empty buckets, unsorted input and a constant-interval input (30)
+	// - LTTB downsampling (40)
+	// - The range of buckets growing in either direction and the bucket limit (50)
+	
+	
+	@Test
+	public void aggregator_10_aggregates() throws Exception
+	{
+		// Two 1-minute buckets with 20-second sampling
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.addValue(instant(10, 0, 0), 3);
+		series.addValue(instant(10, 0, 20), 1);
+		series.addValue(instant(10, 0, 40), 5);
+		series.addValue(instant(10, 1, 0), -2);
+		series.addValue(instant(10, 1, 30), 4);
+		
+		TimeSeriesAggregator aggregator = new TimeSeriesAggregator(Period.minutes(1));
+		Item_TimeSeriesConstant[] results = aggregator.aggregate(series, AggregateType.Min, AggregateType.Max,
+				AggregateType.Mean, AggregateType.First, AggregateType.Last, AggregateType.Count);
+		
+		assertSeries(results[0], 1, -2);
+		assertSeries(results[1], 5, 4);
+		assertSeries(results[2], 3, 1);
+		assertSeries(results[3], 3, -2);
+		assertSeries(results[4], 5, 4);
+		assertSeries(results[5], 3, 2);
+		
+		// Metadata
+		assertEquals("Cel", results[0].getUnitOfMeasure());
+		assertEquals(TimeSeriesAggregator.COUNT_UNIT, results[5].getUnitOfMeasure());
+		assertEquals(instant(10, 0, 0).getValue(), results[0].getBaseTime().getValue());
+		assertEquals(Period.minutes(1), results[0].getSpacing());
+		
+		// The result must be serialisable
+		Observation obs = new Observation(results[2]);
+		Item_TimeSeriesConstant parsed = (Item_TimeSeriesConstant)new Observation(obs.toXmlBytes()).getResult();
+		assertSeries(parsed, 3, 1);
+		
+		// An origin shifts the buckets
+		aggregator = new TimeSeriesAggregator(Period.minutes(1), instant(0, 0, 30));
+		assertSeries(aggregator.aggregate(series, AggregateType.Count), 2, 2, 1);
+		
+		// Variable-length bucket size
+		try
+		{
+			new TimeSeriesAggregator(Period.months(1));
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void aggregator_20_qualityPolicies() throws Exception
+	{
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.addValue(instant(10, 0, 0), 3);
+		series.addValue(instant(10, 0, 20), 100, DataQuality.createBad());
+		series.addValue(instant(10, 1, 0), 50, DataQuality.createBad("sensorfault"));
+		series.addValue(instant(10, 1, 20), 60, DataQuality.createBad());
+		series.addValue(instant(10, 2, 0), 7);
+		
+		TimeSeriesAggregator aggregator = new TimeSeriesAggregator(Period.minutes(1));
+		
+		// Any bad (the default)
+		Item_TimeSeriesConstant result = aggregator.aggregate(series, AggregateType.Max);
+		assertSeries(result, 100, 60, 7);
+		assertQualities(result, false, false, true);
+		
+		// All bad
+		aggregator.setQualityPolicy(QualityPolicyType.AllBad);
+		result = aggregator.aggregate(series, AggregateType.Max);
+		assertSeries(result, 100, 60, 7);
+		assertQualities(result, true, false, true);
+		
+		// Ignore bad
+		aggregator.setQualityPolicy(QualityPolicyType.IgnoreBad);
+		Item_TimeSeriesConstant[] results = aggregator.aggregate(series, AggregateType.Max, AggregateType.Count);
+		assertSeries(results[0], 3, Double.NaN, 7);
+		assertQualities(results[0], true, false, true);
+		assertSeries(results[1], 1, 0, 1);
+		assertQualities(results[1], true, false, true);
+	}
+	
+	@Test
+	public void aggregator_30_emptyAndUnsorted() throws Exception
+	{
+		// Unsorted samples with a gap
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.addValue(instant(10, 3, 10), 8);
+		series.addValue(instant(10, 0, 30), 2);
+		series.addValue(instant(10, 0, 10), 1);
+		
+		TimeSeriesAggregator aggregator = new TimeSeriesAggregator(Period.minutes(1));
+		Item_TimeSeriesConstant[] results = aggregator.aggregate(series, AggregateType.First, AggregateType.Last, AggregateType.Count);
+		assertSeries(results[0], 1, Double.NaN, Double.NaN, 8);
+		assertQualities(results[0], true, false, false, true);
+		assertSeries(results[1], 2, Double.NaN, Double.NaN, 8);
+		assertSeries(results[2], 2, 0, 0, 1);
+		assertQualities(results[2], true, true, true, true);
+		
+		// Empty series
+		assertEquals(0, aggregator.aggregate(new Item_TimeSeriesFlexible("Cel"), AggregateType.Mean).getValueCount());
+		
+		// Constant-interval input
+		Item_TimeSeriesConstant constSeries = new Item_TimeSeriesConstant("Cel", instant(10, 0, 0), Period.seconds(30));
+		
+		for (int a = 0; a < 6; ++a)
+		{
+			constSeries.addValue(a);
+		}
+		
+		assertSeries(aggregator.aggregate(constSeries, AggregateType.Mean), 0.5, 2.5, 4.5);
+	}
+	
+	@Test
+	public void aggregator_40_lttb() throws Exception
+	{
+		// A flat line with a single spike
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			series.addValue(instant(10, a / 60, a % 60), a == 42 ? 10 : 0);
+		}
+		
+		Item_TimeSeriesFlexible result = TimeSeriesAggregator.downsampleLttb(series, 10);
+		assertEquals(10, result.getValueCount());
+		assertEquals("Cel", result.getUnitOfMeasure());
+		
+		// The first and the last are retained, and so is the spike
+		assertSame(series.getTimestamp(0), result.getTimestamp(0));
+		assertSame(series.getTimestamp(99), result.getTimestamp(9));
+		boolean spikeFound = false;
+		
+		for (int a = 1; a < result.getValueCount(); ++a)
+		{
+			assertTrue(result.getTimestamp(a).getValue().isAfter(result.getTimestamp(a - 1).getValue()));
+			spikeFound |= result.getValue(a) == 10;
+		}
+		
+		assertTrue(spikeFound);
+		
+		// Threshold greater than the count -> everything retained
+		assertEquals(100, TimeSeriesAggregator.downsampleLttb(series, 1000).getValueCount());
+		
+		// Constant-interval input
+		Item_TimeSeriesConstant constSeries = new Item_TimeSeriesConstant("Cel", instant(10, 0, 0), Period.seconds(1));
+		
+		for (int a = 0; a < 100; ++a)
+		{
+			constSeries.addValue(a == 42 ? 10 : 0);
+		}
+		
+		result = TimeSeriesAggregator.downsampleLttb(constSeries, 10);
+		assertEquals(10, result.getValueCount());
+		assertEquals(instant(10, 1, 39).getValue(), result.getTimestamp(9).getValue());
+	}
+	
+	@Test
+	public void aggregator_50_bucketRange() throws Exception
+	{
+		// Descending samples with gaps grow the range downwards
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 99; a >= 0; a -= 3)
+		{
+			series.addValue(instant(10 + a / 60, a % 60, 0), a);
+		}
+		
+		TimeSeriesAggregator aggregator = new TimeSeriesAggregator(Period.minutes(3));
+		Item_TimeSeriesConstant[] results = aggregator.aggregate(series, AggregateType.Min, AggregateType.Count);
+		assertEquals(34, results[0].getValueCount());
+		assertEquals(instant(10, 0, 0).getValue(), results[0].getBaseTime().getValue());
+		
+		for (int a = 0; a < 34; ++a)
+		{
+			assertEquals(a * 3, results[0].getValue(a), 0.0001);
+			assertEquals(1, results[1].getValue(a), 0.0001);
+		}
+		
+		// Samples on both sides of the first one
+		series = new Item_TimeSeriesFlexible("Cel");
+		series.addValue(instant(10, 50, 0), 50);
+		series.addValue(instant(10, 0, 0), 0);
+		series.addValue(instant(11, 39, 0), 99);
+		results = aggregator.aggregate(series, AggregateType.Max, AggregateType.Count);
+		assertEquals(34, results[0].getValueCount());
+		assertEquals(0, results[0].getValue(0), 0.0001);
+		assertEquals(99, results[0].getValue(33), 0.0001);
+		assertEquals(1, results[1].getValue(16), 0.0001);
+		assertEquals(0, results[1].getValue(17), 0.0001);
+		
+		// The limit of buckets: one millisecond buckets over a day
+		TimeSeriesAggregator fineAggregator = new TimeSeriesAggregator(Period.millis(1));
+		Item_TimeSeriesFlexible longSeries = new Item_TimeSeriesFlexible("Cel");
+		longSeries.addValue(instant(0, 0, 0), 1);
+		longSeries.addValue(instant(23, 0, 0), 2);
+		
+		try
+		{
+			fineAggregator.aggregate(longSeries, AggregateType.Mean);
+			fail("Expected exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage().contains("Too many buckets"));
+		}
+	}
+	
+		private void assertSeries(Item_TimeSeries series, double... expected)
+	{
+		assertEquals(expected.length, series.getValueCount());
+		
+		for (int a = 0; a < expected.length; ++a)
+		{
+			assertEquals(expected[a], series.getValue(a), 0.0001);
+		}
+	}
+	
+	private void assertQualities(Item_TimeSeries series, boolean... expectedGood)
+	{
+		assertEquals(expectedGood.length, series.getValueCount());
+		
+		for (int a = 0; a < expectedGood.length; ++a)
+		{
+			assertEquals(expectedGood[a], series.getDataQuality(a).isGood());
+		}
+	}
+	
+	private Item_TimeInstant instant(int hour, int minute, int second)
+	{
+		return new Item_TimeInstant(new DateTime(2018, 5, 18, hour, minute, second, DateTimeZone.UTC));
+	}
+}
@@ -0,0 +1,129 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+public class TEST_TimeSeriesBulkAppend
+{
+	// This test focuses on:
+	// - Bulk append to a constant-interval series (10)
+	// - Bulk append to a flexible series (20)
+	// - Invalid ranges (30)
+	
+	
+	@Test
+	public void bulk_10_constant() throws Exception
+	{
+		Item_TimeSeriesConstant series = new Item_TimeSeriesConstant("Cel", instant(0), Period.seconds(1));
+		series.addValue(-1);
+		
+		// Only a part of the array is added
+		double[] values = new double[] { 9, 0, 1, 2, 9 };
+		series.addValues(values, 1, 3);
+		
+		DataQuality bad = DataQuality.createBad();
+		DataQuality[] qualities = new DataQuality[] { DataQuality.createGood(), bad };
+		series.addValues(new double[] { 3, 4 }, qualities, 0, 2);
+		
+		assertEquals(6, series.getValueCount());
+		
+		for (int a = 0; a < 6; ++a)
+		{
+			assertEquals(a - 1, series.getValue(a), 0.0001);
+			assertEquals(a != 5, series.getDataQuality(a).isGood());
+		}
+		
+		// Serialisation round trip
+		Item_TimeSeriesConstant parsed = (Item_TimeSeriesConstant)new Observation(new Observation(series).toXmlBytes()).getResult();
+		assertEquals(6, parsed.getValueCount());
+		assertEquals(4, parsed.getValue(5), 0.0001);
+		assertFalse(parsed.getDataQuality(5).isGood());
+	}
+	
+	@Test
+	public void bulk_20_flexible() throws Exception
+	{
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.addValue(instant(0), 0);
+		
+		long base = instant(0).getValue().getMillis();
+		long[] timestamps = new long[1000];
+		double[] values = new double[1000];
+		
+		for (int a = 0; a < timestamps.length; ++a)
+		{
+			timestamps[a] = base + (a + 1) * 1000L;
+			values[a] = a + 1;
+		}
+		
+		series.addValues(timestamps, values, 0, 1000);
+		assertEquals(1001, series.getValueCount());
+		assertTrue(series.isSortedByTime());
+		assertEquals(500, series.getValue(500), 0.0001);
+		assertEquals(instant(500).getValue(), series.getTimestamp(500).getValue());
+		assertTrue(series.getDataQuality(1000).isGood());
+		
+		// The bulk data works with views
+		Item_TimeSeriesFlexible view = series.subSeries(instant(10), instant(20));
+		assertEquals(10, view.getValueCount());
+		view.addValues(new long[] { base }, new double[] { -1 }, new DataQuality[] { DataQuality.createBad() }, 0, 1);
+		assertEquals(11, view.getValueCount());
+		assertFalse(view.isSortedByTime());
+		assertFalse(view.getDataQuality(10).isGood());
+		assertEquals(1001, series.getValueCount());
+		assertTrue(series.isSortedByTime());
+		
+		// Serialisation round trip
+		Item_TimeSeriesFlexible parsed = (Item_TimeSeriesFlexible)new Observation(new Observation(view).toXmlBytes()).getResult();
+		assertEquals(11, parsed.getValueCount());
+		assertEquals(instant(0).getValue(), parsed.getTimestamp(10).getValue());
+	}
+	
+	@Test
+	public void bulk_30_invalidRange() throws Exception
+	{
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		
+		try
+		{
+			series.addValues(new long[2], new double[3], 1, 2);
+			fail("Expected exception");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+		
+		try
+		{
+			new Item_TimeSeriesConstant("Cel", instant(0), Period.seconds(1)).addValues(new double[3], new DataQuality[1], 0, 2);
+			fail("Expected exception");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+		
+		assertEquals(0, series.getValueCount());
+	}
+	
+	private Item_TimeInstant instant(int seconds)
+	{
+		return new Item_TimeInstant(new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).plusSeconds(seconds));
+	}
+}
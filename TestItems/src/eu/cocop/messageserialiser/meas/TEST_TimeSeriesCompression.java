@@ -0,0 +1,257 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.TimeSeriesAggregator.AggregateType;
+
+public class TEST_TimeSeriesCompression
+{
+	// This test focuses on:
+	// - Lossless round trip of a flexible series, including special values (10)
+	// - Appending and other operations when compressed (20)
+	// - A constant-interval series (30)
+	// - The compression ratio of slowly changing values (40)
+	// - Reusing a compressed series in decoding (50)
+	
+	private static final long BASE_MILLIS = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).getMillis();
+	
+	
+	@Test
+	public void compression_10_roundTrip() throws Exception
+	{
+		double[] specials = new double[] { Double.NaN, Double.POSITIVE_INFINITY, -0.0, Double.MIN_VALUE, -1e300, 0.1 };
+		int count = 1000;
+		long[] timestamps = new long[count];
+		double[] values = new double[count];
+		DataQuality[] qualities = new DataQuality[count];
+		long time = BASE_MILLIS;
+		
+		for (int a = 0; a < count; ++a)
+		{
+			// Irregular intervals, also large gaps and duplicates
+			time += a % 97 == 0 ? 86400000L * 3 : (a % 13 == 0 ? 0 : 1000 + (a % 7) * 150);
+			timestamps[a] = time;
+			values[a] = a % 50 == 0 ? specials[(a / 50) % specials.length] : Math.sin(a / 10.0) * 100;
+			qualities[a] = (a / 100) % 3 == 0 ? DataQuality.createBad("x") : DataQuality.createGood();
+		}
+		
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.addValues(timestamps, values, qualities, 0, count);
+		series.compress();
+		assertTrue(series.isCompressed());
+		assertEquals(count, series.getValueCount());
+		
+		// Sequential access
+		TimeSeriesCursor cursor = series.createCursor();
+		int index = 0;
+		
+		while (cursor.next())
+		{
+			assertEquals(index, cursor.getIndex());
+			assertSample(timestamps[index], values[index], qualities[index], cursor.getTimestampMillis(), cursor.getValue(), cursor.getDataQuality());
+			++index;
+		}
+		
+		assertEquals(count, index);
+		
+		// Random access, also around block boundaries
+		for (int a : new int[] { 999, 0, 127, 128, 129, 500, 255, 256 })
+		{
+			assertSample(timestamps[a], values[a], qualities[a], series.getTimestamp(a).getValue().getMillis(),
+					series.getValue(a), series.getDataQuality(a));
+		}
+		
+		// Decompression
+		series.decompress();
+		assertFalse(series.isCompressed());
+		
+		for (int a = 0; a < count; ++a)
+		{
+			assertSample(timestamps[a], values[a], qualities[a], series.getTimestamp(a).getValue().getMillis(),
+					series.getValue(a), series.getDataQuality(a));
+		}
+	}
+	
+	@Test
+	public void compression_20_operations() throws Exception
+	{
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		series.setDescription("desc");
+		
+		for (int a = 0; a < 300; ++a)
+		{
+			series.addValue(instant(a), a);
+		}
+		
+		series.compress();
+		
+		// Appending
+		series.addValue(instant(300), 300);
+		series.addValues(new long[] { BASE_MILLIS + 301000 }, new double[] { 301 }, 0, 1);
+		assertTrue(series.isCompressed());
+		assertEquals(302, series.getValueCount());
+		assertEquals(301, series.getValue(301), 0);
+		assertEquals(instant(300).getValue(), series.getTimestamp(300).getValue());
+		
+		// Sub-series is a copy
+		Item_TimeSeriesFlexible view = series.subSeries(instant(10), instant(20));
+		assertEquals(10, view.getValueCount());
+		assertEquals(10, view.getValue(0), 0);
+		
+		// Aggregation
+		Item_TimeSeriesConstant means = new TimeSeriesAggregator(Period.minutes(1)).aggregate(series, AggregateType.Mean);
+		assertEquals(6, means.getValueCount());
+		assertEquals(29.5, means.getValue(0), 0.0001);
+		
+		// Serialisation
+		Item_TimeSeriesFlexible parsed = (Item_TimeSeriesFlexible)new Observation(new Observation(series).toXmlBytes()).getResult();
+		assertEquals(302, parsed.getValueCount());
+		assertEquals(150, parsed.getValue(150), 0);
+		assertEquals(instant(150).getValue(), parsed.getTimestamp(150).getValue());
+		assertEquals("desc", parsed.getDescription());
+		
+		// Sorting
+		series.addValue(instant(-1), -1);
+		assertFalse(series.isSortedByTime());
+		series.sortByTime();
+		assertTrue(series.isCompressed());
+		assertTrue(series.isSortedByTime());
+		assertEquals(-1, series.getValue(0), 0);
+		assertEquals(303, series.getValueCount());
+	}
+	
+	@Test
+	public void compression_30_constant() throws Exception
+	{
+		Item_TimeSeriesConstant series = new Item_TimeSeriesConstant("Cel", instant(0), Period.seconds(10));
+		
+		for (int a = 0; a < 200; ++a)
+		{
+			series.addValue(a / 10, a < 100 ? DataQuality.createGood() : DataQuality.createBad());
+		}
+		
+		series.compress();
+		series.addValue(1000);
+		assertEquals(201, series.getValueCount());
+		assertEquals(15, series.getValue(150), 0);
+		assertFalse(series.getDataQuality(150).isGood());
+		assertTrue(series.getDataQuality(200).isGood());
+		
+		TimeSeriesCursor cursor = series.createCursor();
+		cursor.next();
+		cursor.next();
+		assertEquals(instant(10).getValue().getMillis(), cursor.getTimestampMillis());
+		
+		Item_TimeSeriesConstant view = series.subSeries(instant(100), instant(200));
+		assertEquals(10, view.getValueCount());
+		assertEquals(1, view.getValue(0), 0);
+		
+		Item_TimeSeriesConstant parsed = (Item_TimeSeriesConstant)new Observation(new Observation(series).toXmlBytes()).getResult();
+		assertEquals(201, parsed.getValueCount());
+		assertEquals(1000, parsed.getValue(200), 0);
+	}
+	
+	@Test
+	public void compression_40_ratio() throws Exception
+	{
+		// Process values with a deadband: 1 Hz sampling, the value changes occasionally
+		int count = 100000;
+		Item_TimeSeriesFlexible series = new Item_TimeSeriesFlexible("Cel");
+		double value = 55.3;
+		
+		for (int a = 0; a < count; ++a)
+		{
+			if (a % 37 == 0)
+			{
+				value = Math.round((value + Math.sin(a) * 0.4) * 10) / 10.0;
+			}
+			
+			series.addValue(BASE_MILLIS + a * 1000L, value, DataQuality.createGood());
+		}
+		
+		// The value, timestamp and quality reference in arrays
+		long uncompressedBytes = count * (8L + 8 + 4);
+		series.compress();
+		long compressedBytes = series.getCompressedData().getSizeInBytes();
+		assertTrue("Ratio " + (uncompressedBytes / compressedBytes), uncompressedBytes >= 10 * compressedBytes);
+	}
+	
+	@Test
+	public void compression_50_decodeInto() throws Exception
+	{
+		Item_TimeSeriesFlexible incoming = new Item_TimeSeriesFlexible("Cel");
+		incoming.addValue(instant(0), 1.5, DataQuality.createGood());
+		incoming.addValue(instant(5), 2.5, DataQuality.createBad());
+		byte[] xmlBytes = new Observation(incoming).toXmlBytes();
+		
+		// A compressed series with more values than the incoming one
+		Item_TimeSeriesFlexible reused = new Item_TimeSeriesFlexible("m");
+		
+		for (int a = 0; a < 10; ++a)
+		{
+			reused.addValue(BASE_MILLIS + a * 1000L, a, DataQuality.createGood());
+		}
+		
+		reused.compress();
+		Observation target = new Observation(reused);
+		Observation.decodeInto(target, xmlBytes);
+		
+		assertSame(reused, target.getResult());
+		assertTrue(reused.isCompressed());
+		assertEquals("Cel", reused.getUnitOfMeasure());
+		assertEquals(2, reused.getValueCount());
+		assertEquals(2.5, reused.getValue(1), 0);
+		assertFalse(reused.getDataQuality(1).isGood());
+		assertEquals(instant(5).getValue().getMillis(), reused.getTimestamp(1).getValue().getMillis());
+		
+		// A constant-interval series
+		Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant("Cel", instant(0), Period.seconds(10));
+		constant.addValue(4);
+		constant.addValue(5);
+		xmlBytes = new Observation(constant).toXmlBytes();
+		
+		Item_TimeSeriesConstant reusedConstant = new Item_TimeSeriesConstant("m", instant(100), Period.seconds(1));
+		
+		for (int a = 0; a < 10; ++a)
+		{
+			reusedConstant.addValue(a);
+		}
+		
+		reusedConstant.compress();
+		target = new Observation(reusedConstant);
+		Observation.decodeInto(target, xmlBytes);
+		
+		assertSame(reusedConstant, target.getResult());
+		assertTrue(reusedConstant.isCompressed());
+		assertEquals(2, reusedConstant.getValueCount());
+		assertEquals(5, reusedConstant.getValue(1), 0);
+	}
+	
+	private void assertSample(long expTime, double expValue, DataQuality expDq, long time, double value, DataQuality dq)
+	{
+		assertEquals(expTime, time);
+		assertEquals(Double.doubleToRawLongBits(expValue), Double.doubleToRawLongBits(value));
+		assertEquals(expDq.getValue(), dq.getValue());
+	}
+	
+	private Item_TimeInstant instant(int seconds)
+	{
+		return new Item_TimeInstant(new DateTime(BASE_MILLIS + seconds * 1000L, DateTimeZone.UTC));
+	}
+}
@@ -0,0 +1,189 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+public class TEST_TimeSeriesSubSeries
+{
+	// This test focuses on:
+	// - Sub-series of a flexible series (10)
+	// - Modifications after creating a view (20)
+	// - Unsorted input (30)
+	// - Sub-series of a constant-interval series (40)
+	
+	
+	@Test
+	public void subSeries_10_flexible() throws Exception
+	{
+		Item_TimeSeriesFlexible series = createFlexible(0, 10, 20, 20, 30, 40);
+		series.setDescription("desc");
+		
+		// The start is inclusive, the end exclusive
+		Item_TimeSeriesFlexible view = series.subSeries(instant(10), instant(30));
+		assertValues(view, 1, 2, 3);
+		assertEquals(instant(10).getValue(), view.getTimestamp(0).getValue());
+		assertEquals("Cel", view.getUnitOfMeasure());
+		assertEquals("desc", view.getDescription());
+		
+		// Bounds between samples
+		assertValues(series.subSeries(instant(15), instant(25)), 2, 3);
+		
+		// Open bounds
+		assertValues(series.subSeries(null, instant(20)), 0, 1);
+		assertValues(series.subSeries(instant(35), null), 5);
+		
+		// Empty ranges
+		assertEquals(0, series.subSeries(instant(50), null).getValueCount());
+		assertEquals(0, series.subSeries(instant(30), instant(10)).getValueCount());
+		
+		// A view of a view
+		assertValues(view.subSeries(instant(20), null), 2, 3);
+		
+		// Out of the range of the view
+		try
+		{
+			view.getValue(3);
+			fail("Expected exception");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+		
+		// Serialising a view
+		Observation obs = new Observation(view);
+		Item_TimeSeriesFlexible parsed = (Item_TimeSeriesFlexible)new Observation(obs.toXmlBytes()).getResult();
+		assertValues(parsed, 1, 2, 3);
+		assertEquals(instant(20).getValue(), parsed.getTimestamp(2).getValue());
+	}
+	
+	@Test
+	public void subSeries_20_modifications() throws Exception
+	{
+		Item_TimeSeriesFlexible series = createFlexible(0, 10, 20, 30);
+		Item_TimeSeriesFlexible view = series.subSeries(instant(10), instant(30));
+		
+		// Adding to the view must not affect the source
+		view.addValue(instant(25), 99);
+		assertValues(view, 1, 2, 99);
+		assertValues(series, 0, 1, 2, 3);
+		assertEquals(instant(25).getValue(), view.getTimestamp(2).getValue());
+		
+		// Adding to the source must not affect another view
+		Item_TimeSeriesFlexible view2 = series.subSeries(null, instant(20));
+		series.addValue(instant(40), 4);
+		assertValues(series, 0, 1, 2, 3, 4);
+		assertValues(view2, 0, 1);
+	}
+	
+	@Test
+	public void subSeries_30_unsorted() throws Exception
+	{
+		Item_TimeSeriesFlexible series = createFlexible(0, 10, 20);
+		assertTrue(series.isSortedByTime());
+		
+		series.addValue(instant(5), 3);
+		series.addValue(instant(10), 4);
+		assertFalse(series.isSortedByTime());
+		
+		try
+		{
+			series.subSeries(instant(5), null);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected
+		}
+		
+		// The sort must be stable (10 s appears twice)
+		Item_TimeInstant original = series.getTimestamp(4);
+		series.sortByTime();
+		assertTrue(series.isSortedByTime());
+		assertValues(series, 0, 3, 1, 4, 2);
+		assertSame(original, series.getTimestamp(3));
+		assertValues(series.subSeries(instant(5), instant(20)), 3, 1, 4);
+		
+		// Unsorted XML input
+		Item_TimeSeriesFlexible unsorted = createFlexible(20, 10);
+		Observation obs = new Observation(unsorted);
+		Item_TimeSeriesFlexible parsed = (Item_TimeSeriesFlexible)new Observation(obs.toXmlBytes()).getResult();
+		assertFalse(parsed.isSortedByTime());
+	}
+	
+	@Test
+	public void subSeries_40_constant() throws Exception
+	{
+		Item_TimeSeriesConstant series = new Item_TimeSeriesConstant("Cel", instant(0), Period.seconds(10));
+		
+		for (int a = 0; a < 6; ++a)
+		{
+			series.addValue(a);
+		}
+		
+		Item_TimeSeriesConstant view = series.subSeries(instant(15), instant(40));
+		assertValues(view, 2, 3);
+		assertEquals(instant(20).getValue(), view.getBaseTime().getValue());
+		assertEquals(Period.seconds(10), view.getSpacing());
+		
+		assertValues(series.subSeries(null, instant(10)), 0);
+		assertValues(series.subSeries(instant(-100), instant(1000)), 0, 1, 2, 3, 4, 5);
+		assertSame(series.getBaseTime(), series.subSeries(null, null).getBaseTime());
+		
+		// Monthly spacing
+		Item_TimeSeriesConstant monthly = new Item_TimeSeriesConstant("Cel",
+				new Item_TimeInstant(new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC)), Period.months(1));
+		
+		for (int a = 0; a < 12; ++a)
+		{
+			monthly.addValue(a);
+		}
+		
+		Item_TimeSeriesConstant monthView = monthly.subSeries(new Item_TimeInstant(new DateTime(2018, 2, 15, 0, 0, DateTimeZone.UTC)),
+				new Item_TimeInstant(new DateTime(2018, 5, 1, 0, 0, DateTimeZone.UTC)));
+		assertValues(monthView, 2, 3);
+		assertEquals(new DateTime(2018, 3, 1, 0, 0, DateTimeZone.UTC), monthView.getBaseTime().getValue());
+	}
+	
+	private Item_TimeSeriesFlexible createFlexible(int... seconds)
+	{
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible("Cel");
+		
+		for (int a = 0; a < seconds.length; ++a)
+		{
+			retval.addValue(instant(seconds[a]), a);
+		}
+		
+		return retval;
+	}
+	
+	private void assertValues(Item_TimeSeries series, double... expected)
+	{
+		assertEquals(expected.length, series.getValueCount());
+		
+		for (int a = 0; a < expected.length; ++a)
+		{
+			assertEquals(expected[a], series.getValue(a), 0.0001);
+		}
+	}
+	
+	private Item_TimeInstant instant(int seconds)
+	{
+		return new Item_TimeInstant(new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC).plusSeconds(seconds));
+	}
+}
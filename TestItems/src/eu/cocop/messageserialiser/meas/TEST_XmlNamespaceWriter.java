@@ -0,0 +1,149 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import eu.cocop.messageserialiser.meas.Item_Array.ArrayColumn;
+
+public class TEST_XmlNamespaceWriter
+{
+	// This test focuses on:
+	// - Each item type as an observation result; reading the minimal XML must give the original (10)
+	// - Only the namespaces used are declared, with stable prefixes (20)
+	// - Requests, responses and escapes (30)
+	
+	
+	private static final DateTime BASE_TIME = new DateTime(2018, 5, 18, 10, 0, 0, DateTimeZone.UTC);
+	
+	
+	@Test
+	public void namespaces_10_items() throws Exception
+	{
+		assertRoundTrip(new Item_Boolean(true));
+		assertRoundTrip(new Item_Category("my_category"));
+		assertRoundTrip(new Item_Count(-42));
+		assertRoundTrip(new Item_Measurement("Cel", -3.25));
+		assertRoundTrip(new Item_Text("Some text"));
+		assertRoundTrip(new Item_TimeInstant(BASE_TIME));
+		assertRoundTrip(new Item_TimeRange(new Item_TimeInstant(BASE_TIME), new Item_TimeInstant(BASE_TIME.plusHours(2))));
+		
+		ArrayList<ArrayColumn> columns = new ArrayList<>();
+		columns.add(new ArrayColumn("double", Double.class, "Cel"));
+		columns.add(new ArrayColumn("string", String.class));
+		Item_Array array = new Item_Array(columns);
+		array.add(1.5, "abc");
+		assertRoundTrip(array);
+		
+		Item_DataRecord record = new Item_DataRecord();
+		record.addItem("meas", new Item_Measurement("m", 1.25));
+		record.addItem("array", array);
+		record.addItem("time", new Item_TimeInstant(BASE_TIME), DataQuality.createBad());
+		assertRoundTrip(record);
+		
+		Item_TimeSeriesFlexible flexible = new Item_TimeSeriesFlexible("Cel");
+		flexible.addValue(new Item_TimeInstant(BASE_TIME), 1.5, DataQuality.createGood());
+		flexible.addValue(new Item_TimeInstant(BASE_TIME.plusSeconds(1)), 2.5, DataQuality.createBad());
+		assertRoundTrip(flexible);
+		
+		Item_TimeSeriesConstant constant = new Item_TimeSeriesConstant("m", new Item_TimeInstant(BASE_TIME), Period.minutes(15));
+		constant.addValue(1.5, DataQuality.createGood());
+		assertRoundTrip(constant);
+	}
+	
+	@Test
+	public void namespaces_20_declarations() throws Exception
+	{
+		Observation obs = new Observation(new Item_Measurement("Cel", 22.4));
+		byte[] full = obs.toXmlBytes();
+		byte[] minimal = obs.toXmlBytes(true);
+		String xml = new String(minimal, StandardCharsets.UTF_8);
+		
+		assertTrue(xml, xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><om:OM_Observation xmlns:gml=\"http://www.opengis.net/gml/3.2\" " +
+				"xmlns:om=\"http://www.opengis.net/om/2.0\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" " +
+				"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" gml:id=\"Obs\">"));
+		assertTrue(xml, xml.contains("<om:result uom=\"Cel\" xsi:type=\"gml:MeasureType\">22.4</om:result>"));
+		assertEquals(xml, 4, countOccurrences(xml, "xmlns:"));
+		
+		// The declarations of unused namespaces make most of a small message
+		assertTrue(full.length + " " + minimal.length, minimal.length * 10 < full.length * 6);
+		
+		// A data record uses SWE
+		String recordXml = new String(new Observation(new Item_DataRecord()).toXmlBytes(true), StandardCharsets.UTF_8);
+		assertTrue(recordXml, recordXml.contains("xmlns:swe=\"http://www.opengis.net/swe/2.0\""));
+		assertTrue(recordXml, recordXml.contains("xsi:type=\"swe:DataRecordPropertyType\""));
+		assertFalse(recordXml, recordXml.contains("xmlns:sos="));
+		assertFalse(recordXml, recordXml.contains("xmlns:tsml="));
+	}
+	
+	@Test
+	public void namespaces_30_requestsAndEscapes() throws Exception
+	{
+		GetObservationRequest request = new GetObservationRequest();
+		request.getFeaturesOfInterest().add("feature & <more>");
+		request.getObservedProperties().add("property \"quoted\"");
+		byte[] requestXml = request.toXmlBytes(true);
+		assertArrayEquals(request.toXmlBytes(), new GetObservationRequest(requestXml).toXmlBytes());
+		assertTrue(new String(requestXml, StandardCharsets.UTF_8).contains("<sos:featureOfInterest>feature &amp; &lt;more&gt;</sos:featureOfInterest>"));
+		
+		GetObservationResponse response = new GetObservationResponse();
+		Observation obs = new Observation(new Item_Text("åäö € \"x\" <y> & z"));
+		obs.setProcedure("proc \"1\"");
+		response.getObservations().add(obs);
+		response.getObservations().add(new Observation(new Item_Count(5)));
+		byte[] responseXml = response.toXmlBytes(true);
+		assertArrayEquals(response.toXmlBytes(), new GetObservationResponse(responseXml).toXmlBytes());
+		
+		String responseString = new String(responseXml, StandardCharsets.UTF_8);
+		assertTrue(responseString, responseString.contains("<sos:GetObservationResponse xmlns:gml="));
+		assertTrue(responseString, responseString.contains("xlink:title=\"proc &quot;1&quot;\""));
+		assertTrue(responseString, responseString.contains("xsi:type=\"xs:integer\""));
+	}
+	
+	private void assertRoundTrip(Item item) throws Exception
+	{
+		Observation original = new Observation(item);
+		original.setProcedure("proc");
+		original.setPhenomenonTime(new Item_TimeInstant(BASE_TIME));
+		original.setResultTime(new Item_TimeInstant(BASE_TIME));
+		
+		byte[] minimal = original.toXmlBytes(true);
+		Observation read = new Observation(minimal);
+		assertEquals(item.getClass(), read.getResult().getClass());
+		assertArrayEquals(original.toXmlBytes(), read.toXmlBytes());
+		assertTrue(minimal.length < original.toXmlBytes().length);
+		
+		// Every prefix is declared exactly once
+		String xml = new String(minimal, StandardCharsets.UTF_8);
+		assertEquals(xml, 1, countOccurrences(xml, "xmlns:om="));
+	}
+	
+	private static int countOccurrences(String s, String substring)
+	{
+		int retval = 0;
+		
+		for (int index = s.indexOf(substring); index >= 0; index = s.indexOf(substring, index + 1))
+		{
+			++retval;
+		}
+		
+		return retval;
+	}
+}
@@ -46,4 +46,9 @@ public abstract class Item
 	{
 		throw new RuntimeException("Not implemented");
 	}
+	
+	void accept(String name, DataQuality quality, ItemVisitor visitor)
+	{
+		throw new RuntimeException("Not implemented");
+	}
 }
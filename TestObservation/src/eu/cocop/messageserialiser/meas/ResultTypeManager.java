@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 2019
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package eu.cocop.messageserialiser.meas;
 
@@ -19,4 +19,14 @@ public class ResultTypeManager
 	{
 		return new Item_Measurement(null);
 	}
+	
+	public static Item buildResultFromXml(Object a, Object b, Object c)
+	{
+		return new Item_Measurement(null);
+	}
+	
+	public static Object getObjectForXml_Result(Item a, String b)
+	{
+		return a.getObjectForXml_Result(b);
+	}
 }
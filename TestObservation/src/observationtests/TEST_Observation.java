@@ -7,7 +7,7 @@
 //
 // Author: Petri Kannisto, Tampere University, Finland
 // File created: 2/2018
-// Last modified: 4/2020
+// Last modified: 10/2026
 
 package observationtests;
 
@@ -237,6 +237,37 @@ public class TEST_Observation
 		assertFalse(parsedObj.getResultQuality().isGood());
 	}
 	
+	// Testing the reuse of an observation object in decoding
+	@Test
+	public void obs_30_DecodeInto() throws Exception
+	{
+		Observation originalObj1 = new Observation(new Item_Measurement(null));
+		originalObj1.setName("Some name");
+		originalObj1.setFeatureOfInterest("somefeature");
+		originalObj1.setResultQuality(DataQuality.createBad());
+		
+		Observation originalObj2 = new Observation(new Item_Measurement(null));
+		originalObj2.setFeatureOfInterest("otherfeature");
+		DateTime resultDt = DateTime.parse("2018-02-23T10:00:00Z").withZone(DateTimeZone.UTC);
+		originalObj2.setResultTime(new Item_TimeInstant(resultDt));
+		
+		// Decoding the first message
+		Observation target = new Observation(new Item_Measurement(null));
+		Observation.decodeInto(target, originalObj1.toXmlBytes());
+		
+		assertEquals("Some name", target.getName());
+		assertEquals("somefeature", target.getFeatureOfInterest());
+		assertFalse(target.getResultQuality().isGood());
+		
+		// Decoding the second message; expecting values from the first message to be reset
+		Observation.decodeInto(target, originalObj2.toXmlBytes());
+		
+		assertNull(target.getName());
+		assertEquals("otherfeature", target.getFeatureOfInterest());
+		assertTrue(target.getResultQuality().isGood());
+		assertTimeInstant("2018-02-23T10:00:00Z", target.getResultTime());
+	}
+	
 	private void validateXmlDoc(byte[] xmlBytes) throws Exception
 	{
 		ByteArrayInputStream stream = null;
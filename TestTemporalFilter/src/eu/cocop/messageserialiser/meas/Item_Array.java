@@ -0,0 +1,24 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+// 
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package eu.cocop.messageserialiser.meas;
+
+/**
+ * Stub class
+ * @author Petri Kannisto
+ */
+public class Item_Array extends Item
+{
+	public Item_Array(Object a)
+	{
+		super("");
+	}
+}
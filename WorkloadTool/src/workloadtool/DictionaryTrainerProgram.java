@@ -0,0 +1,86 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import eu.cocop.messageserialiser.meas.PayloadCompressor;
+
+/**
+ * A command line tool to train a compression dictionary for PayloadCompressor
+ * from a corpus of sample messages. Each file in the corpus directory is one
+ * message. Instead of a directory, "--synthetic" uses messages from the
+ * workload generator with the default mix. Every fifth message is left out of
+ * training to evaluate the dictionary.
+ * @author Petri Kannisto
+ */
+public class DictionaryTrainerProgram
+{
+	private static final int DEFAULT_MAX_SIZE = 16 * 1024;
+	
+	
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 2 || args.length > 3)
+		{
+			System.err.println("Usage: DictionaryTrainerProgram <corpus directory>|" + SampleCorpus.SYNTHETIC_ARGUMENT + " <output file> [max size, default " + DEFAULT_MAX_SIZE + "]");
+			System.exit(1);
+			return;
+		}
+		
+		int maxSize = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_MAX_SIZE;
+		List<byte[]> corpus = SampleCorpus.load(args[0]);
+		
+		if (corpus.size() < 2)
+		{
+			System.err.println("The corpus must contain at least 2 messages");
+			System.exit(1);
+			return;
+		}
+		
+		ArrayList<byte[]> training = new ArrayList<>();
+		ArrayList<byte[]> evaluation = new ArrayList<>();
+		
+		for (int a = 0; a < corpus.size(); ++a)
+		{
+			(a % 5 == 4 ? evaluation : training).add(corpus.get(a));
+		}
+		
+		byte[] dictionary = PayloadCompressor.trainDictionary(training, maxSize);
+		Files.write(new File(args[1]).toPath(), dictionary);
+		
+		System.out.println(String.format("Trained a dictionary of %d bytes from %d messages", dictionary.length, training.size()));
+		System.out.println(String.format("Evaluation with %d messages:", evaluation.size()));
+		printRatio("No dictionary", new PayloadCompressor(null, 0, Deflater.DEFAULT_COMPRESSION), evaluation);
+		printRatio("Default dictionary", new PayloadCompressor(PayloadCompressor.getDefaultDictionary(), 0, Deflater.DEFAULT_COMPRESSION), evaluation);
+		printRatio("Trained dictionary", new PayloadCompressor(dictionary, 0, Deflater.DEFAULT_COMPRESSION), evaluation);
+	}
+	
+	private static void printRatio(String name, PayloadCompressor compressor, List<byte[]> messages)
+	{
+		long originalSize = 0;
+		long compressedSize = 0;
+		
+		for (byte[] message : messages)
+		{
+			originalSize += message.length;
+			compressedSize += compressor.compress(message).length;
+		}
+		
+		System.out.println(String.format("  %-20s %10d -> %10d bytes, ratio %.2f",
+				name, originalSize, compressedSize, (double)originalSize / compressedSize));
+	}
+}
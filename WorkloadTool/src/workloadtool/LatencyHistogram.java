@@ -0,0 +1,168 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+/**
+ * A latency histogram with logarithmic buckets. Each power of two is divided
+ * into 64 linear sub-buckets, which keeps the relative error of recorded values
+ * below 2 %. Recording does not allocate memory. The class is not thread-safe;
+ * each worker thread has its own instance, and the instances are merged at the end.
+ * @author Petri Kannisto
+ */
+final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// Values below this are recorded exactly
+	private static final long LINEAR_LIMIT = 2 * SUB_BUCKET_COUNT;
+
+	// Enough buckets for any positive long value
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final long[] m_counts = new long[BUCKET_COUNT];
+	private long m_totalCount = 0;
+	private long m_max = 0;
+	private long m_sum = 0;
+
+
+	/**
+	 * Constructor.
+	 */
+	LatencyHistogram()
+	{
+		// Empty ctor body
+	}
+
+	/**
+	 * Records a value.
+	 * @param value Value (e.g., nanoseconds). Negative values are recorded as zero.
+	 */
+	void record(long value)
+	{
+		if (value < 0)
+		{
+			value = 0;
+		}
+
+		++m_counts[indexOf(value)];
+		++m_totalCount;
+		m_sum += value;
+
+		if (value > m_max)
+		{
+			m_max = value;
+		}
+	}
+
+	/**
+	 * Adds the values of another histogram to this one.
+	 * @param other Other histogram.
+	 */
+	void add(LatencyHistogram other)
+	{
+		for (int a = 0; a < BUCKET_COUNT; ++a)
+		{
+			m_counts[a] += other.m_counts[a];
+		}
+
+		m_totalCount += other.m_totalCount;
+		m_sum += other.m_sum;
+		m_max = Math.max(m_max, other.m_max);
+	}
+
+	/**
+	 * Gets the count of recorded values.
+	 * @return Count.
+	 */
+	long getTotalCount()
+	{
+		return m_totalCount;
+	}
+
+	/**
+	 * Gets the maximum of recorded values.
+	 * @return Maximum.
+	 */
+	long getMax()
+	{
+		return m_max;
+	}
+
+	/**
+	 * Gets the mean of recorded values.
+	 * @return Mean or 0 if there are no values.
+	 */
+	double getMean()
+	{
+		return m_totalCount == 0 ? 0 : (double)m_sum / m_totalCount;
+	}
+
+	/**
+	 * Gets the value at the given percentile. The value is the midpoint of the
+	 * bucket that contains the percentile.
+	 * @param percentile Percentile (0-100).
+	 * @return Value or 0 if there are no values.
+	 */
+	long getValueAtPercentile(double percentile)
+	{
+		if (m_totalCount == 0)
+		{
+			return 0;
+		}
+
+		// The rank of the value in the sorted set of recorded values (1-based)
+		long rank = (long)Math.ceil(percentile / 100.0 * m_totalCount);
+		rank = Math.max(1, Math.min(rank, m_totalCount));
+
+		long cumulative = 0;
+
+		for (int a = 0; a < BUCKET_COUNT; ++a)
+		{
+			cumulative += m_counts[a];
+
+			if (cumulative >= rank)
+			{
+				long lower = lowerBoundOf(a);
+				long width = lowerBoundOf(a + 1) - lower;
+				return Math.min(lower + width / 2, m_max);
+			}
+		}
+
+		return m_max;
+	}
+
+	private static int indexOf(long value)
+	{
+		if (value < LINEAR_LIMIT)
+		{
+			return (int)value;
+		}
+
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		int shift = msb - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift); // Between SUB_BUCKET_COUNT and 2 * SUB_BUCKET_COUNT - 1
+		return shift * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	private static long lowerBoundOf(int index)
+	{
+		if (index < LINEAR_LIMIT)
+		{
+			return index;
+		}
+
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return subBucket << shift;
+	}
+}
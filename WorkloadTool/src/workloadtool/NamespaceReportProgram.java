@@ -0,0 +1,117 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.util.List;
+import java.util.zip.Deflater;
+
+import eu.cocop.messageserialiser.meas.GetObservationRequest;
+import eu.cocop.messageserialiser.meas.GetObservationResponse;
+import eu.cocop.messageserialiser.meas.InvalidMessageException;
+import eu.cocop.messageserialiser.meas.Observation;
+import eu.cocop.messageserialiser.meas.PayloadCompressor;
+
+/**
+ * A command line tool to report how many bytes the minimal namespace
+ * declarations save on a corpus. Each message is read and serialised both
+ * ways. The corpus may contain observations, GetObservation requests and
+ * responses.
+ * @author Petri Kannisto
+ */
+public class NamespaceReportProgram
+{
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 1)
+		{
+			System.err.println("Usage: NamespaceReportProgram <corpus directory>|" + SampleCorpus.SYNTHETIC_ARGUMENT);
+			System.exit(1);
+			return;
+		}
+		
+		List<byte[]> corpus = SampleCorpus.load(args[0]);
+		PayloadCompressor compressor = new PayloadCompressor(null, 0, Deflater.DEFAULT_COMPRESSION);
+		long fullSize = 0;
+		long minimalSize = 0;
+		long fullCompressedSize = 0;
+		long minimalCompressedSize = 0;
+		int skipped = 0;
+		
+		for (byte[] message : corpus)
+		{
+			byte[][] serialised = serialiseBothWays(message);
+			
+			if (serialised == null)
+			{
+				++skipped;
+				continue;
+			}
+			
+			fullSize += serialised[0].length;
+			minimalSize += serialised[1].length;
+			fullCompressedSize += compressor.compress(serialised[0]).length;
+			minimalCompressedSize += compressor.compress(serialised[1]).length;
+		}
+		
+		int count = corpus.size() - skipped;
+		System.out.println(String.format("Messages: %d (skipped %d unrecognised)", count, skipped));
+		
+		if (count == 0)
+		{
+			return;
+		}
+		
+		printRow("Uncompressed", fullSize, minimalSize, count);
+		printRow("Deflate", fullCompressedSize, minimalCompressedSize, count);
+	}
+	
+	private static void printRow(String name, long fullSize, long minimalSize, int count)
+	{
+		long saved = fullSize - minimalSize;
+		System.out.println(String.format("  %-14s all namespaces %10d bytes, minimal %10d bytes, saved %10d bytes (%.1f %%, %.0f bytes/msg)",
+				name, fullSize, minimalSize, saved, 100.0 * saved / fullSize, (double)saved / count));
+	}
+	
+	private static byte[][] serialiseBothWays(byte[] message)
+	{
+		// Trying each message type in turn
+		try
+		{
+			Observation obs = new Observation(message);
+			return new byte[][] { obs.toXmlBytes(), obs.toXmlBytes(true) };
+		}
+		catch (InvalidMessageException e)
+		{
+			// Not an observation
+		}
+		
+		try
+		{
+			GetObservationResponse response = new GetObservationResponse(message);
+			return new byte[][] { response.toXmlBytes(), response.toXmlBytes(true) };
+		}
+		catch (InvalidMessageException e)
+		{
+			// Not a response
+		}
+		
+		try
+		{
+			GetObservationRequest request = new GetObservationRequest(message);
+			return new byte[][] { request.toXmlBytes(), request.toXmlBytes(true) };
+		}
+		catch (InvalidMessageException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+import eu.cocop.messageserialiser.meas.DataQuality;
+import eu.cocop.messageserialiser.meas.InvalidMessageException;
+import eu.cocop.messageserialiser.meas.Item;
+import eu.cocop.messageserialiser.meas.Item_Array;
+import eu.cocop.messageserialiser.meas.Item_Boolean;
+import eu.cocop.messageserialiser.meas.Item_Category;
+import eu.cocop.messageserialiser.meas.Item_Count;
+import eu.cocop.messageserialiser.meas.Item_DataRecord;
+import eu.cocop.messageserialiser.meas.Item_Measurement;
+import eu.cocop.messageserialiser.meas.Item_Text;
+import eu.cocop.messageserialiser.meas.Item_TimeInstant;
+import eu.cocop.messageserialiser.meas.Item_TimeRange;
+import eu.cocop.messageserialiser.meas.Item_TimeSeriesConstant;
+import eu.cocop.messageserialiser.meas.Item_TimeSeriesFlexible;
+import eu.cocop.messageserialiser.meas.Observation;
+import workloadtool.WorkloadConfig.ItemKind;
+
+/**
+ * Generates synthetic observations according to a workload configuration.
+ * The generation is deterministic for a given seed, so that different
+ * library versions can be compared with exactly the same messages.
+ * @author Petri Kannisto
+ */
+final class ObservationGenerator
+{
+	// Roughly 1 % of values are flagged as bad, as in typical plant data
+	private static final double BAD_QUALITY_PROBABILITY = 0.01;
+
+	private static final String[] UNITS = { "Cel", "kg", "m3/h", "kPa", "%" };
+	private static final String[] CATEGORIES = { "running", "stopped", "maintenance", "fault" };
+
+	private final WorkloadConfig m_config;
+	private final Random m_random;
+	private final DateTime m_baseTime;
+
+	private final ItemKind[] m_kinds;
+	private final int[] m_cumulativeWeights;
+	private final int m_totalWeight;
+
+
+	/**
+	 * Constructor.
+	 * @param config Configuration.
+	 */
+	ObservationGenerator(WorkloadConfig config)
+	{
+		m_config = config;
+		m_random = new Random(config.getSeed());
+		m_baseTime = new DateTime(2026, 1, 1, 0, 0, DateTimeZone.UTC);
+
+		// Preparing the weighted selection of item kinds
+		Map<ItemKind, Integer> mix = config.getMix();
+		m_kinds = new ItemKind[mix.size()];
+		m_cumulativeWeights = new int[mix.size()];
+		int index = 0;
+		int total = 0;
+
+		for (Map.Entry<ItemKind, Integer> entry : mix.entrySet())
+		{
+			total += entry.getValue();
+			m_kinds[index] = entry.getKey();
+			m_cumulativeWeights[index] = total;
+			++index;
+		}
+
+		m_totalWeight = total;
+	}
+
+	/**
+	 * Generates an observation.
+	 * @return Observation.
+	 * @throws InvalidMessageException Thrown if an error is encountered.
+	 */
+	Observation next() throws InvalidMessageException
+	{
+		ItemKind kind = nextKind();
+		Observation retval = new Observation(createItem(kind));
+
+		// Metadata as in typical plant messages
+		int tag = m_random.nextInt(1000);
+		retval.setName("Tag " + tag);
+		retval.setProcedure("plant/unit" + (tag % 20) + "/sensor" + tag);
+		retval.setObservedProperty(kind.name().toLowerCase() + "_" + (tag % 50));
+		retval.setFeatureOfInterest("plant/unit" + (tag % 20));
+		DateTime phenoTime = m_baseTime.plusMillis(m_random.nextInt(86400000));
+		retval.setPhenomenonTime(new Item_TimeInstant(phenoTime));
+		retval.setResultTime(new Item_TimeInstant(phenoTime.plusMillis(m_random.nextInt(1000))));
+		retval.setResultQuality(nextQuality());
+
+		return retval;
+	}
+
+	private ItemKind nextKind()
+	{
+		int value = m_random.nextInt(m_totalWeight);
+
+		for (int a = 0; a < m_kinds.length; ++a)
+		{
+			if (value < m_cumulativeWeights[a])
+			{
+				return m_kinds[a];
+			}
+		}
+
+		// Not expected to ever get here
+		return m_kinds[m_kinds.length - 1];
+	}
+
+	private Item createItem(ItemKind kind)
+	{
+		switch (kind)
+		{
+		case BOOLEAN:
+			return new Item_Boolean(m_random.nextBoolean());
+		case CATEGORY:
+			return new Item_Category(CATEGORIES[m_random.nextInt(CATEGORIES.length)]);
+		case COUNT:
+			return new Item_Count(m_random.nextInt(100000));
+		case MEASUREMENT:
+			return createMeasurement();
+		case TEXT:
+			return new Item_Text("Operator note " + m_random.nextInt(100000));
+		case TIMEINSTANT:
+			return new Item_TimeInstant(nextTime());
+		case TIMERANGE:
+			return createTimeRange();
+		case ARRAY:
+			return createArray();
+		case RECORD:
+			return createRecord(m_config.getRecordDepth());
+		case TIMESERIESCONSTANT:
+			return createTimeSeriesConstant();
+		case TIMESERIESFLEXIBLE:
+			return createTimeSeriesFlexible();
+		default:
+			throw new IllegalArgumentException("Unexpected item kind " + kind.name());
+		}
+	}
+
+	private Item_Measurement createMeasurement()
+	{
+		String unit = UNITS[m_random.nextInt(UNITS.length)];
+		return new Item_Measurement(unit, nextMeasurementValue());
+	}
+
+	private Item_TimeRange createTimeRange()
+	{
+		DateTime start = nextTime();
+		DateTime end = start.plusMinutes(1 + m_random.nextInt(600));
+		return new Item_TimeRange(new Item_TimeInstant(start), new Item_TimeInstant(end));
+	}
+
+	private Item_Array createArray()
+	{
+		// Column types rotate so that all supported types are covered
+		Class<?>[] types = { Double.class, Long.class, Boolean.class, String.class, Item_TimeInstant.class };
+		ArrayList<Item_Array.ArrayColumn> columns = new ArrayList<>();
+
+		for (int c = 0; c < m_config.getArrayColumns(); ++c)
+		{
+			Class<?> type = types[c % types.length];
+			String unit = type == Double.class ? UNITS[c % UNITS.length] : null;
+			columns.add(new Item_Array.ArrayColumn("col" + c, type, unit));
+		}
+
+		Item_Array retval = new Item_Array(columns);
+
+		for (int r = 0; r < m_config.getArrayRows(); ++r)
+		{
+			Object[] row = new Object[columns.size()];
+
+			for (int c = 0; c < row.length; ++c)
+			{
+				row[c] = createArrayCell(columns.get(c).getDataType());
+			}
+
+			retval.add(row);
+		}
+
+		return retval;
+	}
+
+	private Object createArrayCell(Class<?> type)
+	{
+		if (type == Double.class)
+		{
+			return nextMeasurementValue();
+		}
+		else if (type == Long.class)
+		{
+			return (long)m_random.nextInt(100000);
+		}
+		else if (type == Boolean.class)
+		{
+			return m_random.nextBoolean();
+		}
+		else if (type == String.class)
+		{
+			return CATEGORIES[m_random.nextInt(CATEGORIES.length)];
+		}
+		else
+		{
+			return new Item_TimeInstant(nextTime());
+		}
+	}
+
+	private Item_DataRecord createRecord(int depth)
+	{
+		Item_DataRecord retval = new Item_DataRecord();
+
+		for (int f = 0; f < m_config.getRecordFields(); ++f)
+		{
+			String name = "field" + f;
+
+			// The last field of each level (except the deepest) is a nested record
+			if (depth > 1 && f == m_config.getRecordFields() - 1)
+			{
+				retval.addItem(name, createRecord(depth - 1));
+				continue;
+			}
+
+			switch (f % 4)
+			{
+			case 0:
+				retval.addItem(name, createMeasurement(), nextQuality());
+				break;
+			case 1:
+				retval.addItem(name, new Item_Count(m_random.nextInt(1000)), nextQuality());
+				break;
+			case 2:
+				retval.addItem(name, new Item_Boolean(m_random.nextBoolean()), nextQuality());
+				break;
+			default:
+				retval.addItem(name, new Item_Text("value " + m_random.nextInt(1000)));
+				break;
+			}
+		}
+
+		return retval;
+	}
+
+	private Item_TimeSeriesConstant createTimeSeriesConstant()
+	{
+		Item_TimeInstant baseTime = new Item_TimeInstant(nextTime());
+		Item_TimeSeriesConstant retval = new Item_TimeSeriesConstant(UNITS[0], baseTime, Period.seconds(1));
+		double value = nextMeasurementValue();
+
+		for (int a = 0; a < m_config.getTimeSeriesLength(); ++a)
+		{
+			value = nextRandomWalk(value);
+			retval.addValue(value, nextQuality());
+		}
+
+		return retval;
+	}
+
+	private Item_TimeSeriesFlexible createTimeSeriesFlexible()
+	{
+		Item_TimeSeriesFlexible retval = new Item_TimeSeriesFlexible(UNITS[1]);
+		DateTime time = nextTime();
+		double value = nextMeasurementValue();
+
+		for (int a = 0; a < m_config.getTimeSeriesLength(); ++a)
+		{
+			// Irregular sampling
+			time = time.plusMillis(200 + m_random.nextInt(1800));
+			value = nextRandomWalk(value);
+			retval.addValue(new Item_TimeInstant(time), value, nextQuality());
+		}
+
+		return retval;
+	}
+
+	private DateTime nextTime()
+	{
+		return m_baseTime.plusMillis(m_random.nextInt(86400000));
+	}
+
+	private double nextMeasurementValue()
+	{
+		// Process values typically have a few significant decimals
+		return Math.round(m_random.nextGaussian() * 100000) / 1000.0;
+	}
+
+	private double nextRandomWalk(double previous)
+	{
+		return Math.round((previous + m_random.nextGaussian()) * 1000) / 1000.0;
+	}
+
+	private DataQuality nextQuality()
+	{
+		return m_random.nextDouble() < BAD_QUALITY_PROBABILITY ? DataQuality.createBad() : DataQuality.createGood();
+	}
+}
@@ -0,0 +1,88 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.cocop.messageserialiser.meas.InvalidMessageException;
+
+/**
+ * Loads sample messages for the corpus tools.
+ * @author Petri Kannisto
+ */
+final class SampleCorpus
+{
+	/**
+	 * The argument that selects synthetic messages instead of a directory.
+	 */
+	static final String SYNTHETIC_ARGUMENT = "--synthetic";
+	
+	private static final int SYNTHETIC_COUNT = 1000;
+	
+	
+	private SampleCorpus()
+	{
+		// Private ctor -> "static" class
+	}
+	
+	/**
+	 * Loads the messages. Each file in the directory is one message.
+	 * @param argument Directory path or SYNTHETIC_ARGUMENT for messages from
+	 * the workload generator with the default mix.
+	 * @return Messages.
+	 * @throws IOException Thrown if reading fails.
+	 * @throws InvalidMessageException Thrown if generation fails.
+	 */
+	static List<byte[]> load(String argument) throws IOException, InvalidMessageException
+	{
+		return argument.equals(SYNTHETIC_ARGUMENT) ? generate() : read(new File(argument));
+	}
+	
+	private static List<byte[]> read(File directory) throws IOException
+	{
+		File[] files = directory.listFiles(File::isFile);
+		
+		if (files == null)
+		{
+			throw new IOException("Failed to list the directory " + directory);
+		}
+		
+		// Sorting to make the results repeatable
+		Arrays.sort(files);
+		ArrayList<byte[]> retval = new ArrayList<>();
+		
+		for (File file : files)
+		{
+			retval.add(Files.readAllBytes(file.toPath()));
+		}
+		
+		return retval;
+	}
+	
+	private static List<byte[]> generate() throws InvalidMessageException
+	{
+		ObservationGenerator generator = new ObservationGenerator(WorkloadConfig.parse(new String[0]));
+		ArrayList<byte[]> retval = new ArrayList<>();
+		
+		for (int a = 0; a < SYNTHETIC_COUNT; ++a)
+		{
+			retval.add(generator.next().toXmlBytes());
+		}
+		
+		return retval;
+	}
+}
@@ -0,0 +1,402 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of a workload run, parsed from command line arguments.
+ * @author Petri Kannisto
+ */
+final class WorkloadConfig
+{
+	/**
+	 * The operation to measure.
+	 */
+	enum Mode
+	{
+		ENCODE,
+		DECODE,
+		ROUNDTRIP
+	}
+
+	/**
+	 * The serialisation format.
+	 */
+	enum Format
+	{
+		XML,
+		BINARY,
+		JSON
+	}
+
+	/**
+	 * The item types the generator supports.
+	 */
+	enum ItemKind
+	{
+		BOOLEAN,
+		CATEGORY,
+		COUNT,
+		MEASUREMENT,
+		TEXT,
+		TIMEINSTANT,
+		TIMERANGE,
+		ARRAY,
+		RECORD,
+		TIMESERIESCONSTANT,
+		TIMESERIESFLEXIBLE
+	}
+
+	private Mode m_mode = Mode.ROUNDTRIP;
+	private Format m_format = Format.XML;
+	private int m_threads = 1;
+	private int m_durationSec = 10;
+	private int m_warmupSec = 3;
+	private long m_seed = 1;
+	private int m_messageCount = 1000;
+
+	// Message mix as relative weights
+	private final LinkedHashMap<ItemKind, Integer> m_mix = new LinkedHashMap<>();
+
+	private int m_timeSeriesLength = 100;
+	private int m_arrayRows = 20;
+	private int m_arrayColumns = 4;
+	private int m_recordFields = 8;
+	private int m_recordDepth = 2;
+
+
+	/**
+	 * Constructor.
+	 */
+	private WorkloadConfig()
+	{
+		// Default mix; this roughly resembles a process plant where most
+		// messages are scalar measurements
+		m_mix.put(ItemKind.MEASUREMENT, 10);
+		m_mix.put(ItemKind.COUNT, 2);
+		m_mix.put(ItemKind.BOOLEAN, 2);
+		m_mix.put(ItemKind.CATEGORY, 1);
+		m_mix.put(ItemKind.TIMESERIESFLEXIBLE, 2);
+		m_mix.put(ItemKind.TIMESERIESCONSTANT, 1);
+		m_mix.put(ItemKind.ARRAY, 1);
+		m_mix.put(ItemKind.RECORD, 1);
+	}
+
+	/**
+	 * Parses the configuration from command line arguments.
+	 * @param args Arguments.
+	 * @return Configuration.
+	 * @throws IllegalArgumentException Thrown if the arguments are invalid.
+	 */
+	static WorkloadConfig parse(String[] args) throws IllegalArgumentException
+	{
+		WorkloadConfig retval = new WorkloadConfig();
+
+		for (int a = 0; a < args.length; a += 2)
+		{
+			String name = args[a];
+
+			if (a + 1 >= args.length)
+			{
+				throw new IllegalArgumentException("Missing value for " + name);
+			}
+
+			String value = args[a + 1];
+
+			switch (name)
+			{
+			case "--mode":
+				retval.m_mode = parseEnum(Mode.class, value, name);
+				break;
+			case "--format":
+				retval.m_format = parseEnum(Format.class, value, name);
+				break;
+			case "--threads":
+				retval.m_threads = parsePositiveInt(value, name);
+				break;
+			case "--duration":
+				retval.m_durationSec = parsePositiveInt(value, name);
+				break;
+			case "--warmup":
+				retval.m_warmupSec = parseNonNegativeInt(value, name);
+				break;
+			case "--seed":
+				retval.m_seed = parseLong(value, name);
+				break;
+			case "--messages":
+				retval.m_messageCount = parsePositiveInt(value, name);
+				break;
+			case "--mix":
+				retval.parseMix(value);
+				break;
+			case "--ts-length":
+				retval.m_timeSeriesLength = parsePositiveInt(value, name);
+				break;
+			case "--array-rows":
+				retval.m_arrayRows = parseNonNegativeInt(value, name);
+				break;
+			case "--array-cols":
+				retval.m_arrayColumns = parsePositiveInt(value, name);
+				break;
+			case "--record-fields":
+				retval.m_recordFields = parsePositiveInt(value, name);
+				break;
+			case "--record-depth":
+				retval.m_recordDepth = parsePositiveInt(value, name);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + name);
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Returns the usage text.
+	 * @return Usage text.
+	 */
+	static String getUsage()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("Usage: java workloadtool.WorkloadProgram [options]\n");
+		sb.append("  --mode encode|decode|roundtrip  Operation to measure (default roundtrip)\n");
+		sb.append("  --format xml|binary|json  Serialisation format (default xml)\n");
+		sb.append("  --threads N          Worker thread count (default 1)\n");
+		sb.append("  --duration S         Measurement duration in seconds (default 10)\n");
+		sb.append("  --warmup S           Warm-up duration in seconds (default 3)\n");
+		sb.append("  --seed N             Random seed of the generator (default 1)\n");
+		sb.append("  --messages N         Count of distinct generated messages (default 1000)\n");
+		sb.append("  --mix kind:weight,.. Message mix, e.g., measurement:10,array:1\n");
+		sb.append("                       Kinds: ");
+
+		for (ItemKind kind : ItemKind.values())
+		{
+			sb.append(kind.name().toLowerCase()).append(' ');
+		}
+
+		sb.append('\n');
+		sb.append("  --ts-length N        Sample count of time series (default 100)\n");
+		sb.append("  --array-rows N       Row count of arrays (default 20)\n");
+		sb.append("  --array-cols N       Column count of arrays (default 4)\n");
+		sb.append("  --record-fields N    Field count per data record level (default 8)\n");
+		sb.append("  --record-depth N     Nesting depth of data records (default 2)\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the operation to measure.
+	 * @return Mode.
+	 */
+	Mode getMode()
+	{
+		return m_mode;
+	}
+
+	/**
+	 * Gets the serialisation format.
+	 * @return Format.
+	 */
+	Format getFormat()
+	{
+		return m_format;
+	}
+
+	/**
+	 * Gets worker thread count.
+	 * @return Thread count.
+	 */
+	int getThreads()
+	{
+		return m_threads;
+	}
+
+	/**
+	 * Gets measurement duration.
+	 * @return Duration in seconds.
+	 */
+	int getDurationSec()
+	{
+		return m_durationSec;
+	}
+
+	/**
+	 * Gets warm-up duration.
+	 * @return Duration in seconds.
+	 */
+	int getWarmupSec()
+	{
+		return m_warmupSec;
+	}
+
+	/**
+	 * Gets random seed.
+	 * @return Seed.
+	 */
+	long getSeed()
+	{
+		return m_seed;
+	}
+
+	/**
+	 * Gets the count of distinct generated messages.
+	 * @return Message count.
+	 */
+	int getMessageCount()
+	{
+		return m_messageCount;
+	}
+
+	/**
+	 * Gets message mix.
+	 * @return Relative weights by item kind.
+	 */
+	Map<ItemKind, Integer> getMix()
+	{
+		return m_mix;
+	}
+
+	/**
+	 * Gets time series length.
+	 * @return Sample count.
+	 */
+	int getTimeSeriesLength()
+	{
+		return m_timeSeriesLength;
+	}
+
+	/**
+	 * Gets array row count.
+	 * @return Row count.
+	 */
+	int getArrayRows()
+	{
+		return m_arrayRows;
+	}
+
+	/**
+	 * Gets array column count.
+	 * @return Column count.
+	 */
+	int getArrayColumns()
+	{
+		return m_arrayColumns;
+	}
+
+	/**
+	 * Gets field count per data record level.
+	 * @return Field count.
+	 */
+	int getRecordFields()
+	{
+		return m_recordFields;
+	}
+
+	/**
+	 * Gets data record nesting depth.
+	 * @return Depth.
+	 */
+	int getRecordDepth()
+	{
+		return m_recordDepth;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("mode=%s format=%s threads=%d duration=%ds warmup=%ds seed=%d messages=%d mix=%s " +
+				"ts-length=%d array=%dx%d record=%d fields x %d levels",
+				m_mode.name().toLowerCase(), m_format.name().toLowerCase(), m_threads, m_durationSec, m_warmupSec, m_seed, m_messageCount,
+				m_mix.toString().toLowerCase(), m_timeSeriesLength, m_arrayRows, m_arrayColumns,
+				m_recordFields, m_recordDepth);
+	}
+
+	private void parseMix(String value) throws IllegalArgumentException
+	{
+		m_mix.clear();
+
+		for (String entry : value.split(","))
+		{
+			String[] parts = entry.split(":");
+
+			if (parts.length != 2)
+			{
+				throw new IllegalArgumentException("Invalid mix entry \"" + entry + "\"");
+			}
+
+			ItemKind kind = parseEnum(ItemKind.class, parts[0], "--mix");
+			m_mix.put(kind, parseNonNegativeInt(parts[1], "--mix"));
+		}
+
+		int total = 0;
+
+		for (int weight : m_mix.values())
+		{
+			total += weight;
+		}
+
+		if (total == 0)
+		{
+			throw new IllegalArgumentException("The mix must have at least one non-zero weight");
+		}
+	}
+
+	private static <T extends Enum<T>> T parseEnum(Class<T> cls, String value, String argName)
+	{
+		try
+		{
+			return Enum.valueOf(cls, value.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Invalid value \"" + value + "\" for " + argName);
+		}
+	}
+
+	private static int parsePositiveInt(String value, String argName)
+	{
+		int retval = parseNonNegativeInt(value, argName);
+
+		if (retval == 0)
+		{
+			throw new IllegalArgumentException(argName + " must be positive");
+		}
+
+		return retval;
+	}
+
+	private static int parseNonNegativeInt(String value, String argName)
+	{
+		long retval = parseLong(value, argName);
+
+		if (retval < 0 || retval > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid value \"" + value + "\" for " + argName);
+		}
+
+		return (int)retval;
+	}
+
+	private static long parseLong(String value, String argName)
+	{
+		try
+		{
+			return Long.parseLong(value.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid value \"" + value + "\" for " + argName);
+		}
+	}
+}
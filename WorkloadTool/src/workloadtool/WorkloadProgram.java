@@ -0,0 +1,324 @@
+//
+// Please make sure to read and understand the files README.md and LICENSE.txt.
+//
+// This file was prepared in the research project COCOP (Coordinating
+// Optimisation of Complex Industrial Processes).
+// https://cocop-spire.eu/
+//
+// Author: Petri Kannisto, Tampere University, Finland
+// File created: 10/2026
+// Last modified: 10/2026
+
+package workloadtool;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import eu.cocop.messageserialiser.meas.BinaryCodec;
+import eu.cocop.messageserialiser.meas.InvalidMessageException;
+import eu.cocop.messageserialiser.meas.JsonCodec;
+import eu.cocop.messageserialiser.meas.Observation;
+
+/**
+ * A command line tool to measure the throughput and latency of encoding and
+ * decoding with a synthetic message mix. The tool is meant for hardware sizing
+ * and for comparing library versions. Run without arguments to use the defaults
+ * or with "--help" to see the options.
+ * @author Petri Kannisto
+ */
+public class WorkloadProgram
+{
+	public static void main(String[] args) throws Exception
+	{
+		WorkloadConfig config;
+
+		try
+		{
+			if (args.length == 1 && (args[0].equals("--help") || args[0].equals("-h")))
+			{
+				System.out.println(WorkloadConfig.getUsage());
+				return;
+			}
+
+			config = WorkloadConfig.parse(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println(WorkloadConfig.getUsage());
+			System.exit(1);
+			return;
+		}
+
+		System.out.println("Configuration: " + config.toString());
+
+		// Generating the messages in advance so that generation does not affect the results
+		Observation[] observations = new Observation[config.getMessageCount()];
+		byte[][] encoded = new byte[config.getMessageCount()][];
+		ObservationGenerator generator = new ObservationGenerator(config);
+		long totalBytes = 0;
+
+		for (int a = 0; a < observations.length; ++a)
+		{
+			observations[a] = generator.next();
+			encoded[a] = encode(observations[a], config.getFormat());
+			totalBytes += encoded[a].length;
+		}
+
+		System.out.println(String.format("Generated %d messages, mean size %.0f bytes",
+				observations.length, (double)totalBytes / observations.length));
+
+		// Running the workers
+		long nowNanos = System.nanoTime();
+		long measureStart = nowNanos + config.getWarmupSec() * 1000000000L;
+		long measureEnd = measureStart + config.getDurationSec() * 1000000000L;
+		ArrayList<Worker> workers = new ArrayList<>();
+		ArrayList<Thread> threads = new ArrayList<>();
+
+		for (int t = 0; t < config.getThreads(); ++t)
+		{
+			// Each worker starts at a different message to avoid lockstep
+			int offset = (int)((long)t * observations.length / config.getThreads());
+			Worker worker = new Worker(config.getMode(), config.getFormat(), observations, encoded, offset, measureStart, measureEnd);
+			Thread thread = new Thread(worker, "workload-" + t);
+			workers.add(worker);
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		printResults(config, workers);
+	}
+
+	private static void printResults(WorkloadConfig config, ArrayList<Worker> workers)
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		long bytesProcessed = 0;
+		long allocatedBytes = 0;
+		boolean allocationSupported = true;
+
+		for (Worker worker : workers)
+		{
+			if (worker.getError() != null)
+			{
+				System.err.println("A worker failed:");
+				worker.getError().printStackTrace();
+				System.exit(2);
+			}
+
+			histogram.add(worker.getHistogram());
+			bytesProcessed += worker.getBytesProcessed();
+
+			if (worker.getAllocatedBytes() < 0)
+			{
+				allocationSupported = false;
+			}
+			else
+			{
+				allocatedBytes += worker.getAllocatedBytes();
+			}
+		}
+
+		double seconds = config.getDurationSec();
+		long ops = histogram.getTotalCount();
+
+		System.out.println();
+		System.out.println(String.format("Operations:    %d", ops));
+		System.out.println(String.format("Throughput:    %.1f msg/s, %.2f MB/s",
+				ops / seconds, bytesProcessed / seconds / 1e6));
+		System.out.println("Latency (us):");
+		System.out.println(String.format("  mean  %10.2f", histogram.getMean() / 1e3));
+		System.out.println(String.format("  p50   %10.2f", histogram.getValueAtPercentile(50) / 1e3));
+		System.out.println(String.format("  p90   %10.2f", histogram.getValueAtPercentile(90) / 1e3));
+		System.out.println(String.format("  p99   %10.2f", histogram.getValueAtPercentile(99) / 1e3));
+		System.out.println(String.format("  p99.9 %10.2f", histogram.getValueAtPercentile(99.9) / 1e3));
+		System.out.println(String.format("  max   %10.2f", histogram.getMax() / 1e3));
+
+		if (allocationSupported && ops > 0)
+		{
+			System.out.println(String.format("Allocation:    %.1f MB/s, %.0f bytes/msg",
+					allocatedBytes / seconds / 1e6, (double)allocatedBytes / ops));
+		}
+		else
+		{
+			System.out.println("Allocation:    (not supported by this JVM)");
+		}
+	}
+
+	private static byte[] encode(Observation obs, WorkloadConfig.Format format)
+	{
+		switch (format)
+		{
+		case BINARY:
+			return BinaryCodec.encode(obs);
+		case JSON:
+			return JsonCodec.encode(obs);
+		default:
+			return obs.toXmlBytes();
+		}
+	}
+
+	private static Observation decode(byte[] bytes, WorkloadConfig.Format format) throws InvalidMessageException
+	{
+		switch (format)
+		{
+		case BINARY:
+			return BinaryCodec.decodeObservation(bytes);
+		case JSON:
+			return JsonCodec.decodeObservation(bytes);
+		default:
+			return new Observation(bytes);
+		}
+	}
+
+	/**
+	 * Gets the count of bytes allocated by the current thread.
+	 * @return Byte count or -1 if not supported by the JVM.
+	 */
+	private static long getAllocatedBytesOfCurrentThread()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled())
+			{
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Runs the operations in a thread. Each worker records to its own histogram
+	 * to avoid contention.
+	 */
+	private static final class Worker implements Runnable
+	{
+		private final WorkloadConfig.Mode m_mode;
+		private final WorkloadConfig.Format m_format;
+		private final Observation[] m_observations;
+		private final byte[][] m_encoded;
+		private final long m_measureStart;
+		private final long m_measureEnd;
+		private int m_position;
+
+		private final LatencyHistogram m_histogram = new LatencyHistogram();
+		private long m_bytesProcessed = 0;
+		private long m_allocatedBytes = -1;
+		private Exception m_error = null;
+
+		// Prevents the JIT from eliminating the results
+		private long m_sink = 0;
+
+
+		Worker(WorkloadConfig.Mode mode, WorkloadConfig.Format format, Observation[] observations, byte[][] encoded, int offset, long measureStart, long measureEnd)
+		{
+			m_mode = mode;
+			m_format = format;
+			m_observations = observations;
+			m_encoded = encoded;
+			m_position = offset;
+			m_measureStart = measureStart;
+			m_measureEnd = measureEnd;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				// Warm-up
+				while (System.nanoTime() < m_measureStart)
+				{
+					runOnce();
+				}
+
+				long allocStart = getAllocatedBytesOfCurrentThread();
+				long now = System.nanoTime();
+
+				while (now < m_measureEnd)
+				{
+					int bytes = runOnce();
+					long end = System.nanoTime();
+					m_histogram.record(end - now);
+					m_bytesProcessed += bytes;
+					now = end;
+				}
+
+				long allocEnd = getAllocatedBytesOfCurrentThread();
+
+				if (allocStart >= 0 && allocEnd >= 0)
+				{
+					m_allocatedBytes = allocEnd - allocStart;
+				}
+
+				if (m_sink == 42)
+				{
+					// Practically never happens
+					System.out.print("");
+				}
+			}
+			catch (Exception e)
+			{
+				m_error = e;
+			}
+		}
+
+		private int runOnce() throws InvalidMessageException
+		{
+			int index = m_position;
+			m_position = (m_position + 1) % m_observations.length;
+
+			switch (m_mode)
+			{
+			case ENCODE:
+			{
+				byte[] bytes = encode(m_observations[index], m_format);
+				m_sink += bytes.length;
+				return bytes.length;
+			}
+			case DECODE:
+			{
+				Observation obs = decode(m_encoded[index], m_format);
+				m_sink += obs.hashCode();
+				return m_encoded[index].length;
+			}
+			default:
+			{
+				byte[] bytes = encode(m_observations[index], m_format);
+				Observation obs = decode(bytes, m_format);
+				m_sink += obs.hashCode();
+				return bytes.length;
+			}
+			}
+		}
+
+		LatencyHistogram getHistogram()
+		{
+			return m_histogram;
+		}
+
+		long getBytesProcessed()
+		{
+			return m_bytesProcessed;
+		}
+
+		long getAllocatedBytes()
+		{
+			return m_allocatedBytes;
+		}
+
+		Exception getError()
+		{
+			return m_error;
+		}
+	}
+}